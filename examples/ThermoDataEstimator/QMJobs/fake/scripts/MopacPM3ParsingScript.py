@@ -0,0 +1,31 @@
+# Fake cclib parser for run.sh: prints, in the format QMTP.getQMDataWithCClib()
+# reads, the atoms of a fake MOPAC output with made-up energy, frequencies and
+# rotational constants that depend only on the atoms.
+#   python MopacPM3ParsingScript.py name.out RMG/source
+import sys
+
+numbers = {"H": 1, "C": 6, "N": 7, "O": 8, "Si": 14, "S": 16, "Cl": 17}
+masses = {"H": 1.008, "C": 12.011, "N": 14.007, "O": 15.999, "Si": 28.086, "S": 32.065, "Cl": 35.453}
+
+atoms = []
+reading = False
+for line in open(sys.argv[1]):
+    if line.strip() == "CARTESIAN COORDINATES":
+        reading = True
+    elif reading and line.split():
+        tokens = line.split()
+        atoms.append((tokens[1], tokens[2], tokens[3], tokens[4]))
+    elif reading and atoms:
+        break
+
+n = len(atoms)
+print(n)
+print("[" + ", ".join([str(numbers[a[0]]) for a in atoms]) + "]")
+for a in atoms:
+    print("[ %s %s %s]" % a[1:])
+print(-0.01 * n)
+print(sum([masses[a[0]] for a in atoms]))
+if n > 1:
+    modes = max(3 * n - 6, 1)
+    print("[" + ", ".join(["%.4f" % (300.0 + 2700.0 * i / modes) for i in range(modes)]) + "]")
+    print("[ %.5f %.5f %.5f]" % (30.0 / n, 20.0 / n, 10.0 / n))
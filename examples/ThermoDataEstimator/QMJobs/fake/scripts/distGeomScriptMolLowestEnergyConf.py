@@ -0,0 +1,16 @@
+# Fake RDKit embedding for run.sh:
+#   python distGeomScriptMolLowestEnergyConf.py in.mol out.mol out.cmol attempts RDBASE
+# places the atoms of in.mol on a helix and writes the result to both output files.
+import math
+import sys
+
+lines = open(sys.argv[1]).read().split("\n")
+atoms = int(lines[3].split()[0])
+for i in range(atoms):
+    tokens = lines[4 + i].split()
+    angle = 2 * math.pi * i / max(atoms, 1)
+    lines[4 + i] = "%10.4f%10.4f%10.4f %-3s %s" % (1.5 * math.cos(angle), 1.5 * math.sin(angle), 0.3 * i, tokens[3], " ".join(tokens[4:]))
+for path in sys.argv[2:4]:
+    out = open(path, "w")
+    out.write("\n".join(lines))
+    out.close()
@@ -0,0 +1,66 @@
+#! /bin/bash
+#
+# Exercises concurrent QM thermo calculations (QMJobs) without any QM software:
+# runs ThermoDataEstimator on input.txt with QMJobs: 1 and with QMJobs: 4, using the
+# fake InChI, RDKit, OpenBabel, MOPAC, cclib, SYMMETRY and GATPFit programs in fake/.
+# The fake MOPAC takes a few seconds per molecule and logs when each job starts and
+# ends. The run passes if the jobs overlapped with QMJobs: 4 (and not with 1), and
+# both runs wrote the same thermo data, i.e. every species picked up the result of
+# its background calculation. Everything the runs write is left in work/.
+#
+# Set RMG_CLASSPATH to use classes other than $RMG/bin/RMG.jar.
+
+if [ -z "$RMG" ]
+then
+  echo "Environment variable \$RMG is not defined.  Please set to the location of your RMG installation."
+  exit 1
+fi
+
+classpath=${RMG_CLASSPATH:-$RMG/bin/RMG.jar}
+here=$(cd "$(dirname "$0")" && pwd)
+work=$here/work
+rm -rf "$work"
+
+# an RMG tree with the real databases and the fake programs
+mkdir -p "$work/rmg"
+ln -s "$RMG/databases" "$work/rmg/databases"
+ln -s "$here/fake/bin" "$work/rmg/bin"
+ln -s "$here/fake/scripts" "$work/rmg/scripts"
+
+export PATH=$here/fake/path:$PATH
+export MOPAC_LICENSE=$here/fake/mopac
+export RDBASE=${RDBASE:-$here/fake}
+
+status=0
+for jobs in 1 4
+do
+  dir=$work/QMJobs$jobs
+  mkdir -p "$dir"
+  sed "s/^QMJobs:.*/QMJobs: $jobs/" "$here/input.txt" > "$dir/input.txt"
+  echo "Running ThermoDataEstimator with QMJobs: $jobs..."
+  (cd "$dir" && RMG=$work/rmg FAKE_MOPAC_LOG=$dir/mopac.log java -Xmx500m -classpath "$classpath" ThermoDataEstimator input.txt > RMG.log 2>&1)
+
+  # the largest number of MOPAC jobs that were running at the same time
+  touch "$dir/mopac.log"
+  overlap=$(sort -k2,2n "$dir/mopac.log" | awk '$1 == "start" { if (++n > max) max = n } $1 == "end" { n-- } END { print max + 0 }')
+  calculations=$(grep -c "^start" "$dir/mopac.log")
+  echo "  $calculations MOPAC jobs, at most $overlap at the same time"
+  if [ "$calculations" -eq 0 ] || [ ! -s "$dir/TDEresultsCHEMKIN.dat" ]
+  then
+    echo "  Error: no QM results; see $dir/RMG.log"
+    status=1
+  fi
+  if [ $jobs -eq 1 ] && [ "$overlap" -gt 1 ]; then echo "  Error: the MOPAC jobs overlapped"; status=1; fi
+  if [ $jobs -gt 1 ] && [ "$overlap" -le 1 ]; then echo "  Error: the MOPAC jobs did not overlap"; status=1; fi
+done
+
+# the species are written in no particular order, so compare the sorted lines
+if [ $status -eq 0 ] && diff <(sort "$work/QMJobs1/TDEresultsCHEMKIN.dat") <(sort "$work/QMJobs4/TDEresultsCHEMKIN.dat") > /dev/null
+then
+  echo "QMJobs: 1 and QMJobs: 4 gave the same thermo data"
+elif [ $status -eq 0 ]
+then
+  echo "Error: QMJobs: 1 and QMJobs: 4 gave different thermo data; see $work/QMJobs*/TDEresultsCHEMKIN.dat"
+  status=1
+fi
+exit $status
@@ -76,6 +76,7 @@ public class RMG {
             createFolder("2Dmolfiles", true);   // Not sure if we should be deleting this
             createFolder("3Dmolfiles", true);   // Not sure if we should be deleting this
             createFolder("QMfiles", false);     // Preserving QM files between runs will speed things up considerably
+            createFolder("famecache", false);   // Likewise for FAME results of networks solved before
             
             // The only parameter should be the path to the condition file
             String inputfile = args[0];
@@ -109,7 +109,8 @@ public class ThermoDataEstimator {
 
 	}
 	/**
-	 * dynamic constraints setting on the number of atoms (C,O,heavy,etc) in the species
+	 * dynamic constraints setting on the number of atoms (C,O,heavy,etc) in the species,
+	 * and the number of QM calculations run at the same time (QMJobs)
 	 * 
 	 */
 	private static void readAtomConstraints(BufferedReader reader) {
@@ -171,6 +172,13 @@ public class ThermoDataEstimator {
 		    	ChemGraph.setMaxCycleNumber(maxCycleNum);
 		    	Logger.info("Note: Overriding default MAX_CYCLE_NUM with user-defined value: " + maxCycleNum);
 		    	
+		    }
+			else if (line.startsWith("QMJobs")) {
+		    	StringTokenizer st = new StringTokenizer(line);
+		    	String dummyString = st.nextToken();	// This should hold "QMJobs:"
+		    	QMJobScheduler.setMaxConcurrentJobs(Integer.parseInt(st.nextToken()));
+		    	Logger.info("Note: Running up to " + QMJobScheduler.getMaxConcurrentJobs() + " QM thermo calculations at the same time");
+		    	
 		    }
 			line = ChemParser.readMeaningfulLine(reader, true);
 		}
@@ -194,10 +202,16 @@ public class ThermoDataEstimator {
 		    FileWriter fw = new FileWriter(chemkinFile);
 		    BufferedWriter bw = new BufferedWriter(fw);
 
-		    //iterate through all the species
+		    //make all the species first, so that with QMJobs > 1 their QM calculations run
+		    //alongside each other; each is collected when its thermo is written below
+		    List<Species> speciesList = new ArrayList<Species>();
 		    for(ChemGraph chemgraph : mappedChemGraphsToNames.keySet()){
+			    speciesList.add(Species.make(mappedChemGraphsToNames.get(chemgraph),chemgraph));
+		    }
+
+		    //iterate through all the species
+		    for(Species spe : speciesList){
 
-			    Species spe = Species.make(mappedChemGraphsToNames.get(chemgraph),chemgraph);
 			    ChemGraph stableChemGraph = spe.getChemGraph();
 			    writeThermoDataInfo(spe, stableChemGraph);
 			    fw.write(getChemkinString(spe, stableChemGraph)+"\n");//write to the Chemkin file
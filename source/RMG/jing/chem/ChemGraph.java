@@ -98,6 +98,9 @@ public class ChemGraph implements Matchable {
     protected Graph graph;
     protected Species species;
     protected ThermoData thermoData;
+    /** The QM calculation of thermoData running in the background, if any (see QMJobScheduler). */
+    protected java.util.concurrent.Future pendingThermo;
+    protected String pendingThermoName;
     protected AbramData abramData;
     protected UnifacData unifacData;
     protected GeneralGAPP thermoGAPP;
@@ -200,6 +203,7 @@ public class ChemGraph implements Matchable {
 		}
 	    }
 	 }
+	graph.resetCanonicalForm();
 	            /**
              * After the bonds that were previously defined as "S" or "D" bonds,
              * have been renamed to "B" bonds,
@@ -416,6 +420,55 @@ public class ChemGraph implements Matchable {
        //#]
    }
 
+    /**
+     * Returns a copy of p_chemGraph in which every radical site except the
+     * one at node ID p_radicalSite (-1 for none) is saturated with H atoms,
+     * for the hydrogen bond increment (HBI) estimates of GATP and QMTP, so
+     * that p_chemGraph itself is never modified. The node IDs of
+     * p_chemGraph are kept. Like the graph that the HBI estimates used to
+     * saturate in place, the copy keeps the cached symmetry number and
+     * internal rotor count of p_chemGraph; its InChI, chemical formula and
+     * thermo data are found anew.
+     */
+    static ChemGraph saturatedCopy(ChemGraph p_chemGraph, int p_radicalSite) {
+        ChemGraph result = null;
+        try {
+            result = ChemGraph.copy(p_chemGraph);
+        }
+        catch (ForbiddenStructureException e) {
+            Logger.logStackTrace(e);
+            Logger.critical(e.getMessage());
+            System.exit(0);
+        }
+        result.InChI = null;
+        result.InChIKey = null;
+        result.chemicalFormula = null;
+        result.thermoData = null;
+
+        FreeElectron satuated = FreeElectron.make("0");
+        Atom H = Atom.make(ChemElement.make("H"),satuated);
+        Bond S = Bond.make("S");
+        Graph g = result.getGraph();
+        ArrayList radicalNodes = new ArrayList();
+        for (Iterator iter = g.getNodeList(); iter.hasNext(); ) {
+            Node node = (Node)iter.next();
+            if (((Atom)node.getElement()).isRadical() && node.getID().intValue() != p_radicalSite) radicalNodes.add(node);
+        }
+        for (Iterator iter = radicalNodes.iterator(); iter.hasNext(); ) {
+            Node node = (Node)iter.next();
+            Atom atom = (Atom)node.getElement();
+            int HNum = atom.getRadicalNumber();
+            node.setElement(Atom.make(atom.getChemElement(),satuated));
+            node.updateFeElement();
+            for (int j = 0; j < HNum; j++) {
+                Node n = g.addNode(H);
+                g.addArcBetween(node,S,n);
+            }
+            node.updateFgElement();
+        }
+        return result;
+    }
+
     /**
     Requires: acyclic ChemGraph
     Effects: calculate and return the symmetry number centered at p_node atom
@@ -1156,6 +1209,8 @@ return sn;
                if (!isAcyclic()) {//svp
                 sn *= calculateCyclicSymmetryNumber();
               }
+               // isSymmetric() takes neighbors out and puts them back, which reorders them
+               getGraph().resetCanonicalForm();
 
                symmetryNumber = sn;
                return sn;
@@ -1217,6 +1272,22 @@ return sn;
     Modifies:
     */
     //## operation copy(ChemGraph)
+    /**
+     * Gives this graph the thermo data (or the pending QM calculation of it),
+     * symmetry number and internal rotor count of p_chemGraph, another graph
+     * of the same species.
+     */
+    void copyThermoFrom(ChemGraph p_chemGraph) {
+        thermoData = p_chemGraph.thermoData;
+        symmetryNumber = p_chemGraph.symmetryNumber;
+        internalRotor = p_chemGraph.internalRotor;
+        solvthermoData = p_chemGraph.solvthermoData;
+        if (thermoData == null && p_chemGraph.pendingThermo != null) {
+        	pendingThermo = p_chemGraph.pendingThermo;
+        	pendingThermoName = p_chemGraph.pendingThermoName;
+        }
+    }
+
     public static ChemGraph copy(ChemGraph p_chemGraph) throws ForbiddenStructureException {
         Graph g = Graph.copy(p_chemGraph.getGraph());
 
@@ -1409,7 +1480,8 @@ return sn;
                     else  thermoGAPP=QMTP.getINSTANCE();
                 }
                 else if (thermoGAPP == null) setDefaultThermoGAPP();
-        	thermoData = thermoGAPP.generateThermoData(this);
+        	if (pendingThermo != null) thermoData = QMJobScheduler.collect(this);
+        	else thermoData = thermoGAPP.generateThermoData(this);
 		//fall back to GATP if it is a failed QMTP calculation
 		if (((String)thermoData.getSource()).equals("***failed calculation***")){
 		    Logger.warning("Falling back to group additivity due to repeated failure in QMTP calculations");
@@ -2094,14 +2166,14 @@ return sn;
 
    /**
     Requires:
-    Effects: return chemicalFormula's hashcode.  i.e., all the isomers have the same hashcode
+    Effects: return a hashcode mixing the chemicalFormula with the canonical hash code of the graph, so that isomers of the same formula fall into different buckets
     Modifies:
     */
     //## operation hashCode()
     public int hashCode() {
         //#[ operation hashCode()
         if (chemicalFormula == null) generateChemicalFormula();
-        return chemicalFormula.hashCode()+getTripleBonds()*300 + getSingleBonds()*1 + getDoubleBonds()*20;
+        return 31*chemicalFormula.hashCode() + getGraph().getCanonicalHashCode();
         //#]
     }
 
@@ -2170,6 +2242,15 @@ return sn;
         //#]
     }
 
+    /**
+    Requires:
+    Effects: return the canonical adjacency string of the graph.  Two chem graphs are equivalent iff their canonical strings are equal.
+    Modifies:
+    */
+    public String getCanonicalString() {
+        return getGraph().getCanonicalString();
+    }
+
     /**
     Requires:
     Effects: return true iff this and p_chemGraph are equivalent chemgraphs.
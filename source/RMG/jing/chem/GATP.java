@@ -125,67 +125,38 @@ public class GATP implements GeneralGAPP {
         //#[ operation getGAGroup(ChemGraph)
         ThermoData result = new ThermoData();
     
-        Graph g = p_chemGraph.getGraph();
         HashMap oldCentralNode = (HashMap)(p_chemGraph.getCentralNode()).clone();
 
-        // satuate radical site
-        int max_radNum_molecule = ChemGraph.getMAX_RADICAL_NUM();
-        int max_radNum_atom = Math.min(8,max_radNum_molecule);
-        int [] idArray = new int[max_radNum_molecule];
-        Atom []  atomArray = new Atom[max_radNum_molecule];
-        Node [][] newnode = new Node[max_radNum_molecule][max_radNum_atom];
-
-        int radicalSite = 0;
+        // find the radical sites; the groups are found on a copy of the chem graph with every radical site
+        // satuated with H, and each radical correction on a copy with only that site left radical, so that
+        // p_chemGraph itself is not modified
+        ArrayList radicalSites = new ArrayList();
         Iterator iter = p_chemGraph.getNodeList();
-        FreeElectron satuated = FreeElectron.make("0");
         while (iter.hasNext()) {
         	Node node = (Node)iter.next();
-           	Atom atom = (Atom)node.getElement();
-           	if (atom.isRadical()) {
-           		radicalSite ++;
-           		// save the old radical atom
-           		idArray[radicalSite-1] = node.getID().intValue();
-           		atomArray[radicalSite-1] = atom;
-           		// new a satuated atom and replace the old one
-           		Atom newAtom = Atom.make(atom.getChemElement(),satuated);
-           		node.setElement(newAtom);
-           		node.updateFeElement();
-           	}
-        }
-
-        // add H to satuate chem graph
-        Atom H = Atom.make(ChemElement.make("H"),satuated);
-        Bond S = Bond.make("S");
-        for (int i=0;i<radicalSite;i++) {
-           	Node node = p_chemGraph.getNodeAt(idArray[i]);
-           	Atom atom = atomArray[i];
-           	int HNum = atom.getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
+           	if (((Atom)node.getElement()).isRadical()) radicalSites.add(node.getID());
         }
+        ChemGraph satuated = radicalSites.isEmpty() ? p_chemGraph : ChemGraph.saturatedCopy(p_chemGraph, -1);
 
         // find all the thermo groups
-        iter = p_chemGraph.getNodeList();
+        iter = satuated.getNodeList();
         while (iter.hasNext()) {
           	Node node = (Node)iter.next();
           	Atom atom = (Atom)node.getElement();
           	if (!(atom.getType().equals("H"))) {
            		if (!atom.isRadical()) {
 
-           			p_chemGraph.resetThermoSite(node);
-           			ThermoGAValue thisGAValue = thermoLibrary.findGAGroup(p_chemGraph);
+           			satuated.resetThermoSite(node);
+           			ThermoGAValue thisGAValue = thermoLibrary.findGAGroup(satuated);
                     //System.out.println(thisGAValue);
  
                     //2/5/09 gmagoon: for acyclic molecules, check for and include gauche and 1,5 corrections (cyclic molecules should also have these corrections, but they appear to be more complicated and depend upon the actual 3D-structure; in general, it seems there are fewer gauche corrections for cyclic than acyclic (for the same degree of carbon atom))
-                                if(p_chemGraph.isAcyclic())
+                                if(satuated.isAcyclic())
                                 {
-                                    p_chemGraph.resetThermoSite(node);
-                                    ThermoGAValue thisGaucheValue = thermoLibrary.findGaucheGroup(p_chemGraph);
-                                    p_chemGraph.resetThermoSite(node);
-                                    ThermoGAValue thisOneFiveValue = thermoLibrary.find15Group(p_chemGraph);
+                                    satuated.resetThermoSite(node);
+                                    ThermoGAValue thisGaucheValue = thermoLibrary.findGaucheGroup(satuated);
+                                    satuated.resetThermoSite(node);
+                                    ThermoGAValue thisOneFiveValue = thermoLibrary.find15Group(satuated);
                                     if(thisGaucheValue!=null)
                                         result.plus(thisGaucheValue);
                                     if(thisOneFiveValue!=null)
@@ -205,24 +176,17 @@ public class GATP implements GeneralGAPP {
            		}
            	}
         }
+        if (satuated != p_chemGraph) p_chemGraph.thermoComments += satuated.thermoComments;
 
         // find the BDE for all radical groups
-        for (int i=0; i<radicalSite; i++) {
-          	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	Atom old = (Atom)node.getElement();
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-
-            // get rid of the extra H at ith site
-          	int HNum = atomArray[i].getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
-
-           	p_chemGraph.resetThermoSite(node);
-           	ThermoGAValue thisGAValue = thermoLibrary.findRadicalGroup(p_chemGraph);
+        for (Iterator siteIter = radicalSites.iterator(); siteIter.hasNext(); ) {
+          	int id = ((Integer)siteIter.next()).intValue();
+          	ChemGraph radical = ChemGraph.saturatedCopy(p_chemGraph, id);
+          	Node node = radical.getNodeAt(id);
+
+           	radical.resetThermoSite(node);
+           	ThermoGAValue thisGAValue = thermoLibrary.findRadicalGroup(radical);
+           	p_chemGraph.thermoComments += radical.thermoComments;
            	if (thisGAValue == null) {
            		Logger.warning("Radical group not found: " + node.getID());
            	}
@@ -230,31 +194,6 @@ public class GATP implements GeneralGAPP {
            		//System.out.println(node.getID() + " radical correction: " + thisGAValue.getName() + "  "+thisGAValue.toString());
            		result.plus(thisGAValue);
             }
-
-            //recover the saturated site for next radical site calculation
-          	node.setElement(old);
-          	node.updateFeElement();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
-
-         }
-
-         // recover the chem graph structure
-         // recover the radical
-         for (int i=0; i<radicalSite; i++) {
-           	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-           	int HNum = atomArray[i].getRadicalNumber();
-         	//get rid of extra H
-           	for (int j=0;j<HNum;j++) {
-          	g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
          }
 
          // subtract the enthalphy of H from the result
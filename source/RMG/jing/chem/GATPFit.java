@@ -43,58 +43,21 @@ import jing.mathTool.*;
 import jing.chemUtil.*;
 import jing.chemParser.*;
 import jing.rxnSys.Logger;
+import jing.rxnSys.NativeWorkerPool;
 /**
  * Contains methods used to interact with GATPFit.
  */
 public class GATPFit {
 
-    private static Process GATPFit; 
-    private static BufferedReader errorStream, dataOutput; 
-    private static PrintWriter commandInput; 
-
-    static {
-      try {
-		    String workingDirectory = System.getProperty("RMG.workingDirectory");
+    //## operation getWorkerPool()
+    /**
+     * GATPFit.exe reads one input after another from stdin and ends each output
+     * with GATPFIT_HAS_FINISHED_ONE_INPUT, so the same processes serve every species.
+     */
+    private static NativeWorkerPool getWorkerPool() {
+        String workingDirectory = System.getProperty("RMG.workingDirectory");
         String[] command = {workingDirectory +  "/bin/GATPFit.exe"};
-        File runningDir = new File("GATPFit");
-        GATPFit = Runtime.getRuntime().exec(command, null, runningDir);
-        errorStream = new BufferedReader(new InputStreamReader(GATPFit.getErrorStream()));
-        commandInput = new PrintWriter(GATPFit.getOutputStream(), true);
-        BufferedInputStream in = new BufferedInputStream(GATPFit.getInputStream());
-        dataOutput = new BufferedReader(new InputStreamReader(in));
-
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-          public void run() {
-            GATPFit.destroy(); 
-          }
-        } ); 
-
-        Thread Terr = new Thread(new Runnable(){
-          public void run(){
-            try {
-              String errline = errorStream.readLine();
-              if (errline!=null){
-                String error_message="GATPFit Error: ";
-                while (errline!=null){
-                  error_message+=errline;
-                  errline=errorStream.readLine();
-                }
-                throw new GATPFitException(error_message);
-              }
-            } catch (Exception e){
-              Logger.logStackTrace(e); 
-              throw new GATPFitException(e.toString()); 
-            }
-          }
-        } );
-        Terr.start(); 
-      } catch (Exception e) {
-        Logger.logStackTrace(e);
-        String ls = System.getProperty("line.separator");
-        String err = "Error running GATPFit" + ls;
-        err += e.toString();
-        throw new GATPFitException(err);
-      }
+        return NativeWorkerPool.getPool(command, "GATPFit", "GATPFIT_HAS_FINISHED_ONE_INPUT", NativeWorkerPool.getDefaultSize());
     }
 
 
@@ -189,9 +152,7 @@ public class GATPFit {
         final String inputString = result.toString(); 
         boolean error = false;
         try {
-        	commandInput.println(inputString);
-            commandInput.flush();
-            if (commandInput.checkError()) throw new GATPFitException("Error writing input to GATPFit buffer");
+            BufferedReader dataOutput = new BufferedReader(new StringReader(getWorkerPool().call(inputString)));
             
             String line = dataOutput.readLine();
             if (line==null) {
@@ -199,7 +160,7 @@ public class GATPFit {
             }
             line = dataOutput.readLine(); // skip first line (just says "The Chemkin polynomical coefficients calculated:")
             String nasaString = "";
-            while ( (line != null) && !(line.contains("GATPFIT_HAS_FINISHED_ONE_INPUT"))) {
+            while (line != null) {
                 nasaString += line + System.getProperty("line.separator");
                 line = dataOutput.readLine();
             }
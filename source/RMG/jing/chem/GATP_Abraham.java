@@ -119,57 +119,29 @@ public class GATP_Abraham implements GeneralAbramGAPP {
 	public AbrahamGAValue getABGroup(ChemGraph p_chemGraph) {
         
         AbramData result_abram = new AbramData();
-        Graph g = p_chemGraph.getGraph();
         HashMap oldCentralNode = (HashMap)(p_chemGraph.getCentralNode()).clone();
 		
-        // saturate radical site
-        int max_radNum_molecule = ChemGraph.getMAX_RADICAL_NUM();
-        int max_radNum_atom = Math.min(8,max_radNum_molecule);
-        int [] idArray = new int[max_radNum_molecule];
-        Atom []  atomArray = new Atom[max_radNum_molecule];
-        Node [][] newnode = new Node[max_radNum_molecule][max_radNum_atom];
-		
-        int radicalSite = 0;
+        // find the radical sites; the groups are found on a copy of the chem graph with every radical site
+        // saturated with H, and each radical correction on a copy with only that site left radical, so that
+        // p_chemGraph itself is not modified
+        ArrayList radicalSites = new ArrayList();
         Iterator iter = p_chemGraph.getNodeList();
-        FreeElectron satuated = FreeElectron.make("0");
         while (iter.hasNext()) {
         	Node node = (Node)iter.next();
-           	Atom atom = (Atom)node.getElement();
-           	if (atom.isRadical()) {
-           		radicalSite ++;
-           		// save the old radical atom
-           		idArray[radicalSite-1] = node.getID().intValue();
-           		atomArray[radicalSite-1] = atom;
-           		// new a saturated atom and replace the old one
-           		Atom newAtom = new Atom(atom.getChemElement(),satuated);
-           		node.setElement(newAtom);
-           		node.updateFeElement();
-           	}
-        }
-        // add H to saturate chem graph
-        Atom H = Atom.make(ChemElement.make("H"),satuated);
-        Bond S = Bond.make("S");
-        for (int i=0;i<radicalSite;i++) {
-           	Node node = p_chemGraph.getNodeAt(idArray[i]);
-           	Atom atom = atomArray[i];
-           	int HNum = atom.getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
+           	if (((Atom)node.getElement()).isRadical()) radicalSites.add(node.getID());
         }
+        ChemGraph saturated = radicalSites.isEmpty() ? p_chemGraph : ChemGraph.saturatedCopy(p_chemGraph, -1);
 		
         // find all the thermo groups
-        iter = p_chemGraph.getNodeList();
+        iter = saturated.getNodeList();
         while (iter.hasNext()) {
           	Node node = (Node)iter.next();
           	Atom atom = (Atom)node.getElement();
           	if (!(atom.getType().equals("H"))) {
            		if (!atom.isRadical()) {
 					
-                    p_chemGraph.resetThermoSite(node);
-          			AbrahamGAValue thisAbrahamValue = thermoLibrary.findAbrahamGroup(p_chemGraph);
+                    saturated.resetThermoSite(node);
+          			AbrahamGAValue thisAbrahamValue = thermoLibrary.findAbrahamGroup(saturated);
 					
                     if (thisAbrahamValue == null) {
            				Logger.warning("Abraham group not found: " + node.getID());
@@ -187,22 +159,13 @@ public class GATP_Abraham implements GeneralAbramGAPP {
         }
 		
 		        // find the Abraham corrections for all radical groups
-		        for (int i=0; i<radicalSite; i++) {
-		          	int id = idArray[i];
-		           	Node node = g.getNodeAt(id);
-		           	Atom old = (Atom)node.getElement();
-		           	node.setElement(atomArray[i]);
-		           	node.updateFeElement();
-		
-		            // get rid of the extra H at ith site
-		          	int HNum = atomArray[i].getRadicalNumber();
-		           	for (int j=0;j<HNum;j++) {
-		           		g.removeNode(newnode[i][j]);
-		           	}
-		           	node.updateFgElement();
+		        for (Iterator siteIter = radicalSites.iterator(); siteIter.hasNext(); ) {
+		          	int id = ((Integer)siteIter.next()).intValue();
+		          	ChemGraph radical = ChemGraph.saturatedCopy(p_chemGraph, id);
+		           	Node node = radical.getNodeAt(id);
 		
-		           	p_chemGraph.resetThermoSite(node);
-		           	AbrahamGAValue thisAbrahamValue = thermoLibrary.findAbrahamradGroup(p_chemGraph);
+		           	radical.resetThermoSite(node);
+		           	AbrahamGAValue thisAbrahamValue = thermoLibrary.findAbrahamradGroup(radical);
 		           	if (thisAbrahamValue == null) {
 		           		Logger.warning("Radical group not found: " + node.getID());
 		           	}
@@ -210,32 +173,7 @@ public class GATP_Abraham implements GeneralAbramGAPP {
 		           		//System.out.println(node.getID() + " radical correction: " + thisGAValue.getName() + "  "+thisGAValue.toString());
 		           		result_abram.plus(thisAbrahamValue);
 		            }
-		
-		            //recover the saturated site for next radical site calculation
-		          	node.setElement(old);
-		          	node.updateFeElement();
-		           	for (int j=0;j<HNum;j++) {
-		           		newnode[i][j] = g.addNode(H);
-		           		g.addArcBetween(node,S,newnode[i][j]);
-		           	}
-		           	node.updateFgElement();
-		
 		         }
-		
-		// recover the chem graph structure
-		// recover the radical
-		for (int i=0; i<radicalSite; i++) {
-           	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-           	int HNum = atomArray[i].getRadicalNumber();
-         	//get rid of extra H
-           	for (int j=0;j<HNum;j++) {
-                g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
-		}
 	
 		p_chemGraph.setCentralNode(oldCentralNode);
 		
@@ -59,58 +59,22 @@ public class GATP_Unifac implements GeneralUnifacGAPP {
 	
 	public UnifacGAValue getUnifacGroup(ChemGraph p_chemGraph) {
         UnifacData result_unifac = new UnifacData();
-        Graph g = p_chemGraph.getGraph();
         HashMap oldCentralNode = (HashMap)(p_chemGraph.getCentralNode()).clone();
 		
-        // satuate radical site
-        int max_radNum_molecule = ChemGraph.getMAX_RADICAL_NUM();
-        int max_radNum_atom = Math.min(8,max_radNum_molecule);
-        int [] idArray = new int[max_radNum_molecule];
-        Atom []  atomArray = new Atom[max_radNum_molecule];
-        Node [][] newnode = new Node[max_radNum_molecule][max_radNum_atom];
-		
-        int radicalSite = 0;
-        Iterator iter = p_chemGraph.getNodeList();
-        FreeElectron satuated = FreeElectron.make("0");
-        while (iter.hasNext()) {
-        	Node node = (Node)iter.next();
-           	Atom atom = (Atom)node.getElement();
-           	if (atom.isRadical()) {
-           		radicalSite ++;
-           		// save the old radical atom
-           		idArray[radicalSite-1] = node.getID().intValue();
-           		atomArray[radicalSite-1] = atom;
-           		// new a satuated atom and replace the old one
-           		Atom newAtom = new Atom(atom.getChemElement(),satuated);
-           		node.setElement(newAtom);
-           		node.updateFeElement();
-           	}
-        }
-		
-        // add H to satuate chem graph
-        Atom H = Atom.make(ChemElement.make("H"),satuated);
-        Bond S = Bond.make("S");
-        for (int i=0;i<radicalSite;i++) {
-           	Node node = p_chemGraph.getNodeAt(idArray[i]);
-           	Atom atom = atomArray[i];
-           	int HNum = atom.getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
-        }
+        // the groups are found on a copy of the chem graph with every radical site satuated with H,
+        // so that p_chemGraph itself is not modified
+        ChemGraph satuated = p_chemGraph.getRadicalNumber() == 0 ? p_chemGraph : ChemGraph.saturatedCopy(p_chemGraph, -1);
 		
         // find all the thermo groups
-        iter = p_chemGraph.getNodeList();
+        Iterator iter = satuated.getNodeList();
         while (iter.hasNext()) {
           	Node node = (Node)iter.next();
           	Atom atom = (Atom)node.getElement();
           	if (!(atom.getType().equals("H"))) {
            		if (!atom.isRadical()) {
 					
-                    p_chemGraph.resetThermoSite(node);
-          			UnifacGAValue thisUnifacValue = thermoLibrary.findUnifacGroup(p_chemGraph);
+                    satuated.resetThermoSite(node);
+          			UnifacGAValue thisUnifacValue = thermoLibrary.findUnifacGroup(satuated);
 					
 					if (thisUnifacValue == null) {
            				System.err.println("Unifac group not found: " + node.getID());
@@ -162,20 +126,6 @@ public class GATP_Unifac implements GeneralUnifacGAPP {
 		//
 		//         }
 		//
-		// recover the chem graph structure
-		// recover the radical
-		for (int i=0; i<radicalSite; i++) {
-           	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-           	int HNum = atomArray[i].getRadicalNumber();
-         	//get rid of extra H
-           	for (int j=0;j<HNum;j++) {
-				g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
-		}
 		//
 		//         // substrate the enthalphy of H from the result
 		//         int rad_number = p_chemGraph.getRadicalNumber();
@@ -64,64 +64,28 @@ public class GATransportP {
         LJData result = new LJData();
         result.na = p_chemGraph.getAtomNumber();
     
-        Graph g = p_chemGraph.getGraph();
         HashMap oldCentralNode = (HashMap)(p_chemGraph.getCentralNode()).clone();
         
         int na=p_chemGraph.getAtomNumber();//determine the number of atoms (before saturation)
         
-        // saturate radical site
-        int max_radNum_molecule = ChemGraph.getMAX_RADICAL_NUM();
-        int max_radNum_atom = Math.min(8,max_radNum_molecule);
-        int [] idArray = new int[max_radNum_molecule];
-        Atom []  atomArray = new Atom[max_radNum_molecule];
-        Node [][] newnode = new Node[max_radNum_molecule][max_radNum_atom];
-
-        int radicalSite = 0;
-        Iterator iter = p_chemGraph.getNodeList();
-        FreeElectron satuated = FreeElectron.make("0");
-        while (iter.hasNext()) {
-        	Node node = (Node)iter.next();
-           	Atom atom = (Atom)node.getElement();
-           	if (atom.isRadical()) {
-           		radicalSite ++;
-           		// save the old radical atom
-           		idArray[radicalSite-1] = node.getID().intValue();
-           		atomArray[radicalSite-1] = atom;
-           		// new a saturated atom and replace the old one
-           		Atom newAtom = new Atom(atom.getChemElement(),satuated);
-           		node.setElement(newAtom);
-           		node.updateFeElement();
-           	}
-        }
-
-        // add H to saturate chemgraph
-        Atom H = Atom.make(ChemElement.make("H"),satuated);
-        Bond S = Bond.make("S");
-        for (int i=0;i<radicalSite;i++) {
-           	Node node = p_chemGraph.getNodeAt(idArray[i]);
-           	Atom atom = atomArray[i];
-           	int HNum = atom.getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
-        }
+        // the groups are found on a copy of the chem graph with every radical site satuated with H,
+        // so that p_chemGraph itself is not modified
+        ChemGraph satuated = p_chemGraph.getRadicalNumber() == 0 ? p_chemGraph : ChemGraph.saturatedCopy(p_chemGraph, -1);
 
         // find all the transport groups
-        iter = p_chemGraph.getNodeList();
+        Iterator iter = satuated.getNodeList();
         while (iter.hasNext()) {
           	Node node = (Node)iter.next();
           	Atom atom = (Atom)node.getElement();
           	if (!(atom.getType().equals("H"))) {
            		if (!atom.isRadical()) {
-           			p_chemGraph.resetThermoSite(node);
+           			satuated.resetThermoSite(node);
            			LJGroupData thisGAValue = new LJGroupData();
            			if (node.getInCycle()){ //depending on whether the atom is in a cycle or not, use the appropriate library
-           				thisGAValue = transportLibrary.findRingGroup(p_chemGraph);
+           				thisGAValue = transportLibrary.findRingGroup(satuated);
            			}
            			else {
-           				thisGAValue = transportLibrary.findGroup(p_chemGraph);
+           				thisGAValue = transportLibrary.findGroup(satuated);
            			}
                     
            			if (thisGAValue == null) {
@@ -136,21 +100,6 @@ public class GATransportP {
            		}
            	}
         }
-        
-        // recover the chem graph structure
-        // recover the radical
-        for (int i=0; i<radicalSite; i++) {
-        	int id = idArray[i];
-        	Node node = g.getNodeAt(id);
-        	node.setElement(atomArray[i]);
-        	node.updateFeElement();
-        	int HNum = atomArray[i].getRadicalNumber();
-        	//get rid of extra H
-        	for (int j=0;j<HNum;j++) {
-        		g.removeNode(newnode[i][j]);
-        	}
-        	node.updateFgElement();
-        }
        
         p_chemGraph.setCentralNode(oldCentralNode);
         return result;
@@ -0,0 +1,280 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.chem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import jing.chemUtil.Arc;
+import jing.chemUtil.Graph;
+import jing.chemUtil.HierarchyTree;
+import jing.chemUtil.Node;
+import jing.chemUtil.TreeNode;
+
+/**
+ * Remembers, for one group tree of ThermoGAGroupLibrary, the group value
+ * found for each atom environment, so that an environment seen before is
+ * looked up in a hash table instead of matched against the tree again.
+ * <p>
+ * A group of the tree can only reach atoms within a fixed number of bonds of
+ * the central atom: the depth of the tree, found from its group graphs when
+ * the memo is made. If the atoms within that many bonds of the central atom
+ * of a chem graph form no ring, they are a tree, and the key written by
+ * getKey describes them exactly: starting from the central atom, each atom
+ * by its functional group element, radical order and spin, and central ID,
+ * followed by its bonds and the atoms beyond them, in sorted order. These are
+ * all the subgraph matcher compares (see Node.contentSub and Arc.contentSub),
+ * so two chem graphs with the same key match the same groups. Chem graphs
+ * with a ring near the central atom get no key, and are always matched
+ * against the tree.
+ * <p>
+ * Besides the value, the memo keeps the comments the finder added to the
+ * thermo comments of the chem graph on the way to it, so they can be added
+ * again on a hit. The table may be used by several threads at once.
+ */
+class GroupMatchMemo {
+
+	/** The depth of the tree in bonds from the central atom, or -1 if the tree can't be memoized. */
+	private final int depth;
+
+	/** The central ID of the central atom of every group of the tree. */
+	private int centralID = -1;
+
+	/** Key -> Match. */
+	private final HashMap table = new HashMap();
+
+	//==========================================================================
+
+	GroupMatchMemo(HierarchyTree p_tree) {
+		depth = findDepth(p_tree);
+	}
+
+	/**
+	 * Returns the key of the environment of the central atom of p_chemGraph,
+	 * or null if it has a ring within the depth of the tree (or the tree
+	 * can't be memoized).
+	 */
+	String getKey(ChemGraph p_chemGraph) {
+		if (depth < 0) return null;
+		Node center = p_chemGraph.getGraph().getCentralNodeAt(centralID);
+		if (center == null) return null;
+
+		// Breadth-first search of the atoms within depth bonds of the center
+		IdentityHashMap children = new IdentityHashMap();
+		IdentityHashMap parent = new IdentityHashMap();
+		LinkedList queue = new LinkedList();
+		LinkedList level = new LinkedList();
+		parent.put(center, center);
+		queue.add(center);
+		level.add(new Integer(0));
+		while (!queue.isEmpty()) {
+			Node node = (Node) queue.removeFirst();
+			int d = ((Integer) level.removeFirst()).intValue();
+			List bonds = new ArrayList();
+			for (Iterator iter = node.getNeighbor(); iter.hasNext(); ) {
+				Arc arc = (Arc) iter.next();
+				Node other = arc.getOtherNode(node);
+				if (other == null) return null;
+				if (other == parent.get(node)) continue;
+				if (parent.containsKey(other)) return null;
+				if (d < depth) {
+					parent.put(other, node);
+					queue.add(other);
+					level.add(new Integer(d + 1));
+					bonds.add(arc);
+				}
+			}
+			children.put(node, bonds);
+		}
+
+		StringBuffer key = new StringBuffer();
+		appendKey(center, children, key);
+		return key.toString();
+	}
+
+	private static void appendKey(Node p_node, IdentityHashMap p_children, StringBuffer p_key) {
+		FreeElectron fe = p_node.getFeElement();
+		p_key.append(getLabel(p_node.getFgElement()));
+		p_key.append('.').append(fe.getOrder());
+		if (fe.getOrder() == 2 && fe.getSpin() != null) p_key.append(fe.getSpin());
+		int id = p_node.getCentralID().intValue();
+		if (id >= 0) p_key.append('*').append(id);
+
+		List bonds = (List) p_children.get(p_node);
+		if (bonds.isEmpty()) return;
+		List branches = new ArrayList(bonds.size());
+		for (Iterator iter = bonds.iterator(); iter.hasNext(); ) {
+			Arc arc = (Arc) iter.next();
+			StringBuffer branch = new StringBuffer();
+			branch.append('(').append(getLabel(arc.getElement()));
+			appendKey(arc.getOtherNode(p_node), p_children, branch);
+			branch.append(')');
+			branches.add(branch.toString());
+		}
+		Collections.sort(branches);
+		for (Iterator iter = branches.iterator(); iter.hasNext(); )
+			p_key.append((String) iter.next());
+	}
+
+	private static String getLabel(Object p_element) {
+		if (p_element instanceof FGElement) return ((FGElement) p_element).getName();
+		if (p_element instanceof Bond) return ((Bond) p_element).getName();
+		if (p_element instanceof Collection) {
+			List labels = new ArrayList();
+			for (Iterator iter = ((Collection) p_element).iterator(); iter.hasNext(); )
+				labels.add(getLabel(iter.next()));
+			Collections.sort(labels);
+			return "{" + labels.toString() + "}";
+		}
+		return String.valueOf(p_element);
+	}
+
+	//==========================================================================
+
+	/**
+	 * Returns the match remembered for p_key, or null if there is none (or
+	 * p_key is null).
+	 */
+	synchronized Match get(String p_key) {
+		if (p_key == null) return null;
+		return (Match) table.get(p_key);
+	}
+
+	/**
+	 * Remembers the value found for p_key and the comments added on the way.
+	 * Does nothing if p_key is null.
+	 */
+	synchronized void put(String p_key, Object p_value, List p_comments) {
+		if (p_key == null) return;
+		table.put(p_key, new Match(p_value, (String[]) p_comments.toArray(new String[p_comments.size()])));
+	}
+
+	/**
+	 * The value found for an environment, and the thermo comments added on
+	 * the way to it.
+	 */
+	static class Match {
+		private final Object value;
+		private final String[] comments;
+
+		Match(Object p_value, String[] p_comments) {
+			value = p_value;
+			comments = p_comments;
+		}
+
+		/**
+		 * Adds the comments to the thermo comments of p_chemGraph and returns
+		 * the value.
+		 */
+		Object replay(ChemGraph p_chemGraph) {
+			for (int i = 0; i < comments.length; i++)
+				p_chemGraph.appendThermoComments(comments[i]);
+			return value;
+		}
+	}
+
+	//==========================================================================
+
+	/**
+	 * Returns the largest number of bonds between the central atom of a group
+	 * of the tree and any atom of that group, or -1 if the groups of the tree
+	 * don't all have their central atom at the same central ID.
+	 */
+	private int findDepth(HierarchyTree p_tree) {
+		if (p_tree == null || p_tree.getRoot() == null) return -1;
+		int result = 0;
+		LinkedList treeNodes = new LinkedList();
+		treeNodes.add(p_tree.getRoot());
+		while (!treeNodes.isEmpty()) {
+			TreeNode treeNode = (TreeNode) treeNodes.removeFirst();
+			for (Iterator iter = treeNode.getChildren(); iter.hasNext(); )
+				treeNodes.add(iter.next());
+
+			Object element = treeNode.getElement();
+			List groups = new ArrayList();
+			if (element instanceof FunctionalGroup)
+				groups.add(element);
+			else if (element instanceof FunctionalGroupCollection) {
+				for (Iterator iter = ((FunctionalGroupCollection) element).getFunctionalGroups(); iter.hasNext(); )
+					groups.add(iter.next());
+			}
+
+			for (Iterator iter = groups.iterator(); iter.hasNext(); ) {
+				int d = findDepth(((FunctionalGroup) iter.next()).getGraph());
+				if (d < 0) return -1;
+				if (d > result) result = d;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the largest number of bonds between the first central node of
+	 * p_graph (the one the subgraph matcher starts from) and any node it can
+	 * reach, or -1 if its central ID differs from that of the groups seen
+	 * before.
+	 */
+	private int findDepth(Graph p_graph) {
+		Iterator centers = p_graph.getCentralNodeList();
+		if (!centers.hasNext()) return 0;
+		Node center = (Node) centers.next();
+		int id = center.getCentralID().intValue();
+		if (centralID < 0) centralID = id;
+		else if (centralID != id) return -1;
+
+		int result = 0;
+		IdentityHashMap distance = new IdentityHashMap();
+		LinkedList queue = new LinkedList();
+		distance.put(center, new Integer(0));
+		queue.add(center);
+		while (!queue.isEmpty()) {
+			Node node = (Node) queue.removeFirst();
+			int d = ((Integer) distance.get(node)).intValue();
+			if (d > result) result = d;
+			for (Iterator iter = node.getNeighbor(); iter.hasNext(); ) {
+				Node other = ((Arc) iter.next()).getOtherNode(node);
+				if (other != null && !distance.containsKey(other)) {
+					distance.put(other, new Integer(d + 1));
+					queue.add(other);
+				}
+			}
+		}
+		return result;
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\chem\GroupMatchMemo.java
+*********************************************************************/
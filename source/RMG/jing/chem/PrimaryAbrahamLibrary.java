@@ -44,21 +44,27 @@ import jing.rxnSys.Logger;
 public class PrimaryAbrahamLibrary {
     	protected static HashMap library;
 	protected static HashMap dictionary;
+	protected static PrimaryLibraryIndex index = new PrimaryLibraryIndex();
 
 
 	public PrimaryAbrahamLibrary(){
 		library = new HashMap();
 		dictionary = new HashMap();
+		index.reset(library);
 	}
 
 	public PrimaryAbrahamLibrary(HashMap Dictionary, HashMap Library) {
 		dictionary = Dictionary;
-		library = Library;
+		if (Library != library) {
+			library = Library;
+			index.reset(library);
+		}
 	}
 
 	public PrimaryAbrahamLibrary(String name, String location) {
 		library = new HashMap();
 		dictionary = new HashMap();
+		index.reset(library);
 		appendPrimaryAbrahamLibrary(name, location);
 	}
 
@@ -112,6 +118,7 @@ public class PrimaryAbrahamLibrary {
 						if (old == null){
 							tempLibrary.put(g, newAbramData);
 							library.put(g, newAbramData);
+							index.put(g, newAbramData);
 						}
 						else {
 							AbramData oldAbramData = (AbramData)old;
@@ -194,20 +201,7 @@ public class PrimaryAbrahamLibrary {
 	public static AbramData getAbrahamData(Graph p_graph){
 		if (library == null) return null;
 
-		AbramData ab = (AbramData)library.get(p_graph);
-		if (ab != null){
-			return ab;
-		}
-		Iterator iter = library.keySet().iterator();
-		while (iter.hasNext()){
-			Graph g = (Graph)iter.next();
-			g.addMissingHydrogen();
-			if (g.isEquivalent(p_graph)){
-				ab = (AbramData)library.get(g);
-				return ab;
-			}
-		}
-		return null;
+		return (AbramData)index.get(p_graph);
 	}
 
 }
@@ -0,0 +1,106 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+
+
+package jing.chem;
+
+import java.util.*;
+import jing.chemUtil.*;
+
+/**
+ * Constant-time lookup table shared by the primary thermo, transport and
+ * Abraham libraries.  Library graphs are keyed by their molecular formula plus
+ * their canonical adjacency string, so a query graph is matched to its library
+ * entry without a linear isomorphism scan over the whole library.
+ * <p>
+ * Library graphs are saturated with hydrogen once, when the dictionary is read;
+ * the index never mutates them.  The index is the lookup path of its library and
+ * is kept in step with the library map explicitly: put() goes next to every put
+ * into the map and, like HashMap.put, replaces an existing entry, and reset() is
+ * called whenever the map itself is replaced.  Graphs that are equal as map keys
+ * have equal keys here, so the index always holds exactly the map's entries.
+ */
+class PrimaryLibraryIndex {
+
+	private HashMap index = new HashMap();
+
+	/**
+	 * Records p_data as the library entry for p_graph, replacing any entry an
+	 * equivalent graph had.
+	 */
+	public synchronized void put(Graph p_graph, Object p_data) {
+		index.put(getKey(p_graph), p_data);
+	}
+
+	/**
+	 * Replaces the content of the index with the entries of p_library, or
+	 * empties it if p_library is null.
+	 */
+	public synchronized void reset(HashMap p_library) {
+		index = new HashMap();
+		if (p_library == null) return;
+		Iterator iter = p_library.keySet().iterator();
+		while (iter.hasNext()) {
+			Graph g = (Graph)iter.next();
+			index.put(getKey(g), p_library.get(g));
+		}
+	}
+
+	/**
+	 * Returns the library entry whose graph is isomorphic to p_graph, or null if
+	 * there is none.
+	 */
+	public synchronized Object get(Graph p_graph) {
+		if (p_graph == null) return null;
+		return index.get(getKey(p_graph));
+	}
+
+	/**
+	 * Formula plus canonical string of p_graph.  The formula is redundant with
+	 * the canonical string but makes a key readable when debugging.
+	 */
+	static String getKey(Graph p_graph) {
+		TreeMap count = new TreeMap();
+		Iterator iter = p_graph.getNodeList();
+		while (iter.hasNext()) {
+			Object element = ((Node)iter.next()).getElement();
+			String type = (element instanceof Atom) ? ((Atom)element).getType() : String.valueOf(element);
+			Integer n = (Integer)count.get(type);
+			count.put(type, new Integer(n == null ? 1 : n.intValue() + 1));
+		}
+		StringBuffer key = new StringBuffer();
+		iter = count.keySet().iterator();
+		while (iter.hasNext()) {
+			String type = (String)iter.next();
+			key.append(type).append(count.get(type));
+		}
+		key.append('\n').append(p_graph.getCanonicalString());
+		return key.toString();
+	}
+}
@@ -47,18 +47,23 @@ import jing.chemParser.*;
 public class PrimaryThermoLibrary {
 protected static HashMap library;
 protected static HashMap dictionary;
+protected static PrimaryLibraryIndex index = new PrimaryLibraryIndex();
 private static PrimaryThermoLibrary INSTANCE = new PrimaryThermoLibrary();	//## attribute INSTANCE
 
 
 private PrimaryThermoLibrary(){
   library = new HashMap();
   dictionary = new HashMap();
+  index.reset(library);
 }
 
 // 7-Jul-2009: MRH
 public PrimaryThermoLibrary(HashMap Dictionary, HashMap Library) {
 	dictionary = Dictionary;
-	library = Library;
+	if (Library != library) {
+		library = Library;
+		index.reset(library);
+	}
 }
 
 //7-Jul-2009: MRH
@@ -66,6 +71,7 @@ public PrimaryThermoLibrary(String name, String location) {
 	// Create a new PrimaryThermoLibrary.
 	library = new HashMap();
 	dictionary = new HashMap();
+	index.reset(library);
 	appendPrimaryThermoLibrary(name, location);
 }
 
@@ -119,6 +125,7 @@ public HashMap readLibrary(String p_thermoFileName, HashMap p_dictionary, String
 					Object old = library.get(g);
 					if (old == null){
 						library.put(g, newThermoData);
+						index.put(g, newThermoData);
 					}
 					else {
 						ThermoData oldThermoData = (ThermoData)old;
@@ -207,20 +214,7 @@ public HashMap readDictionary(String p_fileName, String source) throws FileNotFo
 //## operation getThermoData(ChemGraph)
 public ThermoData getThermoData(Graph p_graph){
   //#[ operation getThermoData(ChemGraph)
-  ThermoData td = (ThermoData)library.get(p_graph);
-  if (td != null){
-    return td;
-  }
-  Iterator iter = library.keySet().iterator();
-  while (iter.hasNext()){
-    Graph g = (Graph)iter.next();
-    g.addMissingHydrogen();
-    if (g.isEquivalent(p_graph)){
-      td = (ThermoData)library.get(g);
-      return td;
-    }
-  }
-  return null;
+  return (ThermoData)index.get(p_graph);
   //#]
 }
 
@@ -252,6 +246,7 @@ public ThermoData getThermoData(Graph p_graph){
 public void read(String p_dictionary, String p_library) throws IOException, FileNotFoundException {
     dictionary = readDictionary(p_dictionary);
     library = readLibrary(p_library, dictionary);
+    index.reset(library);
 }
 
 //## operation readDictionary(String)
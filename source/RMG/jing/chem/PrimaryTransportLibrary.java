@@ -43,21 +43,27 @@ import jing.rxnSys.Logger;
 public class PrimaryTransportLibrary {
 	protected static HashMap library;
 	protected static HashMap dictionary;
+	protected static PrimaryLibraryIndex index = new PrimaryLibraryIndex();
 	
 
 	public PrimaryTransportLibrary(){
 		library = new HashMap();
 		dictionary = new HashMap();
+		index.reset(library);
 	}
 
 	public PrimaryTransportLibrary(HashMap Dictionary, HashMap Library) {
 		dictionary = Dictionary;
-		library = Library;
+		if (Library != library) {
+			library = Library;
+			index.reset(library);
+		}
 	}
 
 	public PrimaryTransportLibrary(String name, String location) {
 		library = new HashMap();
 		dictionary = new HashMap();
+		index.reset(library);
 		appendPrimaryTransportLibrary(name, location);
 	}
 
@@ -111,6 +117,7 @@ public class PrimaryTransportLibrary {
 						if (old == null){
 							tempLibrary.put(g, newTransData);
 							library.put(g, newTransData);
+							index.put(g, newTransData);
 						}
 						else {
 							TransportData oldTransData = (TransportData)old;
@@ -194,20 +201,7 @@ public class PrimaryTransportLibrary {
 	public static TransportData getTransportData(Graph p_graph){
 		if (library == null) return null;
 		
-		TransportData td = (TransportData)library.get(p_graph);
-		if (td != null){
-			return td;
-		}
-		Iterator iter = library.keySet().iterator();
-		while (iter.hasNext()){
-			Graph g = (Graph)iter.next();
-			g.addMissingHydrogen();
-			if (g.isEquivalent(p_graph)){
-				td = (TransportData)library.get(g);
-				return td;
-			}
-		}
-		return null;
+		return (TransportData)index.get(p_graph);
 	}
 
 }
\ No newline at end of file
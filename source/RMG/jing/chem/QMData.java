@@ -45,6 +45,7 @@ public class QMData {
     public double rotCons_1;//rotational constants in (1/s)
     public double rotCons_2;
     public double rotCons_3;
+    public String pointGroup = null; //point group from the SYMMETRY program; null until it has been determined
 
     //constructor class
     public QMData(int p_natoms, ArrayList p_atomicNumber, ArrayList p_x_coor, ArrayList p_y_coor, ArrayList p_z_coor, double p_energy, double p_stericEnergy, double p_molmass, ArrayList p_freqs, double p_rotCons_1, double p_rotCons_2, double p_rotCons_3){
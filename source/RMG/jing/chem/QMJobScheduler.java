@@ -0,0 +1,168 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.chem;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import jing.param.Global;
+import jing.rxnSys.Logger;
+
+/**
+ * Runs the QM thermo calculations of QMTP on several threads at once.
+ * <p>
+ * When more than one job is allowed, a new species whose thermo data will
+ * come from a QM calculation (directly, or for its saturated molecule with
+ * HBI corrections) does not wait for it: the calculation is
+ * submitted here when the species is made, on a copy of its graph, and the
+ * species' ChemGraph keeps the Future. The thermo data (and the NASA
+ * polynomials fitted to it) are then found the first time they are asked
+ * for, by which time the calculations for the other species made in the
+ * same enlargement have been running alongside. With one job (the default)
+ * every calculation runs when its thermo data is needed, as before.
+ * <p>
+ * The calculations of different molecules only share the QMfiles folder,
+ * where each writes the files named after its InChIKey; running the InChI
+ * program, which uses fixed file names, is serialized by
+ * Species.generateInChI().
+ */
+public class QMJobScheduler {
+
+	/** The number of QM calculations run at the same time. */
+	private static int maxConcurrentJobs = 1;
+
+	private static ForkJoinPool pool = null;
+
+	/** The calculations submitted and not yet collected, by QM file name. */
+	private static HashMap pending = new HashMap();
+
+	//==========================================================================
+
+	public static int getMaxConcurrentJobs() {
+		return maxConcurrentJobs;
+	}
+
+	public static synchronized void setMaxConcurrentJobs(int p_jobs) {
+		if (p_jobs < 1) p_jobs = 1;
+		if (p_jobs != maxConcurrentJobs && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		maxConcurrentJobs = p_jobs;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) pool = new ForkJoinPool(maxConcurrentJobs);
+		return pool;
+	}
+
+	/**
+	 * Submits the QM calculation of the thermo data of p_chemGraph, if more
+	 * than one job is allowed and the thermo data would come from such a
+	 * calculation (directly or with HBI corrections, not from the primary
+	 * thermo library or group additivity). Returns true
+	 * if p_chemGraph now has a pending calculation, which
+	 * ChemGraph.getThermoData() collects.
+	 */
+	public static boolean submit(ChemGraph p_chemGraph) {
+		if (maxConcurrentJobs <= 1 || !ChemGraph.useQM) return false;
+		if (p_chemGraph.thermoData != null || p_chemGraph.pendingThermo != null) return false;
+		if (ChemGraph.useQMonCyclicsOnly && p_chemGraph.isAcyclic()) return false;
+		if (QMTP.primaryLibrary != null && QMTP.primaryLibrary.getThermoData(p_chemGraph.getGraph()) != null) return false;
+
+		final ChemGraph copy;
+		try {
+			copy = ChemGraph.copy(p_chemGraph);
+		} catch (ForbiddenStructureException e) {
+			return false;
+		}
+		// Find the values the calculation reads from the graph here, so that
+		// the worker thread only reads them
+		copy.getSymmetryNumber();
+		copy.getInternalRotor();
+		QMTP qmtp = QMTP.getINSTANCE();
+		if (p_chemGraph.getRadicalNumber() > Global.maxRadNumForQM) {
+			// HBI works on copies of the graph, but the group library must be read first
+			synchronized (qmtp) {
+				if (qmtp.thermoLibrary == null) qmtp.initGAGroupLibrary();
+			}
+		}
+		String name = qmtp.getQMFileName(copy)[0];
+
+		synchronized (QMJobScheduler.class) {
+			Future job = (Future)pending.get(name);
+			if (job == null) {
+				job = getPool().submit(new Callable() {
+					public Object call() {
+						return QMTP.getINSTANCE().generateThermoData(copy);
+					}
+				});
+				pending.put(name, job);
+			}
+			p_chemGraph.pendingThermo = job;
+			p_chemGraph.pendingThermoName = name;
+		}
+		return true;
+	}
+
+	/**
+	 * Waits for the pending calculation of p_chemGraph and returns its thermo
+	 * data. If the calculation failed, it is run again on this thread.
+	 */
+	public static ThermoData collect(ChemGraph p_chemGraph) {
+		Future job = p_chemGraph.pendingThermo;
+		ThermoData result = null;
+		try {
+			result = (ThermoData)job.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for a QM calculation", e);
+		}
+		catch (ExecutionException e) {
+			Logger.logStackTrace(e.getCause());
+			Logger.warning("QM calculation for " + p_chemGraph.pendingThermoName + " failed on its worker thread; running it again.");
+		}
+		synchronized (QMJobScheduler.class) {
+			if (pending.get(p_chemGraph.pendingThermoName) == job) pending.remove(p_chemGraph.pendingThermoName);
+			p_chemGraph.pendingThermo = null;
+			p_chemGraph.pendingThermoName = null;
+		}
+		if (result == null) return QMTP.getINSTANCE().generateThermoData(p_chemGraph);
+		// The same calculation may serve more than one graph, so each gets its own copy
+		return result.copyWithExtraInfo();
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\chem\QMJobScheduler.java
+*********************************************************************/
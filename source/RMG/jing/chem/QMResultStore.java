@@ -0,0 +1,287 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.chem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import jing.rxnSys.Logger;
+
+/**
+ * A store of parsed QM results (QMfiles/QMResults.bin), so that a molecule
+ * calculated before is not looked for among the output files, checked and
+ * parsed with cclib and the SYMMETRY program again.
+ * <p>
+ * Each result is stored as a QMData (geometry, energies, molecular mass,
+ * frequencies, rotational constants and point group) with the thermo
+ * source it was parsed from, and is found by its QM method ("pm3" or "mm4")
+ * and modified InChI (see QMTP.getQMFileName()) rather than by file name,
+ * so InChIKey collisions cannot mix up two molecules. The file holds a
+ * header followed by length-prefixed records; the records are read into an
+ * index when the store is first used, and records appended since (e.g. by
+ * another RMG job sharing the QMfiles folder) are read when a lookup misses.
+ * Records are appended under a file lock, and a record that is still being
+ * written is ignored until it is complete. If the file cannot be written,
+ * the store is used read-only.
+ */
+public class QMResultStore {
+
+	public static final String STORE_FILE = "QMResults.bin";
+
+	private static final int MAGIC = 0x524D4751;	// "RMGQ"
+	private static final int VERSION = 1;
+
+	/** A stored result. */
+	public static class Entry {
+		public final String source;
+		public final QMData data;
+
+		Entry(String p_source, QMData p_data) {
+			source = p_source;
+			data = p_data;
+		}
+	}
+
+	/** The stored results, by method and modified InChI. */
+	private static HashMap index = new HashMap();
+
+	/** The folder of the store file the index was read from. */
+	private static String folder = null;
+
+	/** The length of the store file read into the index so far. */
+	private static long readLength = 0;
+
+	/** Whether results may be added to the store file. */
+	private static boolean writable = true;
+
+	//==========================================================================
+
+	/**
+	 * Returns the stored result of the QM calculation of p_method on the
+	 * molecule with modified InChI p_InChIaug, or null if there is none.
+	 */
+	public static synchronized Entry get(String p_method, String p_InChIaug) {
+		String key = getKey(p_method, p_InChIaug);
+		Entry entry = (Entry) getIndex().get(key);
+		if (entry == null && refresh())
+			entry = (Entry) index.get(key);
+		return entry;
+	}
+
+	/**
+	 * Adds the result p_data of the QM calculation of p_method on the
+	 * molecule with modified InChI p_InChIaug, whose thermo data came from
+	 * p_source, to the store. The point group of p_data must be known.
+	 */
+	public static synchronized void put(String p_method, String p_InChIaug, String p_source, QMData p_data) {
+		String key = getKey(p_method, p_InChIaug);
+		if (getIndex().containsKey(key)) return;
+		index.put(key, new Entry(p_source, p_data));
+		if (!writable) return;
+
+		RandomAccessFile file = null;
+		try {
+			byte[] record = toBytes(p_method, p_InChIaug, p_source, p_data);
+			file = new RandomAccessFile(getFile(), "rw");
+			FileChannel channel = file.getChannel();
+			FileLock lock = channel.lock();
+			try {
+				if (channel.size() == 0) {
+					ByteBuffer header = ByteBuffer.allocate(8);
+					header.putInt(MAGIC).putInt(VERSION).flip();
+					channel.write(header, 0);
+				}
+				channel.write(ByteBuffer.wrap(record), channel.size());
+			}
+			finally {
+				lock.release();
+			}
+		}
+		catch (IOException e) {
+			Logger.warning("Could not add the QM result for " + p_InChIaug + " to " + getFile().getPath() + "; using the store read-only: " + e.toString());
+			writable = false;
+		}
+		finally {
+			if (file != null) {
+				try { file.close(); }
+				catch (IOException e) { }
+			}
+		}
+	}
+
+	//==========================================================================
+
+	private static String getKey(String p_method, String p_InChIaug) {
+		return p_method + " " + p_InChIaug;
+	}
+
+	private static File getFile() {
+		return new File(folder, STORE_FILE);
+	}
+
+	/**
+	 * Returns the index, starting it again if the QM folder has changed.
+	 */
+	private static HashMap getIndex() {
+		if (!QMTP.qmfolder.equals(folder)) {
+			folder = QMTP.qmfolder;
+			index = new HashMap();
+			readLength = 0;
+			writable = true;
+			refresh();
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the records added to the store file since it was last read into
+	 * the index. Returns true if any were read.
+	 */
+	private static boolean refresh() {
+		File f = getFile();
+		if (!f.exists() || f.length() <= readLength) return false;
+
+		int read = 0;
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(f, "r");
+			long length = file.length();
+			if (readLength == 0) {
+				if (length < 8) return false;
+				if (file.readInt() != MAGIC || file.readInt() != VERSION) {
+					Logger.warning(f.getPath() + " is not a QM result store of this version of RMG; it will not be used.");
+					readLength = Long.MAX_VALUE;
+					writable = false;
+					return false;
+				}
+				readLength = 8;
+			}
+			file.seek(readLength);
+			while (readLength + 4 <= length) {
+				int size = file.readInt();
+				// stop at a record that is still being written
+				if (size < 0 || readLength + 4 + size > length) break;
+				byte[] record = new byte[size];
+				file.readFully(record);
+				readRecord(record);
+				readLength += 4 + size;
+				read++;
+			}
+		}
+		catch (IOException e) {
+			Logger.warning("Error reading the QM result store " + f.getPath() + ": " + e.toString());
+		}
+		finally {
+			if (file != null) {
+				try { file.close(); }
+				catch (IOException e) { }
+			}
+		}
+		return read > 0;
+	}
+
+	private static void readRecord(byte[] p_record) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(p_record));
+		String method = in.readUTF();
+		String InChIaug = in.readUTF();
+		String source = in.readUTF();
+		int natoms = in.readInt();
+		ArrayList atomicNumber = new ArrayList(natoms);
+		ArrayList x_coor = new ArrayList(natoms);
+		ArrayList y_coor = new ArrayList(natoms);
+		ArrayList z_coor = new ArrayList(natoms);
+		for (int i = 0; i < natoms; i++) {
+			atomicNumber.add(Integer.valueOf(in.readInt()));
+			x_coor.add(Double.valueOf(in.readDouble()));
+			y_coor.add(Double.valueOf(in.readDouble()));
+			z_coor.add(Double.valueOf(in.readDouble()));
+		}
+		double energy = in.readDouble();
+		double stericEnergy = in.readDouble();
+		double molmass = in.readDouble();
+		int nfreqs = in.readInt();
+		ArrayList freqs = new ArrayList(nfreqs);
+		for (int i = 0; i < nfreqs; i++)
+			freqs.add(Double.valueOf(in.readDouble()));
+		double rotCons_1 = in.readDouble();
+		double rotCons_2 = in.readDouble();
+		double rotCons_3 = in.readDouble();
+		QMData data = new QMData(natoms, atomicNumber, x_coor, y_coor, z_coor, energy, stericEnergy, molmass, freqs, rotCons_1, rotCons_2, rotCons_3);
+		data.pointGroup = in.readUTF();
+
+		String key = getKey(method, InChIaug);
+		if (!index.containsKey(key))
+			index.put(key, new Entry(source, data));
+	}
+
+	private static byte[] toBytes(String p_method, String p_InChIaug, String p_source, QMData p_data) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);	// the record length, filled in below
+		out.writeUTF(p_method);
+		out.writeUTF(p_InChIaug);
+		out.writeUTF(p_source);
+		out.writeInt(p_data.natoms);
+		for (int i = 0; i < p_data.natoms; i++) {
+			out.writeInt(((Number) p_data.atomicNumber.get(i)).intValue());
+			out.writeDouble(((Number) p_data.x_coor.get(i)).doubleValue());
+			out.writeDouble(((Number) p_data.y_coor.get(i)).doubleValue());
+			out.writeDouble(((Number) p_data.z_coor.get(i)).doubleValue());
+		}
+		out.writeDouble(p_data.energy);
+		out.writeDouble(p_data.stericEnergy);
+		out.writeDouble(p_data.molmass);
+		out.writeInt(p_data.freqs.size());
+		for (int i = 0; i < p_data.freqs.size(); i++)
+			out.writeDouble(((Number) p_data.freqs.get(i)).doubleValue());
+		out.writeDouble(p_data.rotCons_1);
+		out.writeDouble(p_data.rotCons_2);
+		out.writeDouble(p_data.rotCons_3);
+		out.writeUTF(p_data.pointGroup);
+		out.close();
+
+		byte[] record = bytes.toByteArray();
+		ByteBuffer.wrap(record).putInt(record.length - 4);
+		return record;
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\chem\QMResultStore.java
+*********************************************************************/
@@ -97,80 +97,40 @@ public class QMTP implements GeneralGAPP {
             //find the initial symmetry number
             int sigmaRadical = p_chemGraph.getSymmetryNumber();
             
-            Graph g = p_chemGraph.getGraph();
-            HashMap oldCentralNode = (HashMap)(p_chemGraph.getCentralNode()).clone();
-            // saturate radical site
-            int max_radNum_molecule = ChemGraph.getMAX_RADICAL_NUM();
-            int max_radNum_atom = Math.min(8,max_radNum_molecule);
-            int [] idArray = new int[max_radNum_molecule];
-            Atom []  atomArray = new Atom[max_radNum_molecule];
-            Node [][] newnode = new Node[max_radNum_molecule][max_radNum_atom];
-
-            int radicalSite = 0;
+            // find the radical sites and saturate them all on a copy of the chem graph, so that p_chemGraph itself is not modified
+            ArrayList radicalSites = new ArrayList();
             Iterator iter = p_chemGraph.getNodeList();
-            FreeElectron satuated = FreeElectron.make("0");
             while (iter.hasNext()) {
         	Node node = (Node)iter.next();
-           	Atom atom = (Atom)node.getElement();
-           	if (atom.isRadical()) {
-           		radicalSite ++;
-           		// save the old radical atom
-           		idArray[radicalSite-1] = node.getID().intValue();
-           		atomArray[radicalSite-1] = atom;
-           		// new a satuated atom and replace the old one
-           		Atom newAtom = Atom.make(atom.getChemElement(),satuated);
-           		node.setElement(newAtom);
-           		node.updateFeElement();
-           	}
-            }
-
-            // add H to saturate chem graph
-            Atom H = Atom.make(ChemElement.make("H"),satuated);
-            Bond S = Bond.make("S");
-            for (int i=0;i<radicalSite;i++) {
-           	Node node = p_chemGraph.getNodeAt(idArray[i]);
-           	Atom atom = atomArray[i];
-           	int HNum = atom.getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
+           	if (((Atom)node.getElement()).isRadical()) radicalSites.add(node.getID());
             }
+            ChemGraph saturated = ChemGraph.saturatedCopy(p_chemGraph, -1);
 
             //find the saturated symmetry number
-            int sigmaSaturated = p_chemGraph.getSymmetryNumber();
+            int sigmaSaturated = saturated.getSymmetryNumber();
             
    //         result = generateThermoData(g);//I'm not sure what GATP does, but this recursive calling will use HBIs on saturated species if it exists in PrimaryThermoLibrary
             //check the primary thermo library for the saturated graph
-            tmpTherm = primaryLibrary.getThermoData(p_chemGraph.getGraph());
+            tmpTherm = primaryLibrary.getThermoData(saturated.getGraph());
             //Logger.info(result);
             if (tmpTherm != null) {
 		result = tmpTherm.copyWithExtraInfo();//use a copy of the object!; that way, subsequent modifications of this object don't change the primary thermo library
         	p_chemGraph.fromprimarythermolibrary = false;//we don't want to set fromprimarythermolibrary to true, because the result is not directly from the PTL, but comes via PTL + HBI corrections; if true is set here, this would affect two things, both in Species.java: 1) the naming; in the HBI case, we don't want to use a name derived from the thermo name as weird things can happen 2)findStablestThermoData considers the value to be the final word; however, since this is a radical that is not directly in the primaryThermoLibrary, we want to consider alternative thermo for all possible resonance isomers
             }
             else{
-                result=generateQMThermoData(p_chemGraph);
+                result=generateQMThermoData(saturated);
             }
             
-            // find the BDE for all radical groups
+            // find the BDE for all radical groups, each on a copy with only that site left radical
             if(thermoLibrary == null) initGAGroupLibrary();
-            for (int i=0; i<radicalSite; i++) {
-          	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	Atom old = (Atom)node.getElement();
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-
-                // get rid of the extra H at ith site
-          	int HNum = atomArray[i].getRadicalNumber();
-           	for (int j=0;j<HNum;j++) {
-           		g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
-
-           	p_chemGraph.resetThermoSite(node);
-           	ThermoGAValue thisGAValue = thermoLibrary.findRadicalGroup(p_chemGraph);
+            for (Iterator siteIter = radicalSites.iterator(); siteIter.hasNext(); ) {
+          	int id = ((Integer)siteIter.next()).intValue();
+          	ChemGraph radical = ChemGraph.saturatedCopy(p_chemGraph, id);
+          	Node node = radical.getNodeAt(id);
+
+           	radical.resetThermoSite(node);
+           	ThermoGAValue thisGAValue = thermoLibrary.findRadicalGroup(radical);
+           	p_chemGraph.thermoComments += radical.thermoComments;
            	if (thisGAValue == null) {
            		Logger.error("Radical group not found: " + node.getID());
            	}
@@ -178,31 +138,6 @@ public class QMTP implements GeneralGAPP {
            		//Logger.info(node.getID() + " radical correction: " + thisGAValue.getName() + "  "+thisGAValue.toString());
            		result.plus(thisGAValue);
                 }
-
-                //recover the saturated site for next radical site calculation
-          	node.setElement(old);
-          	node.updateFeElement();
-           	for (int j=0;j<HNum;j++) {
-           		newnode[i][j] = g.addNode(H);
-           		g.addArcBetween(node,S,newnode[i][j]);
-           	}
-           	node.updateFgElement();
-
-            }
-
-            // recover the chem graph structure
-            // recover the radical
-            for (int i=0; i<radicalSite; i++) {
-           	int id = idArray[i];
-           	Node node = g.getNodeAt(id);
-           	node.setElement(atomArray[i]);
-           	node.updateFeElement();
-           	int HNum = atomArray[i].getRadicalNumber();
-         	//get rid of extra H
-           	for (int j=0;j<HNum;j++) {
-          	g.removeNode(newnode[i][j]);
-           	}
-           	node.updateFgElement();
             }
 
             // subtract the enthalphy of H from the result
@@ -215,7 +150,6 @@ public class QMTP implements GeneralGAPP {
 	    ThermoGAValue symmetryNumberCorrection = new ThermoGAValue(0,-1*GasConstant.getCalMolK()*Math.log((double)(sigmaRadical)/(double)(sigmaSaturated)),0,0,0,0,0,0,0,0,0,0,null);
             result.plus(symmetryNumberCorrection);
             
-            p_chemGraph.setCentralNode(oldCentralNode);  
             
             //display corrected thermo to user
             String [] InChInames = getQMFileName(p_chemGraph);//determine the filename (InChIKey) and InChI with appended info for triplets, etc.
@@ -251,6 +185,16 @@ public class QMTP implements GeneralGAPP {
         String InChIaug = InChInames[1];
         String directory = qmfolder;
 	File ourHoldFile = null;
+	//if the result of this calculation is in the QM result store, use it without checking or parsing any output files (MM4 results interpreted with CanTherm are not stored)
+	if(qmMethod.equals("pm3") || !useCanTherm){
+	    QMResultStore.Entry stored = QMResultStore.get(qmMethod, InChIaug);
+	    if(stored != null){
+		result = calculateThermoFromPM3MM4Calc(stored.data, p_chemGraph.getRadicalNumber()+1, name);
+		result.setSource(stored.source);
+		Logger.info("Thermo for " + name + " (from QM result store): "+ result.toString());
+		return result;
+	    }
+	}
         File dir=new File(directory);
         directory = dir.getAbsolutePath();//this and previous three lines get the absolute path for the directory
 	//check for existing hold file before starting calculations (to avoid the possibility of interference with other jobs using the same QMfiles folder)
@@ -350,10 +294,10 @@ public class QMTP implements GeneralGAPP {
 	    }
 	    //5. parse QM output and record as thermo data (function includes symmetry/point group calcs, etc.); if both Gaussian and MOPAC results exist, Gaussian result is used
 	    if (gaussianResultExists || (qmProgram.equals("gaussian03") && !mopacResultExists)){
-		result = parseGaussianPM3(name, directory, p_chemGraph);
+		result = parseAndStoreResult(name, directory, p_chemGraph, getGaussianPM3ParseCommand(name, directory), "Gaussian PM3 calculation", qmMethod, InChIaug);
 	    }
 	    else if (mopacResultExists || qmProgram.equals("mopac") || qmProgram.equals("both")){
-		result = parseMopacPM3(name, directory, p_chemGraph);
+		result = parseAndStoreResult(name, directory, p_chemGraph, getMopacPM3ParseCommand(name, directory), "MOPAC PM3 calculation", qmMethod, InChIaug);
 	    }
 	    else{
 		Logger.critical("Unexpected situation in QMTP thermo estimation");
@@ -430,7 +374,7 @@ public class QMTP implements GeneralGAPP {
 
 	    }
 	    //5. parse MM4 output and record as thermo data (function includes symmetry/point group calcs, etc.)
-	    if(!useCanTherm) result = parseMM4(name, directory, p_chemGraph);
+	    if(!useCanTherm) result = parseAndStoreResult(name, directory, p_chemGraph, getMM4ParseCommand(name, directory), "MM4 calculation", qmMethod, InChIaug);
 	    else{
 		//if (qmdata==null) qmdata = getQMDataWithCClib(name, directory, p_chemGraph, true);//get qmdata if it is null (i.e. if a pre-existing successful result exists and it wasn't read in above)
 		result = parseCanThermFile(name, directory, p_chemGraph);
@@ -1615,6 +1559,16 @@ public class QMTP implements GeneralGAPP {
         return result;
     }
     
+    //parse the results using cclib (with the given parse command), return a ThermoData object with the given source, and add the parsed results to the QM result store under qmMethod and InChIaug
+    private ThermoData parseAndStoreResult(String name, String directory, ChemGraph p_chemGraph, String command, String source, String qmMethod, String InChIaug){
+	QMData qmdata = getQMDataWithCClib(name, directory, command, false);
+	ThermoData result = calculateThermoFromPM3MM4Calc(qmdata, p_chemGraph.getRadicalNumber()+1, name);
+	result.setSource(source);
+	Logger.info("Thermo for " + name + ": "+ result.toString());//print result, at least for debugging purposes
+	QMResultStore.put(qmMethod, InChIaug, source, qmdata);
+	return result;
+    }
+
     //separated from parseMopacPM3, since the function was originally based off of parseGaussianPM3 and was very similar (differences being command and logfilepath variables);
     public ThermoData getPM3MM4ThermoDataUsingCCLib(String name, String directory, ChemGraph p_chemGraph, String command){
         //parse the file using cclib
@@ -1644,7 +1598,11 @@ public class QMTP implements GeneralGAPP {
             geom += atomicNumber.get(i) + " "+ x_coor.get(i) + " " + y_coor.get(i) + " " +z_coor.get(i) + "\n";
         }
        // String pointGroup = determinePointGroupUsingSYMMETRYProgram(geom, 0.01);
-        String pointGroup = determinePointGroupUsingSYMMETRYProgram(geom,name);
+        String pointGroup = qmdata.pointGroup;//known if qmdata came from the QM result store
+        if (pointGroup == null){
+            pointGroup = determinePointGroupUsingSYMMETRYProgram(geom,name);
+            qmdata.pointGroup = pointGroup;
+        }
         
         //calculate thermo quantities using stat. mech. equations        
         //boolean linearity = p_chemGraph.isLinear();//determine linearity (perhaps it would be more appropriate to determine this from point group?)
@@ -65,6 +65,12 @@ public class Species {
 
     protected LinkedHashSet resonanceIsomers = new LinkedHashSet();		//## attribute resonanceIsomers
 
+    /**
+     * The canonical strings of the resonance isomers released by compact(),
+     * or null if the species holds its resonance isomers.
+     */
+    protected String[] compactResonanceKeys = null;
+
     protected boolean therfitExecuted = false;		//## attribute therfitExecuted
     
     protected String InChI = null;	//## attribute InChI
@@ -72,6 +78,11 @@ public class Species {
     protected TransportData chemkinTransData;
 	protected NASAThermoData nasaThermoData;
 	protected String nasaThermoSource;
+	// true until the thermo data of this species, left to its batch (see ThermoBatch), has been
+	// estimated; volatile since getThermoData() and getNasaThermoData() read it without the lock
+	private volatile boolean thermoBatched = false;
+	// true while estimateBatchedThermoData() runs, which calls getThermoData() itself; guarded by this
+	private boolean estimatingBatchedThermoData = false;
     protected ThreeFrequencyModel threeFrequencyModel;
 	//protected WilhoitThermoData wilhoitThermoData;
 
@@ -110,14 +121,21 @@ public class Species {
         name = p_name;
         chemGraph = p_chemGraph;
         generateResonanceIsomers();
+        // With concurrent QM jobs, the thermo data of a species with a single
+        // resonance form is calculated in the background, and the species
+        // (with its NASA polynomials) picks it up when it is first needed
+        boolean thermoPending = resonanceIsomers.isEmpty() && QMJobScheduler.submit(chemGraph);
+        // Otherwise, while reactions are being generated, the thermo data is
+        // estimated together with that of the other new species
+        if (!thermoPending) thermoBatched = ThermoBatch.add(this);
         if (!constantConcentration) {
-            findStablestThermoData();
+            if (!thermoPending && !thermoBatched) findStablestThermoData();
         } else {
             //findSolvationData();
         }
         calculateTransportParameters();
         selectDeltaEDown();
-		generateNASAThermoData();
+		if (!thermoPending && !thermoBatched) generateNASAThermoData();
        // generateSpectroscopicData(); // only get it if you need it!!!
 		/*
 		 * MRH 9MAR2010:
@@ -133,6 +151,25 @@ public class Species {
         //#]
     }
 
+    /**
+     * Makes a species read from a binary restart snapshot. p_chemGraph is
+     * already the most stable resonance isomer, and already carries the
+     * thermo data found when the species was first made, so neither that
+     * data nor the NASA polynomials are estimated again.
+     */
+    private  Species(int id, String p_name, ChemGraph p_chemGraph, NASAThermoData p_nasaThermoData) {
+        initRelations();
+		ID = id;
+        name = p_name;
+        chemGraph = p_chemGraph;
+        generateResonanceIsomers();
+        calculateTransportParameters();
+        selectDeltaEDown();
+        nasaThermoData = p_nasaThermoData;
+        nasaThermoSource = getThermoData().source;
+        GATPFitExecuted = (nasaThermoData != null);
+    }
+
     //## operation addResonanceIsomer(ChemGraph)
     public boolean addResonanceIsomer(ChemGraph p_resonanceIsomer) {
         //#[ operation addResonanceIsomer(ChemGraph)
@@ -157,7 +194,7 @@ public class Species {
     public double calculateG(Temperature p_temperature) {
         //#[ operation calculateG(Temperature)
         //return getThermoData().calculateG(p_temperature);
-		return nasaThermoData.calculateFreeEnergy(p_temperature);
+		return getNasaThermoData().calculateFreeEnergy(p_temperature);
         //#]
     }
 
@@ -182,7 +219,7 @@ public class Species {
     public double calculateH(Temperature p_temperature) {
         //#[ operation calculateH(Temperature)
         //return getThermoData().calculateH(p_temperature);
-        return nasaThermoData.calculateEnthalpy(p_temperature);
+        return getNasaThermoData().calculateEnthalpy(p_temperature);
 		
 		//#]
     }
@@ -230,7 +267,7 @@ public class Species {
     public double calculateS(Temperature p_temperature) {
         //#[ operation calculateS(Temperature)
         //return getThermoData().calculateS(p_temperature);
-        return nasaThermoData.calculateEntropy(p_temperature);
+        return getNasaThermoData().calculateEntropy(p_temperature);
 		//#]
     }
 
@@ -328,6 +365,61 @@ public class Species {
         //#]
     }
 
+    /**
+     * Releases the resonance isomers of an edge species, keeping only the
+     * stablest one (chemGraph), whose thermo data the species uses. The
+     * other isomers are only needed once the species reacts, and each is a
+     * full ChemGraph with its own graph and thermo data. Their canonical
+     * strings are kept, and stay in the species dictionary, so the species is
+     * still found from any of its resonance isomers. expand() rebuilds them.
+     */
+    public void compact() {
+        if (compactResonanceKeys != null) return;
+        if (thermoBatched) estimateBatchedThermoData();
+        if (!hasResonanceIsomers()) {
+        	compactResonanceKeys = new String[0];
+        	return;
+        }
+        String[] keys = new String[resonanceIsomers.size()];
+        int i = 0;
+        for (Iterator iter = resonanceIsomers.iterator(); iter.hasNext(); ) {
+        	keys[i++] = ((ChemGraph)iter.next()).getCanonicalString();
+        }
+        SpeciesDictionary.getInstance().releaseResonanceIsomers(this);
+        resonanceIsomers.clear();
+        compactResonanceKeys = keys;
+    }
+
+    /**
+     * Rebuilds the resonance isomers released by compact(), e.g. when the
+     * species moves to the core or is explored in a pressure-dependent
+     * network. The stablest isomer is kept as the chemGraph.
+     */
+    public void expand() {
+        if (compactResonanceKeys == null) return;
+        boolean hadIsomers = compactResonanceKeys.length > 0;
+        compactResonanceKeys = null;
+        if (hadIsomers) {
+        	generateResonanceIsomers();
+        	SpeciesDictionary.getInstance().putSpecies(this, false);
+        }
+    }
+
+    /**
+     * Returns true if the resonance isomers have been released by compact().
+     */
+    public boolean isCompact() {
+        return compactResonanceKeys != null;
+    }
+
+    /**
+     * Returns the canonical strings of the resonance isomers released by
+     * compact(), or null if the species is not compact.
+     */
+    public String[] getCompactResonanceKeys() {
+        return compactResonanceKeys;
+    }
+
     //## operation findStablestThermoData()
     public void findStablestThermoData() {
         //#[ operation findStablestThermoData()
@@ -357,6 +449,26 @@ public class Species {
         //#]
     }
     
+    /**
+     * Finds the stablest resonance isomer and the NASA polynomials of a
+     * species whose thermo data was left to its batch (see ThermoBatch), if
+     * that has not been done yet. thermoBatched is cleared only once both are
+     * done, so that other threads wait here rather than read a half-estimated
+     * species.
+     */
+    synchronized void estimateBatchedThermoData() {
+        if (!thermoBatched || estimatingBatchedThermoData) return;
+        estimatingBatchedThermoData = true;
+        try {
+            findStablestThermoData();
+            generateNASAThermoData();
+            thermoBatched = false;
+        }
+        finally {
+            estimatingBatchedThermoData = false;
+        }
+    }
+
 	public void generateNASAThermoData() {
         //nasaThermoData = Therfit.generateNASAThermoData(this);
         nasaThermoData = GATPFit.generateNASAThermoData(this);
@@ -773,6 +885,7 @@ public class Species {
     public NASAThermoData getNasaThermoData() {
         //#[ operation getNasaThermoData()
         //if (nasaThermoData==null && !therfitExecuted) generateNASAThermoData();
+		if (thermoBatched) estimateBatchedThermoData();
 		if (nasaThermoData==null) generateNASAThermoData();
         return nasaThermoData;
         //#]
@@ -797,6 +910,7 @@ public class Species {
     //## operation getThermoData()
     public ThermoData getThermoData() {
         //#[ operation getThermoData()
+        if (thermoBatched) estimateBatchedThermoData();
         return chemGraph.getThermoData();
         //#]
     }
@@ -859,7 +973,7 @@ public class Species {
 		double pT = System.currentTimeMillis();
         SpeciesDictionary dictionary = SpeciesDictionary.getInstance();
         
-        // first try to get it from the dictionary (which now uses a cache to speed it up)
+        // first try to get it from the dictionary (an exact match on the canonical string)
         Species spe = (Species)(dictionary.getSpecies(p_chemGraph));
         
         // if it wasn't there then it's unique and we need to add it
@@ -894,28 +1008,29 @@ public class Species {
 
         }
         else {
-			if (spe.chemGraph.equals(p_chemGraph)){
+			// the dictionary is keyed by canonical string, so compare those rather than the graphs
+			String canonicalString = p_chemGraph.getCanonicalString();
+			if (spe.chemGraph.getCanonicalString().equals(canonicalString)){
 				//spe.chemGraph.graph = p_chemGraph.graph;
 				//p_chemGraph = spe.chemGraph;
 
-				p_chemGraph.thermoData = spe.chemGraph.thermoData;
-				p_chemGraph.symmetryNumber = spe.chemGraph.symmetryNumber;
-				p_chemGraph.internalRotor = spe.chemGraph.internalRotor;
-                p_chemGraph.solvthermoData = spe.chemGraph.solvthermoData;
+				p_chemGraph.copyThermoFrom(spe.chemGraph);
 			}
 			else if (spe.hasResonanceIsomers()){
 				Iterator cgIter = spe.getResonanceIsomers();
 				while(cgIter.hasNext()){
 					ChemGraph cg = (ChemGraph)cgIter.next();
-					if (cg.equals(p_chemGraph)){
-						p_chemGraph.thermoData = spe.chemGraph.thermoData;
-						p_chemGraph.symmetryNumber = spe.chemGraph.symmetryNumber;
-						p_chemGraph.internalRotor = spe.chemGraph.internalRotor;
-                        p_chemGraph.solvthermoData = spe.chemGraph.solvthermoData;
+					if (cg.getCanonicalString().equals(canonicalString)){
+						p_chemGraph.copyThermoFrom(spe.chemGraph);
 						break;
 					}
 				}
 			}
+			else if (spe.isCompact()) {
+				// a compact species no longer holds its resonance isomers, but the
+				// dictionary only returned it because p_chemGraph is one of them
+				p_chemGraph.copyThermoFrom(spe.chemGraph);
+			}
 			else {
 				Logger.error("Cannot make species which has a chemgraph: "+p_chemGraph.toString());
 				System.exit(0);
@@ -1008,6 +1123,131 @@ public class Species {
         return spe;
     }
 
+    /**
+     * Writes this species to a binary restart snapshot: its ID and name, the
+     * canonical string of its chemgraph, the graph itself as an array of
+     * nodes and an array of bonds, its thermo data, and its NASA polynomials.
+     * See readRestartData().
+     */
+    public void writeRestartData(DataOutput p_out) throws IOException {
+        p_out.writeInt(ID);
+        p_out.writeUTF(name);
+        p_out.writeUTF(chemGraph.getCanonicalString());
+
+        Graph g = chemGraph.getGraph();
+        p_out.writeShort(g.getNodeNumber());
+        int bondNumber = 0;
+        for (Iterator iter = g.getNodeList(); iter.hasNext(); ) {
+            Node node = (Node)iter.next();
+            p_out.writeShort(node.getID().intValue());
+            p_out.writeUTF(ChemParser.writeChemNodeElement(node.getElement()));
+            FreeElectron fee = node.getFeElement();
+            p_out.writeUTF(fee == null ? "0" : fee.getName());
+            bondNumber += node.getNeighborNumber();
+        }
+        // Each bond is written once, from the node with the lower ID
+        p_out.writeShort(bondNumber / 2);
+        for (Iterator iter = g.getNodeList(); iter.hasNext(); ) {
+            Node node = (Node)iter.next();
+            for (Iterator arcs = node.getNeighbor(); arcs.hasNext(); ) {
+                Arc arc = (Arc)arcs.next();
+                Node other = node.getOtherNode(arc);
+                if (other.getID().intValue() > node.getID().intValue()) {
+                    p_out.writeShort(node.getID().intValue());
+                    p_out.writeShort(other.getID().intValue());
+                    p_out.writeUTF(arc.toString());
+                }
+            }
+        }
+
+        p_out.writeBoolean(chemGraph.fromprimarythermolibrary);
+        ThermoData td = getThermoData();
+        p_out.writeDouble(td.H298);
+        p_out.writeDouble(td.S298);
+        p_out.writeDouble(td.Cp300);
+        p_out.writeDouble(td.Cp400);
+        p_out.writeDouble(td.Cp500);
+        p_out.writeDouble(td.Cp600);
+        p_out.writeDouble(td.Cp800);
+        p_out.writeDouble(td.Cp1000);
+        p_out.writeDouble(td.Cp1500);
+        p_out.writeDouble(td.dH);
+        p_out.writeDouble(td.dS);
+        p_out.writeDouble(td.dCp);
+        p_out.writeUTF(td.comments == null ? "" : td.comments);
+        p_out.writeUTF(td.name == null ? "" : td.name);
+        p_out.writeUTF(td.source == null ? "" : td.source);
+
+        NASAThermoData nasa = getNasaThermoData();
+        p_out.writeBoolean(nasa != null);
+        if (nasa != null) p_out.writeUTF(nasa.getDataString());
+    }
+
+    /**
+     * Reads a species written by writeRestartData() and adds it to the species
+     * dictionary. If the graph read no longer gives the same canonical string
+     * (e.g. because the canonical form has changed since the snapshot was
+     * written), the species is made from scratch instead.
+     */
+    public static Species readRestartData(DataInput p_in) throws IOException {
+        int id = p_in.readInt();
+        String name = p_in.readUTF();
+        String canonicalString = p_in.readUTF();
+
+        Graph g = new Graph();
+        int nodeNumber = p_in.readShort();
+        for (int i = 0; i < nodeNumber; i++) {
+            int nodeID = p_in.readShort();
+            String element = p_in.readUTF();
+            String radical = p_in.readUTF();
+            g.addNodeAt(nodeID, (Atom)ChemParser.readChemNodeElement(element, radical));
+        }
+        int bondNumber = p_in.readShort();
+        for (int i = 0; i < bondNumber; i++) {
+            Node node1 = g.getNodeAt(p_in.readShort());
+            Node node2 = g.getNodeAt(p_in.readShort());
+            g.addArcBetween(node1, Bond.make(p_in.readUTF()), node2);
+        }
+        g.identifyFgElement();
+
+        boolean fromPrimaryThermoLibrary = p_in.readBoolean();
+        ThermoData values = new ThermoData(p_in.readDouble(), p_in.readDouble(), p_in.readDouble(),
+                p_in.readDouble(), p_in.readDouble(), p_in.readDouble(), p_in.readDouble(),
+                p_in.readDouble(), p_in.readDouble(), p_in.readDouble(), p_in.readDouble(),
+                p_in.readDouble(), null);
+        String comments = p_in.readUTF();
+        String thermoName = p_in.readUTF();
+        String source = p_in.readUTF();
+        ThermoData td = new ThermoData(thermoName.length() == 0 ? null : thermoName, values,
+                comments.length() == 0 ? null : comments, source.length() == 0 ? null : source);
+        NASAThermoData nasa = p_in.readBoolean() ? new NASAThermoData(p_in.readUTF()) : null;
+
+        ChemGraph cg = null;
+        try {
+            cg = ChemGraph.make(g);
+        } catch (ForbiddenStructureException e) {
+            Logger.critical("Error reading graph: Graph contains a forbidden structure.\n" + g.toString());
+            System.exit(0);
+        }
+        if (!cg.getCanonicalString().equals(canonicalString)) {
+            Logger.warning("Canonical string of restart species " + name + "(" + id + ") has changed; estimating its thermo again");
+            return make(name, cg, id);
+        }
+        cg.thermoData = td;
+        cg.fromprimarythermolibrary = fromPrimaryThermoLibrary;
+
+        SpeciesDictionary dictionary = SpeciesDictionary.getInstance();
+        Species spe = new Species(id, name, cg, nasa);
+        if (id > TOTAL_NUMBER) TOTAL_NUMBER=id;
+        dictionary.putSpecies(spe, false);
+        cg.setSpecies(spe);
+
+        // DEBUG: Tell console I made this species
+        Logger.info("Created new species: " + spe.getFullName() );
+
+        return spe;
+    }
+
     //## operation repOk()
     public boolean repOk() {
         //#[ operation repOk()
@@ -1152,7 +1392,8 @@ public class Species {
         // 6/9/09 gmagoon: updated to also read InChIKey
         //output is string array with first ([0]) element being the InChI string (with "InChI="); the second ([1]) element will be the InChIKey (WITHOUT "InChIKey=")
         // the function can be easily changed to accomodate other versions of the InChI program by changing the command line options (optionsArgument); for example, if InChIKey generation is turned off, the second element of the string array will be an empty string;
-	public static String [] generateInChI(ChemGraph p_chemGraph) {
+	// synchronized since the InChI program always reads and writes the same files
+	public static synchronized String [] generateInChI(ChemGraph p_chemGraph) {
 		File inchi = new File("InChI");
 		inchi.mkdir();
 		
@@ -2030,6 +2271,7 @@ public class Species {
     }
     
     public String getNasaThermoSource() {
+    	if (nasaThermoData == null) getNasaThermoData();
     	if (nasaThermoSource == null)
     		nasaThermoSource = "Estimated by RMG using Group Additivity";
     	return nasaThermoSource;
@@ -51,7 +51,10 @@ public class SpeciesDictionary {
     
     private static LinkedHashMap dictionary;		//## attribute dictionary 
     
-    private static LinkedList cache = new LinkedList();  // a shortlist of recently requested species used as a cache
+    /**
+    Canonical string of every ChemGraph in dictionary (including all the resonance isomers) mapped to its species
+    */
+    private static HashMap canonicalIndex;
   
     
     // Constructors
@@ -60,6 +63,7 @@ public class SpeciesDictionary {
     private  SpeciesDictionary() {
         //#[ operation SpeciesDictionary() 
         dictionary = new LinkedHashMap();
+        canonicalIndex = new HashMap();
         //#]
     }
     
@@ -74,70 +78,13 @@ public class SpeciesDictionary {
     public static Species getSpecies(ChemGraph p_chemGraph) {
         
         /* In its simplest form this routine is just: return (Species)dictionary.get(p_chemGraph);
-           This implementation uses a cache consisting of the two previously gotten species
-           this short list of two is checked before the full list (of potentially thousands) of species
-           because very often the species being checked is the same as the penultimate species to be checked.
-           This speeds things up considerably.  rwest 2009/05/08
-           NB. putSpecies() has also been modified to update the cache when new species are added.
+           Every ChemGraph put in the dictionary, resonance isomers included, is also indexed by its
+           canonical string, so the lookup is an exact string match and never needs an isomorphism
+           check.  This replaces the two-species recency cache (rwest 2009/05/08), which still had
+           to compare graphs.
          */
         
-        Species species = null;
-        
-        // check the cache
-        Iterator iter = cache.iterator();
-        while (iter.hasNext() && species==null) {
-        	Species spe = (Species)iter.next();
-            
-            // see if 'spe' matches our p_chemGraph
-            if (spe.hasResonanceIsomers()) {
-                Iterator iter2 = spe.getResonanceIsomers();
-                while (iter2.hasNext() && species==null) {
-                    ChemGraph resonantisomer = (ChemGraph)iter2.next();
-                    if (resonantisomer.equals(p_chemGraph)) species=spe;
-                }
-            }
-        	else if (spe.getChemGraph().equals(p_chemGraph) ) {
-                species=spe;
-        	}
-        }   
-        // if species still = null then it wasn't in the cache
-        
-        // if we found it in the cache, then we want to move it to the end of the list so it appears as the most recent item
-        if (species != null) {
-            iter.remove(); // remove it from the cache (wherever it was located)
-            cache.add(species); // and put it straight back again
-            return species;
-        }
-        // if we are still here, we haven't found the species yet
-       
-        // now check the dictionary
-        species = (Species)dictionary.get(p_chemGraph);
-        
-        
-        // for diagnostic purposes, print stuff to a log file if we didn't get a cache hit
-        /*
-        try{
-            File consideredSpecies = new File ("Restart/consideredSpecies.txt");
-            FileWriter fw = new FileWriter(consideredSpecies, true);
-            if (species==null) fw.write( "not in dictionary or cache:");
-            else fw.write( "not in cache: ");
-            fw.close();
-        }
-        catch (IOException e){
-            System.out.println("Could not write the restart consideredSpecies file");
-            System.exit(0);
-        }
-         */
-        
-        
-        // update the cache
-        if (species != null) {
-            cache.add(species); // add to the end of the list
-            if (cache.size() > 2)  
-                cache.remove(); // remove from the front of the list
-        }
-        
-        return species;
+        return (Species)canonicalIndex.get(p_chemGraph.getCanonicalString());
         
     }
     
@@ -196,14 +143,7 @@ public class SpeciesDictionary {
 	
 	public static Species getSpeciesFromGraph(Graph g) {
 		if (g == null) throw new NullPointerException();
-		Iterator iter = dictionary.keySet().iterator();
-		while(iter.hasNext()) {
-			ChemGraph cg = (ChemGraph)iter.next();
-			if (cg.graph.isEquivalent(g)) {
-				return (Species)dictionary.get(cg);
-			}
-		}
-		return null;
+		return (Species)canonicalIndex.get(g.getCanonicalString());
 	}
     
 	 public static Species getSpeciesFromChemkinName(String p_name) {
@@ -277,29 +217,49 @@ public class SpeciesDictionary {
         if (p_species.hasResonanceIsomers()) {
         	Iterator iter = p_species.getResonanceIsomers();
         	while (iter.hasNext()) {
-        		Object key = iter.next();
+        		ChemGraph key = (ChemGraph)iter.next();
         		dictionary.put(key,p_species);
+        		canonicalIndex.put(key.getCanonicalString(),p_species);
         	}
         }
         else {
         	dictionary.put(p_species.getChemGraph(),p_species);
+        	canonicalIndex.put(p_species.getChemGraph().getCanonicalString(),p_species);
         }
-        
-        // update the cache
-        cache.add(p_species); // add to the end of the list
-        if (cache.size() > 2) 
-            cache.remove(); // remove from the front of the list
 
     }
     
     //## operation remove(ChemGraph) 
     public void remove(ChemGraph p_chemGraph) {
-        if (p_chemGraph != null) dictionary.remove(p_chemGraph);
+        if (p_chemGraph != null) {
+        	dictionary.remove(p_chemGraph);
+        	canonicalIndex.remove(p_chemGraph.getCanonicalString());
+        }
 		// why don't we waint to throw an exception if we have a null pointer?
     }
 	
+    /**
+     * Drops the resonance isomers of p_spe other than its chemGraph from the
+     * dictionary, before Species.compact() releases them. Their canonical
+     * strings stay indexed, so getSpecies() still finds p_spe from them.
+     */
+    void releaseResonanceIsomers(Species p_spe) {
+        ChemGraph stablest = p_spe.getChemGraph();
+        for (Iterator iter = p_spe.getResonanceIsomers(); iter.hasNext(); ) {
+        	ChemGraph cg = (ChemGraph)iter.next();
+        	if (cg != stablest) dictionary.remove(cg);
+        }
+        dictionary.put(stablest,p_spe);
+    }
+
     //remove all the mappings from ChemGraphs to a particular species
     public void remove(Species p_spe) {
+		if (p_spe.isCompact()) {
+			String[] keys = p_spe.getCompactResonanceKeys();
+			for (int i = 0; i < keys.length; i++) {
+				if (canonicalIndex.get(keys[i]) == p_spe) canonicalIndex.remove(keys[i]);
+			}
+		}
 		if (p_spe.hasResonanceIsomers()) {
 			Iterator iter = p_spe.getResonanceIsomers();
 			while(iter.hasNext()){
@@ -36,9 +36,11 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.StringTokenizer;
 import jing.chemParser.ChemParser;
 import jing.mathTool.MathTool;
+import jing.rxnSys.NativeWorkerPool;
 
 /**
  * Contains data members and methods for interacting with THERFIT, a module that
@@ -188,11 +190,9 @@ public class Therfit {
 		try {
        	 // system call for therfit
 			String[] command = {workingDirectory + "/bin/therfit.exe"};
-			File runningDir = new File(p_directory );//+ "/therfit");// "/software/therfit");
-			Process therfit = Runtime.getRuntime().exec(command, null, runningDir);
-			InputStream is = therfit.getErrorStream();
-			InputStreamReader isr = new InputStreamReader(is);
-			BufferedReader br = new BufferedReader(isr);
+			// therfit.exe reads fort.1 and exits, so each call runs a new process; its status goes to stderr
+			NativeWorkerPool therfit = NativeWorkerPool.getPool(command, p_directory, null, true, 1);//+ "/therfit");// "/software/therfit");
+			BufferedReader br = new BufferedReader(new StringReader(therfit.call(null)));
 			String line=null;
 			while ( (line = br.readLine()) != null) {
 				//System.out.println(line);
@@ -205,12 +205,7 @@ public class Therfit {
 					error = true;
 				}
 			}
-			int exitValue = therfit.waitFor();
 			br.close();
-			isr.close();
-			is.close();
-			therfit.getInputStream().close();
-			therfit.getOutputStream().close();
 		}
 		catch (Exception e) {
 			e.printStackTrace(System.out);
@@ -0,0 +1,170 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.chem;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import jing.param.Global;
+
+/**
+ * Estimates the thermo data of the species made while reactions are
+ * generated on several threads at once.
+ * <p>
+ * Between begin() and end(), a new species does not find its thermo data
+ * (its most stable resonance isomer and the NASA polynomials fitted to it)
+ * when it is made; it joins the batch instead. end() estimates the thermo
+ * data of every species in the batch on a pool of threads and waits for
+ * them all, so the new species have their thermo data before the new
+ * reactions are added to the model and their rates are computed. A species
+ * whose thermo data is asked for before end() (e.g. to choose the direction
+ * of a reaction from a family that is its own reverse) finds it then, on
+ * the asking thread. Species whose thermo data comes from the primary
+ * thermo library (which may also give them their name) or from a QM
+ * calculation run by QMJobScheduler never join the batch.
+ * <p>
+ * The time spent in end() and the number of species estimated there are
+ * added to Global.thermoEstimation and Global.thermoEstimationSpecies. With
+ * one thread (the default) no batch is collected, and every species finds
+ * its thermo data when it is made, as before.
+ */
+public class ThermoBatch {
+
+	/** The number of threads that estimate the thermo data of a batch. */
+	private static int threads = 1;
+
+	private static ForkJoinPool pool = null;
+
+	/** The number of calls to begin() not yet matched by end(). */
+	private static int depth = 0;
+
+	/** The species of the open batch, in the order they were made. */
+	private static LinkedList batch = new LinkedList();
+
+	//==========================================================================
+
+	public static int getThreads() {
+		return threads;
+	}
+
+	public static synchronized void setThreads(int p_threads) {
+		if (p_threads < 1) p_threads = 1;
+		if (p_threads != threads && pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+		threads = p_threads;
+	}
+
+	private static synchronized ForkJoinPool getPool() {
+		if (pool == null) pool = new ForkJoinPool(threads);
+		return pool;
+	}
+
+	/**
+	 * Opens a batch, if more than one thread is allowed. Calls may be
+	 * nested; the batch is estimated by the end() matching the outermost
+	 * begin().
+	 */
+	public static synchronized void begin() {
+		if (threads > 1 || depth > 0) depth++;
+	}
+
+	/**
+	 * Adds p_species, which is being made, to the open batch, unless its
+	 * thermo data (or that of one of its resonance isomers) is in the
+	 * primary thermo library. Returns true if p_species joined the batch.
+	 */
+	static synchronized boolean add(Species p_species) {
+		if (depth == 0) return false;
+		PrimaryThermoLibrary library = PrimaryThermoLibrary.getINSTANCE();
+		if (library.getThermoData(p_species.getChemGraph().getGraph()) != null) return false;
+		for (Iterator iter = p_species.getResonanceIsomers(); iter.hasNext(); ) {
+			if (library.getThermoData(((ChemGraph)iter.next()).getGraph()) != null) return false;
+		}
+		batch.add(p_species);
+		return true;
+	}
+
+	/**
+	 * Closes the batch opened by the matching begin(). If it is the
+	 * outermost one, estimates the thermo data of the species in the batch
+	 * that do not have it yet and returns once they all have.
+	 */
+	public static void end() {
+		LinkedList species;
+		synchronized (ThermoBatch.class) {
+			if (depth == 0 || --depth > 0) return;
+			species = batch;
+			batch = new LinkedList();
+		}
+		if (species.isEmpty()) return;
+
+		double startTime = System.currentTimeMillis();
+		LinkedList tasks = new LinkedList();
+		for (Iterator iter = species.iterator(); iter.hasNext(); ) {
+			final Species spe = (Species)iter.next();
+			tasks.add(new Callable() {
+				public Object call() {
+					spe.estimateBatchedThermoData();
+					return null;
+				}
+			});
+		}
+		try {
+			List futures = getPool().invokeAll(tasks);
+			for (Iterator iter = futures.iterator(); iter.hasNext(); ) {
+				((Future)iter.next()).get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while estimating thermo data", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}
+		synchronized (Global.class) {
+			Global.thermoEstimation += (System.currentTimeMillis()-startTime)/1000/60;
+			Global.thermoEstimationSpecies += species.size();
+		}
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\chem\ThermoBatch.java
+*********************************************************************/
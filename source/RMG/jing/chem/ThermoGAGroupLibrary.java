@@ -53,6 +53,7 @@ There are six libraries:
 In each library, the key should be functional group (name + adjList), and the value should be ThermoGAValue.
 for (2), (3), (4), we scan the library to find match between chemgraph and functional group each time. search time O(n), where n is the library size.
 for (1), we first match chemgraph with a tree structure to find out the proper functional group, and then access the library by the key functional group, so the search tiem is O(1) + O(logN), where N is the tree size.
+for (1), (2), (5) and (6), and the Abraham and UNIFAC trees, the value found for each atom environment is also remembered (see GroupMatchMemo), so an environment seen before costs one hash lookup.
 */
 //## class ThermoGAGroupLibrary
 public class ThermoGAGroupLibrary {
@@ -92,6 +93,17 @@ public class ThermoGAGroupLibrary {
     protected HashMap unifacLibrary;
     protected HierarchyTree unifacTree;
 
+    /**
+    Memo tables of the values found in the trees searched from one central atom, keyed by the environment of that atom (see GroupMatchMemo).  They are made once the trees are read, and fill up as the groups of new chem graphs are found.
+    */
+    protected GroupMatchMemo groupMemo;
+    protected GroupMatchMemo radicalMemo;
+    protected GroupMatchMemo gaucheMemo;
+    protected GroupMatchMemo oneFiveMemo;
+    protected GroupMatchMemo abramMemo;
+    protected GroupMatchMemo abramradMemo;
+    protected GroupMatchMemo unifacMemo;
+
     //protected HashMap solventDictionary;
     //protected HashMap solventLibrary;
     // Constructors
@@ -229,22 +241,31 @@ public class ThermoGAGroupLibrary {
         //#[ operation findGAGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = groupMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = groupMemo.get(key);
+        if (match != null) return (ThermoGAValue)match.replay(p_chemGraph);
+
         Stack stack = groupTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();//2/13/09 gmagoon: resetting the matched GC value...for some reason, thermoLibrary.findGAGroup (within getGAGroup in GATP.java) ended up modifiying the central node so that it was matched; this ended up wreaking havoc with subsequent symmetry number calculations; ideally, I would probably want to fix the code so that it didn't end up modifying the matchedGC from the null value after it is done with it, but I do not immediately see how to due so, and debugging proved extremely difficult; I have also tried to put this elsewhere in this class where it might be appropriate
         if (stack == null) return null;
 
+        LinkedList comments = new LinkedList();
+        ThermoGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	ThermoGAValue ga = (ThermoGAValue)groupLibrary.get(fg);
                 p_chemGraph.appendThermoComments("Group:" + fg.getName());
-        	if (ga != null) //{
+                comments.add("Group:" + fg.getName());
+        	if (ga != null) {
                 //System.out.println("Group found: " + fg.getName());
-                return ga;
-            //}
+                result = ga;
+                break;
+            }
         }
-        
-        return null;
+
+        groupMemo.put(key, result, comments);
+        return result;
 
 
 
@@ -281,19 +302,30 @@ public class ThermoGAGroupLibrary {
         //#[ operation findRadicalGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = radicalMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = radicalMemo.get(key);
+        if (match != null) return (ThermoGAValue)match.replay(p_chemGraph);
+
         Stack stack = radicalTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        LinkedList comments = new LinkedList();
+        ThermoGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	ThermoGAValue ga = (ThermoGAValue)radicalLibrary.get(fg);
                 p_chemGraph.appendThermoComments("Radical:" + fg.getName());
-        	if (ga != null) return ga;
+                comments.add("Radical:" + fg.getName());
+        	if (ga != null) {
+        		result = ga;
+        		break;
+        	}
         }
 
-        return null;
+        radicalMemo.put(key, result, comments);
+        return result;
 
 
 
@@ -366,19 +398,30 @@ public class ThermoGAGroupLibrary {
         //#[ operation findGAGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = gaucheMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = gaucheMemo.get(key);
+        if (match != null) return (ThermoGAValue)match.replay(p_chemGraph);
+
         Stack stack = gaucheTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        LinkedList comments = new LinkedList();
+        ThermoGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	ThermoGAValue ga = (ThermoGAValue)gaucheLibrary.get(fg);
                 p_chemGraph.appendThermoComments("Gauche:" + fg.getName());
-        	if (ga != null) return ga;
+                comments.add("Gauche:" + fg.getName());
+        	if (ga != null) {
+        		result = ga;
+        		break;
+        	}
         }
 
-        return null;
+        gaucheMemo.put(key, result, comments);
+        return result;
     }
     
             /**
@@ -390,41 +433,59 @@ public class ThermoGAGroupLibrary {
         //#[ operation findGAGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = oneFiveMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = oneFiveMemo.get(key);
+        if (match != null) return (ThermoGAValue)match.replay(p_chemGraph);
+
         Stack stack = oneFiveTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        LinkedList comments = new LinkedList();
+        ThermoGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	ThermoGAValue ga = (ThermoGAValue)oneFiveLibrary.get(fg);
                 p_chemGraph.appendThermoComments("1,5:" + fg.getName());
-        	if (ga != null) return ga;
+                comments.add("1,5:" + fg.getName());
+        	if (ga != null) {
+        		result = ga;
+        		break;
+        	}
         }
 
-        return null;
+        oneFiveMemo.put(key, result, comments);
+        return result;
     }
 
     public AbrahamGAValue findAbrahamGroup(ChemGraph p_chemGraph) throws MultipleGroupFoundException, InvalidCenterTypeException {
         //#[ operation findGAGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = abramMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = abramMemo.get(key);
+        if (match != null) return (AbrahamGAValue)match.replay(p_chemGraph);
+
         Stack stack = abramTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        AbrahamGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	AbrahamGAValue ga = (AbrahamGAValue)abramLibrary.get(fg);
         	if (ga != null) {
             //System.out.println("Platts Group found: " + fg.getName());
-                return ga;
+                result = ga;
+                break;
             }
              
         }
 
-        return null;
+        abramMemo.put(key, result, new LinkedList());
+        return result;
     }
 
    //Added by Amrit Jalan on December 13, 2010
@@ -432,18 +493,27 @@ public class ThermoGAGroupLibrary {
         //#[ operation findRadicalGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = abramradMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = abramradMemo.get(key);
+        if (match != null) return (AbrahamGAValue)match.replay(p_chemGraph);
+
         Stack stack = abramradTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        AbrahamGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	AbrahamGAValue ga = (AbrahamGAValue)abramradLibrary.get(fg);
-        	if (ga != null) return ga;
+        	if (ga != null) {
+        		result = ga;
+        		break;
+        	}
         }
 
-        return null;
+        abramradMemo.put(key, result, new LinkedList());
+        return result;
 
        }
 
@@ -451,22 +521,29 @@ public class ThermoGAGroupLibrary {
         //#[ operation findGAGroup(ChemGraph)
         if (p_chemGraph == null) return null;
 
+        String key = unifacMemo.getKey(p_chemGraph);
+        GroupMatchMemo.Match match = unifacMemo.get(key);
+        if (match != null) return (UnifacGAValue)match.replay(p_chemGraph);
+
         Stack stack = unifacTree.findMatchedPath(p_chemGraph);
         p_chemGraph.getGraph().resetMatchedGC();
         if (stack == null) return null;
 
+        UnifacGAValue result = null;
         while (!stack.empty()) {
         	HierarchyTreeNode node = (HierarchyTreeNode)stack.pop();
         	Matchable fg = (Matchable)node.getElement();
         	UnifacGAValue ga = (UnifacGAValue)unifacLibrary.get(fg);
         	if (ga != null) {
                 //System.out.println("Unifac Group found: " + fg.getName());
-                return ga;
+                result = ga;
+                break;
             }
 
         }
 
-        return null;
+        unifacMemo.put(key, result, new LinkedList());
+        return result;
     }
 
 
@@ -532,10 +609,24 @@ public class ThermoGAGroupLibrary {
 			*/
 		}
 
+		makeMemos();
 
 	    }
 
 
+    /**
+    Make empty memo tables for the trees searched from one central atom.  The ring and other correction trees are matched against the whole chem graph, and are not memoized.
+    */
+    protected void makeMemos() {
+        groupMemo = new GroupMatchMemo(groupTree);
+        radicalMemo = new GroupMatchMemo(radicalTree);
+        gaucheMemo = new GroupMatchMemo(gaucheTree);
+        oneFiveMemo = new GroupMatchMemo(oneFiveTree);
+        abramMemo = new GroupMatchMemo(abramTree);
+        abramradMemo = new GroupMatchMemo(abramradTree);
+        unifacMemo = new GroupMatchMemo(unifacTree);
+    }
+
     //## operation readGroupDictionary(String)
     public void readGroupDictionary(String p_fileName) {
         //#[ operation readGroupDictionary(String)
@@ -1346,6 +1437,7 @@ public class ThermoGAGroupLibrary {
 
     public void setGroupLibrary(HashMap p_groupLibrary) {
         groupLibrary = p_groupLibrary;
+        groupMemo = new GroupMatchMemo(groupTree);
     }
 
     protected HierarchyTree getGroupTree() {
@@ -1390,6 +1482,7 @@ public class ThermoGAGroupLibrary {
 
     public void setRadicalTree(HierarchyTree p_radicalTree) {
         radicalTree = p_radicalTree;
+        radicalMemo = new GroupMatchMemo(radicalTree);
     }
 
     protected HashMap getRingLibrary() {
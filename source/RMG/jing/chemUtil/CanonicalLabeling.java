@@ -0,0 +1,472 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+package jing.chemUtil;
+
+import java.util.*;
+
+import jing.chem.Atom;
+import jing.chem.Bond;
+
+/**
+ * Isomorphism-invariant labeling of the nodes of a Graph.
+ *
+ * Each node starts with a color derived from its element (atom type including
+ * radical count, or the functional group element); the colors are then
+ * iteratively refined from the multiset of (bond, neighbor color) pairs
+ * around each node, Morgan / Weisfeiler-Lehman style, until the number of
+ * color classes stops growing.  Because the refined colors are ranks of
+ * sorted signatures they depend only on the structure of the graph, never on
+ * node IDs or insertion order, so two equivalent graphs always receive the
+ * same invariant.
+ *
+ * The canonical string goes one step further: the stable coloring is made
+ * discrete by individualizing the nodes of the first non-trivial color
+ * class in turn and refining again, and the lexicographically smallest
+ * adjacency string over all the leaves of that search is kept.  Two graphs
+ * have the same canonical string iff they are equivalent.  Leaves with equal
+ * strings give automorphisms of the graph, and a node in the same orbit as
+ * one already individualized at the same point of the search (under the
+ * automorphisms found so far that fix the path to it) is skipped, since its
+ * subtree can only reach the same strings.  Terminal closed-
+ * shell hydrogens singly bonded to a heavy atom are folded into their
+ * neighbor's label for this, which keeps the search small without losing
+ * any information.
+ */
+class CanonicalLabeling {
+
+    /** The nodes of the graph, in node-list order. */
+    protected Node[] nodes;
+
+    /** Element descriptor of every node. */
+    protected String[] nodeLabels;
+
+    /** For every node, the indices of its neighboring nodes. */
+    protected int[][] neighbors;
+
+    /** For every node, the bond descriptor to each neighbor in neighbors. */
+    protected String[][] arcLabels;
+
+    /** Rank of every entry of arcLabels among the distinct bond descriptors. */
+    protected int[][] arcCodes;
+
+    /** Refined color (rank) of every node. */
+    protected int[] colors;
+
+    /** Smallest adjacency string found so far by the canonical search. */
+    private String best = null;
+
+    /** Discrete coloring of the leaf giving best. */
+    private int[] bestLeaf = null;
+
+    /** Discrete coloring and adjacency string of the first leaf searched. */
+    private int[] firstLeaf = null;
+
+    private String firstString = null;
+
+    /** Automorphisms found by the search, each mapping node index to node index. */
+    private ArrayList automorphisms = new ArrayList();
+
+    CanonicalLabeling(Graph p_graph) {
+        this(p_graph, false);
+    }
+
+    /**
+     * Build the labeling of p_graph.  If p_foldHydrogens is true, terminal
+     * hydrogens are not kept as nodes but counted in the label of the atom
+     * they are bonded to.
+     */
+    CanonicalLabeling(Graph p_graph, boolean p_foldHydrogens) {
+        ArrayList kept = new ArrayList();
+        for (Iterator iter = p_graph.getNodeList(); iter.hasNext(); ) {
+            Node node = (Node)iter.next();
+            if (!p_foldHydrogens || !isTerminalHydrogen(node)) kept.add(node);
+        }
+        int n = kept.size();
+        nodes = new Node[n];
+        nodeLabels = new String[n];
+        neighbors = new int[n][];
+        arcLabels = new String[n][];
+
+        IdentityHashMap index = new IdentityHashMap();
+        for (int i = 0; i < n; i++) {
+            nodes[i] = (Node)kept.get(i);
+            index.put(nodes[i], new Integer(i));
+        }
+        for (int i = 0; i < n; i++) {
+            ArrayList otherList = new ArrayList();
+            ArrayList arcList = new ArrayList();
+            int foldedH = 0;
+            for (Iterator iter = nodes[i].getNeighbor(); iter.hasNext(); ) {
+                Arc arc = (Arc)iter.next();
+                Node otherNode = nodes[i].getOtherNode(arc);
+                Integer other = (Integer)index.get(otherNode);
+                if (other == null) {
+                    if (!p_foldHydrogens || !isTerminalHydrogen(otherNode)) throw new InvalidConnectivityException();
+                    foldedH++;
+                }
+                else {
+                    otherList.add(other);
+                    arcList.add(elementLabel(arc.getElement()));
+                }
+            }
+            neighbors[i] = new int[otherList.size()];
+            arcLabels[i] = new String[otherList.size()];
+            for (int j = 0; j < neighbors[i].length; j++) {
+                neighbors[i][j] = ((Integer)otherList.get(j)).intValue();
+                arcLabels[i][j] = (String)arcList.get(j);
+            }
+            nodeLabels[i] = elementLabel(nodes[i].getElement());
+            if (foldedH > 0) nodeLabels[i] = nodeLabels[i] + "|H" + foldedH;
+        }
+
+        TreeSet distinctArcLabels = new TreeSet();
+        for (int i = 0; i < n; i++) distinctArcLabels.addAll(Arrays.asList(arcLabels[i]));
+        String[] sortedArcLabels = (String[])distinctArcLabels.toArray(new String[distinctArcLabels.size()]);
+        arcCodes = new int[n][];
+        for (int i = 0; i < n; i++) {
+            arcCodes[i] = new int[arcLabels[i].length];
+            for (int j = 0; j < arcCodes[i].length; j++) {
+                arcCodes[i][j] = Arrays.binarySearch(sortedArcLabels, arcLabels[i][j]);
+            }
+        }
+
+        colors = refine(initialColors());
+    }
+
+    /**
+     * Return true iff p_node holds a closed-shell hydrogen atom whose only
+     * neighbor is a non-hydrogen atom, connected by a single bond.
+     */
+    private static boolean isTerminalHydrogen(Node p_node) {
+        Object element = p_node.getElement();
+        if (!(element instanceof Atom)) return false;
+        Atom atom = (Atom)element;
+        if (!atom.isHydrogen() || atom.isRadical()) return false;
+        if (p_node.getNeighborNumber() != 1) return false;
+        Arc arc = (Arc)p_node.getNeighbor().next();
+        if (!(arc.getElement() instanceof Bond) || !((Bond)arc.getElement()).isSingle()) return false;
+        Object otherElement = p_node.getOtherNode(arc).getElement();
+        return (otherElement instanceof Atom) && !((Atom)otherElement).isHydrogen();
+    }
+
+    /**
+     * Return a descriptor of a node or arc element.  Atoms and bonds are
+     * flyweights keyed by name, so their names identify them exactly.  A
+     * collection holding a single element is equivalent to that element (see
+     * GraphComponent.isEquivalent), so both get the same descriptor.
+     */
+    static String elementLabel(Object p_element) {
+        if (p_element == null) return "";
+        if (p_element instanceof Atom) return ((Atom)p_element).getName();
+        if (p_element instanceof Bond) return ((Bond)p_element).getName();
+        if (p_element instanceof Collection) {
+            Collection c = (Collection)p_element;
+            if (c.size() == 1) return elementLabel(c.iterator().next());
+            String[] members = new String[c.size()];
+            int i = 0;
+            for (Iterator iter = c.iterator(); iter.hasNext(); i++) {
+                members[i] = elementLabel(iter.next());
+            }
+            Arrays.sort(members);
+            StringBuilder sb = new StringBuilder("{");
+            for (i = 0; i < members.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(members[i]);
+            }
+            return sb.append('}').toString();
+        }
+        return p_element.toString();
+    }
+
+    /**
+     * Rank the nodes by element descriptor.
+     */
+    protected int[] initialColors() {
+        int n = nodes.length;
+        String[] sorted = (String[])nodeLabels.clone();
+        Arrays.sort(sorted);
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = Arrays.binarySearch(sorted, nodeLabels[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Refine the pass-in coloring until it is stable.  Nodes sharing a color
+     * in the result have the same element and the same multiset of (bond,
+     * neighbor color) pairs.  The pass-in array is not modified.
+     */
+    protected int[] refine(int[] p_colors) {
+        final int n = nodes.length;
+        int[] current = (int[])p_colors.clone();
+        int classes = countClasses(current);
+        while (classes < n) {
+            final int[] old = current;
+            final long[][] signatures = new long[n][];
+            for (int i = 0; i < n; i++) {
+                long[] pairs = new long[neighbors[i].length];
+                for (int j = 0; j < pairs.length; j++) {
+                    pairs[j] = ((long)arcCodes[i][j] << 32) | old[neighbors[i][j]];
+                }
+                Arrays.sort(pairs);
+                signatures[i] = pairs;
+            }
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) order[i] = new Integer(i);
+            Arrays.sort(order, new Comparator() {
+                public int compare(Object p_o1, Object p_o2) {
+                    int i1 = ((Integer)p_o1).intValue();
+                    int i2 = ((Integer)p_o2).intValue();
+                    if (old[i1] != old[i2]) return old[i1] < old[i2] ? -1 : 1;
+                    return compareSignatures(signatures[i1], signatures[i2]);
+                }
+            });
+            int[] next = new int[n];
+            int rank = 0;
+            for (int k = 0; k < n; k++) {
+                int i = order[k].intValue();
+                if (k > 0) {
+                    int prev = order[k-1].intValue();
+                    if (old[prev] != old[i] || compareSignatures(signatures[prev], signatures[i]) != 0) rank = k;
+                }
+                next[i] = rank;
+            }
+            current = next;
+            int newClasses = countClasses(current);
+            if (newClasses == classes) break;
+            classes = newClasses;
+        }
+        return current;
+    }
+
+    /**
+     * Compare two sorted signatures lexicographically, shorter first on a tie.
+     */
+    protected static int compareSignatures(long[] p_s1, long[] p_s2) {
+        int len = Math.min(p_s1.length, p_s2.length);
+        for (int k = 0; k < len; k++) {
+            if (p_s1[k] != p_s2[k]) return p_s1[k] < p_s2[k] ? -1 : 1;
+        }
+        return p_s1.length - p_s2.length;
+    }
+
+    protected static int countClasses(int[] p_colors) {
+        int[] sorted = (int[])p_colors.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i-1]) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Return a hash code combining, in color order, the element of every node
+     * and the (bond, neighbor color) pairs around it.  Equivalent graphs get
+     * the same value.
+     */
+    int getInvariant() {
+        int n = nodes.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = new Integer(i);
+        Arrays.sort(order, new Comparator() {
+            public int compare(Object p_o1, Object p_o2) {
+                int c1 = colors[((Integer)p_o1).intValue()];
+                int c2 = colors[((Integer)p_o2).intValue()];
+                return c1 < c2 ? -1 : (c1 == c2 ? 0 : 1);
+            }
+        });
+        int hash = n;
+        for (int k = 0; k < n; k++) {
+            int i = order[k].intValue();
+            hash = 31 * hash + colors[i];
+            hash = 31 * hash + nodeLabels[i].hashCode();
+            int[] pairs = new int[neighbors[i].length];
+            for (int j = 0; j < pairs.length; j++) {
+                pairs[j] = 31 * arcLabels[i][j].hashCode() + colors[neighbors[i][j]];
+            }
+            Arrays.sort(pairs);
+            for (int j = 0; j < pairs.length; j++) hash = 31 * hash + pairs[j];
+        }
+        return hash;
+    }
+
+    /**
+     * Return the canonical adjacency string of the graph.  Nodes are written
+     * in canonical order, one per line, as the label followed by a tab and
+     * "position:bond" for each neighbor, with the positions referring to that
+     * order.
+     */
+    String getCanonicalString() {
+        if (best == null) {
+            if (nodes.length == 0) best = "";
+            else search(colors, new int[nodes.length], 0);
+        }
+        return best;
+    }
+
+    /**
+     * Individualize each node of the first non-singleton color class of
+     * p_colors in turn, refine, and recurse until the coloring is discrete;
+     * keep the smallest adjacency string reached.  p_path holds the nodes
+     * individualized on the way here, in its first p_depth entries.
+     */
+    private void search(int[] p_colors, int[] p_path, int p_depth) {
+        int n = nodes.length;
+        int[] size = new int[n];
+        for (int i = 0; i < n; i++) size[p_colors[i]]++;
+        int cell = -1;
+        for (int c = 0; c < n; c++) {
+            if (size[c] > 1) {
+                cell = c;
+                break;
+            }
+        }
+        if (cell < 0) {
+            visitLeaf(p_colors);
+            return;
+        }
+        ArrayList tried = new ArrayList();
+        for (int i = 0; i < n; i++) {
+            if (p_colors[i] != cell) continue;
+            // automorphisms found in the subtrees already searched may prune this one
+            if (!tried.isEmpty()) {
+                int[] orbits = getOrbits(p_path, p_depth);
+                boolean equivalent = false;
+                for (Iterator iter = tried.iterator(); iter.hasNext() && !equivalent; ) {
+                    equivalent = orbits[i] == orbits[((Integer)iter.next()).intValue()];
+                }
+                if (equivalent) continue;
+            }
+            tried.add(new Integer(i));
+            // the class occupies the ranks cell..cell+size-1, so cell+1 is free
+            int[] individualized = (int[])p_colors.clone();
+            for (int j = 0; j < n; j++) {
+                if (j != i && p_colors[j] == cell) individualized[j] = cell + 1;
+            }
+            p_path[p_depth] = i;
+            search(refine(individualized), p_path, p_depth + 1);
+        }
+    }
+
+    /**
+     * Keep the adjacency string of a discrete coloring if it is the smallest
+     * so far, and record the automorphism it gives if it equals the string of
+     * the first or the best leaf.
+     */
+    private void visitLeaf(int[] p_colors) {
+        String s = adjacencyString(p_colors);
+        if (firstLeaf == null) {
+            firstLeaf = p_colors;
+            firstString = s;
+            best = s;
+            bestLeaf = p_colors;
+            return;
+        }
+        if (s.equals(firstString)) addAutomorphism(firstLeaf, p_colors);
+        else if (s.equals(best)) addAutomorphism(bestLeaf, p_colors);
+        else if (s.compareTo(best) < 0) {
+            best = s;
+            bestLeaf = p_colors;
+        }
+    }
+
+    /**
+     * Record the automorphism taking each node of leaf p_other to the node at
+     * the same position in leaf p_leaf; the two leaves have the same adjacency
+     * string.
+     */
+    private void addAutomorphism(int[] p_leaf, int[] p_other) {
+        int n = nodes.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[p_leaf[i]] = i;
+        int[] map = new int[n];
+        boolean identity = true;
+        for (int i = 0; i < n; i++) {
+            map[i] = order[p_other[i]];
+            if (map[i] != i) identity = false;
+        }
+        if (!identity) automorphisms.add(map);
+    }
+
+    /**
+     * Return, for every node, a representative of its orbit under the
+     * automorphisms found so far that fix each of the first p_depth nodes of
+     * p_path.
+     */
+    private int[] getOrbits(int[] p_path, int p_depth) {
+        int n = nodes.length;
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (Iterator iter = automorphisms.iterator(); iter.hasNext(); ) {
+            int[] map = (int[])iter.next();
+            boolean fixesPath = true;
+            for (int k = 0; k < p_depth && fixesPath; k++) {
+                fixesPath = map[p_path[k]] == p_path[k];
+            }
+            if (!fixesPath) continue;
+            for (int i = 0; i < n; i++) {
+                int a = findRoot(parent, i);
+                int b = findRoot(parent, map[i]);
+                if (a != b) parent[a] = b;
+            }
+        }
+        for (int i = 0; i < n; i++) parent[i] = findRoot(parent, i);
+        return parent;
+    }
+
+    private static int findRoot(int[] p_parent, int p_i) {
+        while (p_parent[p_i] != p_i) p_i = p_parent[p_i];
+        return p_i;
+    }
+
+    /**
+     * Write the adjacency string for a discrete coloring.
+     */
+    private String adjacencyString(int[] p_colors) {
+        int n = nodes.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[p_colors[i]] = i;
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            sb.append(nodeLabels[i]);
+            String[] pairs = new String[neighbors[i].length];
+            for (int j = 0; j < pairs.length; j++) {
+                pairs[j] = p_colors[neighbors[i][j]] + ":" + arcLabels[i][j];
+            }
+            // any fixed order will do, since the string only has to be a function of the leaf
+            Arrays.sort(pairs);
+            for (int j = 0; j < pairs.length; j++) sb.append('\t').append(pairs[j]);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+}
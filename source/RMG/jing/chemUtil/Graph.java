@@ -69,6 +69,22 @@ public class Graph {
     private LinkedHashMap nodeList;
     private boolean [] isAromatic;
 
+    /**
+    Cached isomorphism-invariant hash code, valid iff canonicalHashCodeValid is true
+    */
+    private int canonicalHashCode;
+    private boolean canonicalHashCodeValid = false;
+
+    /**
+    Cached canonical adjacency string, null until computed
+    */
+    private String canonicalString = null;
+
+    /**
+    Cached array form of the connectivity used by SubgraphMatcher, null until needed
+    */
+    private SubgraphMatcher.Adjacency adjacency = null;
+
     // Constructors
 
     //## operation Graph()
@@ -218,6 +234,7 @@ public class Graph {
         if (nodeList.put(node.getID(),node) != null) {
         	throw new PositionOccupiedException("node");
         }
+        resetCanonicalForm();
 
         updateHighestNodeID(p_position);
 
@@ -240,6 +257,7 @@ public class Graph {
         Node node = new Node(p_position,p_nodeElement);
         nodeList.put(node.getID(),node);
         updateHighestNodeID(p_position);
+        resetCanonicalForm();
 
         Integer cenID = new Integer(p_centralPosition);
         node.setCentralID(cenID);
@@ -348,6 +366,7 @@ public class Graph {
         //#[ operation clearNodeList()
         nodeList.clear();
         highestNodeID = 0;
+        resetCanonicalForm();
 
 
         //#]
@@ -404,6 +423,7 @@ public class Graph {
         	Arc a = (Arc)iter2.next();
         	result.arcList.add(a);
         }
+        result.resetCanonicalForm();
 
         return result;
 
@@ -419,6 +439,7 @@ public class Graph {
         //#[ operation connect(Node,Arc,Node)
         if (contains(p_node1) && contains(p_arc) && contains(p_node2)) {
         	p_arc.link(p_node1,p_node2);
+        	resetCanonicalForm();
         	return;
         }
         else throw new NotInGraphException();
@@ -1315,13 +1336,52 @@ public class Graph {
     }
 
     /**
-    Compute and return the hashcode of this graph.  hashcode = 10^6*(#node) + #arc
+    Compute and return the hashcode of this graph, which is the isomorphism-invariant canonical hash code.  Central IDs are not taken into account, so equivalent graphs always share a hashcode.
     */
     //## operation hashCode()
     public int hashCode() {
 //		#[ operation hashCode()
-        return getNodeNumber() * 100000 + getArcNumber();
+        return getCanonicalHashCode();
+
+    }
+
+    /**
+    Return a hash code which depends only on the structure of this graph (node elements, arc elements and connectivity), not on node IDs or central IDs.  Node labels are refined Morgan-style over element and bond type, so graphs with the same node and arc counts but different structures generally get different values.  The value is cached until the graph is modified.
+    */
+    public int getCanonicalHashCode() {
+        if (!canonicalHashCodeValid) {
+        	canonicalHashCode = new CanonicalLabeling(this).getInvariant();
+        	canonicalHashCodeValid = true;
+        }
+        return canonicalHashCode;
+    }
+
+    /**
+    Discard the cached canonical form and adjacency of this graph.  Graph methods adding or removing nodes and arcs call this themselves; code that replaces the element of a node or arc in place (e.g., changing a bond order or a radical), or that reorders neighbors, must call it once it is done.
+    */
+    public void resetCanonicalForm() {
+        canonicalHashCodeValid = false;
+        canonicalString = null;
+        adjacency = null;
+    }
+
+    SubgraphMatcher.Adjacency getAdjacency() {
+        SubgraphMatcher.Adjacency a = adjacency;
+        if (a == null) {
+        	a = new SubgraphMatcher.Adjacency(this);
+        	adjacency = a;
+        }
+        return a;
+    }
 
+    /**
+    Return the canonical adjacency string of this graph.  Two graphs have the same canonical string iff they are equivalent (see isEquivalent), so the string can be used as an exact hash key in place of isomorphism checks.  Central IDs and node IDs are ignored.  The value is cached until the graph is modified.
+    */
+    public String getCanonicalString() {
+        if (canonicalString == null) {
+        	canonicalString = new CanonicalLabeling(this, true).getCanonicalString();
+        }
+        return canonicalString;
     }
 
 
@@ -1329,26 +1389,27 @@ public class Graph {
 	
     /**
     Identify and return all the possible matched pattens between this graph and p_graph.
-    The order of center node doesn't matter.<br>
-    <b>Modifies</b><br> visited status of nodes and arcs in this graph.
+    The order of center node doesn't matter.
+    The search keeps its own record of matched components, so p_graph is left untouched and may be matched by several threads at once.<br>
+    <b>Modifies</b><br> central nodes of this graph, which are cleared if any are set.
     */
     //## operation identifyAllOrderedMatchedSites(Graph)
     public LinkedHashSet identifyAllOrderedMatchedSites(Graph p_graph) {
         //#[ operation identifyAllOrderedMatchedSites(Graph)
     	LinkedHashSet allMatchedSites = new LinkedHashSet();
 
-        clearCentralNode();
-        resetMatchedGC();
-        p_graph.resetMatchedGC();
+        if (!centerIsEmpty()) clearCentralNode();
 
         Iterator iter2 = p_graph.getCentralNodeList();
         if (iter2.hasNext()) {
         	Node node2 = (Node)iter2.next();
+        	// every pair put by identifyAllMatchedSites is removed again before it returns
+        	IdentityHashMap matchedGC = new IdentityHashMap();
          	Iterator iter1 = getNodeList();
         	while (iter1.hasNext()) {
         		Node node1 = (Node)iter1.next();
         		LinkedList matched = new LinkedList();
-        		matched = node1.identifyAllMatchedSites(node2);
+        		matched = node1.identifyAllMatchedSites(node2, matchedGC);
         		if (matched!=null) allMatchedSites.addAll(matched);
         	}
         }
@@ -1625,37 +1686,13 @@ public class Graph {
     }
 
     /**
-    Return true iff this graph is a subgraph of p_graph at central nodes, i.e., iff a central node in this graph is a subNode of one central node in p_graph.<br>
-    <b>Modifies</b><br> visited status of all the nodes in this and p_graph.
+    Return true iff this graph is a subgraph of p_graph at central nodes, i.e., iff a central node in this graph is a subNode of one central node in p_graph.
+    The match is done by the SubgraphMatcher of the calling thread; neither graph is modified, so this may be called concurrently for shared group graphs.<br>
     */
     //## operation isSubAtCentralNodes(Graph)
     public boolean isSubAtCentralNodes(Graph p_graph) {
         //#[ operation isSubAtCentralNodes(Graph)
-        Iterator iter1 = p_graph.getCentralNodeList();
-
-        Stack s1 = new Stack();
-        Stack s2 = new Stack();
-
-        if (iter1.hasNext()) {
-        	Node node1 = (Node)iter1.next();
-            // check if there is a matched central node in p_graph
-        	Integer cid = node1.getCentralID();
-        	Node node2 = getCentralNodeAt(cid);
-
-        	if (node2==null) return false;
-
-            resetMatchedGC();
-            p_graph.resetMatchedGC();
-
-        	return node2.isSubCentralMatched(node1,s1,s2);
-        }
-        // there is no central node set in this graph, can't make comparison, return false
-        else {
-        	return false;
-        }
-
-
-
+        return SubgraphMatcher.getInstance().isSubAtCentralNodes(this, p_graph);
         //#]
     }
 
@@ -1667,6 +1704,8 @@ public class Graph {
     public LinkedList partition() throws NotPartitionedException {
         //#[ operation partition()
         LinkedList result = new LinkedList();
+        // the nodes and arcs of this graph are moved into the partitions
+        resetCanonicalForm();
 
         if (isEmpty()) {
         	return result;
@@ -1735,6 +1774,8 @@ public class Graph {
     public LinkedList partitionWithPreservedIDs() throws NotPartitionedException {
         //#[ operation partition()
         LinkedList result = new LinkedList();
+        // the nodes and arcs of this graph are moved into the partitions
+        resetCanonicalForm();
 
         if (isEmpty()) {
         	return result;
@@ -1850,6 +1891,7 @@ public class Graph {
         }
 
         arcList.remove(p_arc);
+        resetCanonicalForm();
         p_arc=null;
         //#]
     }
@@ -1896,6 +1938,7 @@ public class Graph {
         }
         // remove this node
         nodeList.remove(p_node.getID());
+        resetCanonicalForm();
 
         if (p_node.getID().intValue() >= highestNodeID) {
         	refreshHighestNodeID();
@@ -1933,6 +1976,7 @@ public class Graph {
         }
         // remove this node
         nodeList.remove(p_node.getID());
+        resetCanonicalForm();
 
         p_node = null;
 
@@ -2158,6 +2202,7 @@ public class Graph {
 
     public void clearArcList() {
         arcList.clear();
+        resetCanonicalForm();
     }
 
 }
@@ -150,12 +150,13 @@ abstract public class GraphComponent {
     }
     
     /**
-    Identifiy and return all possible matched patterns starting from this GraphComponent and p_graphComponent.<br>
+    Identifiy and return all possible matched patterns starting from this GraphComponent and p_graphComponent.
+    The partial match is kept in p_matched, which maps each matched component to its partner in both directions, instead of in the matchedGC field, so several threads can match against the same functional group graph at once.<br>
     <b>Modifies</b><br>
-    visited status and matchedGC of nodes and arcs.
+    p_matched
     */
     //## operation identifyAllMatchedSites(GraphComponent) 
-    LinkedList identifyAllMatchedSites(GraphComponent p_graphComponent) {
+    LinkedList identifyAllMatchedSites(GraphComponent p_graphComponent, Map p_matched) {
         //#[ operation identifyAllMatchedSites(GraphComponent) 
         if (this == p_graphComponent) return null;
         
@@ -171,8 +172,8 @@ abstract public class GraphComponent {
         
         boolean found = false;
         
-        this.setMatchedGC(p_graphComponent);
-        p_graphComponent.setMatchedGC(this);
+        p_matched.put(this, p_graphComponent);
+        p_matched.put(p_graphComponent, this);
         
         LinkedList matchedList = new LinkedList();
         Iterator iter2 = c2.iterator();
@@ -181,7 +182,7 @@ abstract public class GraphComponent {
         	
         	GraphComponent co2 = (GraphComponent)iter2.next();
         
-        	GraphComponent matched = co2.getMatchedGC();
+        	GraphComponent matched = (GraphComponent)p_matched.get(co2);
         	
         	if (matched == null) {
         		nonVisited = false;
@@ -190,8 +191,8 @@ abstract public class GraphComponent {
         		GraphComponent co1 = null;
         		while (iter1.hasNext()) {
         			co1 = (GraphComponent)iter1.next();
-        			if (co1.getMatchedGC() == null && co2.getMatchedGC() == null) {
-        				LinkedList listOfMatchedsites = co1.identifyAllMatchedSites(co2);
+        			if (!p_matched.containsKey(co1) && !p_matched.containsKey(co2)) {
+        				LinkedList listOfMatchedsites = co1.identifyAllMatchedSites(co2, p_matched);
         				if (listOfMatchedsites != null) {
         					matchedAtThisSite.addAll(listOfMatchedsites);
         				}
@@ -200,23 +201,23 @@ abstract public class GraphComponent {
         		if (matchedAtThisSite != null)
         			matchedList.add(matchedAtThisSite);
         		else {
-        			this.setMatchedGC(null);
-        			p_graphComponent.setMatchedGC(null);
+        			p_matched.remove(this);
+        			p_matched.remove(p_graphComponent);
         			return null;
         		}
         	}
         	else {
         		if (!c1.contains(matched)) {
-        			this.setMatchedGC(null);
-        			p_graphComponent.setMatchedGC(null);
+        			p_matched.remove(this);
+        			p_matched.remove(p_graphComponent);
         
          			return null;
         		}
         	}
         }
         
-        this.setMatchedGC(null);
-        p_graphComponent.setMatchedGC(null);
+        p_matched.remove(this);
+        p_matched.remove(p_graphComponent);
         
         if (nonVisited) {
         	Integer cid = (p_graphComponent).getCentralID();
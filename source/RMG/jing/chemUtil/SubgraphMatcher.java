@@ -0,0 +1,206 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+
+
+package jing.chemUtil;
+
+import java.util.*;
+
+/**
+ * Matcher behind Graph.isSubAtCentralNodes, which the group trees use to find
+ * the thermo, kinetics, transport and frequency groups of a chem graph.
+ * <p>
+ * It runs the same depth-first search as GraphComponent.isSubCentralMatched,
+ * visiting neighbors in the same order, so it finds exactly the same groups.
+ * The search state that isSubCentralMatched keeps in the matchedGC fields of
+ * both graphs is kept here in int arrays instead: for every component (node
+ * or arc) of the target and of the pattern, the index of the component it is
+ * currently matched to, or -1.  The graphs are only read, so a matcher per
+ * thread (see getInstance) can search the shared group graphs concurrently.
+ * The arrays are owned by the matcher and reused, growing only when a larger
+ * graph is seen, and the connectivity of each graph is cached in array form
+ * (see Graph.getAdjacency), so a lookup does not allocate.
+ */
+public class SubgraphMatcher {
+
+	private static final ThreadLocal threadMatcher = new ThreadLocal() {
+		protected Object initialValue() {
+			return new SubgraphMatcher();
+		}
+	};
+
+	private Adjacency target;
+	private Adjacency pattern;
+	// target component index -> matched pattern component index, or -1
+	private int[] targetMatch = new int[64];
+	// pattern component index -> matched target component index, or -1
+	private int[] patternMatch = new int[64];
+
+	public SubgraphMatcher() {
+	}
+
+	/**
+	 * Return the matcher of the calling thread.
+	 */
+	public static SubgraphMatcher getInstance() {
+		return (SubgraphMatcher)threadMatcher.get();
+	}
+
+	/**
+	 * Return true iff p_pattern is a subgraph of p_target at central nodes, i.e., iff the first central
+	 * node of p_pattern is matched by the central node of p_target with the same central ID (see
+	 * GraphComponent.isSubCentralMatched).
+	 */
+	public boolean isSubAtCentralNodes(Graph p_target, Graph p_pattern) {
+		Iterator iter = p_pattern.getCentralNodeList();
+		// there is no central node set in p_pattern, can't make comparison, return false
+		if (!iter.hasNext()) return false;
+		Node patternCenter = (Node)iter.next();
+		Node targetCenter = p_target.getCentralNodeAt(patternCenter.getCentralID());
+		if (targetCenter == null) return false;
+		if (targetCenter == patternCenter) return false;
+
+		target = p_target.getAdjacency();
+		pattern = p_pattern.getAdjacency();
+		int t = target.indexOf(targetCenter);
+		int p = pattern.indexOf(patternCenter);
+		if (t < 0 || p < 0) return false;
+
+		int targetSize = target.components.length;
+		int patternSize = pattern.components.length;
+		if (targetMatch.length < targetSize) targetMatch = new int[Math.max(targetSize, 2*targetMatch.length)];
+		if (patternMatch.length < patternSize) patternMatch = new int[Math.max(patternSize, 2*patternMatch.length)];
+		for (int i = 0; i < targetSize; i++) targetMatch[i] = -1;
+		for (int i = 0; i < patternSize; i++) patternMatch[i] = -1;
+
+		try {
+			return isSubCentralMatched(t, p);
+		}
+		finally {
+			target = null;
+			pattern = null;
+		}
+	}
+
+	/**
+	 * Same search as GraphComponent.isSubCentralMatched for target component t and pattern component p.
+	 */
+	private boolean isSubCentralMatched(int t, int p) {
+		GraphComponent tgc = target.components[t];
+		GraphComponent pgc = pattern.components[p];
+		if ((tgc instanceof Node) && (pgc instanceof Node)) {
+			if (((Node)tgc).getCentralID().intValue() != ((Node)pgc).getCentralID().intValue()) return false;
+		}
+
+		// compare the this gc with the p_gc for one step
+		if (!tgc.contentSub(pgc)) return false;
+		targetMatch[t] = p;
+		patternMatch[p] = t;
+
+		// compare the neighbor
+		int[] c1 = target.neighbors[t];
+		int[] c2 = pattern.neighbors[p];
+		for (int i = 0; i < c2.length; i++) {
+			int co2 = c2[i];
+			int matched = patternMatch[co2];
+			if (matched < 0) {
+				for (int j = 0; j < c1.length; j++) {
+					int co1 = c1[j];
+					if (patternMatch[co2] < 0 && targetMatch[co1] < 0) {
+						if (isSubCentralMatched(co1, co2)) {
+							if (isSubCentralMatched(t, p)) {
+								targetMatch[co1] = -1; patternMatch[co2] = -1;
+								return true;
+							}
+							else {
+								patternMatch[p] = t; targetMatch[t] = p;
+								targetMatch[co1] = -1; patternMatch[co2] = -1;
+							}
+						}
+					}
+				}
+				patternMatch[p] = -1; targetMatch[t] = -1;
+				return false;
+			}
+			// if a neighbor of has been visited, check if p_graphComponent has a corresponding match neighbor
+			else if (!contains(c1, matched) || targetMatch[matched] != co2) {
+				patternMatch[p] = -1; targetMatch[t] = -1;
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean contains(int[] p_list, int p_value) {
+		for (int i = 0; i < p_list.length; i++) {
+			if (p_list[i] == p_value) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Array form of the connectivity of a graph: the nodes and arcs of the graph are numbered, and
+	 * neighbors[i] lists the neighbors of component i in the iteration order of its neighbor set.
+	 * Elements and central IDs are not copied; they are read from the components when matching.
+	 * Built by Graph.getAdjacency and discarded by Graph.resetCanonicalForm.
+	 */
+	static class Adjacency {
+		final GraphComponent[] components;
+		final int[][] neighbors;
+		private final IdentityHashMap index;
+
+		Adjacency(Graph p_graph) {
+			int size = p_graph.getNodeNumber() + p_graph.getArcNumber();
+			components = new GraphComponent[size];
+			neighbors = new int[size][];
+			index = new IdentityHashMap(2*size);
+			int i = 0;
+			for (Iterator iter = p_graph.getNodeList(); iter.hasNext(); i++) {
+				components[i] = (GraphComponent)iter.next();
+				index.put(components[i], new Integer(i));
+			}
+			for (Iterator iter = p_graph.getArcList(); iter.hasNext(); i++) {
+				components[i] = (GraphComponent)iter.next();
+				index.put(components[i], new Integer(i));
+			}
+			for (i = 0; i < size; i++) {
+				neighbors[i] = new int[components[i].getNeighborNumber()];
+				int j = 0;
+				for (Iterator iter = components[i].getNeighbor(); iter.hasNext(); j++) {
+					neighbors[i][j] = indexOf(iter.next());
+				}
+			}
+		}
+
+		int indexOf(Object p_component) {
+			Integer i = (Integer)index.get(p_component);
+			return i == null ? -1 : i.intValue();
+		}
+	}
+}
@@ -35,6 +35,10 @@ public class Global {
 	public static double RT_findRateConstant = 0;
 	public static long tAtInitialization;
 	public static double makeSpecies = 0;
+	// The time spent estimating the thermo data of batches of new species, and the number of
+	// species estimated that way (see jing.chem.ThermoBatch)
+	public static double thermoEstimation = 0;
+	public static int thermoEstimationSpecies = 0;
 	public static double checkReactionReverse = 0;
 	public static double makeTR = 0;
         //10/25/07 gmagoon: commenting out global temp/pressure parameters, which should not be used if code is applied to systems with multiple temperatures or pressures
@@ -54,6 +58,46 @@ public class Global {
 	public static double speciesStatusGenerator = 0;
 	public static int solverIterations = 0;
 	
+	// The solver timings above are totals over all reaction systems.  While a reaction system
+	// is being solved, the solver adds to the SolverTimings of its own thread, so systems solved
+	// in parallel never update the totals at the same time; addSolverTimings() folds them in.
+	public static class SolverTimings {
+		public double solvertime = 0;
+		public double writeSolverFile = 0;
+		public double readSolverFile = 0;
+		public double solverPrepossesor = 0;
+		public double transferReaction = 0;
+		public double speciesStatusGenerator = 0;
+		public int solverIterations = -1;	// -1 until the solver reports its iterations
+	}
+	
+	private static ThreadLocal solverTimings = new ThreadLocal() {
+		protected Object initialValue() {
+			return new SolverTimings();
+		}
+	};
+	
+	public static SolverTimings getSolverTimings() {
+		return (SolverTimings)solverTimings.get();
+	}
+	
+	/**
+	 * Adds the solver timings of the current thread to the totals and resets them.
+	 */
+	public static void addSolverTimings() {
+		SolverTimings timings = getSolverTimings();
+		synchronized (Global.class) {
+			solvertime += timings.solvertime;
+			writeSolverFile += timings.writeSolverFile;
+			readSolverFile += timings.readSolverFile;
+			solverPrepossesor += timings.solverPrepossesor;
+			transferReaction += timings.transferReaction;
+			speciesStatusGenerator += timings.speciesStatusGenerator;
+			if (timings.solverIterations >= 0) solverIterations = timings.solverIterations;
+		}
+		solverTimings.remove();
+	}
+	
 	public static double moveUnreactedToReacted = 0;
 	
 	public static double getReacFromStruc = 0;
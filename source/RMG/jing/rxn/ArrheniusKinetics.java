@@ -76,6 +76,13 @@ public class ArrheniusKinetics implements Kinetics {
     protected static String EaUnits;
     
     protected static String AUnits;
+
+    // The values of A, n, and E/R, kept so that calculateRate() need not
+    // unpack the UncertainDoubles on every call
+    private double AValue;
+    private double nValue;
+    private double EOverR;
+    private boolean valuesSet = false;
     
     // Constructors
     
@@ -89,7 +96,7 @@ public class ArrheniusKinetics implements Kinetics {
         rank = p_rank;
         source = p_source;
         comment = p_comment;
-        
+        setValues();
     }
     public  ArrheniusKinetics() {
     }
@@ -220,6 +227,8 @@ public class ArrheniusKinetics implements Kinetics {
     public double calculateRate(Temperature p_temperature) {
         //#[ operation calculateRate(Temperature,double) 
         double T = p_temperature.getStandard();
+        if (valuesSet)
+            return AValue * Math.pow(T, nValue) * Math.exp(-EOverR/T);
         double R = GasConstant.getKcalMolK();
         
         //if (E.getValue() < 0) throw new NegativeEnergyBarrierException();        
@@ -254,6 +263,14 @@ public class ArrheniusKinetics implements Kinetics {
 	// Add the passed in UncertainDouble to the existing A factor.
 	public void addToA(UncertainDouble p_extraA){
 		A = A.plus(p_extraA);
+		setValues();
+	}
+
+	private void setValues() {
+		AValue = A.getValue();
+		nValue = n.getValue();
+		EOverR = E.getValue() / GasConstant.getKcalMolK();
+		valuesSet = true;
 	}
 	
     //## operation getAValue() 
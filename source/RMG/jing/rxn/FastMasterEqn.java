@@ -39,10 +39,19 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.StringReader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import Jama.Matrix;
 import jing.chem.Species;
@@ -55,6 +64,7 @@ import jing.rxnSys.CoreEdgeReactionModel;
 import jing.rxnSys.ReactionModelGenerator;
 import jing.rxnSys.ReactionSystem;
 import jing.rxnSys.Logger;
+import jing.rxnSys.NativeWorkerPool;
 
 /**
  * Used to estimate pressure-dependent rate coefficients k(T, P) for a
@@ -107,12 +117,18 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 	/**
 	 * The number of grains to use in a fame calculation (written in input file)
 	 */
-	private static int numGrains = 251;
+	protected int numGrains = 251;
 	/**
 	 * boolean, detailing whether the high-P-limit is greater than all of the
 	 * 	fame-computed k(T,P)
 	 */
-	private static boolean pdepRatesOK = true;
+	private boolean pdepRatesOK = true;
+	
+	/**
+	 * The directory the fame.exe process used by this object runs in (and
+	 * writes its fame.log to).
+	 */
+	private String workingDirectory = "fame/";
 	
 	/**
 	 * The number of atoms above which to skip pressure dependence. By default
@@ -121,6 +137,25 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 	 */
 	private static int maxAtoms = 100000;
 
+	/**
+	 * The directory in which FAME results are kept between runs. Each file
+	 * is named for the hash of the FAME input that produced it and of the
+	 * fame.exe that solved it. RMG never removes these files, so results of
+	 * an older fame.exe stay behind unused; delete the directory by hand to
+	 * reclaim the space.
+	 */
+	private static final String cacheDirectory = "famecache/";
+
+	/**
+	 * The size and modification time of fame.exe, found when first needed.
+	 */
+	private static String fameFingerprint = null;
+
+	/**
+	 * The FAME results found so far, keyed by the hash of their input.
+	 */
+	private static HashMap<String, String> resultCache = new HashMap<String, String>();
+
 	//==========================================================================
 	//
 	//	Constructors
@@ -221,9 +256,6 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 			return;
 		}
 
-		// Get working directory (to find FAME executable)
-		String dir = System.getProperty("RMG.workingDirectory");
-
 		// Determine wells and reactions; skip if no reactions in network
 		LinkedList<Species> speciesList = pdn.getSpeciesList();
 		LinkedList<PDepReaction> pathReactionList = pdn.getPathReactions();
@@ -297,6 +329,52 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 			runTime.gc();
 		}
 		
+		if (!solveNetwork(pdn, rxnSystem, cerm, speciesList, isomerList, pathReactionList, nIsom, nReac, nProd))
+			return;
+        
+        /*
+         * MRH 26Feb2010:
+         * Checking whether pdep rates exceed the high-P-limit
+         * 
+         * Although fame converges, the computed k(T,P) may exceed the high-P-limit,
+         * 	due to the number of grains being too small.  If any of the pdep rates
+         * 	exceed the high-P-limit by greater than a factor of 2, the "pdepRatesOK" boolean
+         * 	is set to false and fame will be re-executed, using an increased number
+         * 	of grains
+         * After all pdep rates are below the high-P-limit (or the number of grains
+         * 	exceeds 1000), we exit the while loop.  The number of grains is then
+         * 	reset to 251 (which was the standard before)
+         */
+        while (!pdepRatesOK) {
+        	// runPDepCalculation will increase numGrains if it is going to set pdepRatesOK=false.
+			// and will set pdepRatesOK=true if numGrains > 1000.
+        	runPDepCalculation(pdn, rxnSystem, cerm);
+        }
+        numGrains = 251;
+
+		synchronized (FastMasterEqn.class) {
+			runCount++;
+		}
+
+	}
+
+	/**
+	 * Determines the phenomenological rate coefficients of a network by a
+	 * call to FAME and updates its net reactions accordingly.
+	 * @param pdn The pressure-dependent reaction network of interest
+	 * @param rxnSystem The reaction system of interest
+	 * @param cerm The current core/edge reaction model
+	 * @param speciesList The set of species in the network
+	 * @param isomerList The set of isomers in the network, sorted as FAME expects
+	 * @param pathReactionList The set of path reactions in the network
+	 * @return false if the network was instead solved by falling back to the
+	 * modified strong collision method, true otherwise
+	 */
+	protected boolean solveNetwork(PDepNetwork pdn, ReactionSystem rxnSystem,
+			CoreEdgeReactionModel cerm, LinkedList<Species> speciesList,
+			LinkedList<PDepIsomer> isomerList, LinkedList<PDepReaction> pathReactionList,
+			int nIsom, int nReac, int nProd) {
+
 		// Create FAME input files
 		String input = writeInputString(pdn, rxnSystem, speciesList, isomerList, pathReactionList, nIsom, nReac, nProd);
         
@@ -323,35 +401,23 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 			System.exit(0);
 		}
 
-		// FAME system call
+		// FAME system call, unless an identical network has been solved before
 		try {
-           	String[] command = {dir + "/bin/fame.exe"};
-           	File runningDir = new File("fame/");
-			Process fame = Runtime.getRuntime().exec(command, null, runningDir);
-			if (fame == null) throw new PDepException("Couldn't start FAME process.");
-			
-            BufferedReader stdout = new BufferedReader(new InputStreamReader(fame.getInputStream()));
-            BufferedReader stderr = new BufferedReader(new InputStreamReader(fame.getErrorStream()));
-			PrintStream stdin = new PrintStream(  new BufferedOutputStream( fame.getOutputStream(), 1024), true);
-			stdin.print( input );
-			stdin.flush();
-			if (stdin.checkError()) { // Flush the stream and check its error state.
-				Logger.error("Error sending input to fame.exe");
+			String key = getCacheKey(input);
+			String result = getCachedResult(key);
+			if (result == null) {
+				result = callFAME(input);
+				if (result.trim().startsWith("#####"))
+					putCachedResult(key, result);
 			}
-			stdin.close();
+			else
+				Logger.verbose("Using stored FAME result for PDepNetwork #" + Integer.toString(id) + ".");
+            BufferedReader stdout = new BufferedReader(new StringReader(result));
 			
-			String line;
-			try {
-				line = stdout.readLine().trim();
-			}
-			catch (NullPointerException e) {
-				Logger.verbose("FAME Stderr:");
-				String errline = null;
-				while((errline = stderr.readLine()) != null){
-				    Logger.verbose(errline);
-				}
+			String line = stdout.readLine();
+			if (line == null)
 				throw new PDepException("FAME reported an error; FAME job was likely unsuccessful.");
-			}
+			line = line.trim();
 			
 			/* 
 			 This was useful when FAME output started with a bunch of #IN and #DEBUG lines
@@ -370,26 +436,13 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 				Logger.verbose("FAME Error:");
                 Logger.verbose(line);
 				output.append(line).append("\n");
-                while ( ((line = stdout.readLine()) != null) || ((line = stderr.readLine()) != null) ) {
+                while ( (line = stdout.readLine()) != null ) {
 					output.append(line).append("\n");
                     Logger.verbose(line);
                 }
-				// clean up i/o streams (we may be trying again with ModifiedStrongCollision and carrying on)
-				stdout.close();
-				stderr.close();
                 throw new PDepException("Fame output looks like an error occurred.");
             }
 
-			// Clean up i/o streams
-			// This may be needed to release memory, which is especially 
-			// important for FAME since it can easily be called tens of
-			// thousands of times in a single job
-			
-			while ( stderr.ready() && (line = stderr.readLine()) != null) {
-				Logger.error(line);
-			}
-			stderr.close();
-
 			// Parse FAME output file and update accordingly
 			if (parseOutputStream(stdout, pdn, rxnSystem, cerm, isomerList)) {
 
@@ -403,8 +456,6 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 					pdn.getNetReactions().size() + " included and " +
 					pdn.getNonincludedReactions().size() + " nonincluded net reactions.");
 			}
-			stdout.close(); // close all output streams so the fame process terminates and we get past the following line:
-			int exitValue = fame.waitFor();
         }
         catch (Exception e) {
 			Logger.logStackTrace(e);
@@ -433,36 +484,211 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 				mode = Mode.STRONGCOLLISION;
 				runPDepCalculation(pdn, rxnSystem, cerm);
 				mode = Mode.RESERVOIRSTATE;
-				return;
+				return false;
 			}
 			else {
 				Logger.critical("Error running FAME.");
 				System.exit(0);				
 			}
         }
-        
-        /*
-         * MRH 26Feb2010:
-         * Checking whether pdep rates exceed the high-P-limit
-         * 
-         * Although fame converges, the computed k(T,P) may exceed the high-P-limit,
-         * 	due to the number of grains being too small.  If any of the pdep rates
-         * 	exceed the high-P-limit by greater than a factor of 2, the "pdepRatesOK" boolean
-         * 	is set to false and fame will be re-executed, using an increased number
-         * 	of grains
-         * After all pdep rates are below the high-P-limit (or the number of grains
-         * 	exceeds 1000), we exit the while loop.  The number of grains is then
-         * 	reset to 251 (which was the standard before)
-         */
-        while (!pdepRatesOK) {
-        	// runPDepCalculation will increase numGrains if it is going to set pdepRatesOK=false.
-			// and will set pdepRatesOK=true if numGrains > 1000.
-        	runPDepCalculation(pdn, rxnSystem, cerm);
-        }
-        numGrains = 251;
+		return true;
+	}
 
-		runCount++;
+	/**
+	 * Runs fame.exe on the input of one network and returns its output.
+	 * @param input The FAME input, as from writeInputString()
+	 * @return The FAME output, which does not start with ##### if FAME failed
+	 */
+	protected String callFAME(String input) throws IOException {
+
+		// Get working directory (to find FAME executable)
+		String dir = System.getProperty("RMG.workingDirectory");
+
+		// fame.exe solves one network read from stdin and exits, so each
+		// network runs a new process
+		String[] command = {dir + "/bin/fame.exe"};
+		NativeWorkerPool fame = NativeWorkerPool.getPool(command, workingDirectory, null, 1);
+		return fame.call(input);
+	}
 
+	/**
+	 * Executes the pressure-dependent rate coefficient calculations for a set
+	 * of networks. The networks are independent of one another, so up to
+	 * getMaxConcurrentNetworks() of them are solved at the same time.
+	 * Each calculation is done by a copy of this object with its own fame.exe
+	 * process and working directory, and (including any re-runs with more
+	 * grains or fall back to the modified strong collision method) only
+	 * modifies its own network, so the results do not depend on the order in
+	 * which the networks finish.
+	 * @param pdnList The pressure-dependent reaction networks to update
+	 * @param rxnSystem The reaction system of interest
+	 * @param cerm The current core/edge reaction model
+	 */
+	public void runPDepCalculations(LinkedList<PDepNetwork> pdnList, final ReactionSystem rxnSystem,
+			final CoreEdgeReactionModel cerm) {
+		
+		int threads = Math.min(getMaxConcurrentNetworks(), pdnList.size());
+		if (threads <= 1) {
+			for (ListIterator<PDepNetwork> iter = pdnList.listIterator(); iter.hasNext(); )
+				runPDepCalculation(iter.next(), rxnSystem, cerm);
+			return;
+		}
+		
+		// Species can belong to several networks, so generate their
+		// spectroscopic data before the networks are solved
+		for (ListIterator<PDepNetwork> iter = pdnList.listIterator(); iter.hasNext(); ) {
+			PDepNetwork pdn = iter.next();
+			for (ListIterator<PDepIsomer> iter2 = pdn.getIsomers().listIterator(); iter2.hasNext(); ) {
+				PDepIsomer isomer = iter2.next();
+				for (int i = 0; i < isomer.getNumSpecies(); i++) {
+					Species species = isomer.getSpecies(i);
+					if (!species.hasSpectroscopicData())
+						species.generateSpectroscopicData();
+				}
+			}
+		}
+		
+		// One estimator (and fame.exe working directory) per thread
+		final LinkedBlockingQueue<FastMasterEqn> estimators = new LinkedBlockingQueue<FastMasterEqn>();
+		for (int i = 0; i < threads; i++) {
+			FastMasterEqn fme = copy();
+			fme.workingDirectory = "fame/worker" + Integer.toString(i+1) + "/";
+			new File(fme.workingDirectory).mkdirs();
+			estimators.add(fme);
+		}
+		
+		LinkedList<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
+		for (ListIterator<PDepNetwork> iter = pdnList.listIterator(); iter.hasNext(); ) {
+			final PDepNetwork pdn = iter.next();
+			tasks.add(new Callable<Object>() {
+				public Object call() throws InterruptedException {
+					FastMasterEqn fme = estimators.take();
+					try {
+						fme.runPDepCalculation(pdn, rxnSystem, cerm);
+					}
+					finally {
+						estimators.add(fme);
+					}
+					return null;
+				}
+			});
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			LinkedList<Future<Object>> futures = new LinkedList<Future<Object>>(executor.invokeAll(tasks));
+			for (ListIterator<Future<Object>> iter = futures.listIterator(); iter.hasNext(); )
+				iter.next().get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while solving pressure-dependent networks", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new RuntimeException(cause);
+		}
+		finally {
+			executor.shutdown();
+		}
+		
+	}
+
+	/**
+	 * Returns the key under which the result of a FAME input is stored: the
+	 * SHA-1 hash of the input with its comments and blank lines removed.
+	 * The input identifies the isomers, path reactions, temperatures,
+	 * pressures, and energy grains, and so determines the result for a given
+	 * fame.exe; the size and modification time of fame.exe are hashed with
+	 * it, so that a rebuilt executable does not reuse the old results.
+	 */
+	private static String getCacheKey(String input) throws IOException {
+		StringBuilder canonical = new StringBuilder(input.length());
+		canonical.append(getFameFingerprint()).append("\n");
+		BufferedReader reader = new BufferedReader(new StringReader(input));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0 && !line.startsWith("#"))
+				canonical.append(line).append("\n");
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(canonical.toString().getBytes("UTF-8"));
+			StringBuilder key = new StringBuilder(2 * digest.length);
+			for (int i = 0; i < digest.length; i++)
+				key.append(Integer.toHexString((digest[i] & 0xff) | 0x100).substring(1));
+			return key.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException("SHA-1 is not available to hash FAME input.");
+		}
+	}
+
+	private static synchronized String getFameFingerprint() {
+		if (fameFingerprint == null) {
+			File fame = new File(System.getProperty("RMG.workingDirectory") + "/bin/fame.exe");
+			fameFingerprint = "fame.exe " + fame.length() + " " + fame.lastModified();
+		}
+		return fameFingerprint;
+	}
+
+	/**
+	 * Returns the stored FAME result for the given key, looking first in
+	 * memory and then in the cache directory, or null if there is none.
+	 */
+	private static String getCachedResult(String key) {
+		synchronized (resultCache) {
+			String result = resultCache.get(key);
+			if (result != null)
+				return result;
+		}
+		File file = new File(cacheDirectory + key + ".txt");
+		if (!file.exists())
+			return null;
+		try {
+			StringBuilder result = new StringBuilder();
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			String line;
+			while ((line = reader.readLine()) != null)
+				result.append(line).append("\n");
+			reader.close();
+			synchronized (resultCache) {
+				resultCache.put(key, result.toString());
+			}
+			return result.toString();
+		}
+		catch (IOException e) {
+			Logger.warning("Unable to read stored FAME result " + file.getPath() + ".");
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a successful FAME result under the given key, in memory and in
+	 * the cache directory so that later runs and restarts can reuse it.
+	 */
+	private static void putCachedResult(String key, String result) {
+		synchronized (resultCache) {
+			resultCache.put(key, result);
+		}
+		try {
+			File folder = new File(cacheDirectory);
+			if (!folder.exists())
+				folder.mkdirs();
+			// Write to a temporary file first so that an interrupted run never
+			// leaves a partial result behind
+			File temp = new File(cacheDirectory + key + ".tmp" + Thread.currentThread().getId());
+			FileWriter fw = new FileWriter(temp);
+			fw.write(result);
+			fw.close();
+			if (!temp.renameTo(new File(cacheDirectory + key + ".txt")))
+				temp.delete();
+		}
+		catch (IOException e) {
+			Logger.warning("Unable to store FAME result for later runs.");
+		}
 	}
 
 	/**
@@ -787,28 +1013,10 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 	    
 		double Tmin = 0, Tmax = 0, Pmin = 0, Pmax = 0;
 
-		// JWA January 28 2010
-		// Clear the included reactions from the last successful fame execution
-		LinkedList<PDepReaction> netReactionList = pdn.getNetReactions();
-		netReactionList.clear();
-		// Also need to clear the nonincluded reactions - we will regenerate them
-		// based on the new output from fame
-		pdn.getNonincludedReactions().clear();
-		// Below we are going to use netReactionList to temporarily store all
-		// reactions, both included and nonincluded, and will then sort them
-		// into included and nonincluded
-
-		boolean ignoredARate = false;
-		/*
-		 * MRH 26Feb2010:
-		 * Checking whether pdep rates exceed the high-P-limit
-		 * 
-		 * This boolean reflects whether all pdep rates are below the high-P-limit.
-		 * 	The variable is initialized to true for each call (in hope of avoiding
-		 * 	any infinite loop scenarios).  If any of the pdep rates exceed the
-		 * 	high-P-limit, the boolean is changed to false (see code below)
-		 */
-		pdepRatesOK = true;
+		// The net reactions and their phenomenological rate coefficients
+		LinkedList<int[]> channels = new LinkedList<int[]>();
+		LinkedList<PDepRateConstant> netRates = new LinkedList<PDepRateConstant>();
+		boolean ratesUpdated = false;
 
 		try {
 
@@ -926,139 +1134,14 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 					pDepRate.setPDepArrheniusKinetics(pDepArrhenius);
 				}
 
-				// If the fitted rate coefficient is not valid, then don't add the net reaction
-				if (!valid) {
-					ignoredARate = true;
-					continue;
-				}
-
-				// Initialize net reaction
-				PDepIsomer reactant = isomerList.get(reac);
-				PDepIsomer product = isomerList.get(prod);
-				PDepReaction rxn = new PDepReaction(reactant, product, pDepRate);
-
-                // Create the reverse net reaction if applicable
-                if (product.getIncluded())
-                    rxn.generateReverseReaction();
-                else
-                    rxn.setReverseReaction(null);
-                
-				/*
-				 * MRH 26Feb2010:
-				 * Checking whether pdep rates exceed the high-P-limit
-				 * 
-				 * We grab all of the reactions in the pathReactionList.  These are the
-				 * 	RMG-generated reactions (not chemically-activated reactions) and thus
-				 * 	have "natural" high-P-limit kinetics.
-				 * If the current PDepReaction "rxn"'s structure matches one of the structures
-				 * 	of the PDepReactions located in the pathReactionList, we compare the high-P-limit
-				 * 	kinetics of the pathReactionList (these values either come from the RMG database
-				 * 	or are "fitted" parameters, based on the reverse kinetics + equilibrium constant)
-				 * 	with the k(T,P_max) for each T in the "temperatures" array.  NOTE: Not every "rxn"
-				 * 	will have a match in the pathReactionList.
-				 * If the pdep rate is greater than 2x the high-P-limit, we consider this to be different.
-				 * 	If the number of grains is less than 1000, we set the pdepRatesOK boolean to false,
-				 * 		so that another fame calculation will ensue
-				 * 	If the number of grains exceeds 1000, we continue on with the simulation, but alert the
-				 * 		user of the discrepancy.
-				 * 
-				 * The value of 2 was somewhat randomly chosen by MRH.
-				 * For a toy case of tBuOH pyrolysis (with 1e-6 reaction time and 0.9 error tolerance):
-				 * 	Before code addition:	iC4H8/H2O final concentration = 7.830282E-10, run time < 1 min
-				 * 	2x : 					iC4H8/H2O final concentration = 6.838976E-10, run time ~ 2 min
-				 *  1.5x :					iC4H8/H2O final concentration = 6.555548E-10, run time ~ 4 min
-				 *  1.1x :                  iC4H8/H2O final concentration = 6.555548E-10, run time ~ 10 min
-				 *  
-				 * The value of 2 (for the toy model) seems to be a good balance between speed and accuracy
-				 * 
-				 * P.S. Want to keep the name fame (fast approximate me) instead of having to change to
-				 * 	smame (slow more accurate me).  ;)
-				 *  
-				 * JWA 01Nov2011:
-				 * 
-				 * Note that the k(T,P) values always combine both direct and
-				 * well-skipping effects. (In this sense they are not true
-				 * rate coefficients, but are instead "flux" coefficients.)
-				 * At low T and high P, the well-skipping effect is usually
-				 * very small. However, there are many examples of isomerization
-				 * reactions for which the well-skipping rate is much larger
-				 * than the direct rate (e.g. due to a very high barrier for
-				 * the direct reaction). For this reason, we do not apply the
-				 * check to isomerization reactions, since they are not 
-				 * necessarily wrong if the check fails.
-				 */
-				LinkedList pathReactionList = pdn.getPathReactions();
-				boolean foundHighPLimitRxn = false;
-				Temperature stdtemp = new Temperature(298,"K");
-				double Hrxn;
-				for (int HighPRxNum = 0; HighPRxNum < pathReactionList.size(); HighPRxNum++) {
-					PDepReaction rxnWHighPLimit = (PDepReaction)pathReactionList.get(HighPRxNum);
-					if (rxn.getStructure().equals(rxnWHighPLimit.getStructure())) {
-						if (rxn.getReactant().isUnimolecular() && rxn.getProduct().isUnimolecular())
-							// Don't apply the check to isomerization reactions; see above comment
-							continue;
-						foundHighPLimitRxn = true;
-						Hrxn = rxnWHighPLimit.calculateHrxn(stdtemp);
-						double A = 0.0, Ea = 0.0, n = 0.0;
-						if (rxnWHighPLimit.isForward()) {
-							Kinetics[] k_array = rxnWHighPLimit.getKinetics();
-							Kinetics kin = computeKUsingLeastSquares(k_array, Hrxn);
-							A = kin.getAValue();
-							Ea = kin.getEValue();
-							n = kin.getNValue();
-							// While I'm here, and know which reaction was the High-P limit, set the comment in the P-dep reaction 
-							rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")" + 
-									" High-P Limit: " + kin.getSource().toString() + " " + kin.getComment().toString() );
-						}
-						else {
-							Kinetics[] k_array = rxnWHighPLimit.getFittedReverseKinetics();
-							Kinetics kin = computeKUsingLeastSquares(k_array, -Hrxn);//gmagoon: I'm not sure, with forward/reverse reactions here whether it is correct to use Hrxn or -Hrxn, but in any case, getFittedReverseKinetics should return an ArrheniusKinetics (not ArrheniusEPKinetics) object, so it will not be used in computeKUsingLeastSquares anyway
-							A = kin.getAValue();
-							Ea = kin.getEValue();
-							n = kin.getNValue();
-							//  While I'm here, and know which reaction was the High-P limit, set the comment in the P-dep reaction 
-							Kinetics[] fwd_kin = rxnWHighPLimit.getKinetics();
-							String commentsForForwardKinetics = "";
-							if (fwd_kin.length > 1) commentsForForwardKinetics += "Summation of kinetics:\n!";
-							for (int numKs=0; numKs<fwd_kin.length; ++numKs) {
-								commentsForForwardKinetics += "High-P Limit Reverse: " + fwd_kin[numKs].getSource().toString() +fwd_kin[numKs].getComment().toString();
-								if (numKs != fwd_kin.length-1) commentsForForwardKinetics += "\n!";
-							}
-							rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")" +
-									" " + commentsForForwardKinetics);
-						}
-						if (ReactionModelGenerator.rerunFameWithAdditionalGrains()) {
-							double[][] all_ks = rxn.getPDepRate().getRateConstants();
-								double T = temperatures[0].getK();  // lowest temperature will have the highest over_high_P_factor.
-								double k_highPlimit = A * Math.pow(T,n) * Math.exp(-Ea/GasConstant.getKcalMolK()/T);
-								double over_high_P_factor = all_ks[0][pressures.length-1] / k_highPlimit;
-								if (over_high_P_factor > 2) {
-									Logger.info("For reaction "+rxn.toString());
-									Logger.info(String.format("Pressure-dependent rate coefficient at %.0fK %.1fBar " +
-											"exceeds high-P-limit rate  by factor of %.1f .", T, Pmax*1e-5,over_high_P_factor));
-									pdepRatesOK = false;
-								}
-						}
-					}
-				}
-				// If not found, we have a "nonIncluded" (pressure-dependent) reaction
-				if (!foundHighPLimitRxn) {
-					rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")");
-				}
-				
-				// Add net reaction to list
-				netReactionList.add(rxn);
+				// An invalid rate coefficient is recorded as null
+				channels.add(new int[] { reac, prod });
+				netRates.add(valid ? pDepRate : null);
 
 			}
 
-            // If we ignored a rate coefficient from the FAME output for any
-            // reason, then fail the FAME job
-            if (ignoredARate) {
-                throw new PDepException("One or more rate coefficients from the FAME output was ignored, possibly due to a NaN or Inf rate.");
-            }
-
-			// Update reaction lists (sort into included and nonincluded)
-			pdn.updateReactionLists(cerm);
+			// Replace the net reactions of the network with the new ones
+			ratesUpdated = updateNetReactions(pdn, cerm, isomerList, channels, netRates, Pmax);
 
 		}
 		catch (PDepException e) {
@@ -1072,6 +1155,202 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 			System.exit(0);
 		}
 		
+		return ratesUpdated;
+    }
+	
+	/**
+	 * Returns the number of networks that runPDepCalculations() solves at the
+	 * same time, which is the number of fame.exe processes RMG runs at once.
+	 */
+	protected int getMaxConcurrentNetworks() {
+		return NativeWorkerPool.getDefaultSize();
+	}
+
+	/**
+	 * Returns a new estimator using the same method as this one.
+	 */
+	protected FastMasterEqn copy() {
+		return new FastMasterEqn(mode);
+	}
+
+	/**
+	 * Replaces the net reactions of a network with those given by a set of
+	 * phenomenological rate coefficients, comparing each against the
+	 * high-pressure limit of the matching path reaction.
+	 * @param pdn The pressure-dependent reaction network of interest
+	 * @param cerm The current core/edge reaction model
+	 * @param isomerList The set of isomers in the network, in the order the channels refer to
+	 * @param channels The indices of the reactant and product isomers of each net reaction
+	 * @param netRates The k(T, P) of each net reaction, or null if the calculated values were not valid
+	 * @param Pmax The maximum pressure in Pa
+	 * @return false if the network should be solved again with more grains, true otherwise
+	 */
+	protected boolean updateNetReactions(PDepNetwork pdn, CoreEdgeReactionModel cerm,
+			LinkedList<PDepIsomer> isomerList, LinkedList<int[]> channels,
+			LinkedList<PDepRateConstant> netRates, double Pmax) throws PDepException {
+
+		// JWA January 28 2010
+		// Clear the included reactions from the last successful fame execution
+		LinkedList<PDepReaction> netReactionList = pdn.getNetReactions();
+		netReactionList.clear();
+		// Also need to clear the nonincluded reactions - we will regenerate them
+		// based on the new output from fame
+		pdn.getNonincludedReactions().clear();
+		// Below we are going to use netReactionList to temporarily store all
+		// reactions, both included and nonincluded, and will then sort them
+		// into included and nonincluded
+
+		boolean ignoredARate = false;
+		/*
+		 * MRH 26Feb2010:
+		 * Checking whether pdep rates exceed the high-P-limit
+		 * 
+		 * This boolean reflects whether all pdep rates are below the high-P-limit.
+		 * 	The variable is initialized to true for each call (in hope of avoiding
+		 * 	any infinite loop scenarios).  If any of the pdep rates exceed the
+		 * 	high-P-limit, the boolean is changed to false (see code below)
+		 */
+		pdepRatesOK = true;
+
+		for (int i = 0; i < channels.size(); i++) {
+
+			// If the fitted rate coefficient is not valid, then don't add the net reaction
+			PDepRateConstant pDepRate = netRates.get(i);
+			if (pDepRate == null) {
+				ignoredARate = true;
+				continue;
+			}
+			int reac = channels.get(i)[0];
+			int prod = channels.get(i)[1];
+
+			// Initialize net reaction
+			PDepIsomer reactant = isomerList.get(reac);
+			PDepIsomer product = isomerList.get(prod);
+			PDepReaction rxn = new PDepReaction(reactant, product, pDepRate);
+
+            // Create the reverse net reaction if applicable
+            if (product.getIncluded())
+                rxn.generateReverseReaction();
+            else
+                rxn.setReverseReaction(null);
+            
+			/*
+			 * MRH 26Feb2010:
+			 * Checking whether pdep rates exceed the high-P-limit
+			 * 
+			 * We grab all of the reactions in the pathReactionList.  These are the
+			 * 	RMG-generated reactions (not chemically-activated reactions) and thus
+			 * 	have "natural" high-P-limit kinetics.
+			 * If the current PDepReaction "rxn"'s structure matches one of the structures
+			 * 	of the PDepReactions located in the pathReactionList, we compare the high-P-limit
+			 * 	kinetics of the pathReactionList (these values either come from the RMG database
+			 * 	or are "fitted" parameters, based on the reverse kinetics + equilibrium constant)
+			 * 	with the k(T,P_max) for each T in the "temperatures" array.  NOTE: Not every "rxn"
+			 * 	will have a match in the pathReactionList.
+			 * If the pdep rate is greater than 2x the high-P-limit, we consider this to be different.
+			 * 	If the number of grains is less than 1000, we set the pdepRatesOK boolean to false,
+			 * 		so that another fame calculation will ensue
+			 * 	If the number of grains exceeds 1000, we continue on with the simulation, but alert the
+			 * 		user of the discrepancy.
+			 * 
+			 * The value of 2 was somewhat randomly chosen by MRH.
+			 * For a toy case of tBuOH pyrolysis (with 1e-6 reaction time and 0.9 error tolerance):
+			 * 	Before code addition:	iC4H8/H2O final concentration = 7.830282E-10, run time < 1 min
+			 * 	2x : 					iC4H8/H2O final concentration = 6.838976E-10, run time ~ 2 min
+			 *  1.5x :					iC4H8/H2O final concentration = 6.555548E-10, run time ~ 4 min
+			 *  1.1x :                  iC4H8/H2O final concentration = 6.555548E-10, run time ~ 10 min
+			 *  
+			 * The value of 2 (for the toy model) seems to be a good balance between speed and accuracy
+			 * 
+			 * P.S. Want to keep the name fame (fast approximate me) instead of having to change to
+			 * 	smame (slow more accurate me).  ;)
+			 *  
+			 * JWA 01Nov2011:
+			 * 
+			 * Note that the k(T,P) values always combine both direct and
+			 * well-skipping effects. (In this sense they are not true
+			 * rate coefficients, but are instead "flux" coefficients.)
+			 * At low T and high P, the well-skipping effect is usually
+			 * very small. However, there are many examples of isomerization
+			 * reactions for which the well-skipping rate is much larger
+			 * than the direct rate (e.g. due to a very high barrier for
+			 * the direct reaction). For this reason, we do not apply the
+			 * check to isomerization reactions, since they are not 
+			 * necessarily wrong if the check fails.
+			 */
+			LinkedList pathReactionList = pdn.getPathReactions();
+			boolean foundHighPLimitRxn = false;
+			Temperature stdtemp = new Temperature(298,"K");
+			double Hrxn;
+			for (int HighPRxNum = 0; HighPRxNum < pathReactionList.size(); HighPRxNum++) {
+				PDepReaction rxnWHighPLimit = (PDepReaction)pathReactionList.get(HighPRxNum);
+				if (rxn.getStructure().equals(rxnWHighPLimit.getStructure())) {
+					if (rxn.getReactant().isUnimolecular() && rxn.getProduct().isUnimolecular())
+						// Don't apply the check to isomerization reactions; see above comment
+						continue;
+					foundHighPLimitRxn = true;
+					Hrxn = rxnWHighPLimit.calculateHrxn(stdtemp);
+					double A = 0.0, Ea = 0.0, n = 0.0;
+					if (rxnWHighPLimit.isForward()) {
+						Kinetics[] k_array = rxnWHighPLimit.getKinetics();
+						Kinetics kin = computeKUsingLeastSquares(k_array, Hrxn);
+						A = kin.getAValue();
+						Ea = kin.getEValue();
+						n = kin.getNValue();
+						// While I'm here, and know which reaction was the High-P limit, set the comment in the P-dep reaction 
+						rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")" + 
+								" High-P Limit: " + kin.getSource().toString() + " " + kin.getComment().toString() );
+					}
+					else {
+						Kinetics[] k_array = rxnWHighPLimit.getFittedReverseKinetics();
+						Kinetics kin = computeKUsingLeastSquares(k_array, -Hrxn);//gmagoon: I'm not sure, with forward/reverse reactions here whether it is correct to use Hrxn or -Hrxn, but in any case, getFittedReverseKinetics should return an ArrheniusKinetics (not ArrheniusEPKinetics) object, so it will not be used in computeKUsingLeastSquares anyway
+						A = kin.getAValue();
+						Ea = kin.getEValue();
+						n = kin.getNValue();
+						//  While I'm here, and know which reaction was the High-P limit, set the comment in the P-dep reaction 
+						Kinetics[] fwd_kin = rxnWHighPLimit.getKinetics();
+						String commentsForForwardKinetics = "";
+						if (fwd_kin.length > 1) commentsForForwardKinetics += "Summation of kinetics:\n!";
+						for (int numKs=0; numKs<fwd_kin.length; ++numKs) {
+							commentsForForwardKinetics += "High-P Limit Reverse: " + fwd_kin[numKs].getSource().toString() +fwd_kin[numKs].getComment().toString();
+							if (numKs != fwd_kin.length-1) commentsForForwardKinetics += "\n!";
+						}
+						rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")" +
+								" " + commentsForForwardKinetics);
+					}
+					if (ReactionModelGenerator.rerunFameWithAdditionalGrains()) {
+						double[][] all_ks = rxn.getPDepRate().getRateConstants();
+							double T = temperatures[0].getK();  // lowest temperature will have the highest over_high_P_factor.
+							double k_highPlimit = A * Math.pow(T,n) * Math.exp(-Ea/GasConstant.getKcalMolK()/T);
+							double over_high_P_factor = all_ks[0][pressures.length-1] / k_highPlimit;
+							if (over_high_P_factor > 2) {
+								Logger.info("For reaction "+rxn.toString());
+								Logger.info(String.format("Pressure-dependent rate coefficient at %.0fK %.1fBar " +
+										"exceeds high-P-limit rate  by factor of %.1f .", T, Pmax*1e-5,over_high_P_factor));
+								pdepRatesOK = false;
+							}
+					}
+				}
+			}
+			// If not found, we have a "nonIncluded" (pressure-dependent) reaction
+			if (!foundHighPLimitRxn) {
+				rxn.setComments("NetReaction from PDepNetwork #" + Integer.toString(pdn.getID()) + " (" + pdn.getSpeciesType() + ")");
+			}
+			
+			// Add net reaction to list
+			netReactionList.add(rxn);
+
+		}
+
+		// If we ignored a rate coefficient from the FAME output for any
+		// reason, then fail the FAME job
+		if (ignoredARate) {
+			throw new PDepException("One or more rate coefficients from the FAME output was ignored, possibly due to a NaN or Inf rate.");
+		}
+
+		// Update reaction lists (sort into included and nonincluded)
+		pdn.updateReactionLists(cerm);
+
 		if (!pdepRatesOK) {
 			if (numGrains > 1000) {
 				Logger.info("Number of grains already exceeds 1000. " +
@@ -1085,8 +1364,8 @@ public class FastMasterEqn implements PDepKineticsEstimator {
 			}
 		}
 		return true;
-    }
-	
+	}
+
 	/**
 	 * Determines the maximum energy grain to use in the calculation. The
 	 * maximum energy grain is chosen to be 25 * R * T above the highest
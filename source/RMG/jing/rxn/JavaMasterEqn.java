@@ -0,0 +1,1360 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxn;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.StringTokenizer;
+
+import Jama.Matrix;
+import jing.chem.Species;
+import jing.chem.SpectroscopicData;
+import jing.mathTool.UncertainDouble;
+import jing.param.Pressure;
+import jing.param.Temperature;
+import jing.rxnSys.CoreEdgeReactionModel;
+import jing.rxnSys.Logger;
+import jing.rxnSys.ReactionSystem;
+
+/**
+ * Used to estimate pressure-dependent rate coefficients k(T, P) for a
+ * PDepNetwork object by solving the master equation within RMG rather than
+ * by a call to the Fortran module FAME. The energy grains, densities of
+ * states, microcanonical rate coefficients, modified strong collision and
+ * reservoir state methods, and the fitted interpolation models all follow
+ * FAME, so that this one can replace it and avoid a fame.exe process and the
+ * text exchange with it for every network.
+ * <p>
+ * The k(T, P) it gives have not yet been checked against those of FAME on
+ * real networks (see setCompareWithFAME()), so the condition file does not
+ * offer it as a PressureDependence method.
+ */
+public class JavaMasterEqn extends FastMasterEqn {
+
+	/**
+	 * The gas constant in J/mol*K, as used by FAME.
+	 */
+	private static final double R = 8.314472;
+
+	/**
+	 * The factor converting a wavenumber in cm^-1 to an energy in J/mol.
+	 */
+	private static final double CM_TO_J_MOL = 6.626e-34 * 2.9979e10 * 6.022e23;
+
+	/**
+	 * The relative deviation from FAME within which the k(T, P) of a network
+	 * are reported as agreeing. FAME prints k(T, P) to five significant figures
+	 * and the two estimators use the same grains and methods, so a real
+	 * difference between them shows up far above this.
+	 */
+	private static final double FAME_TOLERANCE = 0.01;
+
+	/**
+	 * True if every network is also solved by fame.exe and the two sets of
+	 * k(T, P) are compared (see compareWithFAME()).
+	 */
+	private static boolean compareWithFAME = false;
+
+	//==========================================================================
+	//
+	//	Constructors
+	//
+
+	/**
+	 * Creates a new object with the desired mode. The mode represents the
+	 * set of approximations used to estimate the k(T, P) values.
+	 * @param m The mode to use for estimating the pressure-dependent kinetics.
+	 */
+	public JavaMasterEqn(Mode m) {
+		super(m);
+	}
+
+	//==========================================================================
+	//
+	//	Other methods
+	//
+
+	/**
+	 * Returns the number of networks that runPDepCalculations() solves at the
+	 * same time, which is one per available processor.
+	 */
+	protected int getMaxConcurrentNetworks() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Returns a new estimator using the same method as this one.
+	 */
+	protected FastMasterEqn copy() {
+		return new JavaMasterEqn(getMode());
+	}
+
+	/**
+	 * If compare is true, every network this estimator solves is also solved
+	 * by fame.exe and the deviation of the two sets of k(T, P) is logged.
+	 */
+	public static void setCompareWithFAME(boolean compare) {
+		compareWithFAME = compare;
+	}
+
+	/**
+	 * Determines the phenomenological rate coefficients of a network by
+	 * solving its master equation and updates its net reactions accordingly.
+	 * @param pdn The pressure-dependent reaction network of interest
+	 * @param rxnSystem The reaction system of interest
+	 * @param cerm The current core/edge reaction model
+	 * @param speciesList The set of species in the network
+	 * @param isomerList The set of isomers in the network, sorted as FAME expects
+	 * @param pathReactionList The set of path reactions in the network
+	 * @return false if the network was instead solved by falling back to the
+	 * modified strong collision method, true otherwise
+	 */
+	protected boolean solveNetwork(PDepNetwork pdn, ReactionSystem rxnSystem,
+			CoreEdgeReactionModel cerm, LinkedList<Species> speciesList,
+			LinkedList<PDepIsomer> isomerList, LinkedList<PDepReaction> pathReactionList,
+			int nIsom, int nReac, int nProd) {
+
+		int id = pdn.getID();
+
+		try {
+
+			Temperature[] temperatures = getTemperatures();
+			Pressure[] pressures = getPressures();
+			int nT = temperatures.length;
+			int nP = pressures.length;
+			int nIsomers = isomerList.size();
+
+			double[][][][] K = calculateRateCoefficients(rxnSystem, isomerList,
+					pathReactionList, nIsom, nReac, nProd);
+
+			// Check that the k(T, P) between isomers and reactant channels
+			// satisfy thermodynamic consistency
+			for (int reac = 0; reac < nIsom + nReac; reac++) {
+				for (int prod = 0; prod < reac; prod++) {
+					for (int t = 0; t < nT; t++) {
+						double Keq0 = getEquilibriumConstant(isomerList.get(reac), isomerList.get(prod), temperatures[t]);
+						for (int p = 0; p < nP; p++) {
+							double ratio = K[t][p][prod][reac] / K[t][p][reac][prod] / Keq0;
+							if (ratio <= 0.1 || ratio >= 10)
+								throw new PDepException("One or more k(T, P) values for the net reaction " +
+										isomerList.get(reac).toString() + " -> " + isomerList.get(prod).toString() +
+										" did not satisfy thermodynamic consistency.");
+						}
+					}
+				}
+			}
+
+			// Convert the phenomenological rate coefficients to cm^3, mol, and s
+			for (int i = 0; i < nIsomers; i++) {
+				double factor = Math.pow(1.0e6, isomerList.get(i).getNumSpecies() - 1);
+				for (int t = 0; t < nT; t++)
+					for (int p = 0; p < nP; p++)
+						for (int j = 0; j < nIsomers; j++)
+							K[t][p][j][i] *= factor;
+			}
+
+			if (compareWithFAME)
+				compareWithFAME(pdn, rxnSystem, speciesList, isomerList, pathReactionList,
+						nIsom, nReac, nProd, K);
+
+			// Fit the interpolation model to each net reaction, in the direction
+			// FAME reports it
+			double Tmin = PDepRateConstant.getTMin().getK();
+			double Tmax = PDepRateConstant.getTMax().getK();
+			double Pmin = PDepRateConstant.getPMin().getPa();
+			double Pmax = PDepRateConstant.getPMax().getPa();
+			Temperature stdTemp = new Temperature(298, "K");
+			LinkedList<int[]> channels = new LinkedList<int[]>();
+			LinkedList<PDepRateConstant> netRates = new LinkedList<PDepRateConstant>();
+			for (int j = 0; j < nIsomers; j++) {
+				for (int i = 0; i < j; i++) {
+
+					int reac, prod;
+					if (i >= nIsom + nReac)
+						break;
+					else if (j >= nIsom + nReac) {
+						reac = i; prod = j;
+					}
+					else if (isomerList.get(i).calculateH(stdTemp) < isomerList.get(j).calculateH(stdTemp)) {
+						reac = j; prod = i;
+					}
+					else {
+						reac = i; prod = j;
+					}
+
+					double[][] rates = new double[nT][nP];
+					boolean valid = true;
+					for (int t = 0; t < nT; t++) {
+						for (int p = 0; p < nP; p++) {
+							rates[t][p] = K[t][p][prod][reac];
+							if (rates[t][p] <= 0 ||
+									Double.isNaN(rates[t][p]) ||
+									Double.isInfinite(rates[t][p]))
+								valid = false;
+						}
+					}
+
+					PDepRateConstant pDepRate = new PDepRateConstant(rates);
+					if (valid && PDepRateConstant.getDefaultMode() == PDepRateConstant.Mode.CHEBYSHEV) {
+						int numChebT = getNumTBasisFuncs() == -1 ? 4 : getNumTBasisFuncs();
+						int numChebP = getNumPBasisFuncs() == -1 ? 4 : getNumPBasisFuncs();
+						pDepRate.setChebyshev(fitChebyshevModel(rates, temperatures, pressures,
+								Tmin, Tmax, Pmin, Pmax, numChebT, numChebP));
+					}
+					else if (valid && PDepRateConstant.getDefaultMode() == PDepRateConstant.Mode.PDEPARRHENIUS) {
+						pDepRate.setPDepArrheniusKinetics(fitPDepArrheniusModel(rates, temperatures, pressures,
+								Tmin, Tmax, Pmin, Pmax));
+					}
+
+					// An invalid rate coefficient is recorded as null
+					channels.add(new int[] { reac, prod });
+					netRates.add(valid ? pDepRate : null);
+
+				}
+			}
+
+			// Replace the net reactions of the network with the new ones
+			if (updateNetReactions(pdn, cerm, isomerList, channels, netRates, Pmax)) {
+
+				// Reset altered flag
+				pdn.setAltered(false);
+
+				// Write finished indicator to console
+				String formula = pdn.getSpeciesType();
+				Logger.verbose("PDepNetwork #" + Integer.toString(id) +
+					" (" + formula + ") solved: " +
+					pdn.getNetReactions().size() + " included and " +
+					pdn.getNonincludedReactions().size() + " nonincluded net reactions.");
+			}
+		}
+		catch (Exception e) {
+			Logger.logStackTrace(e);
+			Logger.error(e.getMessage());
+			// If using RS method, fall back to MSC
+			if (getMode() == Mode.RESERVOIRSTATE) {
+				Logger.info("Falling back to modified strong collision mode for this network.");
+				setMode(Mode.STRONGCOLLISION);
+				runPDepCalculation(pdn, rxnSystem, cerm);
+				setMode(Mode.RESERVOIRSTATE);
+				return false;
+			}
+			else {
+				Logger.critical("Error solving the master equation for PDepNetwork #" + Integer.toString(id) + ".");
+				System.exit(0);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates the phenomenological rate coefficients of a network at each
+	 * of the temperatures and pressures of interest.
+	 * @param rxnSystem The reaction system of interest
+	 * @param isomerList The set of isomers in the network, sorted as FAME expects
+	 * @param pathReactionList The set of path reactions in the network
+	 * @return The rate coefficients in SI units, indexed as [T][P][product][reactant]
+	 */
+	private double[][][][] calculateRateCoefficients(ReactionSystem rxnSystem,
+			LinkedList<PDepIsomer> isomerList, LinkedList<PDepReaction> pathReactionList,
+			int nIsom, int nReac, int nProd) throws PDepException {
+
+		Temperature stdTemp = new Temperature(298, "K");
+		Temperature[] temperatures = getTemperatures();
+		Pressure[] pressures = getPressures();
+		int nIsomers = isomerList.size();
+		int nRxns = pathReactionList.size();
+
+		// Ground-state energies of the isomers in J/mol, along with the
+		// molecular weight (kg/mol) and Lennard-Jones sigma (m) of the
+		// unimolecular isomers for the collision frequencies
+		double[] isomerE0 = new double[nIsomers];
+		double[] molWt = new double[nIsom];
+		double[] sigma = new double[nIsom];
+		for (int i = 0; i < nIsomers; i++) {
+			PDepIsomer isomer = isomerList.get(i);
+			isomerE0[i] = isomer.calculateH(stdTemp) * 4184;
+			if (i < nIsom) {
+				Species spec = isomer.getSpecies(0);
+				spec.calculateTransportParameters();
+				molWt[i] = spec.getMolecularWeight() / 1000.0;
+				sigma[i] = spec.getChemkinTransportData().getSigma() * 1.0e-10;
+			}
+		}
+
+		// Transition state energies in J/mol and high-pressure-limit kinetics
+		// in m^3, mol, s, and J/mol of the path reactions
+		int[] reacIndex = new int[nRxns];
+		int[] prodIndex = new int[nRxns];
+		double[] rxnE0 = new double[nRxns];
+		double[] rxnA = new double[nRxns];
+		double[] rxnN = new double[nRxns];
+		double[] rxnEa = new double[nRxns];
+		for (int w = 0; w < nRxns; w++) {
+			PDepReaction rxn = pathReactionList.get(w);
+			if (!rxn.isForward())
+				throw new PDepException("Encountered a path reaction that was not a forward reaction!");
+			Kinetics kin = computeKUsingLeastSquares(rxn.getKinetics(), rxn.calculateHrxn(stdTemp));
+			reacIndex[w] = isomerList.indexOf(rxn.getReactant());
+			prodIndex[w] = isomerList.indexOf(rxn.getProduct());
+			double H = rxn.getReactant().calculateH(stdTemp);
+			if (kin.getEValue() < 0.0)
+				rxnE0[w] = H * 4184;
+			else
+				rxnE0[w] = (kin.getEValue() + H) * 4184;
+			rxnA[w] = kin.getAValue();
+			if (rxn.getReactant().isMultimolecular())
+				rxnA[w] *= 1.0e-6;
+			rxnN[w] = kin.getNValue();
+			rxnEa[w] = kin.getEValue() * 4184;
+		}
+
+		// Measure energies from the lowest isomer; only energy differences
+		// enter the results, and this keeps the Boltzmann factors in range
+		double Eshift = isomerE0[0];
+		for (int i = 1; i < nIsomers; i++)
+			Eshift = Math.min(Eshift, isomerE0[i]);
+		for (int i = 0; i < nIsomers; i++)
+			isomerE0[i] -= Eshift;
+		for (int w = 0; w < nRxns; w++)
+			rxnE0[w] -= Eshift;
+
+		// The active-state energy of each isomer is that of the lowest
+		// transition state connected to it
+		double[] Eres = new double[nIsomers];
+		for (int i = 0; i < nIsomers; i++) {
+			Eres[i] = 1.0e20;
+			for (int w = 0; w < nRxns; w++) {
+				if ((reacIndex[w] == i || prodIndex[w] == i) && rxnE0[w] < Eres[i])
+					Eres[i] = rxnE0[w];
+			}
+		}
+
+		// Calculate the densities of states on a grid starting from zero
+		// energy that covers all of the temperatures; these are mapped onto
+		// the grid used for each temperature below
+		double Tlow = temperatures[0].getK(), Thigh = temperatures[0].getK();
+		for (int t = 1; t < temperatures.length; t++) {
+			Tlow = Math.min(Tlow, temperatures[t].getK());
+			Thigh = Math.max(Thigh, temperatures[t].getK());
+		}
+		double[] Elist0 = determineEnergyGrains(isomerE0, rxnE0, Tlow);
+		double Emin0 = Elist0[0];
+		double grainSize0 = Elist0[1] - Elist0[0];
+		Elist0 = determineEnergyGrains(isomerE0, rxnE0, Thigh);
+		Elist0 = getEnergyGrains(0.0, Elist0[Elist0.length - 1] - Emin0, grainSize0, Elist0.length);
+		double[][] densStates0 = new double[nIsomers][];
+		for (int i = 0; i < nIsomers; i++)
+			densStates0[i] = getDensityOfStates(isomerList.get(i), Elist0);
+
+		// Bath gas parameters
+		BathGas bathGas = new BathGas(rxnSystem);
+		double bathMolWt = bathGas.getMolecularWeight() / 1000.0;
+		double bathSigma = bathGas.getLJSigma();
+		DeltaEDown deltaEdown = bathGas.getDeltaEdown();
+
+		double[][][][] K = new double[temperatures.length][pressures.length][][];
+		for (int u = 0; u < temperatures.length; u++) {
+
+			double T = temperatures[u].getK();
+			double[] E = determineEnergyGrains(isomerE0, rxnE0, T);
+			int nGrains = E.length;
+			double dE = E[1] - E[0];
+
+			// Densities of states and partition functions
+			double[][] densStates = new double[nIsomers][];
+			double[] Q = new double[nIsomers];
+			for (int i = 0; i < nIsomers; i++) {
+				densStates[i] = mapDensityOfStates(isomerE0[i], densStates0[i], Elist0, E);
+				for (int r = 0; r < nGrains; r++)
+					Q[i] += densStates[i][r] * Math.exp(-E[r] / (R * T)) * dE;
+				if (Q[i] == 0)
+					throw new PDepException("Partition function of " + isomerList.get(i).toString() +
+							" is zero; check its density of states.");
+			}
+
+			// Microcanonical rate coefficients, sorted into isomerizations
+			// Kij (j to i), dissociations Gnj (isomer j to channel n), and
+			// associations Fim (channel m to isomer i)
+			double[][][] Kij = new double[nIsom][nIsom][nGrains];
+			double[][][] Gnj = new double[nReac + nProd][nIsom][nGrains];
+			double[][][] Fim = new double[nIsom][nReac][nGrains];
+			for (int w = 0; w < nRxns; w++) {
+				int i = reacIndex[w];
+				int j = prodIndex[w];
+				double Keq = getEquilibriumConstant(isomerList.get(i), isomerList.get(j), temperatures[u]);
+				double[][] k = calculateMicrocanonicalRates(T, E, rxnE0[w], rxnA[w], rxnN[w], rxnEa[w],
+						i, j, nIsom, densStates, Q, Keq);
+				if (i < nIsom && j < nIsom) {
+					Kij[j][i] = k[0];
+					Kij[i][j] = k[1];
+				}
+				else if (i < nIsom) {
+					Gnj[j - nIsom][i] = k[0];
+					if (j - nIsom < nReac) Fim[i][j - nIsom] = k[1];
+				}
+				else if (j < nIsom) {
+					if (i - nIsom < nReac) Fim[j][i - nIsom] = k[0];
+					Gnj[i - nIsom][j] = k[1];
+				}
+			}
+
+			// Equilibrium-normalized densities of states of the isomers
+			double[][] normDensStates = new double[nIsom][nGrains];
+			for (int i = 0; i < nIsom; i++)
+				for (int r = 0; r < nGrains; r++)
+					normDensStates[i][r] = densStates[i][r] * dE / Q[i];
+
+			double dEdown = deltaEdown.getAlpha() * 1000 * Math.pow(T / deltaEdown.getT0(), deltaEdown.getN());
+
+			// The collisional transfer probabilities only depend on pressure
+			// through the collision frequency, by which they are scaled later
+			double[][][] Mcoll = null;
+			if (getMode() == Mode.RESERVOIRSTATE) {
+				Mcoll = new double[nIsom][][];
+				for (int i = 0; i < nIsom; i++)
+					Mcoll[i] = getCollisionMatrix(T, E, densStates[i], isomerE0[i], dEdown);
+			}
+
+			for (int v = 0; v < pressures.length; v++) {
+				double P = pressures[v].getPa();
+				double[] collFreq = new double[nIsom];
+				for (int i = 0; i < nIsom; i++)
+					collFreq[i] = getCollisionFrequency(T, P, molWt[i], sigma[i], bathMolWt, bathSigma);
+
+				if (getMode() == Mode.STRONGCOLLISION) {
+					for (int i = 0; i < nIsom; i++) {
+						double E0 = Eres[i];
+						if (E0 - isomerE0[i] < 100000) E0 += 100000;
+						collFreq[i] *= getCollisionEfficiency(T, E, E0, dEdown, densStates[i]);
+					}
+					K[u][v] = applyModifiedStrongCollision(T, E, collFreq, normDensStates, Eres,
+							Kij, Fim, Gnj, nIsom, nReac, nProd);
+				}
+				else if (getMode() == Mode.RESERVOIRSTATE)
+					K[u][v] = applyReservoirState(T, E, Mcoll, collFreq, normDensStates, Eres,
+							Kij, Fim, Gnj, dEdown, nIsom, nReac, nProd);
+				else
+					throw new PDepException("Unable to determine method to use to estimate phenomenological rate coefficients.");
+			}
+		}
+
+		return K;
+	}
+
+	/**
+	 * Returns the energy grains for a network at a given temperature, which
+	 * run from the lowest ground-state energy to 40 RT above the highest
+	 * using numGrains grains or grains of 4184 J/mol, whichever are finer.
+	 */
+	private double[] determineEnergyGrains(double[] isomerE0, double[] rxnE0, double T) {
+		double Emin = isomerE0[0], Emax0 = isomerE0[0];
+		for (int i = 1; i < isomerE0.length; i++) {
+			Emin = Math.min(Emin, isomerE0[i]);
+			Emax0 = Math.max(Emax0, isomerE0[i]);
+		}
+		for (int w = 0; w < rxnE0.length; w++) {
+			Emin = Math.min(Emin, rxnE0[w]);
+			Emax0 = Math.max(Emax0, rxnE0[w]);
+		}
+		double Emax = Math.ceil(Emax0 + 40 * R * T);
+		return getEnergyGrains(Emin, Emax, 4184.0, numGrains);
+	}
+
+	/**
+	 * Returns evenly spaced energy grains from Emin to Emax, using either
+	 * nGrains0 grains or a grain size of dE0, whichever gives finer grains.
+	 */
+	private static double[] getEnergyGrains(double Emin, double Emax, double dE0, int nGrains0) {
+		boolean useGrainSize;
+		if (nGrains0 <= 0 && dE0 > 0.0)
+			useGrainSize = true;
+		else if (nGrains0 > 0 && dE0 <= 0.0)
+			useGrainSize = false;
+		else
+			useGrainSize = (Emax - Emin) / (nGrains0 - 1) > dE0;
+
+		int nGrains;
+		double dE;
+		if (useGrainSize) {
+			nGrains = (int) ((Emax - Emin) / dE0) + 1;
+			dE = dE0;
+		}
+		else {
+			nGrains = nGrains0;
+			dE = (Emax - Emin) / (nGrains0 - 1);
+		}
+
+		double[] E = new double[nGrains];
+		for (int r = 0; r < nGrains; r++)
+			E[r] = Emin + r * dE;
+		return E;
+	}
+
+	/**
+	 * Returns the density of states in mol/J of an isomer, the convolution of
+	 * those of its species, on a grid of energies starting at zero.
+	 */
+	private static double[] getDensityOfStates(PDepIsomer isomer, double[] E) {
+		double[] densStates = new double[E.length];
+		for (int i = 0; i < isomer.getNumSpecies(); i++)
+			convolve(densStates, getDensityOfStates(isomer.getSpecies(i), E), E[1] - E[0]);
+		return densStates;
+	}
+
+	/**
+	 * Returns the density of states in mol/J of a species on a grid of
+	 * energies starting at zero. The external rotors (or a K-rotor if there
+	 * are none) and the hindered rotors are convolved first, and the
+	 * vibrations are added by the Beyer-Swinehart algorithm on a grid no
+	 * coarser than 100 J/mol.
+	 */
+	private static double[] getDensityOfStates(Species species, double[] E) {
+
+		int nGrains = E.length;
+		double dE = E[1] - E[0];
+		double[] rho = new double[nGrains];
+
+		SpectroscopicData data = species.getSpectroscopicData();
+		int nVib = data.getVibrationCount();
+		int nRot = data.getRotationCount();
+		int nHind = data.getHinderedCount();
+		if (nVib + nRot + nHind == 0)
+			return rho;
+
+		// External rotors
+		double[] rho0 = new double[nGrains];
+		if (nRot == 1) {
+			double theta = CM_TO_J_MOL * data.getRotation(0);
+			for (int r = 0; r < nGrains; r++)
+				rho0[r] = 1.0 / theta;
+		}
+		else if (nRot > 1) {
+			double theta = 1.0;
+			for (int i = 0; i < nRot; i++)
+				theta *= CM_TO_J_MOL * data.getRotation(i);
+			for (int r = 0; r < nGrains; r++)
+				rho0[r] = 2.0 * Math.sqrt(E[r] / theta);
+		}
+		else {
+			for (int r = 0; r < nGrains; r++)
+				rho0[r] = (E[r] == 0) ? 0.0 : 1.0 / Math.sqrt(E[r]);
+		}
+		convolve(rho, rho0, dE);
+
+		// Hindered rotors
+		for (int i = 0; i < nHind; i++) {
+			double pre = 2.0 / Math.PI / (CM_TO_J_MOL * data.getHinderedFrequency(i));
+			double V0 = CM_TO_J_MOL * data.getHinderedBarrier(i);
+			rho0 = new double[nGrains];
+			for (int r = 0; r < nGrains; r++) {
+				if (E[r] / V0 < 1)
+					rho0[r] = pre * cellipk(E[r] / V0);
+				else
+					rho0[r] = pre * Math.sqrt(V0 / E[r]) * cellipk(V0 / E[r]);
+			}
+			convolve(rho, rho0, dE);
+		}
+
+		int symm = species.getChemGraph().calculateSymmetryNumber();
+		for (int r = 0; r < nGrains; r++)
+			rho[r] /= symm;
+
+		// Vibrations
+		if (nVib > 0) {
+			double dEvib = dE;
+			int mult = 1;
+			while (dEvib > 100.0) {
+				dEvib /= 2.0;
+				mult *= 2;
+			}
+			int nGrainsVib = (nGrains - 1) * mult + 1;
+
+			double[] rhoVib = new double[nGrainsVib];
+			for (int r = 0; r < nGrainsVib; r++) {
+				double Evib = r * dEvib + E[0];
+				int i = r / mult;
+				if (i == 0)
+					rhoVib[r] = 0.0;
+				else if (r == mult)
+					rhoVib[r] = rho[i];
+				else if (i >= nGrains - 1)
+					rhoVib[r] = rho[nGrains - 1];
+				else if (rho[i] > 0)
+					rhoVib[r] = rho[i] * Math.pow(rho[i + 1] / rho[i], (Evib - E[i]) / dE);
+			}
+
+			for (int i = 0; i < nVib; i++) {
+				int dn = (int) Math.round(data.getVibration(i) * CM_TO_J_MOL / dEvib);
+				for (int n = dn; n < nGrainsVib; n++)
+					rhoVib[n] += rhoVib[n - dn];
+			}
+
+			for (int r = 0; r < nGrains; r++)
+				rho[r] = rhoVib[r * mult];
+		}
+
+		return rho;
+	}
+
+	/**
+	 * Replaces rho1 with its convolution with rho2. If either is zero
+	 * everywhere, the other is used as is.
+	 */
+	private static void convolve(double[] rho1, double[] rho2, double dE) {
+		boolean found1 = false, found2 = false;
+		for (int i = 0; i < rho1.length; i++) {
+			if (rho1[i] > 0.0) found1 = true;
+			if (rho2[i] > 0.0) found2 = true;
+		}
+
+		if (!found2)
+			return;
+		else if (!found1)
+			System.arraycopy(rho2, 0, rho1, 0, rho1.length);
+		else {
+			double[] rho = new double[rho1.length];
+			for (int i = 0; i < rho.length; i++)
+				for (int j = 0; j <= i; j++)
+					rho[i] += rho2[i - j] * rho1[j] * dE;
+			System.arraycopy(rho, 0, rho1, 0, rho1.length);
+		}
+	}
+
+	/**
+	 * Returns the complete elliptic integral of the first kind K(x), found
+	 * by the arithmetic-geometric mean.
+	 */
+	private static double cellipk(double x) {
+		if (x < 0 || x > 1)
+			return 0.0;
+		double A = 1.0 + x, B = 1.0 - x;
+		for (int n = 0; n <= 100; n++) {
+			double A0 = A, B0 = B;
+			A = (A0 + B0) / 2;
+			B = Math.sqrt(A0 * B0);
+			if (Math.abs(A - B) < 1.0e-8)
+				break;
+		}
+		return Math.PI / 2.0 / A;
+	}
+
+	/**
+	 * Maps a density of states calculated on a grid starting at zero onto a
+	 * grid of energies, given the ground-state energy E0 of the isomer.
+	 */
+	private static double[] mapDensityOfStates(double E0, double[] densStates0, double[] Elist0, double[] Elist) {
+		double[] densStates = new double[Elist.length];
+		int s = 1;
+		for (int r = 0; r < Elist.length; r++) {
+			if (Elist[r] < E0)
+				continue;
+			while (s < Elist0.length && E0 + Elist0[s] < Elist[r])
+				s++;
+			if (s == Elist0.length)
+				break;
+			double x = (Elist[r] - E0 - Elist0[s]) / (Elist0[s - 1] - Elist0[s]);
+			if (densStates0[s - 1] > 0 && densStates0[s] > 0)
+				densStates[r] = densStates0[s] * Math.pow(densStates0[s - 1] / densStates0[s], x);
+			else
+				densStates[r] = densStates0[s] + (densStates0[s - 1] - densStates0[s]) * x;
+		}
+		return densStates;
+	}
+
+	/**
+	 * Returns the equilibrium constant in SI units of the reaction between two
+	 * isomers.
+	 */
+	private static double getEquilibriumConstant(PDepIsomer reac, PDepIsomer prod, Temperature temperature) {
+		double T = temperature.getK();
+		double dGrxn = (prod.calculateG(temperature) - reac.calculateG(temperature)) * 4184;
+		double Keq = Math.exp(-dGrxn / (R * T));
+		return Keq * Math.pow(100000.0 / (R * T), prod.getNumSpecies() - reac.getNumSpecies());
+	}
+
+	/**
+	 * Calculates the microcanonical rate coefficients k(E) of a path reaction
+	 * by inverse Laplace transform of its high-pressure-limit kinetics, and
+	 * those of the reverse reaction by detailed balance. The k(E) of an
+	 * association, and of the reverse of a dissociation, are weighted by the
+	 * equilibrium distribution of the reactant channel.
+	 * @return An array containing the forward and reverse k(E)
+	 */
+	private static double[][] calculateMicrocanonicalRates(double T, double[] E, double E0,
+			double A, double n, double Ea, int reac, int prod, int nIsom,
+			double[][] densStates, double[] Q, double Keq) {
+
+		int nGrains = E.length;
+		double dE = E[1] - E[0];
+		double[] kf = kineticsILT(E0, densStates[reac], A, n, Ea, T, E);
+		double[] kb = new double[nGrains];
+
+		if (reac < nIsom && prod < nIsom) {
+			for (int r = 0; r < nGrains; r++)
+				if (densStates[prod][r] != 0)
+					kb[r] = kf[r] / Keq * (densStates[reac][r] / Q[reac]) / (densStates[prod][r] / Q[prod]);
+		}
+		else if (reac < nIsom) {
+			for (int r = 0; r < nGrains; r++)
+				kb[r] = kf[r] / Keq * densStates[reac][r] * Math.exp(-E[r] / (R * T)) / Q[reac] * dE;
+		}
+		else if (prod < nIsom) {
+			for (int r = 0; r < nGrains; r++)
+				if (densStates[prod][r] != 0)
+					kb[r] = kf[r] / Keq * (densStates[reac][r] / Q[reac]) / (densStates[prod][r] / Q[prod]);
+			for (int r = 0; r < nGrains; r++)
+				kf[r] *= densStates[reac][r] * Math.exp(-E[r] / (R * T)) / Q[reac] * dE;
+		}
+
+		for (int r = 0; r < nGrains; r++) {
+			if (kf[r] == 0 || kb[r] == 0) {
+				kf[r] = 0;
+				kb[r] = 0;
+			}
+		}
+
+		return new double[][] { kf, kb };
+	}
+
+	/**
+	 * Returns the microcanonical rate coefficients k(E) consistent with a set
+	 * of Arrhenius kinetics and the density of states of the reactant, found
+	 * by inverse Laplace transform.
+	 */
+	private static double[] kineticsILT(double E0, double[] rho, double A, double n, double Ea,
+			double T, double[] E) {
+
+		int nGrains = E.length;
+		double[] k = new double[nGrains];
+
+		if (Ea < 0) {
+			A *= Math.exp(-Ea / (R * T));
+			Ea = 0.0;
+		}
+		if (n < 0) {
+			A *= Math.pow(T, n);
+			n = 0.0;
+		}
+
+		double dE = E[1] - E[0];
+		int s = Math.max((int) Math.floor(Ea / dE), 0);
+
+		if (n < 0.001) {
+			for (int r = s; r < nGrains; r++)
+				if (rho[r] != 0)
+					k[r] = A * Math.pow(T, n) * rho[r - s] / rho[r];
+		}
+		else {
+			double[] phi = new double[nGrains];
+			double denom = Math.pow(R, n) * gamma(n);
+			for (int r = 1; r < nGrains; r++)
+				phi[r] = Math.pow(E[r] - E[0], n - 1) / denom;
+			convolve(phi, rho, dE);
+			for (int r = s; r < nGrains; r++)
+				if (E[r] > E0 && rho[r] != 0 && phi[r - s] > 0)
+					k[r] = A * phi[r - s] / rho[r];
+		}
+
+		return k;
+	}
+
+	/**
+	 * Returns the gamma function of x, using the Lanczos approximation.
+	 */
+	private static double gamma(double x) {
+		if (x < 0.5)
+			return Math.PI / (Math.sin(Math.PI * x) * gamma(1 - x));
+		final double[] c = { 0.99999999999980993, 676.5203681218851, -1259.1392167224028,
+			771.32342877765313, -176.61502916214059, 12.507343278686905,
+			-0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7 };
+		x -= 1;
+		double a = c[0];
+		double t = x + 7.5;
+		for (int i = 1; i < c.length; i++)
+			a += c[i] / (x + i);
+		return Math.sqrt(2 * Math.PI) * Math.pow(t, x + 0.5) * Math.exp(-t) * a;
+	}
+
+	/**
+	 * Returns the Lennard-Jones collision frequency in Hz of an isomer with
+	 * the bath gas, computed as FAME does.
+	 */
+	private static double getCollisionFrequency(double T, double P, double molWt, double sigma,
+			double bathMolWt, double bathSigma) {
+		double collisionIntegral = 1.16145 / Math.pow(T, 0.14874) + 0.52487 / Math.exp(0.77320 * T) +
+			2.16178 / Math.exp(2.43787 * T) -
+			6.435 / 10000 * Math.pow(T, 0.14874) * Math.sin(18.0323 * Math.pow(T, -0.76830) - 7.27371);
+		double kB = 1.3806504e-23;
+		double gasConc = P / kB / T;
+		double mu = 1 / (1 / molWt + 1 / bathMolWt) / 6.022e23;
+		double sig = 0.5 * (sigma + bathSigma);
+		return collisionIntegral * Math.sqrt(8 * kB * T / Math.PI / mu) * Math.PI * sig * sig * gasConc;
+	}
+
+	/**
+	 * Returns the collision efficiency of an isomer for the modified strong
+	 * collision method, given the energy E0 above which it reacts.
+	 */
+	private static double getCollisionEfficiency(double T, double[] E, double E0, double dEdown,
+			double[] densStates) {
+
+		double dE = E[1] - E[0];
+		double FeNum = 0, FeDen = 0;
+		for (int r = 0; r < E.length; r++) {
+			double val = densStates[r] * Math.exp(-E[r] / (R * T));
+			if (E[r] > E0) {
+				FeNum += val * dE;
+				if (FeDen == 0) FeDen = val * R * T;
+			}
+		}
+
+		double beta;
+		if (FeDen == 0)
+			beta = 1.0;
+		else {
+			double Fe = Math.min(FeNum / FeDen, 1000000);
+			double Delta1 = 0, Delta2 = 0, DeltaN = 0;
+			for (int r = 0; r < E.length; r++) {
+				double val = densStates[r] * Math.exp(-E[r] / (R * T));
+				if (E[r] < E0) {
+					Delta1 += val * dE;
+					Delta2 += val * dE * Math.exp(-(E0 - E[r]) / (Fe * R * T));
+				}
+				DeltaN += val * dE;
+			}
+			Delta1 /= DeltaN;
+			Delta2 /= DeltaN;
+			double Delta = Delta1 - (Fe * R * T) / (dEdown + Fe * R * T) * Delta2;
+			beta = Math.pow(dEdown / (dEdown + Fe * R * T), 2) / Delta;
+		}
+
+		if (beta < 0) beta = 0;
+		if (beta > 1) beta = 1;
+		return beta;
+	}
+
+	/**
+	 * Returns the matrix of collisional transfer probabilities of an isomer
+	 * for the single exponential down model, normalized so that each column
+	 * sums to zero. Element [s][r] is for transfer from grain r to grain s.
+	 * The matrix is for a collision frequency of 1 Hz.
+	 */
+	private static double[][] getCollisionMatrix(double T, double[] E, double[] densStates,
+			double E0, double dEdown) throws PDepException {
+
+		int nGrains = E.length;
+		double[][] Mcoll = new double[nGrains][nGrains];
+
+		int start = -1;
+		for (int r = 0; r < nGrains && start < 0; r++)
+			if (densStates[r] > 0) start = r;
+		if (start < 0)
+			throw new PDepException("Unable to determine starting energy grain.");
+
+		for (int r = start; r < nGrains; r++) {
+			for (int s = start; s < nGrains; s++) {
+				if (E[r] < E0 || E[s] < E0 || densStates[r] == 0)
+					Mcoll[s][r] = 0.0;
+				else if (E[r] >= E[s])
+					Mcoll[s][r] = Math.exp(-(E[r] - E[s]) / dEdown);
+				else
+					Mcoll[s][r] = Math.exp(-(E[s] - E[r]) / dEdown) * densStates[s] / densStates[r] *
+						Math.exp(-(E[s] - E[r]) / (R * T));
+			}
+		}
+
+		for (int r = start; r < nGrains; r++) {
+			double up = 0, down = 0;
+			for (int s = start; s < r; s++) up += Mcoll[s][r];
+			for (int s = r; s < nGrains; s++) down += Mcoll[s][r];
+			double C = (1 - up) / down;
+			if (!(C > 0))
+				throw new PDepException("Error normalizing collisional transfer probabilities matrix.");
+			for (int s = r + 1; s < nGrains; s++) Mcoll[r][s] *= C;
+			for (int s = r; s < nGrains; s++) Mcoll[s][r] *= C;
+			Mcoll[r][r] -= 1;
+		}
+
+		return Mcoll;
+	}
+
+	/**
+	 * Applies the modified strong collision method to determine the
+	 * phenomenological rate coefficients at one temperature and pressure.
+	 * The steady-state populations of the isomers are found grain by grain.
+	 * @return The rate coefficients in SI units, indexed as [product][reactant]
+	 */
+	private static double[][] applyModifiedStrongCollision(double T, double[] E, double[] collFreq,
+			double[][] densStates, double[] Eres, double[][][] Kij, double[][][] Fim, double[][][] Gnj,
+			int nIsom, int nReac, int nProd) throws PDepException {
+
+		int nGrains = E.length;
+		int nIsomers = nIsom + nReac + nProd;
+		double[][] K = new double[nIsomers][nIsomers];
+
+		double EresMin = Eres[0];
+		for (int i = 1; i < Eres.length; i++)
+			EresMin = Math.min(EresMin, Eres[i]);
+		int start = -1;
+		for (int r = 0; r < nGrains && start < 0; r++)
+			if (E[r] > EresMin) start = r;
+		if (start < 0)
+			throw new PDepException("Unable to determine starting grain; check active-state energies.");
+
+		double[][][] pa = new double[nGrains][nIsom][nIsom + nReac];
+		for (int r = start; r < nGrains; r++) {
+
+			double[][] A = new double[nIsom][nIsom];
+			double[][] b = new double[nIsom][nIsom + nReac];
+			for (int i = 0; i < nIsom; i++)
+				A[i][i] -= collFreq[i];
+			for (int i = 0; i < nIsom; i++) {
+				for (int j = 0; j < i; j++) {
+					A[i][j] = Kij[i][j][r];
+					A[j][j] -= Kij[i][j][r];
+					A[j][i] = Kij[j][i][r];
+					A[i][i] -= Kij[j][i][r];
+				}
+			}
+			for (int n = 0; n < nReac + nProd; n++)
+				for (int j = 0; j < nIsom; j++)
+					A[j][j] -= Gnj[n][j][r];
+			for (int n = 0; n < nIsom + nReac; n++) {
+				if (n < nIsom)
+					b[n][n] = collFreq[n] * densStates[n][r] * Math.exp(-E[r] / (R * T));
+				else
+					for (int j = 0; j < nIsom; j++)
+						b[j][n] = Fim[j][n - nIsom][r];
+			}
+
+			Matrix x;
+			try {
+				x = new Matrix(A).solve(new Matrix(b));
+			}
+			catch (RuntimeException e) {
+				throw new PDepException("A singular matrix was encountered.");
+			}
+			for (int i = 0; i < nIsom; i++) {
+				for (int n = 0; n < nIsom + nReac; n++) {
+					pa[r][i][n] = -x.get(i, n);
+					if (pa[r][i][n] < 0.0)
+						throw new PDepException("A negative steady-state concentration was encountered.");
+				}
+			}
+		}
+
+		for (int src = 0; src < nIsom + nReac; src++) {
+			for (int i = 0; i < nIsom; i++) {
+				if (i != src) {
+					double val = 0;
+					for (int r = 0; r < nGrains; r++) val += pa[r][i][src];
+					val *= collFreq[i];
+					K[i][src] += val;
+					K[src][src] -= val;
+				}
+			}
+			for (int n = 0; n < nReac + nProd; n++) {
+				for (int j = 0; j < nIsom; j++) {
+					if (n + nIsom != src) {
+						double val = 0;
+						for (int r = 0; r < nGrains; r++) val += Gnj[n][j][r] * pa[r][j][src];
+						K[n + nIsom][src] += val;
+						K[src][src] -= val;
+					}
+				}
+			}
+		}
+
+		return K;
+	}
+
+	/**
+	 * Applies the reservoir state method to determine the phenomenological
+	 * rate coefficients at one temperature and pressure. The grains of each
+	 * isomer below its lowest transition state form a reservoir in internal
+	 * equilibrium; the steady-state populations of the grains above are
+	 * found from one banded linear system. A single isomer is solved with
+	 * the full collision matrix, as FAME does.
+	 * @return The rate coefficients in SI units, indexed as [product][reactant]
+	 */
+	private static double[][] applyReservoirState(double T, double[] E, double[][][] Mcoll,
+			double[] collFreq, double[][] densStates, double[] Eres,
+			double[][][] Kij, double[][][] Fim, double[][][] Gnj, double dEdown,
+			int nIsom, int nReac, int nProd) throws PDepException {
+
+		int nGrains = E.length;
+		int nIsomers = nIsom + nReac + nProd;
+		double dE = E[1] - E[0];
+
+		// The reservoir of each isomer is its first nRes grains
+		int[] nRes = new int[nIsom];
+		for (int i = 0; i < nIsom; i++) {
+			int start = -1;
+			for (int r = 0; r < nGrains && start < 0; r++)
+				if (densStates[i][r] > 0) start = r;
+			nRes[i] = -1;
+			for (int r = Math.max(start, 0); r < nGrains && start >= 0 && nRes[i] < 0; r++)
+				if (E[r] > Eres[i]) nRes[i] = r + 1;
+			if (nRes[i] < 0)
+				throw new PDepException("Unable to determine the reservoir of an isomer.");
+		}
+
+		double[][] eqDist = new double[nIsom][nGrains];
+		double[] bres = new double[nIsom];
+		for (int i = 0; i < nIsom; i++) {
+			for (int r = 0; r < nGrains; r++)
+				eqDist[i][r] = densStates[i][r] * Math.exp(-E[r] / (R * T));
+			for (int r = 0; r < nRes[i]; r++)
+				bres[i] += eqDist[i][r];
+		}
+
+		// Number the active grains, interleaving the isomers so that the
+		// collision terms stay close to the diagonal
+		int[][] indices = new int[nGrains][nIsom];
+		int nRows = 0;
+		for (int r = 0; r < nGrains; r++)
+			for (int i = 0; i < nIsom; i++)
+				indices[r][i] = (r >= nRes[i]) ? nRows++ : -1;
+
+		int halfBandGrains = (nIsom == 1) ? nGrains :
+			(int) Math.ceil(8 * Math.max(dEdown, R * T) / dE);
+		BandMatrix L = new BandMatrix(nRows, (halfBandGrains + 1) * nIsom);
+		double[][] Z = new double[nRows][nIsom + nReac];
+
+		for (int i = 0; i < nIsom; i++) {
+			for (int s = nRes[i]; s < nGrains; s++) {
+				int rmin = Math.max(nRes[i], s - halfBandGrains);
+				int rmax = Math.min(nGrains - 1, s + halfBandGrains);
+				for (int r = rmin; r <= rmax; r++)
+					L.set(indices[r][i], indices[s][i], collFreq[i] * Mcoll[i][r][s]);
+				double val = 0;
+				for (int t = 0; t < nRes[i]; t++)
+					val += Mcoll[i][s][t] * eqDist[i][t];
+				Z[indices[s][i]][i] = collFreq[i] * val;
+			}
+		}
+		for (int i = 0; i < nIsom; i++) {
+			for (int j = 0; j < i; j++) {
+				for (int r = Math.max(nRes[i], nRes[j]); r < nGrains; r++) {
+					int u = indices[r][i], v = indices[r][j];
+					L.set(u, v, Kij[i][j][r]);
+					L.add(v, v, -Kij[i][j][r]);
+					L.set(v, u, Kij[j][i][r]);
+					L.add(u, u, -Kij[j][i][r]);
+				}
+			}
+		}
+		for (int i = 0; i < nIsom; i++) {
+			for (int r = nRes[i]; r < nGrains; r++) {
+				for (int n = 0; n < nReac + nProd; n++)
+					L.add(indices[r][i], indices[r][i], -Gnj[n][i][r]);
+				for (int n = 0; n < nReac; n++)
+					Z[indices[r][i]][n + nIsom] = Fim[i][n][r];
+			}
+		}
+		for (int row = 0; row < nRows; row++)
+			for (int n = 0; n < nIsom + nReac; n++)
+				Z[row][n] = -Z[row][n];
+
+		L.solve(Z);
+
+		// Steady-state populations of the active grains, indexed as
+		// [grain][source][isomer]
+		double[][][] pa = new double[nGrains][nIsom + nReac][nIsom];
+		for (int r = 0; r < nGrains; r++) {
+			for (int n = 0; n < nIsom + nReac; n++) {
+				for (int i = 0; i < nIsom; i++) {
+					if (indices[r][i] >= 0) pa[r][n][i] = Z[indices[r][i]][n];
+					if (pa[r][n][i] < 0.0)
+						throw new PDepException("One or more negative steady-state populations encountered.");
+				}
+			}
+		}
+
+		for (int i = 0; i < nIsom; i++) {
+			for (int r = 0; r < nGrains; r++) {
+				for (int w = 0; w < nIsom; w++)
+					pa[r][i][w] /= bres[i];
+				eqDist[i][r] /= bres[i];
+			}
+		}
+
+		double[][] K = new double[nIsomers][nIsomers];
+		for (int i = 0; i < nIsom; i++) {
+			for (int r = 0; r < nRes[i]; r++) {
+				for (int s = 0; s < nRes[i]; s++)
+					K[i][i] += collFreq[i] * Mcoll[i][r][s] * eqDist[i][s];
+				for (int n = 0; n < nIsom + nReac; n++)
+					for (int s = nRes[i]; s < nGrains; s++)
+						K[i][n] += collFreq[i] * Mcoll[i][r][s] * pa[s][n][i];
+			}
+		}
+		for (int n = 0; n < nReac + nProd; n++) {
+			if (n < nReac) {
+				for (int i = 0; i < nIsom; i++)
+					for (int r = 0; r < nGrains; r++)
+						K[nIsom + n][nIsom + n] -= Fim[i][n][r];
+			}
+			for (int j = 0; j < nIsom + nReac; j++)
+				for (int i = 0; i < nIsom; i++)
+					for (int s = nRes[i]; s < nGrains; s++)
+						K[nIsom + n][j] += Gnj[n][i][s] * pa[s][j][i];
+		}
+		for (int i = 0; i < nIsom; i++)
+			for (int j = 0; j < nIsomers; j++)
+				K[j][i] *= bres[i];
+
+		return K;
+	}
+
+	/**
+	 * Solves the same network with fame.exe and logs how far the k(T, P)
+	 * computed here deviate from the table FAME prints for each net reaction,
+	 * against FAME_TOLERANCE. Used to check this estimator on real networks
+	 * (e.g. those of the 1,3-hexadiene example); a failure to run FAME is only
+	 * logged.
+	 * @param K The k(T, P) computed here, in cm^3, mol, and s
+	 */
+	private void compareWithFAME(PDepNetwork pdn, ReactionSystem rxnSystem,
+			LinkedList<Species> speciesList, LinkedList<PDepIsomer> isomerList,
+			LinkedList<PDepReaction> pathReactionList, int nIsom, int nReac, int nProd,
+			double[][][][] K) {
+
+		int id = pdn.getID();
+		try {
+			String input = writeInputString(pdn, rxnSystem, speciesList, isomerList, pathReactionList, nIsom, nReac, nProd);
+			BufferedReader br = new BufferedReader(new StringReader(callFAME(input)));
+			int count = 0;
+			double worst = 0.0;
+			String worstReaction = "";
+			String line = br.readLine();
+			while (line != null) {
+				if (line.startsWith("# The reactant and product isomers")) {
+					// FAME numbers the isomers from 1 and lists the k(T, P) of
+					// each net reaction as one row per temperature
+					StringTokenizer st = new StringTokenizer(br.readLine());
+					int reac = Integer.parseInt(st.nextToken()) - 1;
+					int prod = Integer.parseInt(st.nextToken()) - 1;
+					br.readLine();
+					br.readLine();
+					for (int t = 0; t < K.length; t++) {
+						st = new StringTokenizer(br.readLine());
+						st.nextToken();
+						for (int p = 0; p < K[t].length; p++) {
+							double deviation = Math.abs(K[t][p][prod][reac] / Double.parseDouble(st.nextToken()) - 1.0);
+							count++;
+							if (!(deviation <= worst)) {
+								worst = deviation;
+								worstReaction = isomerList.get(reac).toString() + " -> " + isomerList.get(prod).toString();
+							}
+						}
+					}
+				}
+				line = br.readLine();
+			}
+			if (count == 0)
+				Logger.warning("PDepNetwork #" + Integer.toString(id) + ": FAME gave no k(T, P) to compare with.");
+			else if (worst <= FAME_TOLERANCE)
+				Logger.info("PDepNetwork #" + Integer.toString(id) + ": all " + count + " k(T, P) agree with FAME to within " +
+						String.format("%.1f%% (largest deviation %.3f%%).", 100 * FAME_TOLERANCE, 100 * worst));
+			else
+				Logger.warning("PDepNetwork #" + Integer.toString(id) + ": k(T, P) differ from FAME by up to " +
+						String.format("%.3f%% (tolerance %.1f%%), for ", 100 * worst, 100 * FAME_TOLERANCE) + worstReaction + ".");
+		}
+		catch (Exception e) {
+			Logger.warning("PDepNetwork #" + Integer.toString(id) + " could not be compared with FAME: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Fits a Chebyshev polynomial model of log10 k in reduced inverse
+	 * temperature and reduced log pressure to a table of k(T, P).
+	 */
+	private static double[][] fitChebyshevModel(double[][] rates, Temperature[] temperatures,
+			Pressure[] pressures, double Tmin, double Tmax, double Pmin, double Pmax,
+			int nChebT, int nChebP) throws PDepException {
+
+		int nT = temperatures.length;
+		int nP = pressures.length;
+		double[][] A = new double[nT * nP][nChebT * nChebP];
+		double[][] b = new double[nT * nP][1];
+		for (int t = 0; t < nT; t++) {
+			double Tred = (2.0 / temperatures[t].getK() - 1.0 / Tmin - 1.0 / Tmax) / (1.0 / Tmax - 1.0 / Tmin);
+			for (int p = 0; p < nP; p++) {
+				double Pred = (2.0 * Math.log(pressures[p].getPa()) - Math.log(Pmin) - Math.log(Pmax)) /
+					(Math.log(Pmax) - Math.log(Pmin));
+				for (int t2 = 0; t2 < nChebT; t2++)
+					for (int p2 = 0; p2 < nChebP; p2++)
+						A[p * nT + t][p2 * nChebT + t2] = Math.cos(t2 * Math.acos(Tred)) * Math.cos(p2 * Math.acos(Pred));
+				b[p * nT + t][0] = Math.log10(rates[t][p]);
+			}
+		}
+
+		Matrix x;
+		try {
+			x = new Matrix(A).solve(new Matrix(b));
+		}
+		catch (RuntimeException e) {
+			throw new PDepException("Chebyshev fit matrix is singular!");
+		}
+
+		double[][] alpha = new double[nChebT][nChebP];
+		for (int t = 0; t < nChebT; t++)
+			for (int p = 0; p < nChebP; p++)
+				alpha[t][p] = x.get(p * nChebT + t, 0);
+		return alpha;
+	}
+
+	/**
+	 * Fits modified Arrhenius kinetics to the k(T) at each pressure in a
+	 * table of k(T, P).
+	 */
+	private static PDepArrheniusKinetics fitPDepArrheniusModel(double[][] rates, Temperature[] temperatures,
+			Pressure[] pressures, double Tmin, double Tmax, double Pmin, double Pmax) throws PDepException {
+
+		int nT = temperatures.length;
+		int nP = pressures.length;
+		PDepArrheniusKinetics pDepArrhenius = new PDepArrheniusKinetics(nP);
+		String Trange = Double.toString(Tmin) + "-" + Double.toString(Tmax) + " K";
+		String Prange = Double.toString(Pmin / 1.0e5) + "-" + Double.toString(Pmax / 1.0e5) + " bar";
+
+		for (int p = 0; p < nP; p++) {
+			double[][] A = new double[nT][3];
+			double[][] b = new double[nT][1];
+			for (int t = 0; t < nT; t++) {
+				double T = temperatures[t].getK();
+				A[t][0] = 1.0;
+				A[t][1] = Math.log(T);
+				A[t][2] = -1.0 / (R * T);
+				b[t][0] = Math.log(rates[t][p]);
+			}
+
+			Matrix x;
+			try {
+				x = new Matrix(A).solve(new Matrix(b));
+			}
+			catch (RuntimeException e) {
+				throw new PDepException("Log P interpolate fit matrix is singular!");
+			}
+
+			UncertainDouble kinA = new UncertainDouble(Math.exp(x.get(0, 0)), 0.0, "A");
+			UncertainDouble kinN = new UncertainDouble(x.get(1, 0), 0.0, "A");
+			UncertainDouble kinEa = new UncertainDouble(x.get(2, 0) / 4184.0, 0.0, "A");
+			ArrheniusKinetics kinetics = new ArrheniusKinetics(kinA, kinN, kinEa, Trange, 0,
+					"Result of master equation calculation", "Prange = " + Prange);
+			pDepArrhenius.setKinetics(p, pressures[p], kinetics);
+		}
+
+		return pDepArrhenius;
+	}
+
+	/**
+	 * A square matrix that is zero outside a band about the diagonal, with
+	 * room for the fill-in from partial pivoting. Element (i, j) is stored at
+	 * band[i][j - i + halfWidth].
+	 */
+	private static class BandMatrix {
+
+		private int size;
+		private int halfWidth;
+		private double[][] band;
+
+		BandMatrix(int size, int halfWidth) {
+			this.size = size;
+			this.halfWidth = Math.max(0, Math.min(halfWidth, size - 1));
+			band = new double[size][3 * this.halfWidth + 1];
+		}
+
+		double get(int i, int j) {
+			return band[i][j - i + halfWidth];
+		}
+
+		void set(int i, int j, double value) {
+			band[i][j - i + halfWidth] = value;
+		}
+
+		void add(int i, int j, double value) {
+			band[i][j - i + halfWidth] += value;
+		}
+
+		/**
+		 * Solves this * x = b by Gaussian elimination with partial pivoting,
+		 * overwriting b with x and this matrix with its factors.
+		 */
+		void solve(double[][] b) throws PDepException {
+			int numRHS = (size == 0) ? 0 : b[0].length;
+
+			for (int k = 0; k < size; k++) {
+				int lastRow = Math.min(size - 1, k + halfWidth);
+				int lastCol = Math.min(size - 1, k + 2 * halfWidth);
+
+				int pivot = k;
+				for (int i = k + 1; i <= lastRow; i++)
+					if (Math.abs(get(i, k)) > Math.abs(get(pivot, k))) pivot = i;
+				if (get(pivot, k) == 0)
+					throw new PDepException("Active-state matrix is singular.");
+				if (pivot != k) {
+					for (int c = k; c <= lastCol; c++) {
+						double temp = get(k, c);
+						set(k, c, get(pivot, c));
+						set(pivot, c, temp);
+					}
+					double[] temp = b[k];
+					b[k] = b[pivot];
+					b[pivot] = temp;
+				}
+
+				for (int i = k + 1; i <= lastRow; i++) {
+					double factor = get(i, k) / get(k, k);
+					if (factor == 0) continue;
+					for (int c = k; c <= lastCol; c++)
+						add(i, c, -factor * get(k, c));
+					for (int n = 0; n < numRHS; n++)
+						b[i][n] -= factor * b[k][n];
+				}
+			}
+
+			for (int k = size - 1; k >= 0; k--) {
+				int lastCol = Math.min(size - 1, k + 2 * halfWidth);
+				for (int n = 0; n < numRHS; n++) {
+					double sum = b[k][n];
+					for (int j = k + 1; j <= lastCol; j++)
+						sum -= get(k, j) * b[j][n];
+					b[k][n] = sum / get(k, k);
+				}
+			}
+		}
+
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxn\JavaMasterEqn.java
+*********************************************************************/
@@ -362,6 +362,9 @@ public class PDepIsomer {
 		if (!isUnimolecular())
 			return new LinkedHashSet();
 		
+		// the isomer is usually an edge species, and reacts through its resonance isomers
+		getSpecies(0).expand();
+		
 		if(rxnSystem.getLibraryReactionGenerator()!= null){
 			// First iterate through the Reaction Library and find all reactions which include the species being considered
 		LinkedHashSet reactionSet = ((LibraryReactionGenerator) rxnSystem.getLibraryReactionGenerator()).generatePdepReactions(getSpecies(0));
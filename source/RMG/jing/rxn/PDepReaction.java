@@ -79,6 +79,12 @@ public class PDepReaction extends Reaction {
 	 * The pressure-dependent rate coefficient.
 	 */
 	private PDepRateConstant pDepRate;
+
+	/**
+	 * The rate coefficients already computed by calculateRate(), by
+	 * temperature and pressure.
+	 */
+	private volatile RateMemo pDepRateMemo = null;
 	
 	/**
 	 * The reverse PDepReaction. Is used instead of Reaction.reverse when
@@ -224,6 +230,7 @@ public class PDepReaction extends Reaction {
 		//setKinetics(kin,0);
 		kinetics = new Kinetics[1];
 		kinetics[0] = kin;
+		kineticsChanged();
 	}
 	
 	/** 
@@ -240,6 +247,7 @@ public class PDepReaction extends Reaction {
 	 */
 	public void setPDepRateConstant(PDepRateConstant r) {
 		pDepRate = r;
+		kineticsChanged();
 	}
 	
 	/**
@@ -266,6 +274,7 @@ public class PDepReaction extends Reaction {
 		else {
 			throw new RuntimeException(String.format("Tried to set reverse of PDepReaction %s with a non-PDepReaction %s",this,rxn));
 		}
+		kineticsChanged();
 
 	}
 	
@@ -354,6 +363,19 @@ public class PDepReaction extends Reaction {
 	 * @return The calculated rate coefficient for the forward reaction
 	 */
 	public double calculateRate(Temperature temperature, Pressure pressure) {
+		double T = temperature.getK();
+		double P = pressure.getPa();
+		int version = getKineticsVersion();
+		RateMemo memo = pDepRateMemo;
+		double k = RateMemo.get(memo, version, T, P);
+		if (!Double.isNaN(k))
+			return k;
+		k = computeRate(temperature, pressure);
+		pDepRateMemo = RateMemo.put(memo, version, T, P, k);
+		return k;
+	}
+
+	private double computeRate(Temperature temperature, Pressure pressure) {
 		double k = 0.0;
 		try {
 			if (pDepRate != null)
@@ -628,6 +650,7 @@ public class PDepReaction extends Reaction {
 			// (currently I'm not sure that finalized is ever set)
 			return;
 		pDepRate.addPDepArrheniusKinetics(p_kinetics);
+		kineticsChanged();
 	}
 }
 
@@ -0,0 +1,99 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxn;
+
+/**
+ * An immutable record of the rate constants of one reaction at a few
+ * temperatures and pressures, so that repeated evaluations (e.g. at every
+ * step of an isothermal simulation) need not recompute them. Since the
+ * record is immutable, a reaction can share it between threads by keeping it
+ * in a volatile field and replacing it when a new rate constant is added.
+ * <p>
+ * Every record is stamped with the kinetics version of its reaction (see
+ * Reaction.getKineticsVersion()) at the time its rate constants were
+ * computed, and is ignored once that version has changed.
+ */
+final class RateMemo {
+
+	/** The number of (T, P) conditions remembered per reaction. */
+	private static final int SIZE = 4;
+
+	private final int version;
+	private final double[] temperatures;
+	private final double[] pressures;
+	private final double[] rates;
+
+	private RateMemo(int p_version, double[] p_temperatures, double[] p_pressures, double[] p_rates) {
+		version = p_version;
+		temperatures = p_temperatures;
+		pressures = p_pressures;
+		rates = p_rates;
+	}
+
+	/**
+	 * Returns the rate constant stored in p_memo for kinetics version
+	 * p_version, temperature p_T (K), and pressure p_P (Pa), or NaN if there
+	 * is none. p_memo may be null.
+	 */
+	static double get(RateMemo p_memo, int p_version, double p_T, double p_P) {
+		if (p_memo == null || p_memo.version != p_version)
+			return Double.NaN;
+		for (int i = 0; i < p_memo.rates.length; i++) {
+			if (p_memo.temperatures[i] == p_T && p_memo.pressures[i] == p_P)
+				return p_memo.rates[i];
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Returns a record holding the rate constant p_k at temperature p_T (K)
+	 * and pressure p_P (Pa), computed at kinetics version p_version, in
+	 * addition to the most recent ones in p_memo. p_memo may be null; it is
+	 * not modified.
+	 */
+	static RateMemo put(RateMemo p_memo, int p_version, double p_T, double p_P, double p_k) {
+		int kept = (p_memo == null || p_memo.version != p_version) ? 0 : Math.min(p_memo.rates.length, SIZE - 1);
+		double[] T = new double[kept + 1];
+		double[] P = new double[kept + 1];
+		double[] k = new double[kept + 1];
+		T[0] = p_T;
+		P[0] = p_P;
+		k[0] = p_k;
+		if (kept > 0) {
+			System.arraycopy(p_memo.temperatures, 0, T, 1, kept);
+			System.arraycopy(p_memo.pressures, 0, P, 1, kept);
+			System.arraycopy(p_memo.rates, 0, k, 1, kept);
+		}
+		return new RateMemo(p_version, T, P, k);
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxn\RateMemo.java
+*********************************************************************/
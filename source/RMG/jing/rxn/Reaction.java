@@ -33,6 +33,7 @@ package jing.rxn;
 import java.io.*;
 import jing.chem.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jing.param.*;
 import jing.mathTool.*;
@@ -40,6 +41,7 @@ import jing.chemParser.*;
 import jing.chem.Species;
 import jing.param.Temperature;
 import jing.rxnSys.Logger;
+import jing.rxnSys.NativeWorkerPool;
 import jing.rxnSys.NegativeConcentrationException;
 import jing.rxnSys.ReactionModelGenerator;
 import jing.rxnSys.SystemSnapshot;
@@ -79,6 +81,12 @@ public class Reaction {
    
   protected boolean kineticsFromPrimaryKineticLibrary = false;
 
+  // Rate constants already computed by calculateTotalRate(), by temperature
+  private volatile RateMemo rateMemo = null;
+
+  // Changed whenever the kinetics of this reaction or of its reverse change
+  private final AtomicInteger kineticsVersion = new AtomicInteger();
+
   protected boolean expectDuplicate = false;
   // Constructors
 
@@ -156,7 +164,24 @@ public class Reaction {
     }
 
 
+    /**
+     * Returns the total rate constant of this reaction at the given
+     * temperature, reusing the value computed at that temperature before
+     * unless the kinetics of this reaction have changed since.
+     */
     public double calculateTotalRate(Temperature p_temperature){
+  	double T = p_temperature.getK();
+  	int version = kineticsVersion.get();
+  	RateMemo memo = rateMemo;
+  	double rate = RateMemo.get(memo, version, T, 0);
+  	if (!Double.isNaN(rate))
+  		return rate;
+  	rate = computeTotalRate(p_temperature);
+  	rateMemo = RateMemo.put(memo, version, T, 0, rate);
+  	return rate;
+    }
+
+    private double computeTotalRate(Temperature p_temperature){
   	double rate =0;
 	Temperature stdtemp = new Temperature(298,"K");
 	double Hrxn = calculateHrxn(stdtemp);
@@ -661,9 +686,8 @@ public class Reaction {
       	try {
       	    // system call for fit3p
       		String[] command = {dir+ "/bin/fit3pbnd.exe"};
-      		File runningDir = new File("fit3p");
-      	    Process fit = Runtime.getRuntime().exec(command, null, runningDir);
-      	    int exitValue = fit.waitFor();
+      		// fit3pbnd.exe reads input.dat and exits, so each call runs a new process
+      	    NativeWorkerPool.getPool(command, "fit3p", null, 1).call(null);
       	}
       	catch (Exception e) {
       	    System.out.println("Error in run fit3p!");
@@ -767,9 +791,8 @@ public class Reaction {
       	try {
       	    // system call for fit3p
       		String[] command = {dir+ "/bin/fit3pbnd.exe"};
-      		File runningDir = new File("fit3p");
-      	    Process fit = Runtime.getRuntime().exec(command, null, runningDir);
-      	    int exitValue = fit.waitFor();
+      		// fit3pbnd.exe reads input.dat and exits, so each call runs a new process
+      	    NativeWorkerPool.getPool(command, "fit3p", null, 1).call(null);
       	}
       	catch (Exception e) {
       	    System.out.println("Error in run fit3p!");
@@ -1322,6 +1345,7 @@ public class Reaction {
       //#[ operation setReverseReaction(Reaction)
       reverseReaction = p_reverseReaction;
       if (p_reverseReaction != null) reverseReaction.reverseReaction = this;
+      kineticsChanged();
       //#]
   }
 
@@ -1463,7 +1487,27 @@ public class Reaction {
       return reverseReaction;
   }
 
+  /**
+   * Returns a number that changes whenever the rate constant of this
+   * reaction may have changed, i.e. whenever its kinetics, its redundancy,
+   * or its reverse reaction change (the rate of a backward reaction is found
+   * from that of its reverse).
+   */
+  public int getKineticsVersion() {
+      return kineticsVersion.get();
+  }
+
+  /**
+   * Invalidates the rate constants stored for this reaction and its reverse.
+   */
+  protected void kineticsChanged() {
+      kineticsVersion.incrementAndGet();
+      Reaction reverse = getReverseReaction();
+      if (reverse != null) reverse.kineticsVersion.incrementAndGet();
+  }
+
   public void setKinetics(Kinetics p_kinetics, int k_index) {
+	  kineticsChanged();
 	  if (p_kinetics == null) {
 		  kinetics = null;
 	  }
@@ -1477,6 +1521,7 @@ public class Reaction {
 			return;
 		if (p_kinetics == null)
 			return;
+		kineticsChanged();
 		if (kinetics == null){
 			kinetics = new Kinetics[1];
 			kinetics[0] = p_kinetics;
@@ -1627,6 +1672,7 @@ public class Reaction {
 	
 	public void setIsFromPrimaryKineticLibrary(boolean p_boolean) {
 		kineticsFromPrimaryKineticLibrary = p_boolean;
+		kineticsChanged();
 		if (reverseReaction != null) {
 			reverseReaction.kineticsFromPrimaryKineticLibrary = p_boolean;
 		}
@@ -295,6 +295,7 @@ public class ReactionAdjList {
         		node.updateFeElement();
         		node.updateFgElement();
         	}
+        	p_graph.resetCanonicalForm();
         	return;
         }
         catch (UnknownSymbolException e) {
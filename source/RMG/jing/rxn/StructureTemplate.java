@@ -60,6 +60,15 @@ public class StructureTemplate {
     
     protected ArrayList reactantTree;
     
+    /**
+    Matched sites of core species graphs, keyed by chem graph (by identity) and then by structure template;
+    each value holds the sites at position 1 and 2.  A core species' sites never change, so an entry is
+    only dropped when its species is pruned.
+    */
+    private static IdentityHashMap reactedSiteCache = new IdentityHashMap();
+    private static long reactedSiteCacheHits = 0;
+    private static long reactedSiteCacheMisses = 0;
+    
     // Constructors
     
     //## operation StructureTemplate(Matchable,Matchable) 
@@ -217,13 +226,89 @@ public class StructureTemplate {
         
         LinkedHashSet hS =  p_reactant.identifyReactionMatchedSite(allowed);
 		double t = (System.currentTimeMillis()-pT)/1000/60;
-        Global.RT_identifyReactedSites += t;
+        // may be called from several reaction generation threads at once
+        synchronized (Global.class) {
+        	Global.RT_identifyReactedSites += t;
+        }
 		return hS;
         
         
         //#]
     }
     
+    /**
+    Requires:
+    Effects: same as identifyReactedSites(ChemGraph,int), but the sites of a species' own chem graph or
+    resonance isomers are kept in the reacted site cache and reused on the next call.  Graphs that do not
+    belong to their species, such as the copies made to react a species with itself, are never cached.
+    Modifies: reactedSiteCache
+    */
+    public LinkedHashSet identifyCachedReactedSites(ChemGraph p_reactant, int p_position) {
+    	if (!isSpeciesChemGraph(p_reactant)) return identifyReactedSites(p_reactant, p_position);
+    	
+    	LinkedHashSet[] sites = null;
+    	synchronized (reactedSiteCache) {
+    		HashMap templateMap = (HashMap)reactedSiteCache.get(p_reactant);
+    		if (templateMap != null) sites = (LinkedHashSet[])templateMap.get(this);
+    		if (sites != null && sites[p_position-1] != null) {
+    			reactedSiteCacheHits++;
+    			return sites[p_position-1];
+    		}
+    		reactedSiteCacheMisses++;
+    	}
+    	
+    	LinkedHashSet hS = identifyReactedSites(p_reactant, p_position);
+    	if (hS == null) return hS;
+    	synchronized (reactedSiteCache) {
+    		HashMap templateMap = (HashMap)reactedSiteCache.get(p_reactant);
+    		if (templateMap == null) {
+    			templateMap = new HashMap();
+    			reactedSiteCache.put(p_reactant, templateMap);
+    		}
+    		sites = (LinkedHashSet[])templateMap.get(this);
+    		if (sites == null) {
+    			sites = new LinkedHashSet[2];
+    			templateMap.put(this, sites);
+    		}
+    		sites[p_position-1] = hS;
+    	}
+    	return hS;
+    }
+    
+    private static boolean isSpeciesChemGraph(ChemGraph p_cg) {
+    	Species species = p_cg.getSpecies();
+    	if (species == null) return false;
+    	if (species.getChemGraph() == p_cg) return true;
+    	if (!species.hasResonanceIsomers()) return false;
+    	for (Iterator iter = species.getResonanceIsomers(); iter.hasNext(); ) {
+    		if (iter.next() == p_cg) return true;
+    	}
+    	return false;
+    }
+    
+    /**
+    Drop the cached sites of the chem graph and resonance isomers of p_species; called when it is pruned.
+    */
+    public static void removeFromReactedSiteCache(Species p_species) {
+    	synchronized (reactedSiteCache) {
+    		reactedSiteCache.remove(p_species.getChemGraph());
+    		if (p_species.hasResonanceIsomers()) {
+    			for (Iterator iter = p_species.getResonanceIsomers(); iter.hasNext(); ) {
+    				reactedSiteCache.remove(iter.next());
+    			}
+    		}
+    	}
+    }
+    
+    public static String getReactedSiteCacheStatistics() {
+    	synchronized (reactedSiteCache) {
+    		long lookups = reactedSiteCacheHits + reactedSiteCacheMisses;
+    		double hitRate = lookups == 0 ? 0 : 100.0 * reactedSiteCacheHits / lookups;
+    		return "Reactive site cache: " + reactedSiteCacheHits + " hits in " + lookups + " lookups (" +
+    			(Math.round(hitRate*10)/10.0) + "%), " + reactedSiteCache.size() + " chem graphs cached";
+    	}
+    }
+    
     //## operation isReverse(StructureTemplate,ReactionAdjList) 
     public boolean isReverse(StructureTemplate p_structureTemplate, ReactionAdjList p_reactionAdjList) {
         //#[ operation isReverse(StructureTemplate,ReactionAdjList) 
@@ -32,7 +32,9 @@ package jing.rxn;
 
 import jing.chem.*;
 import java.util.*;
+import java.util.concurrent.*;
 import jing.chem.Species;
+import jing.chemUtil.Graph;
 import jing.param.Global;
 import jing.param.Temperature;
 import jing.rxnSys.Logger;
@@ -48,6 +50,19 @@ public class TemplateReactionGenerator implements ReactionGenerator {
     
     protected ReactionTemplateLibrary reactionTemplateLibrary;
     
+    /**
+    Number of threads used to identify the reactive sites of bimolecular templates.
+    With the default of 1 every template and core species is matched serially.
+    */
+    protected static int reactionGenerationThreads = 1;
+    
+    private static ForkJoinPool sitePool = null;
+    
+    /**
+    The core species with a reactive site for each bimolecular template, kept for the last species set reacted.
+    */
+    private CoreSiteIndex coreSiteIndex = null;
+    
     // Constructors
     
     //## operation TemplateReactionGenerator()     
@@ -113,6 +128,11 @@ public class TemplateReactionGenerator implements ReactionGenerator {
         	return reaction_set;
         }
         
+        if (reactionGenerationThreads > 1) {
+        	return reactInParallel(p_speciesSet, newCoreSpecies, specificRxnFamily);
+        }
+        CoreSiteIndex coreSites = getCoreSiteIndex(p_speciesSet);
+        
 		double singleReaction = 0, doubleReaction = 0;
 		double longestTime = 0;
 		String longestTemplate = "";
@@ -142,6 +162,8 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 	        	else if (current_template.hasTwoReactants()) {
 	//        		LinkedHashSet current_reactions = new LinkedHashSet();
 	        		StructureTemplate structTemp = current_template.structureTemplate;
+	        		// core species without a site for this template cannot react under it
+	        		ArrayList coreSpeciesWithSites = coreSites.getSpeciesWithSites(current_template);
 	        		
 	        		LinkedHashSet site1_reactiveSites_sp1 = new LinkedHashSet();
 	        		LinkedHashSet site2_reactiveSites_sp1 = new LinkedHashSet();
@@ -150,17 +172,17 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 	        		
 	        		if (!newCoreSpecies.hasResonanceIsomers()) {
 	        			ChemGraph newCoreCG = newCoreSpecies.getChemGraph();
-	        			site1_reactiveSites_sp1 = structTemp.identifyReactedSites(newCoreCG,1);
-	        			site2_reactiveSites_sp1 = structTemp.identifyReactedSites(newCoreCG,2);
-	        			Iterator coreSpeciesIter = p_speciesSet.iterator();
+	        			site1_reactiveSites_sp1 = structTemp.identifyCachedReactedSites(newCoreCG,1);
+	        			site2_reactiveSites_sp1 = structTemp.identifyCachedReactedSites(newCoreCG,2);
+	        			Iterator coreSpeciesIter = coreSpeciesWithSites.iterator();
 	        			while (coreSpeciesIter.hasNext()) {
 	        				Species coreSpecies = (Species)coreSpeciesIter.next();
 	        				if (coreSpecies.isReactive()) {
 	        					if (!coreSpecies.hasResonanceIsomers()) {
 	        						ChemGraph tempCG = coreSpecies.getChemGraph();
 	        						ChemGraph oldCoreCG = generateCGcopyIfNecessary(tempCG,newCoreCG);
-	        						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,2);
-	        						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,1);
+	        						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,2);
+	        						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,1);
 	        	        			//	React A + B
 	        	        			LinkedHashSet current_reactions = current_template.reactTwoReactants(newCoreCG,site1_reactiveSites_sp1,oldCoreCG,site2_reactiveSites_sp2);
 	        	        			reaction_set.addAll(current_reactions);
@@ -172,8 +194,8 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 	        						while (coreSpeciesCGIter.hasNext()) {
 	            						ChemGraph tempCG = (ChemGraph)coreSpeciesCGIter.next();
 	            						ChemGraph oldCoreCG = generateCGcopyIfNecessary(tempCG,newCoreCG);
-	            						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,2);
-	            						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,1);
+	            						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,2);
+	            						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,1);
 	            	        			//	React A + B
 	            	        			LinkedHashSet current_reactions = current_template.reactTwoReactants(newCoreCG,site1_reactiveSites_sp1,oldCoreCG,site2_reactiveSites_sp2);
 	            	        			reaction_set.addAll(current_reactions);
@@ -188,17 +210,17 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 	        			Iterator newSpeciesCGIter = newCoreSpecies.getResonanceIsomers();
 	        			while (newSpeciesCGIter.hasNext()) {
 	        				ChemGraph newCoreCG = (ChemGraph)newSpeciesCGIter.next();
-		        			site1_reactiveSites_sp1 = structTemp.identifyReactedSites(newCoreCG,1);
-		        			site2_reactiveSites_sp1 = structTemp.identifyReactedSites(newCoreCG,2);
-		        			Iterator coreSpeciesIter = p_speciesSet.iterator();
+		        			site1_reactiveSites_sp1 = structTemp.identifyCachedReactedSites(newCoreCG,1);
+		        			site2_reactiveSites_sp1 = structTemp.identifyCachedReactedSites(newCoreCG,2);
+		        			Iterator coreSpeciesIter = coreSpeciesWithSites.iterator();
 		        			while (coreSpeciesIter.hasNext()) {
 		        				Species coreSpecies = (Species)coreSpeciesIter.next();
 		        				if (coreSpecies.isReactive()) {
 		        					if (!coreSpecies.hasResonanceIsomers()) {
 		        						ChemGraph tempCG = coreSpecies.getChemGraph();
 		        						ChemGraph oldCoreCG = generateCGcopyIfNecessary(tempCG,newCoreCG);
-		        						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,2);
-		        						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,1);
+		        						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,2);
+		        						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,1);
 		        	        			//	React A + B
 		        	        			LinkedHashSet current_reactions = current_template.reactTwoReactants(newCoreCG,site1_reactiveSites_sp1,oldCoreCG,site2_reactiveSites_sp2);
 		        	        			reaction_set.addAll(current_reactions);
@@ -210,8 +232,8 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 		        						while (coreSpeciesCGIter.hasNext()) {
 		            						ChemGraph tempCG = (ChemGraph)coreSpeciesCGIter.next();
 		            						ChemGraph oldCoreCG = generateCGcopyIfNecessary(tempCG,newCoreCG);
-		            						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,2);
-		            						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyReactedSites(oldCoreCG,1);
+		            						if (!site1_reactiveSites_sp1.isEmpty()) site2_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,2);
+		            						if (!site2_reactiveSites_sp1.isEmpty()) site1_reactiveSites_sp2 = structTemp.identifyCachedReactedSites(oldCoreCG,1);
 		            	        			//	React A + B
 		            	        			LinkedHashSet current_reactions = current_template.reactTwoReactants(newCoreCG,site1_reactiveSites_sp1,oldCoreCG,site2_reactiveSites_sp2);
 		            	        			reaction_set.addAll(current_reactions);
@@ -235,6 +257,7 @@ public class TemplateReactionGenerator implements ReactionGenerator {
         }
         
 		Global.enlargerInfo.append(newCoreSpecies.getChemkinName() + "\t" + singleReaction + "\t" + doubleReaction + "\t" + longestTime +"\t" + longestTemplate + "\t" + HAbs.toString() + "\n");
+		Logger.verbose(StructureTemplate.getReactedSiteCacheStatistics());
 		
 		//PDepNetwork.completeNetwork(p_species);
 		
@@ -249,6 +272,267 @@ public class TemplateReactionGenerator implements ReactionGenerator {
 
     }
     
+    /**
+    Requires: reactionGenerationThreads > 1
+    Effects: same reactions as the serial react(LinkedHashSet,Species,String).  The matched sites of every
+    (template x new core isomer x core isomer) combination are identified on the fork-join pool first; the
+    reactions are then built serially, walking the combinations in the order the serial loops would, so the
+    returned set and its iteration order do not depend on the number of threads.
+    Modifies: central nodes of the chem graphs of newCoreSpecies and of the species in p_speciesSet
+    */
+    protected LinkedHashSet reactInParallel(LinkedHashSet p_speciesSet, Species newCoreSpecies, String specificRxnFamily) {
+    	LinkedHashSet reaction_set = new LinkedHashSet();
+		double singleReaction = 0, doubleReaction = 0;
+		double longestTime = 0;
+		String longestTemplate = "";
+    	
+    	// enumerate the work units in the order of the serial loops
+    	LinkedList templates = new LinkedList();
+    	LinkedList newCoreUnits = new LinkedList();
+    	LinkedList oldCoreUnits = new LinkedList();
+    	LinkedHashSet matchedGraphs = new LinkedHashSet();
+    	CoreSiteIndex coreSites = getCoreSiteIndex(p_speciesSet);
+        Iterator template_iter = reactionTemplateLibrary.getReactionTemplate();
+        while (template_iter.hasNext()) {
+        	ReactionTemplate current_template = (ReactionTemplate)template_iter.next();
+        	if (!specificRxnFamily.equals("All") && !specificRxnFamily.equals(current_template.name)) continue;
+        	templates.add(current_template);
+        	if (!current_template.hasTwoReactants()) continue;
+        	ArrayList coreSpeciesWithSites = coreSites.getSpeciesWithSites(current_template);
+        	
+        	Iterator newSpeciesCGIter = getChemGraphs(newCoreSpecies);
+        	while (newSpeciesCGIter.hasNext()) {
+        		ChemGraph newCoreCG = (ChemGraph)newSpeciesCGIter.next();
+        		SiteUnit newCoreUnit = new SiteUnit(current_template, newCoreCG, null);
+        		newCoreUnits.add(newCoreUnit);
+        		matchedGraphs.add(newCoreCG.getGraph());
+        		Iterator coreSpeciesIter = coreSpeciesWithSites.iterator();
+        		while (coreSpeciesIter.hasNext()) {
+        			Species coreSpecies = (Species)coreSpeciesIter.next();
+        			if (!coreSpecies.isReactive()) continue;
+        			Iterator coreSpeciesCGIter = getChemGraphs(coreSpecies);
+        			while (coreSpeciesCGIter.hasNext()) {
+        				ChemGraph tempCG = (ChemGraph)coreSpeciesCGIter.next();
+        				ChemGraph oldCoreCG = generateCGcopyIfNecessary(tempCG,newCoreCG);
+        				SiteUnit oldCoreUnit = new SiteUnit(current_template, oldCoreCG, newCoreUnit);
+        				oldCoreUnits.add(oldCoreUnit);
+        				matchedGraphs.add(oldCoreCG.getGraph());
+        			}
+        		}
+        	}
+        }
+        
+        // matching only reads the graphs once their leftover reaction centers are cleared
+        for (Iterator iter = matchedGraphs.iterator(); iter.hasNext(); ) {
+        	Graph g = (Graph)iter.next();
+        	if (g.getCentralNodeNumber() > 0) g.clearCentralNode();
+        }
+        
+    	double startTime = System.currentTimeMillis();
+        identifySites(newCoreUnits);
+        identifySites(oldCoreUnits);
+        doubleReaction += ((System.currentTimeMillis()-startTime)/1000/60);
+        
+        // build the reactions serially, in the same order as the serial loops
+        Iterator unitIter = oldCoreUnits.iterator();
+        SiteUnit unit = unitIter.hasNext() ? (SiteUnit)unitIter.next() : null;
+        for (Iterator iter = templates.iterator(); iter.hasNext(); ) {
+        	ReactionTemplate current_template = (ReactionTemplate)iter.next();
+        	Logger.info("Reacting " + newCoreSpecies.getChemkinName() + " with the core: " + current_template.name);
+        	startTime = System.currentTimeMillis();
+        	if (current_template.hasOneReactant()) {
+        		reaction_set.addAll(current_template.reactOneReactant(newCoreSpecies));
+        		singleReaction = singleReaction + ((System.currentTimeMillis()-startTime)/1000/60);
+        	}
+        	else if (current_template.hasTwoReactants()) {
+        		while (unit != null && unit.template == current_template) {
+        			SiteUnit newCoreUnit = unit.newCoreUnit;
+        			//	React A + B
+        			reaction_set.addAll(current_template.reactTwoReactants(newCoreUnit.cg,newCoreUnit.site1,unit.cg,unit.site2));
+        			//	React B + A
+        			reaction_set.addAll(current_template.reactTwoReactants(unit.cg,unit.site1,newCoreUnit.cg,newCoreUnit.site2));
+        			unit = unitIter.hasNext() ? (SiteUnit)unitIter.next() : null;
+        		}
+        		double thisDoubleReaction = ((System.currentTimeMillis()-startTime)/1000/60);
+        		doubleReaction += thisDoubleReaction;
+        		if (thisDoubleReaction >= longestTime){
+        			longestTime = thisDoubleReaction;
+        			longestTemplate = current_template.name;
+        		}
+        	}
+        }
+        
+		Global.enlargerInfo.append(newCoreSpecies.getChemkinName() + "\t" + singleReaction + "\t" + doubleReaction + "\t" + longestTime +"\t" + longestTemplate + "\t\n");
+		Logger.verbose(StructureTemplate.getReactedSiteCacheStatistics());
+		
+		Runtime runTime = Runtime.getRuntime();
+		if (runTime.freeMemory() < runTime.totalMemory()/3) 
+			runTime.gc();
+		
+        return reaction_set;
+    }
+    
+    private static Iterator getChemGraphs(Species p_species) {
+    	if (p_species.hasResonanceIsomers()) return p_species.getResonanceIsomers();
+    	LinkedList cgs = new LinkedList();
+    	cgs.add(p_species.getChemGraph());
+    	return cgs.iterator();
+    }
+    
+    /**
+    Identify the sites of every unit on the fork-join pool.  A core species unit only looks for a site
+    when the new core species has a partner site for it, as in the serial loops.
+    */
+    private static void identifySites(LinkedList p_units) {
+    	LinkedList tasks = new LinkedList();
+    	for (Iterator iter = p_units.iterator(); iter.hasNext(); ) {
+    		final SiteUnit unit = (SiteUnit)iter.next();
+    		tasks.add(new Callable() {
+    			public Object call() {
+    				unit.identifySites();
+    				return null;
+    			}
+    		});
+    	}
+    	try {
+    		List futures = getSitePool().invokeAll(tasks);
+    		for (Iterator iter = futures.iterator(); iter.hasNext(); ) {
+    			((Future)iter.next()).get();
+    		}
+    	}
+    	catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException("Interrupted while identifying reactive sites", e);
+    	}
+    	catch (ExecutionException e) {
+    		Throwable cause = e.getCause();
+    		if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+    		if (cause instanceof Error) throw (Error)cause;
+    		throw new RuntimeException(cause);
+    	}
+    }
+    
+    private static synchronized ForkJoinPool getSitePool() {
+    	if (sitePool == null) sitePool = new ForkJoinPool(reactionGenerationThreads);
+    	return sitePool;
+    }
+    
+    public static int getReactionGenerationThreads() {
+    	return reactionGenerationThreads;
+    }
+    
+    public static synchronized void setReactionGenerationThreads(int p_threads) {
+    	if (p_threads < 1) p_threads = 1;
+    	if (p_threads != reactionGenerationThreads && sitePool != null) {
+    		sitePool.shutdown();
+    		sitePool = null;
+    	}
+    	reactionGenerationThreads = p_threads;
+    }
+    
+    /**
+    The reactive sites of one chem graph for one bimolecular template.  For a core species graph,
+    newCoreUnit holds the sites of the new core species graph it is reacted with.
+    */
+    private static class SiteUnit {
+    	ReactionTemplate template;
+    	ChemGraph cg;
+    	SiteUnit newCoreUnit;
+    	LinkedHashSet site1 = new LinkedHashSet();
+    	LinkedHashSet site2 = new LinkedHashSet();
+    	
+    	SiteUnit(ReactionTemplate p_template, ChemGraph p_cg, SiteUnit p_newCoreUnit) {
+    		template = p_template;
+    		cg = p_cg;
+    		newCoreUnit = p_newCoreUnit;
+    	}
+    	
+    	void identifySites() {
+    		StructureTemplate structTemp = template.structureTemplate;
+    		if (newCoreUnit == null) {
+    			site1 = structTemp.identifyCachedReactedSites(cg,1);
+    			site2 = structTemp.identifyCachedReactedSites(cg,2);
+    		}
+    		else {
+    			if (!newCoreUnit.site1.isEmpty()) site2 = structTemp.identifyCachedReactedSites(cg,2);
+    			if (!newCoreUnit.site2.isEmpty()) site1 = structTemp.identifyCachedReactedSites(cg,1);
+    		}
+    	}
+    }
+    
+    /**
+    Requires:
+    Effects: return the core site index of p_speciesSet, after adding the species appended to it since the last call.
+    The core only ever grows, so the index of the last set is kept; it is rebuilt when another set is passed in
+    or p_speciesSet no longer starts with the species already indexed.
+    Modifies: coreSiteIndex
+    */
+    protected synchronized CoreSiteIndex getCoreSiteIndex(LinkedHashSet p_speciesSet) {
+    	if (coreSiteIndex == null || coreSiteIndex.speciesSet != p_speciesSet || !coreSiteIndex.addNewSpecies()) {
+    		coreSiteIndex = new CoreSiteIndex(p_speciesSet);
+    		coreSiteIndex.addNewSpecies();
+    	}
+    	return coreSiteIndex;
+    }
+    
+    /**
+    The species of one species set in set order, and for each bimolecular template the ones whose chem graph
+    or resonance isomers have a reactive site in either position.  A template only matches the species added
+    since it was last asked for; the sites of the others come from the reacted site cache of StructureTemplate.
+    */
+    protected static class CoreSiteIndex {
+    	LinkedHashSet speciesSet;
+    	ArrayList species = new ArrayList();
+    	HashMap templateSites = new HashMap();
+    	
+    	CoreSiteIndex(LinkedHashSet p_speciesSet) {
+    		speciesSet = p_speciesSet;
+    	}
+    	
+    	/**
+    	Append the species added to speciesSet since the last call; false if speciesSet no longer starts with
+    	the species already indexed.
+    	*/
+    	synchronized boolean addNewSpecies() {
+    		Iterator iter = speciesSet.iterator();
+    		for (int i = 0; i < species.size(); i++) {
+    			if (!iter.hasNext() || iter.next() != species.get(i)) return false;
+    		}
+    		while (iter.hasNext()) species.add(iter.next());
+    		return true;
+    	}
+    	
+    	synchronized ArrayList getSpeciesWithSites(ReactionTemplate p_template) {
+    		TemplateSites sites = (TemplateSites)templateSites.get(p_template);
+    		if (sites == null) {
+    			sites = new TemplateSites();
+    			templateSites.put(p_template, sites);
+    		}
+    		StructureTemplate structTemp = p_template.structureTemplate;
+    		for (; sites.matched < species.size(); sites.matched++) {
+    			Species sp = (Species)species.get(sites.matched);
+    			if (hasSites(structTemp, sp)) sites.species.add(sp);
+    		}
+    		return new ArrayList(sites.species);
+    	}
+    	
+    	private static boolean hasSites(StructureTemplate p_structTemp, Species p_species) {
+    		Iterator cgIter = getChemGraphs(p_species);
+    		while (cgIter.hasNext()) {
+    			ChemGraph cg = (ChemGraph)cgIter.next();
+    			LinkedHashSet site1 = p_structTemp.identifyCachedReactedSites(cg,1);
+    			LinkedHashSet site2 = p_structTemp.identifyCachedReactedSites(cg,2);
+    			if (site1 == null || site2 == null || !site1.isEmpty() || !site2.isEmpty()) return true;
+    		}
+    		return false;
+    	}
+    }
+    
+    private static class TemplateSites {
+    	int matched = 0;
+    	ArrayList species = new ArrayList();
+    }
+    
     public ChemGraph generateCGcopyIfNecessary(ChemGraph cg1, ChemGraph cg2) {
     	ChemGraph cg_copy = null;
 		if (cg1 == cg2) {
@@ -0,0 +1,417 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+//## package jing::rxnSys
+
+//----------------------------------------------------------------------------
+// jing\rxnSys\BDFIntegrator.java
+//----------------------------------------------------------------------------
+
+/**
+ * Variable-order (1 to 5), variable-step BDF integrator for stiff systems y' = f(y).
+ * The solution history is kept as backward differences of the interpolating polynomial and
+ * is rescaled whenever the step size changes (the quasi-constant step size formulation of
+ * Shampine and Reichelt, without the NDF correction).  Each step is corrected by a simplified
+ * Newton iteration on the iteration matrix I - c*J; the Jacobian J is only reevaluated when
+ * the iteration fails to converge, and the matrix is only refactored when c changes.
+ */
+public class BDFIntegrator {
+
+    /**
+     * The system of equations being integrated.
+     */
+    public interface ODESystem {
+        int getDimension();
+
+        //## operation getDerivatives(double [],double [])
+        void getDerivatives(double[] p_y, double[] p_f);
+
+        //## operation updateJacobian(double [])
+        void updateJacobian(double[] p_y);
+
+        /**
+         * Requires: updateJacobian has been called
+         * Effects: factors I - p_c*J for the last Jacobian; returns false if the matrix is singular
+         */
+        boolean factorIterationMatrix(double p_c);
+
+        /**
+         * Requires: factorIterationMatrix has returned true
+         * Effects: overwrites p_b with the solution x of (I - c*J) x = p_b
+         */
+        void solveIterationMatrix(double[] p_b);
+    }
+
+    protected static final int MAX_ORDER = 5;
+    protected static final int NEWTON_MAXITER = 4;
+    protected static final double MIN_FACTOR = 0.2;
+    protected static final double MAX_FACTOR = 10;
+
+    protected ODESystem system;
+    protected int n;
+    protected double rtol;
+    protected double atol;
+    protected double newtonTol;
+    protected double[] gamma = new double[MAX_ORDER + 1];
+    protected double[] errorConst = new double[MAX_ORDER + 2];
+
+    protected double t;
+    protected double hAbs;
+    protected int order;
+    protected int nEqualSteps;
+    protected double[][] D;
+    protected boolean factored;
+    protected int stepNumber = 0;
+    protected int jacobianNumber = 0;
+
+    private double[] yNew;
+    private double[] yPredict;
+    private double[] psi;
+    private double[] scale;
+    private double[] d;
+    private double[] f;
+    private double[] dy;
+    private int newtonIterations;
+
+    //## operation BDFIntegrator(ODESystem,double,double)
+    public BDFIntegrator(ODESystem p_system, double p_rtol, double p_atol) {
+        system = p_system;
+        n = p_system.getDimension();
+        rtol = p_rtol;
+        atol = p_atol;
+        newtonTol = Math.max(10 * Math.ulp(1.0) / rtol, Math.min(0.03, Math.sqrt(rtol)));
+        gamma[0] = 0;
+        for (int i = 1; i <= MAX_ORDER; i++) {
+            gamma[i] = gamma[i - 1] + 1.0 / i;
+        }
+        for (int i = 0; i <= MAX_ORDER + 1; i++) {
+            errorConst[i] = 1.0 / (i + 1);
+        }
+        D = new double[MAX_ORDER + 3][n];
+        yNew = new double[n];
+        yPredict = new double[n];
+        psi = new double[n];
+        scale = new double[n];
+        d = new double[n];
+        f = new double[n];
+        dy = new double[n];
+    }
+
+    /**
+     * Requires: p_tBound > p_t0
+     * Effects: starts a new integration from p_y0 at p_t0 with order 1 and an initial step
+     * estimated from the derivatives at p_y0, limited to the interval up to p_tBound
+     * Modifies: this
+     */
+    //## operation initialize(double,double [],double)
+    public void initialize(double p_t0, double[] p_y0, double p_tBound) {
+        t = p_t0;
+        system.getDerivatives(p_y0, f);
+        hAbs = Math.min(selectInitialStep(p_t0, p_y0, f), p_tBound - p_t0);
+        for (int i = 0; i < D.length; i++) {
+            java.util.Arrays.fill(D[i], 0);
+        }
+        System.arraycopy(p_y0, 0, D[0], 0, n);
+        for (int i = 0; i < n; i++) {
+            D[1][i] = f[i] * hAbs;
+        }
+        order = 1;
+        nEqualSteps = 0;
+        system.updateJacobian(p_y0);
+        jacobianNumber++;
+        factored = false;
+    }
+
+    public double getTime() {
+        return t;
+    }
+
+    /**
+     * Effects: returns the solution at getTime(); the array is owned by the integrator and is
+     * overwritten by the next step
+     */
+    public double[] getState() {
+        return D[0];
+    }
+
+    public int getStepNumber() {
+        return stepNumber;
+    }
+
+    public int getJacobianNumber() {
+        return jacobianNumber;
+    }
+
+    /**
+     * Requires: p_tBound > getTime()
+     * Effects: advances the solution by one accepted step, never stepping past p_tBound;
+     * returns false if the step size had to be reduced below the resolution of the time variable
+     * Modifies: this
+     */
+    //## operation step(double)
+    public boolean step(double p_tBound) {
+        double minStep = 10 * Math.ulp(t);
+        if (hAbs < minStep) {
+            changeD(minStep / hAbs);
+            hAbs = minStep;
+            nEqualSteps = 0;
+        }
+        boolean currentJacobian = false;
+        double errorNorm = 0;
+        double safety = 0;
+        double tNew;
+        while (true) {
+            if (hAbs < minStep) return false;
+            tNew = t + hAbs;
+            if (tNew > p_tBound) {
+                tNew = p_tBound;
+                changeD((tNew - t) / hAbs);
+                nEqualSteps = 0;
+                factored = false;
+            }
+            double h = tNew - t;
+            hAbs = h;
+
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                double p = 0;
+                for (int j = 0; j <= order; j++) {
+                    sum += D[j][i];
+                    if (j > 0) p += D[j][i] * gamma[j];
+                }
+                yPredict[i] = sum;
+                scale[i] = atol + rtol * Math.abs(sum);
+                psi[i] = p / gamma[order];
+            }
+
+            double c = h / gamma[order];
+            boolean converged = false;
+            while (!converged) {
+                if (!factored) {
+                    factored = system.factorIterationMatrix(c);
+                    if (!factored) break;
+                }
+                converged = solveCorrector(c);
+                if (!converged) {
+                    if (currentJacobian) break;
+                    system.updateJacobian(yPredict);
+                    jacobianNumber++;
+                    factored = false;
+                    currentJacobian = true;
+                }
+            }
+
+            if (!converged) {
+                hAbs *= 0.5;
+                changeD(0.5);
+                nEqualSteps = 0;
+                factored = false;
+                continue;
+            }
+
+            safety = 0.9 * (2 * NEWTON_MAXITER + 1) / (2 * NEWTON_MAXITER + newtonIterations);
+            for (int i = 0; i < n; i++) {
+                scale[i] = atol + rtol * Math.abs(yNew[i]);
+            }
+            errorNorm = errorConst[order] * norm(d, scale);
+            if (errorNorm > 1) {
+                double factor = Math.max(MIN_FACTOR, safety * Math.pow(errorNorm, -1.0 / (order + 1)));
+                hAbs *= factor;
+                changeD(factor);
+                nEqualSteps = 0;
+            }
+            else break;
+        }
+
+        stepNumber++;
+        nEqualSteps++;
+        t = tNew;
+
+        // D^(j+1) y_n = D^j y_n - D^j y_(n-1), and d is the (order+1)th difference of the new solution
+        for (int i = 0; i < n; i++) {
+            D[order + 2][i] = d[i] - D[order + 1][i];
+            D[order + 1][i] = d[i];
+        }
+        for (int j = order; j >= 0; j--) {
+            for (int i = 0; i < n; i++) {
+                D[j][i] += D[j + 1][i];
+            }
+        }
+
+        if (nEqualSteps < order + 1) return true;
+
+        double errorMNorm = Double.POSITIVE_INFINITY;
+        if (order > 1) errorMNorm = errorConst[order - 1] * norm(D[order], scale);
+        double errorPNorm = Double.POSITIVE_INFINITY;
+        if (order < MAX_ORDER) errorPNorm = errorConst[order + 1] * norm(D[order + 2], scale);
+
+        double factorM = Math.pow(errorMNorm, -1.0 / order);
+        double factorSame = Math.pow(errorNorm, -1.0 / (order + 1));
+        double factorP = Math.pow(errorPNorm, -1.0 / (order + 2));
+        double factor = factorSame;
+        int deltaOrder = 0;
+        if (factorM > factor) {
+            factor = factorM;
+            deltaOrder = -1;
+        }
+        if (factorP > factor) {
+            factor = factorP;
+            deltaOrder = 1;
+        }
+        order += deltaOrder;
+
+        factor = Math.min(MAX_FACTOR, safety * factor);
+        hAbs *= factor;
+        changeD(factor);
+        nEqualSteps = 0;
+        factored = false;
+        return true;
+    }
+
+    /**
+     * Effects: runs the simplified Newton iteration for the BDF equations starting from yPredict;
+     * on convergence leaves the new solution in yNew and its correction from yPredict in d
+     */
+    private boolean solveCorrector(double p_c) {
+        System.arraycopy(yPredict, 0, yNew, 0, n);
+        java.util.Arrays.fill(d, 0);
+        double dyNormOld = -1;
+        newtonIterations = 0;
+        for (int k = 0; k < NEWTON_MAXITER; k++) {
+            newtonIterations = k + 1;
+            system.getDerivatives(yNew, f);
+            for (int i = 0; i < n; i++) {
+                if (Double.isNaN(f[i]) || Double.isInfinite(f[i])) return false;
+                dy[i] = p_c * f[i] - psi[i] - d[i];
+            }
+            system.solveIterationMatrix(dy);
+            double dyNorm = norm(dy, scale);
+            double rate = -1;
+            if (dyNormOld >= 0) {
+                rate = dyNorm / dyNormOld;
+                if (rate >= 1 || Math.pow(rate, NEWTON_MAXITER - k) / (1 - rate) * dyNorm > newtonTol) return false;
+            }
+            for (int i = 0; i < n; i++) {
+                yNew[i] += dy[i];
+                d[i] += dy[i];
+            }
+            if (dyNorm == 0 || (rate >= 0 && rate / (1 - rate) * dyNorm < newtonTol)) return true;
+            dyNormOld = dyNorm;
+        }
+        return false;
+    }
+
+    /**
+     * Effects: rescales the differences in D for a step size multiplied by p_factor
+     * Modifies: D
+     */
+    private void changeD(double p_factor) {
+        double[][] R = computeR(order, p_factor);
+        double[][] U = computeR(order, 1);
+        double[][] RU = new double[order + 1][order + 1];
+        for (int i = 0; i <= order; i++) {
+            for (int j = 0; j <= order; j++) {
+                double sum = 0;
+                for (int k = 0; k <= order; k++) {
+                    sum += R[i][k] * U[k][j];
+                }
+                RU[i][j] = sum;
+            }
+        }
+        double[] column = new double[order + 1];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= order; j++) {
+                double sum = 0;
+                for (int k = 0; k <= order; k++) {
+                    sum += RU[k][j] * D[k][i];
+                }
+                column[j] = sum;
+            }
+            for (int j = 0; j <= order; j++) {
+                D[j][i] = column[j];
+            }
+        }
+    }
+
+    private static double[][] computeR(int p_order, double p_factor) {
+        double[][] R = new double[p_order + 1][p_order + 1];
+        for (int j = 0; j <= p_order; j++) {
+            R[0][j] = 1;
+        }
+        for (int i = 1; i <= p_order; i++) {
+            R[i][0] = 0;
+            for (int j = 1; j <= p_order; j++) {
+                R[i][j] = R[i - 1][j] * (i - 1 - p_factor * j) / i;
+            }
+        }
+        return R;
+    }
+
+    private double selectInitialStep(double p_t0, double[] p_y0, double[] p_f0) {
+        for (int i = 0; i < n; i++) {
+            scale[i] = atol + rtol * Math.abs(p_y0[i]);
+        }
+        double d0 = norm(p_y0, scale);
+        double d1 = norm(p_f0, scale);
+        double h0;
+        if (d0 < 1e-5 || d1 < 1e-5) h0 = 1e-6;
+        else h0 = 0.01 * d0 / d1;
+        for (int i = 0; i < n; i++) {
+            yNew[i] = p_y0[i] + h0 * p_f0[i];
+        }
+        double[] f1 = new double[n];
+        system.getDerivatives(yNew, f1);
+        for (int i = 0; i < n; i++) {
+            dy[i] = f1[i] - p_f0[i];
+        }
+        double d2 = norm(dy, scale) / h0;
+        double h1;
+        if (d1 <= 1e-15 && d2 <= 1e-15) h1 = Math.max(1e-6, h0 * 1e-3);
+        else h1 = Math.pow(0.01 / Math.max(d1, d2), 0.5);
+        return Math.min(100 * h0, h1);
+    }
+
+    /**
+     * Effects: returns the root-mean-square norm of p_x weighted by 1/p_scale
+     */
+    private double norm(double[] p_x, double[] p_scale) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            double v = p_x[i] / p_scale[i];
+            sum += v * v;
+        }
+        return Math.sqrt(sum / n);
+    }
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\BDFIntegrator.java
+*********************************************************************/
+
@@ -493,8 +493,8 @@ public  Chemkin() {
           //Start writing to the output stream
           bufferedWriter.write(writeChemkinHeader());
           bufferedWriter.write(writeChemkinElement());
-          bufferedWriter.write(writeChemkinSpecies(p_reactionModel, p_beginStatus));
-          bufferedWriter.write(writeChemkinThermo(p_reactionModel));
+          writeChemkinSpecies(p_reactionModel, p_beginStatus, bufferedWriter);
+          writeChemkinThermo(p_reactionModel, bufferedWriter);
           bufferedWriter = writeChemkinPdepReactions(p_reactionModel, p_beginStatus,bufferedWriter);
       } catch (FileNotFoundException ex) {
           Logger.logStackTrace(ex);
@@ -682,8 +682,22 @@ public  Chemkin() {
   //## operation writeChemkinSpecies(ReactionModel,SystemSnapshot)
   public static String writeChemkinSpecies(ReactionModel p_reactionModel, SystemSnapshot p_beginStatus) {
       //#[ operation writeChemkinSpecies(ReactionModel,SystemSnapshot)
+      StringWriter result = new StringWriter();
+      try {
+          writeChemkinSpecies(p_reactionModel, p_beginStatus, result);
+      } catch (IOException ex) {
+          // Not reached, since a StringWriter does not throw
+          Logger.logStackTrace(ex);
+      }
+      return result.toString();
+  }
 
-      StringBuilder result = new StringBuilder();
+  /**
+   * Writes the SPECIES section of the chem.inp file to p_writer, one species
+   * at a time, so that the section is never held in memory as a whole.
+   */
+  public static void writeChemkinSpecies(ReactionModel p_reactionModel, SystemSnapshot p_beginStatus, Writer p_writer) throws IOException {
+      Writer result = p_writer;
 	  result.append("SPECIES\n");
 
       CoreEdgeReactionModel cerm = (CoreEdgeReactionModel)p_reactionModel;
@@ -698,16 +712,16 @@ public  Chemkin() {
       for (Iterator iter = p_beginStatus.getInertGas(); iter.hasNext();) {
       	String name = (String)iter.next();
       	if (!(name.equals("Ar") || name.equals("N2") || name.equals("Ne") || name.equals("He")))
-      	    result.append('\t' + name + '\n');
+      	    result.append('\t').append(name).append('\n');
       }
 
       // write species
       for (Iterator iter = cerm.getSpecies(); iter.hasNext(); ) {
       	Species spe = (Species)iter.next();
       	if (spe.getChemkinName().startsWith("SPC"))
-      		result.append("\t" + spe.getChemkinName() + "\t! " + spe.getFullName() + "\n");
+      		result.append('\t').append(spe.getChemkinName()).append("\t! ").append(spe.getFullName()).append('\n');
       	else
-      		result.append('\t' + spe.getChemkinName() + '\n');
+      		result.append('\t').append(spe.getChemkinName()).append('\n');
       }
 
       result.append("END\n");
@@ -715,12 +729,26 @@ public  Chemkin() {
 	  Logger.info(String.format("The chem.inp file has %d species (excluding inert gases).", cerm.getCore().getSpeciesNumber() ));
 	  if (cerm.getSeedMechanism() != null)
 		  Logger.debug(String.format("    %d of them are from the Seed Mechanism(s).",cerm.getSeedMechanism().getSpeciesSet().size() ));
-      return result.toString();
   }
 
   //## operation writeChemkinThermo(ReactionModel)
   public static String writeChemkinThermo(ReactionModel p_reactionModel) {
       //#[ operation writeChemkinThermo(ReactionModel)
+      StringWriter result = new StringWriter();
+      try {
+          writeChemkinThermo(p_reactionModel, result);
+      } catch (IOException ex) {
+          // Not reached, since a StringWriter does not throw
+          Logger.logStackTrace(ex);
+      }
+      return result.toString();
+  }
+
+  /**
+   * Writes the THERMO section of the chem.inp file to p_writer, one species
+   * at a time, so that the section is never held in memory as a whole.
+   */
+  public static void writeChemkinThermo(ReactionModel p_reactionModel, Writer p_writer) throws IOException {
       /*
 	  String thermoHeader = "! neon added by pey (20/6/04) - used thermo for Ar\n";
 		thermoHeader += "Ne                120186Ne  1               G  0300.00   5000.00  1000.00      1\n";
@@ -768,7 +796,7 @@ public  Chemkin() {
       thermoHeader += "-7.45375000E+02 9.28723974E-01 2.50000000E+00 0.00000000E+00 0.00000000E+00    3\n";
       thermoHeader += " 0.00000000E+00 0.00000000E+00-7.45375000E+02 9.28723974E-01 0.00000000E+00    4\n\n";
       
-      StringBuilder result = new StringBuilder();
+      Writer result = p_writer;
 	  result.append("THERMO ALL\n");
       result.append("   300.000  1000.000  5000.000\n");
       result.append(thermoHeader);
@@ -778,7 +806,7 @@ public  Chemkin() {
       	Species spe = (Species)iter.next();
 
       	if (spe.getNasaThermoSource() != null) {
-      		result.append("!" + spe.getNasaThermoSource() + "\n");
+      		result.append('!').append(spe.getNasaThermoSource()).append('\n');
       	}
       	/*
       	 * MRH 2MAR2010:
@@ -789,14 +817,12 @@ public  Chemkin() {
       	 * a blank space for each species SMILES id.
       	 */
       	if (SMILESutility)
-      		result.append("! [_ SMILES=\"" + spe.getInChI() + "\" _]\n");
-      	result.append(spe.getNasaThermoData() + "\n");
+      		result.append("! [_ SMILES=\"").append(spe.getInChI()).append("\" _]\n");
+      	result.append(String.valueOf(spe.getNasaThermoData())).append('\n');
 
       }
       result.append("END\n");
       result.append("\n");
-
-      return result.toString();
   }
   
 
@@ -963,37 +989,46 @@ public static void setSMILES(boolean yesno) {
 }
 
 	public static void writeTransportFile(CoreEdgeReactionModel cerm, String filepath) {
-		//Write core species to filepath (eg. "chemkin/tran.dat")
-		String coreSpecies ="";
-		// Write the three inert gas species' transport data
-		//	Data comes from CHEMKIN-v4.1.1 manual
-		coreSpecies +=	"Ar                 0   136.500     3.330     0.000     0.000     0.000 !CHEMKIN-v4.1.1\n" +
-						"He                 0    10.200     2.576     0.000     0.000     0.000 !CHEMKIN-v4.1.1\n" +
-						"N2                 1    97.530     3.621     0.000     1.760     4.000 !CHEMKIN-v4.1.1\n";
-		
-		Iterator iter = cerm.getSpecies();
-		
-		while (iter.hasNext()){
-			Species spe = (Species)iter.next();
-			TransportData lj4species = spe.getChemkinTransportData();
+		//Write core species to filepath (eg. "chemkin/tran.dat"), one species at a time
+		BufferedWriter bw = null;
+		try {
+			bw = new BufferedWriter(new FileWriter(new File(filepath)));
+			// Write the three inert gas species' transport data
+			//	Data comes from CHEMKIN-v4.1.1 manual
+			bw.write("Ar                 0   136.500     3.330     0.000     0.000     0.000 !CHEMKIN-v4.1.1\n" +
+					"He                 0    10.200     2.576     0.000     0.000     0.000 !CHEMKIN-v4.1.1\n" +
+					"N2                 1    97.530     3.621     0.000     1.760     4.000 !CHEMKIN-v4.1.1\n");
+			
+			Iterator iter = cerm.getSpecies();
 			String whitespace = "                ";
 			
-			// Write the 6 transport properties
-			coreSpecies += spe.getChemkinName() + whitespace.substring(spe.getChemkinName().length()) +
-				"   " + lj4species.toString() + " ! " + lj4species.getSource() + "\t" + 
-				lj4species.getComment() + "\n";
-		}
-		
-		try {
-			File trandat = new File(filepath);
-			FileWriter fw = new FileWriter(trandat);
-			fw.write(coreSpecies);
-			fw.close();
+			while (iter.hasNext()){
+				Species spe = (Species)iter.next();
+				TransportData lj4species = spe.getChemkinTransportData();
+				
+				// Write the 6 transport properties
+				bw.write(spe.getChemkinName());
+				bw.write(whitespace.substring(spe.getChemkinName().length()));
+				bw.write("   ");
+				bw.write(lj4species.toString());
+				bw.write(" ! ");
+				bw.write(String.valueOf(lj4species.getSource()));
+				bw.write('\t');
+				bw.write(String.valueOf(lj4species.getComment()));
+				bw.write('\n');
+			}
 		}
 		catch (IOException e) {
 			Logger.critical("Could not write "+filepath);
 			System.exit(0);
 		}
+		finally {
+			try {
+				if (bw != null) bw.close();
+			} catch (IOException e) {
+				Logger.logStackTrace(e);
+			}
+		}
 	}
 
 }
@@ -326,6 +326,8 @@ public class CoreEdgeReactionModel implements ReactionModel {
         	Logger.info(String.format("%s is a core species. Can't add it to edge species set.",p_species.getFullName()));
         }
         else {
+        	// most edge species never reach the core, so hold them compactly until they do
+        	p_species.compact();
         	getUnreactedSpeciesSet().add(p_species);
         }
         //#]
@@ -784,6 +786,7 @@ public class CoreEdgeReactionModel implements ReactionModel {
         if (rs && !us) return;
         else if (!rs && us) {
         	getUnreactedSpeciesSet().remove(p_species);
+        	p_species.expand();
         	getReactedSpeciesSet().add(p_species);
         	return;
         }
@@ -0,0 +1,236 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import jing.chem.Species;
+import jing.param.Pressure;
+import jing.param.Temperature;
+import jing.rxn.NegativeRateException;
+import jing.rxn.Reaction;
+import jing.rxn.TemplateReaction;
+
+/**
+ * A compiled copy of the edge (unreacted) reactions of a reaction model, used
+ * by ReactionSystem to compute the flux to each edge species after every
+ * solver step. The reactions are kept as parallel arrays of rate constants
+ * and reactant and product species IDs, so that the fluxes are found in one
+ * pass over primitive arrays rather than by recomputing each rate constant
+ * and looking up each concentration by species.
+ * <p>
+ * The table follows the edge reaction set: reactions that leave the set
+ * (e.g. when they move to the core or are pruned) are dropped, and new ones
+ * are compiled, each time fluxes are computed. Rate constants are kept until
+ * the temperature changes or invalidate() is called; those of template
+ * reactions belonging to a pressure-dependent network are recomputed every
+ * time, since they follow the network's current k(T, P).
+ */
+public class EdgeFluxTable {
+
+	/** The number of reactions in the table. */
+	private int size = 0;
+
+	/** The reactions in the table, in the order of the edge reaction set. */
+	private Reaction[] reactions = new Reaction[0];
+
+	/** The total rate constant of each reaction. */
+	private double[] rates = new double[0];
+
+	/** Whether the rate constant of each reaction is current. */
+	private boolean[] rateValid = new boolean[0];
+
+	/** The species IDs of the reactants of reaction i are reactantIDs[reactantStart[i]] to reactantIDs[reactantStart[i+1]-1]. */
+	private int[] reactantStart = new int[1];
+	private int[] reactantIDs = new int[0];
+
+	/** The species IDs of the products of reaction i are productIDs[productStart[i]] to productIDs[productStart[i+1]-1]. */
+	private int[] productStart = new int[1];
+	private int[] productIDs = new int[0];
+
+	/** The row of each reaction in the table, by identity. */
+	private IdentityHashMap rowOf = new IdentityHashMap();
+
+	/** The temperature (K) at which the rate constants were computed. */
+	private double temperature = Double.NaN;
+
+	//==========================================================================
+
+	/**
+	 * Marks every rate constant as out of date, e.g. after the reaction model
+	 * has been enlarged and the kinetics of edge reactions may have changed.
+	 */
+	public void invalidate() {
+		for (int i = 0; i < size; i++)
+			rateValid[i] = false;
+	}
+
+	/**
+	 * Returns the number of reactions in the table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Computes the flux from the edge reactions to each edge species.
+	 * @param p_model The reaction model whose edge reactions are used
+	 * @param p_systemSnapshot The state of the reaction system
+	 * @param p_temperature The temperature at which to evaluate the rates
+	 * @param p_unreactedFlux The fluxes, indexed by species ID, to add to
+	 */
+	public void addUnreactedFlux(CoreEdgeReactionModel p_model, SystemSnapshot p_systemSnapshot,
+			Temperature p_temperature, double[] p_unreactedFlux) {
+
+		update(p_model.getUnreactedReactionSet());
+
+		Pressure pressure = p_systemSnapshot.getPressure();
+		if (p_temperature.getK() != temperature) {
+			invalidate();
+			temperature = p_temperature.getK();
+		}
+		for (int i = 0; i < size; i++) {
+			if (!rateValid[i] || isPDep(reactions[i]))
+				calculateRate(i, p_temperature, pressure);
+		}
+
+		// Gather the concentrations and the edge membership by species ID
+		int maxID = p_model.getMaxSpeciesID();
+		double[] conc = new double[maxID + 1];
+		for (Iterator iter = p_systemSnapshot.getSpeciesStatus(); iter.hasNext(); ) {
+			SpeciesStatus ss = (SpeciesStatus) iter.next();
+			int id = ss.getSpecies().getID();
+			if (id <= maxID) conc[id] = ss.getConcentration();
+		}
+		boolean[] unreacted = new boolean[maxID + 1];
+		for (Iterator iter = p_model.getUnreactedSpeciesSet().iterator(); iter.hasNext(); ) {
+			int id = ((Species) iter.next()).getID();
+			if (id <= maxID) unreacted[id] = true;
+		}
+
+		double aTol = ReactionModelGenerator.getAtol();
+		for (int i = 0; i < size; i++) {
+			double flux = rates[i];
+			if (!(flux > 0))
+				throw new NegativeRateException(reactions[i].toChemkinString(p_temperature) + ": " + String.valueOf(flux));
+			for (int j = reactantStart[i]; j < reactantStart[i+1]; j++) {
+				int id = reactantIDs[j];
+				double c = (id <= maxID) ? conc[id] : 0;
+				if (c < -100.0 * aTol)
+					throw new NegativeConcentrationException("Species " + ((Species) reactions[i].getReactantList().get(j - reactantStart[i])).getFullName() + " has negative concentration: " + String.valueOf(c));
+				flux *= c;
+			}
+			for (int j = productStart[i]; j < productStart[i+1]; j++) {
+				int id = productIDs[j];
+				if (id <= maxID && unreacted[id])
+					p_unreactedFlux[id] += flux;
+			}
+		}
+	}
+
+	/**
+	 * Brings the table in line with the given edge reaction set, keeping
+	 * the rows (and rate constants) of reactions that are still in the set.
+	 */
+	private void update(LinkedHashSet p_reactionSet) {
+
+		// Nothing to do if the set holds the same reactions in the same order
+		if (p_reactionSet.size() == size) {
+			int i = 0;
+			Iterator iter = p_reactionSet.iterator();
+			while (iter.hasNext() && iter.next() == reactions[i]) i++;
+			if (i == size) return;
+		}
+
+		int n = p_reactionSet.size();
+		Reaction[] newReactions = new Reaction[n];
+		double[] newRates = new double[n];
+		boolean[] newRateValid = new boolean[n];
+		int[] newReactantStart = new int[n + 1];
+		int[] newProductStart = new int[n + 1];
+		int numReactants = 0, numProducts = 0;
+		int row = 0;
+		for (Iterator iter = p_reactionSet.iterator(); iter.hasNext(); row++) {
+			Reaction r = (Reaction) iter.next();
+			newReactions[row] = r;
+			Integer old = (Integer) rowOf.get(r);
+			if (old != null) {
+				newRates[row] = rates[old.intValue()];
+				newRateValid[row] = rateValid[old.intValue()];
+			}
+			numReactants += r.getReactantNumber();
+			numProducts += r.getProductNumber();
+			newReactantStart[row+1] = numReactants;
+			newProductStart[row+1] = numProducts;
+		}
+
+		int[] newReactantIDs = new int[numReactants];
+		int[] newProductIDs = new int[numProducts];
+		IdentityHashMap newRowOf = new IdentityHashMap(2 * n);
+		for (row = 0; row < n; row++) {
+			Reaction r = newReactions[row];
+			int j = newReactantStart[row];
+			for (Iterator iter = r.getReactants(); iter.hasNext(); )
+				newReactantIDs[j++] = ((Species) iter.next()).getID();
+			j = newProductStart[row];
+			for (Iterator iter = r.getProducts(); iter.hasNext(); )
+				newProductIDs[j++] = ((Species) iter.next()).getID();
+			newRowOf.put(r, Integer.valueOf(row));
+		}
+
+		size = n;
+		reactions = newReactions;
+		rates = newRates;
+		rateValid = newRateValid;
+		reactantStart = newReactantStart;
+		reactantIDs = newReactantIDs;
+		productStart = newProductStart;
+		productIDs = newProductIDs;
+		rowOf = newRowOf;
+	}
+
+	private static boolean isPDep(Reaction r) {
+		return r instanceof TemplateReaction && ((TemplateReaction) r).getPDepNetwork() != null;
+	}
+
+	private void calculateRate(int i, Temperature p_temperature, Pressure p_pressure) {
+		Reaction r = reactions[i];
+		if (r instanceof TemplateReaction)
+			rates[i] = ((TemplateReaction) r).calculateTotalPDepRate(p_temperature, p_pressure);
+		else
+			rates[i] = r.calculateTotalRate(p_temperature);
+		rateValid[i] = true;
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\EdgeFluxTable.java
+*********************************************************************/
@@ -0,0 +1,450 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+import jing.chem.Species;
+import jing.param.Global;
+import jing.param.Pressure;
+import jing.param.Temperature;
+import jing.rxn.LindemannReaction;
+import jing.rxn.PDepReaction;
+import jing.rxn.Reaction;
+import jing.rxn.TROEReaction;
+import jing.rxn.ThirdBodyReaction;
+
+//## package jing::rxnSys
+
+//----------------------------------------------------------------------------
+// jing\rxnSys\JBDF.java
+//----------------------------------------------------------------------------
+
+/**
+ * In-process replacement for JDASSL: integrates the same reactor equations as dasslAUTO.exe
+ * with a variable-order BDF method (BDFIntegrator) and a sparse Jacobian built directly from
+ * the ODEReaction lists (ODEKinetics), so no SolverInput.dat / SolverOutput.dat files are
+ * written and no solver process is launched.  The AUTO edge flux checks of call_dasslAUTO.f90
+ * are done after every step, and the results (concentrations, fluxes, edge flux ratios and
+ * prunable species) are returned in the same fields that JDASSL reads from the output file.
+ * Selected with "DynamicSimulator: BDF" in the condition file.
+ */
+//## class JBDF
+public class JBDF extends JDAS {
+
+    protected ODEKinetics kinetics;
+
+    // AUTO edge reactions: core reactant indices, edge product indices (both from 0) and rate coefficients
+    protected int[][] edgeReactant;
+    protected int[][] edgeProduct;
+    protected double[] edgeRate;
+    protected int edgeSpeciesNumber;
+    protected int edgeFlag;
+    protected int edgeFlagCore;
+
+    private JBDF() {
+        super();
+    }
+
+    public JBDF(double p_rtol, double p_atol, int p_parameterInfor,
+            InitialStatus p_initialStatus, int p_index, ValidityTester p_vt,
+            boolean p_autoflag, Double p_termTol, Double p_coreTol) {
+        super(p_rtol, p_atol, p_parameterInfor, p_initialStatus, p_index, p_vt,
+                p_autoflag, p_termTol, p_coreTol);
+    }
+
+    //## operation solve(boolean,ReactionModel,boolean,SystemSnapshot,ReactionTime,ReactionTime,Temperature,Pressure,boolean)
+    public SystemSnapshot solve(boolean p_initialization, ReactionModel p_reactionModel, boolean p_reactionChanged, SystemSnapshot p_beginStatus, ReactionTime p_beginTime, ReactionTime p_endTime, Temperature p_temperature, Pressure p_pressure, boolean p_conditionChanged, TerminationTester tt, int p_iterationNum) {
+
+        //first generate an id for all the core species (see JDASSL.solve)
+        Iterator spe_iter = p_reactionModel.getSpecies();
+        while (spe_iter.hasNext()) {
+            Species spe = (Species) spe_iter.next();
+            int id = getRealID(spe);
+        }
+        double startTime = System.currentTimeMillis();
+
+        ReactionTime rt = p_beginStatus.getTime();
+        if (!rt.equals(p_beginTime)) throw new InvalidBeginStatusException();
+
+        double tBegin = p_beginTime.getStandardTime();
+        double tEnd = p_endTime.getStandardTime();
+
+        // set reaction set
+        if (p_initialization || p_reactionChanged || p_conditionChanged || kinetics == null) {
+            nState = p_reactionModel.getSpeciesNumber();
+            nParameter = 0;
+            neq = nState;
+            kinetics = generateODEKinetics(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+            initializeConcentrations(p_beginStatus, p_reactionModel, p_beginTime, p_endTime, new LinkedList());
+        }
+
+        // species with a constant concentration (and then the volume) are not integrated
+        boolean setVolumeConstant = false;
+        for (Iterator iter = p_reactionModel.getSpecies(); iter.hasNext();) {
+            Species spe = (Species) iter.next();
+            kinetics.setConstantConcentration(getRealID(spe), spe.isConstantConcentration());
+            if (spe.isConstantConcentration()) setVolumeConstant = true;
+        }
+        kinetics.setConstantConcentration(nState + 1, setVolumeConstant);
+
+        int targetID = -1;
+        double targetConcentration = 0;
+        if (tt instanceof ConversionTT) {
+            SpeciesConversion sc = (SpeciesConversion) ((ConversionTT) tt).speciesGoalConversionSet.get(0);
+            targetID = getRealID(sc.species);
+            targetConcentration = conversionSet[p_iterationNum];
+        }
+
+        if (autoflag)
+            generateAutoEdgeReactions((CoreEdgeReactionModel) p_reactionModel, p_temperature, p_pressure);
+
+        Global.getSolverTimings().solverPrepossesor += (System.currentTimeMillis() - startTime) / 1000 / 60;
+
+        startTime = System.currentTimeMillis();
+        integrate(tBegin, tEnd, targetID, targetConcentration);
+        Logger.info(String.format("After ODE: from %10.4e s to %10.4e s", tBegin, endTime));
+        Global.getSolverTimings().solvertime += (System.currentTimeMillis() - startTime) / 1000 / 60;
+
+        startTime = System.currentTimeMillis();
+        LinkedHashMap speStatus = generateSpeciesStatus(p_reactionModel, y, yprime, 0);
+        Global.getSolverTimings().speciesStatusGenerator += (System.currentTimeMillis() - startTime) / 1000 / 60;
+
+        SystemSnapshot sss = new SystemSnapshot(new ReactionTime(endTime, "sec"), speStatus, p_beginStatus.getTemperature(), p_beginStatus.getPressure());
+        sss.inertGas = new LinkedHashMap();
+        //scale the inert gas concentrations to account for volume change (see JDASSL.solve)
+        double totalNonInertConc = totalNonInertConcentrations();
+        double inertScaleFactor = 1;
+        if (p_beginStatus.inertGas != null) {
+            if (p_beginStatus.getTotalInertGas() > 0) {
+                inertScaleFactor = (p_beginStatus.getTotalMole() - totalNonInertConc) / p_beginStatus.getTotalInertGas();
+            }
+            for (Iterator iter = p_beginStatus.getInertGas(); iter.hasNext();) {
+                String inertName = (String) iter.next();
+                double originalInertConc = p_beginStatus.getInertGas(inertName);
+                sss.putInertGas(inertName, originalInertConc * inertScaleFactor);
+            }
+        }
+
+        LinkedList reactionList = new LinkedList();
+        reactionList.addAll(rList);
+        reactionList.addAll(duplicates);
+        reactionList.addAll(thirdBodyList);
+        reactionList.addAll(troeList);
+        reactionList.addAll(lindemannList);
+        sss.setReactionList(reactionList);
+        sss.setReactionFlux(reactionFlux);
+
+        return sss;
+    }
+
+    /**
+     * Effects: builds rList, thirdBodyList, troeList and lindemannList exactly as the generate*ReactionList methods
+     * of JDAS do (and in the same order), and returns their ODEReactions as an ODEKinetics, without serializing them
+     * Modifies: rList, duplicates, thirdBodyList, troeList, lindemannList
+     */
+    //## operation generateODEKinetics(ReactionModel,SystemSnapshot,Temperature,Pressure)
+    protected ODEKinetics generateODEKinetics(ReactionModel p_reactionModel, SystemSnapshot p_beginStatus, Temperature p_temperature, Pressure p_pressure) {
+        thirdBodyList = new LinkedList();
+        troeList = new LinkedList();
+        lindemannList = new LinkedList();
+        for (Iterator iter = p_reactionModel.getReactionSet().iterator(); iter.hasNext();) {
+            Reaction r = (Reaction) iter.next();
+            if (!r.isForward()) continue;
+            if (r instanceof TROEReaction) troeList.add(r);
+            else if (r instanceof LindemannReaction) lindemannList.add(r);
+            else if (r instanceof ThirdBodyReaction) thirdBodyList.add(r);
+        }
+
+        rList = new LinkedList();
+        duplicates = new LinkedList();
+        LinkedList nonPDepList = new LinkedList();
+        LinkedList pDepList = new LinkedList();
+        generatePDepReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure, nonPDepList, pDepList);
+        LinkedList reversible = new LinkedList();
+        for (Iterator iter = nonPDepList.iterator(); iter.hasNext();) {
+            Reaction r = (Reaction) iter.next();
+            if (!(r instanceof ThirdBodyReaction) && !(r instanceof TROEReaction) && !(r instanceof LindemannReaction)) {
+                rList.add(r);
+                reversible.add(Boolean.valueOf(r.hasReverseReaction()));
+            }
+        }
+        for (Iterator iter = pDepList.iterator(); iter.hasNext();) {
+            Reaction r = (Reaction) iter.next();
+            if (r instanceof PDepReaction) {
+                rList.add(r);
+                reversible.add(Boolean.TRUE);
+            }
+        }
+
+        int size = rList.size() + thirdBodyList.size() + troeList.size() + lindemannList.size();
+        ODEKinetics odeKinetics = new ODEKinetics(nState, size, p_temperature.getK(), p_pressure.getPa());
+        Iterator revIter = reversible.iterator();
+        for (Iterator iter = rList.iterator(); iter.hasNext();) {
+            Reaction r = (Reaction) iter.next();
+            ODEReaction or = transferReaction(r, p_beginStatus, p_temperature, p_pressure);
+            odeKinetics.addReaction(or, ((Boolean) revIter.next()).booleanValue(), r.calculateKeq(p_temperature));
+        }
+        LinkedList[] lists = { thirdBodyList, troeList, lindemannList };
+        for (int i = 0; i < lists.length; i++) {
+            for (Iterator iter = lists[i].iterator(); iter.hasNext();) {
+                Reaction r = (Reaction) iter.next();
+                ODEReaction or = transferReaction(r, p_beginStatus, p_temperature, p_pressure);
+                odeKinetics.addReaction(or, r.hasReverseReaction(), r.calculateKeq(p_temperature));
+            }
+        }
+        return odeKinetics;
+    }
+
+    /**
+     * Effects: collects the edge reactions of the AUTO flux checks (see JDAS.visitAutoEdgeReactions) into arrays
+     * and resets the edge flux ratios and flags
+     * Modifies: edgeID, edgeLeakID, this
+     */
+    protected void generateAutoEdgeReactions(CoreEdgeReactionModel p_model, Temperature p_temperature, Pressure p_pressure) {
+        final ArrayList reactants = new ArrayList();
+        final ArrayList products = new ArrayList();
+        final ArrayList rates = new ArrayList();
+        try {
+            visitAutoEdgeReactions(p_model, p_temperature, p_pressure, new EdgeReactionVisitor() {
+                public void visit(ODEReaction or) {
+                    int[] reactant = new int[or.rNum];
+                    for (int j = 0; j < or.rNum; j++) {
+                        reactant[j] = or.rID[j] - 1;
+                    }
+                    int[] product = new int[or.pNum];
+                    for (int j = 0; j < or.pNum; j++) {
+                        product[j] = or.pID[j] - 1;
+                    }
+                    reactants.add(reactant);
+                    products.add(product);
+                    rates.add(new Double(or.rate));
+                }
+            });
+        }
+        catch (IOException e) {
+            // the visitor above does no I/O
+            throw new RuntimeException(e);
+        }
+        edgeSpeciesNumber = edgeID.size() + edgeLeakID.size();
+        int size = rates.size();
+        edgeReactant = (int[][])reactants.toArray(new int[size][]);
+        edgeProduct = (int[][])products.toArray(new int[size][]);
+        edgeRate = new double[size];
+        for (int i = 0; i < size; i++) {
+            edgeRate[i] = ((Double)rates.get(i)).doubleValue();
+        }
+    }
+
+    /**
+     * Effects: integrates from the concentrations in y at p_tBegin until p_tEnd, until the concentration of species
+     * p_targetID falls below p_targetConcentration (if p_targetID > 0), or until an edge species exceeds the termination
+     * tolerance (if autoflag); leaves the result, at the first point where an edge species exceeded the core tolerance if
+     * there is one, in y, yprime, reactionFlux and endTime, as call_dasslAUTO.f90 does
+     * Modifies: y, yprime, reactionFlux, endTime, prunableSpecies, maxEdgeFluxRatio, targetReached
+     */
+    //## operation integrate(double,double,int,double)
+    protected void integrate(double p_tBegin, double p_tEnd, int p_targetID, double p_targetConcentration) {
+        int n = nState;
+        int reactionNumber = kinetics.getReactionNumber();
+        double[] state = new double[n + 1];
+        double volume = kinetics.getMolarVolume();
+        for (int i = 0; i < n; i++) {
+            state[i] = y[i] * volume;
+        }
+        state[n] = volume;
+
+        boolean conversion = p_targetID > 0;
+        if (!conversion) {
+            p_targetID = 1;
+            p_targetConcentration = -1e10;
+        }
+        double tEnd = p_tEnd;
+        double t = p_tBegin;
+
+        double[] derivative = new double[n + 1];
+        double[] previousFlux = new double[reactionNumber];
+        double[] currentFlux = new double[reactionNumber];
+        double[] totalFlux = new double[reactionNumber];
+        kinetics.getDerivatives(state, derivative);
+        kinetics.getReactionFluxes(state, previousFlux);
+
+        int iterations = 0;
+        boolean stored = false;
+        edgeFlag = -1;
+        edgeFlagCore = -1;
+        if (autoflag) {
+            prunableSpecies = new boolean[edgeSpeciesNumber];
+            maxEdgeFluxRatio = new double[edgeSpeciesNumber];
+            checkEdgeFluxes(state, derivative);
+            if (edgeFlagCore > 0) {
+                storeResult(0, t, state, derivative, new double[reactionNumber]);
+                stored = true;
+            }
+        }
+
+        BDFIntegrator bdf = new BDFIntegrator(kinetics, rtol, atol);
+        boolean started = false;
+        BufferedWriter profiles = openSpeciesProfilesOutputFile();
+        try {
+            while (t < tEnd && state[p_targetID - 1] >= p_targetConcentration * state[n] && edgeFlag == -1) {
+                if (!started) {
+                    bdf.initialize(t, state, tEnd);
+                    started = true;
+                }
+                if (!bdf.step(tEnd)) {
+                    Logger.error(String.format("BDF solver could not take a step from t = %10.4e s", t));
+                    throw new DynamicSimulatorException("BDF");
+                }
+                iterations++;
+                double previousTime = t;
+                t = bdf.getTime();
+                state = bdf.getState();
+
+                kinetics.getReactionFluxes(state, currentFlux);
+                for (int i = 0; i < reactionNumber; i++) {
+                    totalFlux[i] += (currentFlux[i] + previousFlux[i]) * (t - previousTime) / 2;
+                    previousFlux[i] = currentFlux[i];
+                }
+                if (conversion && t <= 1e6) tEnd = 200 * t;
+
+                kinetics.getDerivatives(state, derivative);
+                if (autoflag) {
+                    checkEdgeFluxes(state, derivative);
+                    if (edgeFlagCore > 0 && !stored) {
+                        storeResult(iterations, t, state, derivative, totalFlux);
+                        stored = true;
+                    }
+                }
+
+                if (profiles != null) {
+                    profiles.write(String.format("%12.5G\t", t));
+                    for (int i = 0; i < n; i++) {
+                        profiles.write(String.format("%12.5G\t", state[i] / state[n]));
+                    }
+                    profiles.write("\n");
+                }
+            }
+            if (profiles != null) profiles.close();
+        } catch (IOException e) {
+            Logger.error("Problem writing " + solverDirectory + "/SpeciesProfiles.txt");
+            Logger.logStackTrace(e);
+        }
+
+        //if the core tolerance was never exceeded (or AUTO is off), report the final state
+        if (!stored) storeResult(iterations, t, state, derivative, totalFlux);
+        Logger.verbose(String.format("BDF solver took %d steps with %d Jacobian evaluations", bdf.getStepNumber(), bdf.getJacobianNumber()));
+
+        if (autoflag) {
+            targetReached = edgeFlag < 0;
+            Logger.info(String.format("ODE solver integrated to %9.3e s", t));
+        }
+    }
+
+    /**
+     * Effects: sets edgeFlagCore (edgeFlag) to the ID of an edge species whose flux, relative to the characteristic
+     * core flux, exceeds the core (termination) tolerance, updates maxEdgeFluxRatio, and marks as unprunable the edge
+     * species produced by a reaction with zero flux (cf. EDGEFLUX in call_dasslAUTO.f90)
+     * Modifies: edgeFlag, edgeFlagCore, maxEdgeFluxRatio, prunableSpecies
+     */
+    private void checkEdgeFluxes(double[] p_state, double[] p_derivative) {
+        int n = nState;
+        double volume = p_state[n];
+        double sumOfSquares = 0;
+        for (int i = 0; i < n; i++) {
+            double flux = (volume * p_derivative[i] - p_state[i] * p_derivative[n]) / (volume * volume);
+            sumOfSquares += flux * flux;
+        }
+        double characteristicFlux = Math.sqrt(sumOfSquares);
+
+        double[] rate = new double[edgeSpeciesNumber];
+        Arrays.fill(prunableSpecies, true);
+        for (int i = 0; i < edgeRate.length; i++) {
+            double flux = edgeRate[i];
+            for (int j = 0; j < edgeReactant[i].length; j++) {
+                flux *= p_state[edgeReactant[i][j]] / volume;
+            }
+            for (int j = 0; j < edgeProduct[i].length; j++) {
+                rate[edgeProduct[i][j]] += flux;
+                if (flux == 0) prunableSpecies[edgeProduct[i][j]] = false;
+            }
+        }
+        for (int i = 0; i < edgeSpeciesNumber; i++) {
+            double ratio = rate[i] / characteristicFlux;
+            if (ratio >= coreTol) {
+                edgeFlagCore = i + 1;
+                if (ratio >= termTol) edgeFlag = i + 1;
+            }
+            if (ratio > maxEdgeFluxRatio[i]) maxEdgeFluxRatio[i] = ratio;
+        }
+    }
+
+    private void storeResult(int p_iterations, double p_time, double[] p_state, double[] p_derivative, double[] p_flux) {
+        int n = nState;
+        double volume = p_state[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = p_state[i] / volume;
+            yprime[i] = (volume * p_derivative[i] - p_state[i] * p_derivative[n]) / (volume * volume);
+        }
+        reactionFlux = (double[]) p_flux.clone();
+        endTime = p_time;
+        Global.getSolverTimings().solverIterations = p_iterations;
+    }
+
+    /**
+     * Effects: creates SpeciesProfiles.txt in the solver directory with its header line (as JDASSL does for dasslAUTO.exe) and
+     * returns a writer for the concentration profile; returns null if the file cannot be created
+     */
+    private BufferedWriter openSpeciesProfilesOutputFile() {
+        try {
+            BufferedWriter writer = new BufferedWriter(new FileWriter(new File(solverDirectory + "/SpeciesProfiles.txt")));
+            writer.write("Time(s)\t");
+            // IDs are assigned in insertion order, so this iterates the species by ID
+            for (Iterator iter = IDTranslator.keySet().iterator(); iter.hasNext();) {
+                Species spe = (Species) iter.next();
+                writer.write(spe.getChemkinName() + "\t");
+            }
+            writer.write("\n");
+            return writer;
+        } catch (IOException e) {
+            Logger.error("Problem creating " + solverDirectory + "/SpeciesProfiles.txt");
+            Logger.logStackTrace(e);
+            return null;
+        }
+    }
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\JBDF.java
+*********************************************************************/
+
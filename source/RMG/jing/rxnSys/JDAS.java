@@ -34,6 +34,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -81,25 +83,27 @@ public abstract class JDAS implements DAESolver {
     //protected StringBuilder outputString ;
     protected BufferedWriter bw;
     protected FileWriter fw;
-    protected StringBuilder rString;
-    protected StringBuilder tbrString;
-    protected StringBuilder troeString;
-    protected StringBuilder lindemannString;
+    protected SolverInputArray rArray;
+    protected SolverInputArray tbrArray;
+    protected SolverInputArray troeArray;
+    protected SolverInputArray lindemannArray;
     protected int index; //11/1/07 gmagoon: adding index to allow appropriate naming of RWORK, IWORK****may need to make similar modification for DASPK?
     protected ValidityTester validityTester; //5/5/08 gmagoon: adding validityTester and autoflag as attributes needed for "automatic" time stepping
     protected static boolean autoflag;
     protected double[] reactionFlux;
     protected double[] conversionSet;
     protected double endTime;
-    protected StringBuilder thermoString = new StringBuilder();
-    protected static HashMap edgeID;
-    protected static HashMap edgeLeakID;
+    protected SolverInputArray thermoArray = new SolverInputArray();
+    protected HashMap edgeID;
+    protected HashMap edgeLeakID;
     protected double[] maxEdgeFluxRatio;
     protected boolean[] prunableSpecies;
     protected double termTol;
     protected double coreTol;
     protected static boolean nonnegative = false;
     protected boolean targetReached;
+    protected String solverDirectory; //working directory of the native solver; one per reaction system, so that systems can be solved at the same time
+    protected IdentityHashMap reactionInputCache = new IdentityHashMap(); //solver input of each core reaction from the last call to generatePDepODEReactionList, by reaction
 
     protected JDAS() {
     }
@@ -122,6 +126,8 @@ public abstract class JDAS implements DAESolver {
 
         parameterInfor = p_parameterInfor;
         initialStatus = p_initialStatus;
+        solverDirectory = "ODESolver/ReactionSystem" + (index + 1);
+        new File(solverDirectory).mkdirs();
 
     }
 
@@ -142,12 +148,10 @@ public abstract class JDAS implements DAESolver {
         return conversionSet;
     }
 
-    public StringBuilder generatePDepODEReactionList(ReactionModel p_reactionModel,
+    public SolverInputArray generatePDepODEReactionList(ReactionModel p_reactionModel,
             SystemSnapshot p_beginStatus, Temperature p_temperature, Pressure p_pressure) {
 
-        StringBuilder rString = new StringBuilder();
-        StringBuilder arrayString = new StringBuilder();
-        StringBuilder rateString = new StringBuilder();
+        SolverInputArray rArray = new SolverInputArray();
         CoreEdgeReactionModel cerm = (CoreEdgeReactionModel) p_reactionModel;
 
         rList = new LinkedList();
@@ -159,34 +163,25 @@ public abstract class JDAS implements DAESolver {
 
         int size = nonPDepList.size() + pDepList.size() + duplicates.size();
 
+        // Only the reactions that are new, or whose kinetics or conditions
+        // have changed, since the last call are transferred again; the cache
+        // is rebuilt with the current core reactions, dropping pruned ones
+        IdentityHashMap cache = new IdentityHashMap(2 * size);
+
         for (Iterator iter = nonPDepList.iterator(); iter.hasNext();) {
             Reaction r = (Reaction) iter.next();
 
             if (!(r instanceof ThirdBodyReaction) && !(r instanceof TROEReaction) && !(r instanceof LindemannReaction)) {
                 rList.add(r);
-                ODEReaction or = transferReaction(r, p_beginStatus, p_temperature, p_pressure);
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                ReactionInput input = getReactionInput(r, p_beginStatus, p_temperature, p_pressure, cache);
+                rArray.addReactionIDs(input.or);
                 // Original DASSL has these lines uncommented, while DASPK is as given (should they be different?)
                 if (r.hasReverseReaction()) {
-                    arrayString.append(1 + " ");
+                    rArray.addInt(1);
                 } else {
-                    arrayString.append(0 + " ");
+                    rArray.addInt(0);
                 }
-                rateString.append(or.rate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " ");
+                addRates(rArray, input.or, input.Keq);
 
             }
 
@@ -199,26 +194,12 @@ public abstract class JDAS implements DAESolver {
 
                 rList.add(r);
 
-                ODEReaction or = transferReaction(r, p_beginStatus, p_temperature, p_pressure);
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                ReactionInput input = getReactionInput(r, p_beginStatus, p_temperature, p_pressure, cache);
+                rArray.addReactionIDs(input.or);
 
-                arrayString.append(1 + " ");
+                rArray.addInt(1);
 
-                rateString.append(or.rate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " ");
+                addRates(rArray, input.or, input.Keq);
             }
         }
 
@@ -228,34 +209,69 @@ public abstract class JDAS implements DAESolver {
             //if (!(r instanceof ThirdBodyReaction) && !(r instanceof TROEReaction) && !(r instanceof LindemannReaction)){
             if (r instanceof PDepReaction) {
                 rList.add(r);
-                ODEReaction or = transferReaction(r, p_beginStatus, p_temperature, p_pressure);
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                ReactionInput input = getReactionInput(r, p_beginStatus, p_temperature, p_pressure, cache);
+                rArray.addReactionIDs(input.or);
                 //if (r.hasReverseReaction())
-                arrayString.append(1 + " ");
+                rArray.addInt(1);
                 //else
-                //arrayString.append(0 + " ");
-                rateString.append(or.rate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " ");
+                //rArray.addInt(0);
+                addRates(rArray, input.or, input.Keq);
 
             }
 
         }
 
-        rString.append(arrayString.toString() + "\n" + rateString.toString());
-        return rString;
+        reactionInputCache = cache;
+
+        return rArray;
+    }
+
+    /**
+     * Returns the solver input of reaction p_reaction at the given conditions,
+     * reusing the one from the last call to generatePDepODEReactionList()
+     * if neither the kinetics of the reaction nor the conditions have changed
+     * since, and records it in p_cache.
+     */
+    private ReactionInput getReactionInput(Reaction p_reaction, SystemSnapshot p_beginStatus,
+            Temperature p_temperature, Pressure p_pressure, IdentityHashMap p_cache) {
+        int version = p_reaction.getKineticsVersion();
+        double T = p_temperature.getK();
+        double P = p_pressure.getPa();
+        double beginT = p_beginStatus.getTemperature().getK();
+        ReactionInput input = (ReactionInput) reactionInputCache.get(p_reaction);
+        if (input == null || input.version != version || input.T != T || input.P != P || input.beginT != beginT) {
+            input = new ReactionInput();
+            input.version = version;
+            input.T = T;
+            input.P = P;
+            input.beginT = beginT;
+            input.or = transferReaction(p_reaction, p_beginStatus, p_temperature, p_pressure);
+            input.Keq = p_reaction.calculateKeq(p_temperature);
+        }
+        p_cache.put(p_reaction, input);
+        return input;
+    }
+
+    /**
+     * The solver input of one core reaction, and the kinetics version and
+     * conditions (K and Pa) it was computed at.
+     */
+    private static class ReactionInput {
+        int version;
+        double T;
+        double P;
+        double beginT;
+        ODEReaction or;
+        double Keq;
+    }
+
+    //real array format:  rate, A, n, Ea, Keq
+    private void addRates(SolverInputArray p_array, ODEReaction p_or, double p_Keq) {
+        p_array.addReal(p_or.rate);
+        p_array.addReal(p_or.A);
+        p_array.addReal(p_or.n);
+        p_array.addReal(p_or.E);
+        p_array.addReal(p_Keq);
     }
 
     public void generatePDepReactionList(ReactionModel p_reactionModel,
@@ -267,10 +283,16 @@ public abstract class JDAS implements DAESolver {
         if (cerm.getSeedMechanism() != null)
 		seedList = cerm.getSeedMechanism().getReactionSet();
 
+        // Hash sets holding the same reactions as nonPDepList and pDepList,
+        // so that the checks below do not search the lists
+        HashSet nonPDepSet = new HashSet();
+        HashSet pDepSet = new HashSet();
+
         for (Iterator iter = p_reactionModel.getReactionSet().iterator(); iter.hasNext();) {
             Reaction r = (Reaction) iter.next();
             if (r.isForward() && !(r instanceof ThirdBodyReaction) && !(r instanceof TROEReaction) && !(r instanceof LindemannReaction)) {
                 nonPDepList.add(r);
+                nonPDepSet.add(r);
             }
         }
 
@@ -311,22 +333,25 @@ public abstract class JDAS implements DAESolver {
                          * H+O2=O+OH).  We want the Reaction Library's value to override
                          * the FAME-estimated pdep kinetics.
                          */
-                        else if (nonPDepList.contains(rxn) || nonPDepList.contains(reverse)) {
+                        else if (nonPDepSet.contains(rxn) || nonPDepSet.contains(reverse)) {
                                 //Logger.debug(String.format("Excluding FAME-estimated PDep rate for %s from ODEs because it's in the reaction mechanism",rxn));
 				continue; // exclude rxns already in mechanism
                         }
 			else {
 				//Logger.debug(String.format("Including FAME-estimated PDep rate for  %s in ODEs because it's not in the seed mechanism, nor does it have a P-dep rate from a reaction library.",rxn));
 			}
-            if (!pDepList.contains(rxn) && !pDepList.contains(reverse)) {
+            if (!pDepSet.contains(rxn) && !pDepSet.contains(reverse)) {
                 pDepList.add(rxn);
-            } else if (pDepList.contains(rxn) && !pDepList.contains(reverse)) {
+                pDepSet.add(rxn);
+            } else if (pDepSet.contains(rxn) && !pDepSet.contains(reverse)) {
                 continue;
-            } else if (!pDepList.contains(rxn) && pDepList.contains(reverse)) {
+            } else if (!pDepSet.contains(rxn) && pDepSet.contains(reverse)) {
                 Temperature T = new Temperature(298, "K");
                 if (rxn.calculateKeq(T) > 0.999) {
                     pDepList.remove(reverse);
+                    pDepSet.remove(reverse);
                     pDepList.add(rxn);
+                    pDepSet.add(rxn);
                 }
             }
         }
@@ -376,13 +401,11 @@ public abstract class JDAS implements DAESolver {
         return speStatus;
     }
 
-    public StringBuilder generateThirdBodyReactionList(ReactionModel p_reactionModel,
+    public SolverInputArray generateThirdBodyReactionList(ReactionModel p_reactionModel,
             SystemSnapshot p_beginStatus, Temperature p_temperature, Pressure p_pressure) {
 
         int size = p_reactionModel.getReactionSet().size();
-        StringBuilder arrayString = new StringBuilder();
-        StringBuilder rateString = new StringBuilder();
-        StringBuilder tbrString = new StringBuilder();
+        SolverInputArray tbrArray = new SolverInputArray();
         Iterator iter = p_reactionModel.getReactionSet().iterator();
         thirdBodyList = new LinkedList();
 
@@ -393,40 +416,27 @@ public abstract class JDAS implements DAESolver {
                 ThirdBodyODEReaction or = (ThirdBodyODEReaction) transferReaction(r, p_beginStatus, p_temperature, p_pressure);
                 thirdBodyList.add((ThirdBodyReaction) r);
 
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                tbrArray.addReactionIDs(or);
                 if (r.hasReverseReaction()) {
-                    arrayString.append(1 + " ");
+                    tbrArray.addInt(1);
                 } else {
-                    arrayString.append(0 + " ");
+                    tbrArray.addInt(0);
                 }
-                arrayString.append(or.numCollider + " ");
+                tbrArray.addInt(or.numCollider);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        arrayString.append(or.colliders[i] + " ");
+                        tbrArray.addInt(or.colliders[i]);
                     } else {
-                        arrayString.append(0 + " ");
+                        tbrArray.addInt(0);
                     }
                 }
-                rateString.append(or.rate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " " + or.inertColliderEfficiency + " ");
+                addRates(tbrArray, or, r.calculateKeq(p_temperature));
+                tbrArray.addReal(or.inertColliderEfficiency);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        rateString.append(or.efficiency[i] + " ");
+                        tbrArray.addReal(or.efficiency[i]);
                     } else {
-                        rateString.append(0 + " ");
+                        tbrArray.addReal(0);
                     }
                 }
 
@@ -434,17 +444,14 @@ public abstract class JDAS implements DAESolver {
             }
         }
 
-        tbrString.append(arrayString.toString() + "\n" + rateString.toString());
-        return tbrString;
+        return tbrArray;
     }
 
-    protected StringBuilder generateTROEReactionList(ReactionModel p_reactionModel,
+    protected SolverInputArray generateTROEReactionList(ReactionModel p_reactionModel,
             SystemSnapshot p_beginStatus, Temperature p_temperature, Pressure p_pressure) {
 
         int size = p_reactionModel.getReactionSet().size();
-        StringBuilder arrayString = new StringBuilder();
-        StringBuilder rateString = new StringBuilder();
-        StringBuilder troeString = new StringBuilder();
+        SolverInputArray troeArray = new SolverInputArray();
         Iterator iter = p_reactionModel.getReactionSet().iterator();
         troeList = new LinkedList();
 
@@ -454,64 +461,56 @@ public abstract class JDAS implements DAESolver {
             if (r.isForward() && r instanceof TROEReaction) {
                 TROEODEReaction or = (TROEODEReaction) transferReaction(r, p_beginStatus, p_temperature, p_pressure);
                 troeList.add((TROEReaction) r);
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                troeArray.addReactionIDs(or);
 
                 if (r.hasReverseReaction()) {
-                    arrayString.append(1 + " ");
+                    troeArray.addInt(1);
                 } else {
-                    arrayString.append(0 + " ");
+                    troeArray.addInt(0);
                 }
 
-                arrayString.append(or.numCollider + " ");
+                troeArray.addInt(or.numCollider);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        arrayString.append(or.colliders[i] + " ");
+                        troeArray.addInt(or.colliders[i]);
                     } else {
-                        arrayString.append(0 + " ");
+                        troeArray.addInt(0);
                     }
                 }
                 if (or.troe7) {
-                    arrayString.append(0 + " ");
+                    troeArray.addInt(0);
                 } else {
-                    arrayString.append(1 + " ");
+                    troeArray.addInt(1);
                 }
-                rateString.append(or.highRate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " " + or.inertColliderEfficiency + " ");
+                troeArray.addReal(or.highRate);
+                troeArray.addReal(or.A);
+                troeArray.addReal(or.n);
+                troeArray.addReal(or.E);
+                troeArray.addReal(r.calculateKeq(p_temperature));
+                troeArray.addReal(or.inertColliderEfficiency);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        rateString.append(or.efficiency[i] + " ");
+                        troeArray.addReal(or.efficiency[i]);
                     } else {
-                        rateString.append(0 + " ");
+                        troeArray.addReal(0);
                     }
                 }
-                rateString.append(or.a + " " + or.Tstar + " " + or.T2star + " " + or.T3star + " " + or.lowRate + " ");
+                troeArray.addReal(or.a);
+                troeArray.addReal(or.Tstar);
+                troeArray.addReal(or.T2star);
+                troeArray.addReal(or.T3star);
+                troeArray.addReal(or.lowRate);
             }
         }
-        troeString.append(arrayString.toString() + "\n" + rateString.toString());
-        return troeString;
+        return troeArray;
 
     }
 
-    protected StringBuilder generateLindemannReactionList(ReactionModel p_reactionModel,
+    protected SolverInputArray generateLindemannReactionList(ReactionModel p_reactionModel,
             SystemSnapshot p_beginStatus, Temperature p_temperature, Pressure p_pressure) {
 
         int size = p_reactionModel.getReactionSet().size();
-        StringBuilder arrayString = new StringBuilder();
-        StringBuilder rateString = new StringBuilder();
-        StringBuilder lindemannString = new StringBuilder();
+        SolverInputArray lindemannArray = new SolverInputArray();
         Iterator iter = p_reactionModel.getReactionSet().iterator();
         lindemannList = new LinkedList();
 
@@ -521,50 +520,40 @@ public abstract class JDAS implements DAESolver {
             if (r.isForward() && r instanceof LindemannReaction) {
                 LindemannODEReaction or = (LindemannODEReaction) transferReaction(r, p_beginStatus, p_temperature, p_pressure);
                 lindemannList.add((LindemannReaction) r);
-                arrayString.append(or.rNum + " " + or.pNum + " ");
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.rNum) {
-                        arrayString.append(or.rID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
-                for (int i = 0; i < 3; i++) {
-                    if (i < or.pNum) {
-                        arrayString.append(or.pID[i] + " ");
-                    } else {
-                        arrayString.append(0 + " ");
-                    }
-                }
+                lindemannArray.addReactionIDs(or);
 
                 if (r.hasReverseReaction()) {
-                    arrayString.append(1 + " ");
+                    lindemannArray.addInt(1);
                 } else {
-                    arrayString.append(0 + " ");
+                    lindemannArray.addInt(0);
                 }
 
-                arrayString.append(or.numCollider + " ");
+                lindemannArray.addInt(or.numCollider);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        arrayString.append(or.colliders[i] + " ");
+                        lindemannArray.addInt(or.colliders[i]);
                     } else {
-                        arrayString.append(0 + " ");
+                        lindemannArray.addInt(0);
                     }
                 }
 
-                rateString.append(or.highRate + " " + or.A + " " + or.n + " " + or.E + " " + r.calculateKeq(p_temperature) + " " + or.inertColliderEfficiency + " ");
+                lindemannArray.addReal(or.highRate);
+                lindemannArray.addReal(or.A);
+                lindemannArray.addReal(or.n);
+                lindemannArray.addReal(or.E);
+                lindemannArray.addReal(r.calculateKeq(p_temperature));
+                lindemannArray.addReal(or.inertColliderEfficiency);
                 for (int i = 0; i < 10; i++) {
                     if (i < or.numCollider) {
-                        rateString.append(or.efficiency[i] + " ");
+                        lindemannArray.addReal(or.efficiency[i]);
                     } else {
-                        rateString.append(0 + " ");
+                        lindemannArray.addReal(0);
                     }
                 }
-                rateString.append(or.lowRate + " ");
+                lindemannArray.addReal(or.lowRate);
             }
         }
-        lindemannString.append(arrayString.toString() + "\n" + rateString.toString());
-        return lindemannString;
+        return lindemannArray;
 
     }
 
@@ -573,7 +562,7 @@ public abstract class JDAS implements DAESolver {
         if (id == null) {
             id = new Integer(IDTranslator.size() + 1);
             IDTranslator.put(p_species, id);
-            thermoString.append(p_species.calculateG(initialStatus.getTemperature()) + " ");//10/26/07 gmagoon: changed to avoid use of Global.temperature;****ideally, current temperature would be used, but initial temperature is simplest to pass in current implementation
+            thermoArray.addReal(p_species.calculateG(initialStatus.getTemperature()));//10/26/07 gmagoon: changed to avoid use of Global.temperature;****ideally, current temperature would be used, but initial temperature is simplest to pass in current implementation
         }
         return id.intValue();
     }
@@ -684,7 +673,7 @@ public abstract class JDAS implements DAESolver {
                     }
 
                 }
-                Global.transferReaction = Global.transferReaction + (System.currentTimeMillis() - startTime) / 1000 / 60;
+                Global.getSolverTimings().transferReaction += (System.currentTimeMillis() - startTime) / 1000 / 60;
                 double T2star, T3star, Tstar, a;
                 T2star = ((TROEReaction) p_reaction).getT2star();
                 T3star = ((TROEReaction) p_reaction).getT3star();
@@ -746,7 +735,7 @@ public abstract class JDAS implements DAESolver {
                     }
 
                 }
-                Global.transferReaction = Global.transferReaction + (System.currentTimeMillis() - startTime) / 1000 / 60;
+                Global.getSolverTimings().transferReaction += (System.currentTimeMillis() - startTime) / 1000 / 60;
 
                 rate = p_reaction.calculateTotalRate(p_beginStatus.temperature);
 
@@ -786,6 +775,44 @@ public abstract class JDAS implements DAESolver {
     public String getEdgeReactionString(CoreEdgeReactionModel model, HashMap IDmap,
             Reaction r, Temperature temperature, Pressure pressure, int offset) {
 
+        return getEdgeReactionString(getEdgeReaction(model, IDmap, r, temperature, pressure, offset));
+    }
+
+    public String getEdgeReactionString(ODEReaction or) {
+        int[] rid = or.rID;
+        int[] pid = or.pID;
+        return or.rNum + " " + or.pNum + " " + rid[0] + " " + rid[1] + " " + rid[2] + " " + pid[0] + " " + pid[1] + " " + pid[2] + " " + or.rate;
+    }
+
+    /**
+     * Writes the same line as getEdgeReactionString(or) straight to p_writer,
+     * without building the line as a String first.
+     */
+    private static void writeEdgeReaction(BufferedWriter p_writer, ODEReaction or) throws IOException {
+        p_writer.write(Integer.toString(or.rNum));
+        p_writer.write(' ');
+        p_writer.write(Integer.toString(or.pNum));
+        for (int i = 0; i < 3; i++) {
+            p_writer.write(' ');
+            p_writer.write(Integer.toString(or.rID[i]));
+        }
+        for (int i = 0; i < 3; i++) {
+            p_writer.write(' ');
+            p_writer.write(Integer.toString(or.pID[i]));
+        }
+        p_writer.write(' ');
+        p_writer.write(Double.toString(or.rate));
+    }
+
+    /**
+     * Requires: all reactants of r are core species
+     * Effects: returns the edge reaction r as an ODEReaction whose reactant IDs are core IDs (from getRealID) and whose product IDs
+     * are edge IDs (from IDmap, numbered after offset); only the products that are not in the core are kept, and the rate is the rate coefficient k
+     * Modifies: IDmap
+     */
+    public ODEReaction getEdgeReaction(CoreEdgeReactionModel model, HashMap IDmap,
+            Reaction r, Temperature temperature, Pressure pressure, int offset) {
+
         int edgeSpeciesCounter = IDmap.size() + offset;
 
         // Find the rate coefficient
@@ -823,23 +850,31 @@ public abstract class JDAS implements DAESolver {
                     tempProdArray[prodCount - 1] = id;
                 }
             }
-            //update the output string with info for one reaction
-            String str = reacCount + " " + prodCount + " " + tempReacArray[0] + " " + tempReacArray[1] + " " + tempReacArray[2] + " " + tempProdArray[0] + " " + tempProdArray[1] + " " + tempProdArray[2] + " " + k;
-            return str;
+            return new ODEReaction(reacCount, prodCount, tempReacArray, tempProdArray, k);
         } else {
             throw new NegativeRateException(r.toChemkinString(temperature) + ": " + String.valueOf(k));
         }
     }
 
-    public void getAutoEdgeReactionInfo(CoreEdgeReactionModel model, Temperature p_temperature,
-            Pressure p_pressure) {
-        //updated 10/22/09 by gmagoon to use BufferedReader; this isn't exactly the most elegant solution (as I have effectively copied code and made this loop through twice in order to correctly count the number of edge species and reactions), but it should save on memory
+    /**
+     * Receives the edge reactions of the AUTO flux checks one at a time, as visitAutoEdgeReactions enumerates them.
+     */
+    protected interface EdgeReactionVisitor {
+        void visit(ODEReaction p_reaction) throws IOException;
+    }
+
+    /**
+     * Requires: the IDs of all core species have been assigned by getRealID
+     * Effects: passes to p_visitor, in a fixed order, the edge reactions (as ODEReactions from getEdgeReaction) that the AUTO edge flux
+     * checks are based on, without keeping them; edge species are numbered from 1 in edgeID, followed consecutively by the P-dep network
+     * leak species in edgeLeakID, so every enumeration gives the same reactions and IDs
+     * Modifies: edgeID, edgeLeakID
+     */
+    public void visitAutoEdgeReactions(CoreEdgeReactionModel model, Temperature p_temperature,
+            Pressure p_pressure, EdgeReactionVisitor p_visitor) throws IOException {
 
         //IMPORTANT: this code should pass the information needed to perform the same checks as done by the validity testing in the Java code
         //much of code below is taken or based off of code from appendUnreactedSpeciesStatus in ReactionSystem.java
-        //StringBuilder edgeReacInfoString = new StringBuilder();
-        int edgeReactionCounter = 0;
-        int edgeSpeciesCounter = 0;
 
         // First use reactions in unreacted reaction set, which is valid for both RateBasedRME and RateBasedPDepRME
         edgeID = new HashMap();
@@ -848,12 +883,9 @@ public abstract class JDAS implements DAESolver {
         for (Iterator iur = ur.iterator(); iur.hasNext();) {
             Reaction r = (Reaction) iur.next();
             if (((CoreEdgeReactionModel) model).reactantsInCoreQ(r.getStructure())) {
-                edgeReactionCounter++;
-                String str = getEdgeReactionString(model, edgeID, r, p_temperature, p_pressure, 0);//this line is needed even when not writing to file because it will update edgeID
-//			    edgeReacInfoString.append("\n" + str);
+                p_visitor.visit(getEdgeReaction(model, edgeID, r, p_temperature, p_pressure, 0));
             }
         }
-        edgeSpeciesCounter = edgeID.size();//update edge species counter (this will be important for the case of non-P-dep operation)
         // For the case where validityTester is RateBasedPDepVT (assumed to also be directly associated with use of RateBasedPDepRME), consider two additional types of reactions
         if (validityTester instanceof RateBasedPDepVT) {
             //first consider NetReactions (formerly known as PDepNetReactionList)
@@ -900,15 +932,11 @@ public abstract class JDAS implements DAESolver {
                     //write the string for the reaction with an edge product (it has been assumed above that only one side will have an edge species (although both sides of the reaction could have a core species))
                     if (edgeReaction) {
                         if (forwardFlag) {
-                            edgeReactionCounter++;
-                            String str = getEdgeReactionString(model, edgeID, rxn, p_temperature, p_pressure, 0);//use the forward reaction
-                            //                                               edgeReacInfoString.append("\n" + str);
+                            p_visitor.visit(getEdgeReaction(model, edgeID, rxn, p_temperature, p_pressure, 0));//use the forward reaction
                         } else {
                             PDepReaction rxn_r = (PDepReaction) rxn.getReverseReaction();
                             if (rxn_r != null) {//make sure the reverse is not null
-                                edgeReactionCounter++;
-                                String str = getEdgeReactionString(model, edgeID, rxn_r, p_temperature, p_pressure, 0);//use the reverse reaction
-                                //                                               edgeReacInfoString.append("\n" + str);
+                                p_visitor.visit(getEdgeReaction(model, edgeID, rxn_r, p_temperature, p_pressure, 0));//use the reverse reaction
                             }
                         }
                     }
@@ -920,7 +948,6 @@ public abstract class JDAS implements DAESolver {
             //with the FAME approach we still group all the wells from separate networks together in a new construct, edgeLeakID, analogous to edge ID
             //edgeLeakID may include some of the same species as edgeID, as well as some new species
             //the IDs used in edgeID and edgeLeakID will be consecutive; i.e. edgeID will go from 1 to N and edgeFluxID will go from N+1 to N+M
-            edgeSpeciesCounter = edgeID.size();//above functions use getEdgeReactionString, which only uses edgeSpeciesCounter locally; we need to update it for the current context
             for (Iterator iter1 = PDepNetwork.getNetworks().iterator(); iter1.hasNext();) {
                 PDepNetwork pdn = (PDepNetwork) iter1.next();
                 double k = 0.0;
@@ -938,10 +965,7 @@ public abstract class JDAS implements DAESolver {
                             }
                         }
                         if (allCoreReac) {//only consider cases where all reactants are in the core
-                            edgeReactionCounter++;
-                            ////update the output string with info for kLeak for one PDepNetwork
-                            String str = getEdgeReactionString(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size());//use the forward reaction
-                            //bw.write("\n" + str);
+                            p_visitor.visit(getEdgeReaction(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size()));//use the forward reaction
                         }
                     } else {
                         PDepReaction rxnReverse = (PDepReaction) rxn.getReverseReaction();
@@ -956,10 +980,7 @@ public abstract class JDAS implements DAESolver {
                             }
                         }
                         if (allCoreReac) {//only consider cases where all reactants are in the core
-                            edgeReactionCounter++;
-                            ////update the output string with info for kLeak for one PDepNetwork
-                            String str = getEdgeReactionString(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size());//use the reverse reaction
-                            //bw.write("\n" + str);
+                            p_visitor.visit(getEdgeReaction(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size()));//use the reverse reaction
                         }
                     }
                 } else {
@@ -976,10 +997,7 @@ public abstract class JDAS implements DAESolver {
                                 }
                             }
                             if (allCoreReac) {//only consider cases where all reactants are in the core
-                                edgeReactionCounter++;
-                                ////update the output string with info for kLeak for one PDepNetwork
-                                String str = getEdgeReactionString(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size());//use the forward reaction
-                                //bw.write("\n" + str);
+                                p_visitor.visit(getEdgeReaction(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size()));//use the forward reaction
                             }
                         } else if (!rxn.getReactant().getIncluded() && rxn.getProduct().getIncluded()) {
                             PDepReaction rxnReverse = (PDepReaction) rxn.getReverseReaction();
@@ -992,200 +1010,40 @@ public abstract class JDAS implements DAESolver {
                                 }
                             }
                             if (allCoreReac) {//only consider cases where all reactants are in the core
-                                edgeReactionCounter++;
-                                ////update the output string with info for kLeak for one PDepNetwork
-                                String str = getEdgeReactionString(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size());//use the reverse reaction
-                                //bw.write("\n" + str);
+                                p_visitor.visit(getEdgeReaction(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size()));//use the reverse reaction
                             }
                         }
                     }
                 }
             }
         }
-        edgeSpeciesCounter = edgeID.size() + edgeLeakID.size();
-
-
+    }
 
-        //write the counter (and tolerance) info and go through a second time, this time writing to the buffered writer
+    public void getAutoEdgeReactionInfo(CoreEdgeReactionModel model, Temperature p_temperature,
+            Pressure p_pressure) {
+        //the counts come first, so the edge reactions are enumerated twice (cf. the 10/22/09 gmagoon version): the first pass only counts
+        //them and numbers the edge species, the second writes each one as it is reached
+        final int[] edgeReactionCounter = {0};
         try {
-            //edgeSpeciesCounter = edgeID.size();
-            bw.write("\n" + termTol + " " + coreTol + "\n" + edgeSpeciesCounter + " " + edgeReactionCounter);
-            //bw.flush();
-            //	bw.write(edgeReacInfoString);
-
-            edgeReactionCounter = 0;
-            edgeSpeciesCounter = 0;
-
-            // First use reactions in unreacted reaction set, which is valid for both RateBasedRME and RateBasedPDepRME
-            edgeID = new HashMap();
-            edgeLeakID = new HashMap();
-            ur = model.getUnreactedReactionSet();
-            for (Iterator iur = ur.iterator(); iur.hasNext();) {
-                Reaction r = (Reaction) iur.next();
-                if (((CoreEdgeReactionModel) model).reactantsInCoreQ(r.getStructure())) {
-                    edgeReactionCounter++;
-                    String str = getEdgeReactionString(model, edgeID, r, p_temperature, p_pressure, 0);//this line is needed even when not writing to file because it will update edgeID
-                    bw.write("\n" + str);
+            visitAutoEdgeReactions(model, p_temperature, p_pressure, new EdgeReactionVisitor() {
+                public void visit(ODEReaction p_reaction) {
+                    edgeReactionCounter[0]++;
                 }
-
-            }
-            edgeSpeciesCounter = edgeID.size();//update edge species counter (this will be important for the case of non-P-dep operation)
-            // For the case where validityTester is RateBasedPDepVT (assumed to also be directly associated with use of RateBasedPDepRME), consider two additional types of reactions
-            if (validityTester instanceof RateBasedPDepVT) {
-                //first consider NetReactions (formerly known as PDepNetReactionList)
-                for (Iterator iter0 = PDepNetwork.getNetworks().iterator(); iter0.hasNext();) {
-                    PDepNetwork pdn = (PDepNetwork) iter0.next();
-                    for (ListIterator iter = pdn.getNetReactions().listIterator(); iter.hasNext();) {
-                        PDepReaction rxn = (PDepReaction) iter.next();
-                        //  boolean allCoreReac=true; //flag to check whether all the reactants are in the core;
-                        boolean forwardFlag = true;//flag to track whether the direction that goes to (as products) at least one edge species is forward or reverse (presumably from all core species)
-                        boolean edgeReaction = false;//flag to track whether this is an edge reaction
-                        //first determine the direction that gives unreacted products; this will set the forward flag
-                        for (int j = 0; j < rxn.getReactantNumber(); j++) {
-                            Species species = (Species) rxn.getReactantList().get(j);
-                            if (model.containsAsUnreactedSpecies(species)) {
-                                forwardFlag = false; //use the reverse reaction
-                                edgeReaction = true;
-                            }
-                        }
-                        for (int j = 0; j < rxn.getProductNumber(); j++) {
-                            Species species = (Species) rxn.getProductList().get(j);
-                            if (model.containsAsUnreactedSpecies(species)) {
-                                forwardFlag = true; //use the forward reaction
-                                edgeReaction = true;
-                            }
-                        }
-                        //check whether all reactants are in the core; if not, it is not a true edge reaction (alternatively, we could use an allCoreReac flag like elsewhere)
-                        if (edgeReaction) {
-                            if (forwardFlag) {
-                                for (int j = 0; j < rxn.getReactantNumber(); j++) {
-                                    Species species = (Species) rxn.getReactantList().get(j);
-                                    if (!model.containsAsReactedSpecies(species)) {
-                                        edgeReaction = false;
-                                    }
-                                }
-                            } else {
-                                for (int j = 0; j < rxn.getProductNumber(); j++) {
-                                    Species species = (Species) rxn.getProductList().get(j);
-                                    if (!model.containsAsReactedSpecies(species)) {
-                                        edgeReaction = false;
-                                    }
-                                }
-                            }
-                        }
-                        //write the string for the reaction with an edge product (it has been assumed above that only one side will have an edge species (although both sides of the reaction could have a core species))
-                        if (edgeReaction) {
-                            if (forwardFlag) {
-                                edgeReactionCounter++;
-                                String str = getEdgeReactionString(model, edgeID, rxn, p_temperature, p_pressure, 0);//use the forward reaction
-                                bw.write("\n" + str);
-                            } else {
-                                PDepReaction rxn_r = (PDepReaction) rxn.getReverseReaction();
-                                if (rxn_r != null) {//make sure the reverse is not null
-                                    edgeReactionCounter++;
-                                    String str = getEdgeReactionString(model, edgeID, rxn_r, p_temperature, p_pressure, 0);//use the reverse reaction
-                                    bw.write("\n" + str);
-                                }
-                            }
-                        }
-                    }
+            });
+            int edgeSpeciesCounter = edgeID.size() + edgeLeakID.size();
+
+            //write the counter (and tolerance) info followed by one line per edge reaction
+            bw.write("\n" + termTol + " " + coreTol + "\n" + edgeSpeciesCounter + " " + edgeReactionCounter[0]);
+            visitAutoEdgeReactions(model, p_temperature, p_pressure, new EdgeReactionVisitor() {
+                public void visit(ODEReaction or) throws IOException {
+                    bw.write('\n');
+                    writeEdgeReaction(bw, or);
                 }
-
-                //second, consider kLeak of each reaction network so that the validity of each reaction network may be tested
-                //in the original CHEMDIS approach, we included a reaction and pseudospecies for each kleak/P-dep network
-                //with the FAME approach we still group all the wells from separate networks together in a new construct, edgeLeakID, analogous to edge ID
-                //edgeLeakID may include some of the same species as edgeID, as well as some new species
-                //the IDs used in edgeID and edgeLeakID will be consecutive; i.e. edgeID will go from 1 to N and edgeFluxID will go from N+1 to N+M
-                edgeSpeciesCounter = edgeID.size();//above functions use getEdgeReactionString, which only uses edgeSpeciesCounter locally; we need to update it for the current context
-                for (Iterator iter1 = PDepNetwork.getNetworks().iterator(); iter1.hasNext();) {
-                    PDepNetwork pdn = (PDepNetwork) iter1.next();
-                    double k = 0.0;
-                    boolean allCoreReac = false;
-                    if (pdn.getPathReactions().size() == 1 && pdn.getNetReactions().size() == 0) {// If there is only one path reaction and no net reactions (i.e. the network is A + B --> C*), use the high-pressure limit rate as the flux rather than the k(T,P) value (cf. PDepNetwork.getLeakFlux())
-                        PDepReaction rxn = pdn.getPathReactions().get(0);
-                        allCoreReac = false;//allCoreReac will be used to track whether all reactant species are in the core
-                        if (!rxn.getProduct().getIncluded()) {
-                            allCoreReac = true;
-                            //iterate over the reactants, counting and storing IDs in tempReacArray, up to a maximum of 3 reactants
-                            for (ListIterator<Species> rIter = rxn.getReactant().getSpeciesListIterator(); rIter.hasNext();) {
-                                Species spe = (Species) rIter.next();
-                                if (!model.containsAsReactedSpecies(spe)) {
-                                    allCoreReac = false;
-                                }
-                            }
-                            if (allCoreReac) {//only consider cases where all reactants are in the core
-                                edgeReactionCounter++;
-                                ////update the output string with info for kLeak for one PDepNetwork
-                                String str = getEdgeReactionString(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size());//use the forward reaction
-                                bw.write("\n" + str);
-                            }
-                        } else {
-                            PDepReaction rxnReverse = (PDepReaction) rxn.getReverseReaction();
-                            if (rxnReverse != null) {
-                                allCoreReac = true;
-                                //iterate over the products, counting and storing IDs in tempReacArray, up to a maximum of 3 reactants
-                                for (ListIterator<Species> rIter = rxn.getProduct().getSpeciesListIterator(); rIter.hasNext();) {
-                                    Species spe = (Species) rIter.next();
-                                    if (!model.containsAsReactedSpecies(spe)) {
-                                        allCoreReac = false;
-                                    }
-                                }
-                            }
-                            if (allCoreReac) {//only consider cases where all reactants are in the core
-                                edgeReactionCounter++;
-                                ////update the output string with info for kLeak for one PDepNetwork
-                                String str = getEdgeReactionString(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size());//use the reverse reaction
-                                bw.write("\n" + str);
-                            }
-                        }
-                    } else {
-                        for (ListIterator<PDepReaction> iter = pdn.getNonincludedReactions().listIterator(); iter.hasNext();) {//cf. getLeakFlux in PDepNetwork
-                            PDepReaction rxn = iter.next();
-                            allCoreReac = false;//allCoreReac will be used to track whether all reactant species are in the core
-                            if (rxn.getReactant().getIncluded() && !rxn.getProduct().getIncluded()) {
-                                allCoreReac = true;
-                                //iterate over the reactants, counting and storing IDs in tempReacArray, up to a maximum of 3 reactants
-                                for (ListIterator<Species> rIter = rxn.getReactant().getSpeciesListIterator(); rIter.hasNext();) {
-                                    Species spe = (Species) rIter.next();
-                                    if (!model.containsAsReactedSpecies(spe)) {
-                                        allCoreReac = false;
-                                    }
-                                }
-                                if (allCoreReac) {//only consider cases where all reactants are in the core
-                                    edgeReactionCounter++;
-                                    ////update the output string with info for kLeak for one PDepNetwork
-                                    String str = getEdgeReactionString(model, edgeLeakID, rxn, p_temperature, p_pressure, edgeID.size());//use the forward reaction
-                                    bw.write("\n" + str);
-                                }
-                            } else if (!rxn.getReactant().getIncluded() && rxn.getProduct().getIncluded()) {
-                                PDepReaction rxnReverse = (PDepReaction) rxn.getReverseReaction();
-                                allCoreReac = true;
-                                //iterate over the products, counting and storing IDs in tempReacArray, up to a maximum of 3 reactants
-                                for (ListIterator<Species> rIter = rxn.getProduct().getSpeciesListIterator(); rIter.hasNext();) {
-                                    Species spe = (Species) rIter.next();
-                                    if (!model.containsAsReactedSpecies(spe)) {
-                                        allCoreReac = false;
-                                    }
-                                }
-                                if (allCoreReac) {//only consider cases where all reactants are in the core
-                                    edgeReactionCounter++;
-                                    ////update the output string with info for kLeak for one PDepNetwork
-                                    String str = getEdgeReactionString(model, edgeLeakID, rxnReverse, p_temperature, p_pressure, edgeID.size());//use the reverse reaction
-                                    bw.write("\n" + str);
-                                }
-                            }
-                        }
-                    }
-
-                }
-            }
-            edgeSpeciesCounter = edgeID.size() + edgeLeakID.size();//this line is not needed here, but it is included for consistency with the first pass
+            });
         } catch (IOException e) {
             Logger.error("Problem writing Solver Input File!");
             Logger.logStackTrace(e);
         }
-
-
     }
 
     public void getConcentrationFlags(ReactionModel p_reactionModel) {
@@ -1265,9 +1123,9 @@ public abstract class JDAS implements DAESolver {
         return totalNonInertConc;
     }
 
-    // set up the input file
+    // set up the input file (SolverInput.dat in solverDirectory)
     public void setupInputFile() {
-        File SolverInput = new File("ODESolver/SolverInput.dat");
+        File SolverInput = new File(solverDirectory + "/SolverInput.dat");
         try {
             fw = new FileWriter(SolverInput);
             bw = new BufferedWriter(fw);
@@ -1278,4 +1136,32 @@ public abstract class JDAS implements DAESolver {
             Logger.logStackTrace(e);
         }
     }
+
+    //this should be the end of the input file
+    public void closeInputFile() {
+        try {
+            bw.flush();
+            bw.close();
+            fw.close();
+        } catch (IOException e) {
+            Logger.error("Problem closing Solver Input File!");
+            Logger.logStackTrace(e);
+        }
+    }
+
+    /**
+     * Write the temperature and pressure followed by the size and the integer and real arrays of
+     * each reaction list, in the order the solvers read them.
+     */
+    public void writeReactionArrays(Temperature p_temperature, Pressure p_pressure) throws IOException {
+        bw.write(p_temperature.getK() + " " + p_pressure.getPa() + "\n" + rList.size() + "\n");
+        rArray.write(bw);
+        bw.write("\n" + thirdBodyList.size() + "\n");
+        tbrArray.write(bw);
+        bw.write("\n" + troeList.size() + "\n");
+        troeArray.write(bw);
+        bw.write("\n" + lindemannList.size() + "\n");
+        lindemannArray.write(bw);
+        bw.write("\n");
+    }
 }
@@ -39,6 +39,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.*;
 
 import jing.chem.Species;
@@ -126,22 +127,22 @@ public class JDASPK extends JDAS {
 			
         	nState = p_reactionModel.getSpeciesNumber();
 			
-//        	troeString is a combination of a integer and a real array
+//        	troeArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10, alpha, Tstar, T2star, T3star, lowRate  (21 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0), ncollider, c1, c2,..c10, troe(0=T or 1=F) (21 elements)
-        	troeString = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+        	troeArray = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
         	
-//        	tbrString is a combination of a integer and a real array
+//        	tbrArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10  (16 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0), ncollider, c1, c2,..c10 (20 elements)
-			tbrString = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			tbrArray = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-			lindemannString = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			lindemannArray = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-			//rString is a combination of a integer and a real array
+			//rArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0)
-			rString = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			rArray = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
 			nParameter = 0;
 			if (parameterInfor != 0) {
@@ -156,30 +157,28 @@ public class JDASPK extends JDAS {
         //6/25/08 gmagoon: (next two lines) for autoflag, get binary 0 or 1 corresponding to boolean false/true
         int af = 0;
         if (autoflag) af = 1;
+        int impSpecies = -1;
+        double targetConc = 0;
+        if (tt instanceof ConversionTT){
+                SpeciesConversion sc = (SpeciesConversion)((ConversionTT)tt).speciesGoalConversionSet.get(0);
+                impSpecies = getRealID(sc.species);
+                targetConc = conversionSet[p_iterationNum];
+        }
         try{
-            if (tt instanceof ConversionTT){
-                    SpeciesConversion sc = (SpeciesConversion)((ConversionTT)tt).speciesGoalConversionSet.get(0);
-                bw.write(nState + "\t" + neq + "\t" +  getRealID(sc.species) + "\t 1" +"\t"+ af + "\t0\n"); //6/25/08 gmagoon: added autoflag, needed when using daspkAUTO.exe; 080509 gmagoon: added sensitivity flag = 0
-                bw.write(conversionSet[p_iterationNum]+"\n");
-
-            }
-            else{
-                    bw.write(nState + "\t" + neq + "\t" +  -1 + "\t" +1+"\t"+ af + "\t0\n");//6/25/08 gmagoon: added autoflag, needed when using daspkAUTO.exe; 080509 gmagoon: added sensitivity flag = 0
-                    bw.write(0+"\n");
-
-            }
+            bw.write(nState + "\t" + neq + "\t" +  impSpecies + "\t 1" +"\t"+ af + "\t0\n"); //6/25/08 gmagoon: added autoflag, needed when using daspkAUTO.exe; 080509 gmagoon: added sensitivity flag = 0
+            bw.write(targetConc+"\n");
             bw.write( tBegin+" "+tEnd+"\n" );
-                    for (int i=0; i<nState; i++)
-                            bw.write(y[i]+" ");
-                    bw.write("\n");
-                    for (int i=0; i<nState; i++)
-                            bw.write(yprime[i]+" ");
-                    bw.write("\n");
-                    for (int i=0; i<30; i++)
-                            bw.write(info[i]+" ");
-                    bw.write("\n"+ rtol + " "+atol);
-
-                    bw.write("\n" + thermoString.toString() + "\n" + p_temperature.getK() + " " + p_pressure.getPa() + "\n" + rList.size() + "\n" + rString.toString() + "\n" + thirdBodyList.size() + "\n"+tbrString.toString() + "\n" + troeList.size() + "\n" + troeString.toString()+"\n" + lindemannList.size() + "\n" + lindemannString.toString() + "\n");
+            for (int i=0; i<nState; i++)
+                    bw.write(y[i]+" ");
+            bw.write("\n");
+            for (int i=0; i<nState; i++)
+                    bw.write(yprime[i]+" ");
+            bw.write("\n");
+            for (int i=0; i<30; i++)
+                    bw.write(info[i]+" ");
+            bw.write("\n"+ rtol + " "+atol);
+            bw.write("\n" + thermoArray.toString() + "\n");
+            writeReactionArrays(p_temperature, p_pressure);
         }
         catch (IOException e) {
             Logger.error("Problem writing Solver Input File!");
@@ -191,22 +190,14 @@ public class JDASPK extends JDAS {
 	
                // Add flags that specify whether the concentrations are constant or not
 		getConcentrationFlags(p_reactionModel);
-                //this should be the end of the input file
-                try{
-                    bw.flush();
-                    bw.close();
-                    fw.close();
-                }
-                catch (IOException e) {
-                    Logger.error("Problem closing Solver Input File!");
-                    Logger.logStackTrace(e);
-		}
+        //this should be the end of the input file
+        closeInputFile();
         int idid=0;
         LinkedHashMap speStatus = new LinkedHashMap();
         double [] senStatus = new double[nParameter*nState];
         
 		int temp = 1;
-        Global.solverPrepossesor = Global.solverPrepossesor + (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().solverPrepossesor += (System.currentTimeMillis() - startTime)/1000/60;
 		
         startTime = System.currentTimeMillis();
         	//idid = solveDAE(p_initialization, reactionList, p_reactionChanged, thirdBodyReactionList, troeReactionList, nState, y, yprime, tBegin, tEnd, this.rtol, this.atol, T, P);
@@ -216,10 +207,10 @@ public class JDASPK extends JDAS {
         	throw new DynamicSimulatorException("DASPK: SA off.");
         }
         Logger.info("After ODE: from " + String.valueOf(tBegin) + " SEC to " + String.valueOf(endTime) + "SEC");
-        Global.solvertime = Global.solvertime + (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().solvertime += (System.currentTimeMillis() - startTime)/1000/60;
         startTime = System.currentTimeMillis();
         speStatus = generateSpeciesStatus(p_reactionModel, y, yprime, 0);
-        Global.speciesStatusGenerator = Global.speciesStatusGenerator + (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().speciesStatusGenerator += (System.currentTimeMillis() - startTime)/1000/60;
         
         
 	SystemSnapshot sss = new SystemSnapshot(new ReactionTime(endTime, "sec"), speStatus, p_beginStatus.getTemperature(), p_beginStatus.getPressure());
@@ -257,7 +248,7 @@ public class JDASPK extends JDAS {
                 String workingDirectory = System.getProperty("RMG.workingDirectory");
 		
 		// write the input file
-//		File SolverInput = new File("ODESolver/SolverInput.dat");
+//		File SolverInput = new File(solverDirectory + "/SolverInput.dat");
 //		try {
 //			FileWriter fw = new FileWriter(SolverInput);
 //			fw.write(outputString.toString());
@@ -276,12 +267,9 @@ public class JDASPK extends JDAS {
                 try {
 
                         String[] command = {workingDirectory +  "/bin/daspkAUTO.exe"};//5/5/08 gmagoon: changed to call daspkAUTO.exe
-                                File runningDir = new File("ODESolver");
-
-                                Process solver = Runtime.getRuntime().exec(command, null, runningDir);
-                                InputStream is = solver.getInputStream();
-                                InputStreamReader isr = new InputStreamReader(is);
-                                BufferedReader br = new BufferedReader(isr);
+                                // daspkAUTO.exe reads the input files in the solver directory and exits, so each solve runs a new process
+                                NativeWorkerPool solver = NativeWorkerPool.getPool(command, solverDirectory, null, 1);
+                                BufferedReader br = new BufferedReader(new StringReader(solver.call(null)));
                                 String line=null;
                                 while ( (line = br.readLine()) != null) {
                                         line = line.trim();
@@ -293,10 +281,6 @@ public class JDASPK extends JDAS {
 				if(silentError){
 				    Logger.error("Error: No stdout output from DASPK");
 				}
-                        int exitValue = solver.waitFor();
-			is.close();
-			solver.getErrorStream().close();
-			solver.getOutputStream().close();
                 }
                 catch (Exception e) {
                         String err = "Error in running ODESolver \n";
@@ -308,12 +292,12 @@ public class JDASPK extends JDAS {
 
                 //11/1/07 gmagoon: renaming RWORK and IWORK files
                 renameIntermediateFilesAfterRun();
-		return readOutputFile("ODESolver/SolverOutput.dat");
+		return readOutputFile(solverDirectory + "/SolverOutput.dat");
 	}
         
         private void renameIntermediateFilesBeforeRun(){
-                File f = new File("ODESolver/RWORK_"+index+".DAT");
-		File newFile = new File("ODESolver/RWORK.DAT");
+                File f = new File(solverDirectory + "/RWORK_"+index+".DAT");
+		File newFile = new File(solverDirectory + "/RWORK.DAT");
                 boolean renameSuccess = false;
                 if(f.exists()){
 			if(newFile.exists())
@@ -326,8 +310,8 @@ public class JDASPK extends JDAS {
                         }
                 }
                 
-                f = new File("ODESolver/IWORK_"+index+".DAT");
-                newFile = new File("ODESolver/IWORK.DAT");
+                f = new File(solverDirectory + "/IWORK_"+index+".DAT");
+                newFile = new File(solverDirectory + "/IWORK.DAT");
                 if(f.exists()){
                     if(newFile.exists())
                             newFile.delete();
@@ -339,8 +323,8 @@ public class JDASPK extends JDAS {
                     }
                 }
 		
-                f = new File("ODESolver/variables_"+index+".dat");
-                newFile = new File("ODESolver/variables.dat");
+                f = new File(solverDirectory + "/variables_"+index+".dat");
+                newFile = new File(solverDirectory + "/variables.dat");
                 if(f.exists()){
                     if(newFile.exists())
                             newFile.delete();
@@ -354,8 +338,8 @@ public class JDASPK extends JDAS {
         }
         
 	private void renameIntermediateFilesAfterRun() {
-            File f = new File("ODESolver/RWORK.DAT");
-            File newFile = new File("ODESolver/RWORK_"+index+".DAT");
+            File f = new File(solverDirectory + "/RWORK.DAT");
+            File newFile = new File(solverDirectory + "/RWORK_"+index+".DAT");
             if(newFile.exists())
                 newFile.delete();
             boolean renameSuccess = f.renameTo(newFile);
@@ -365,8 +349,8 @@ public class JDASPK extends JDAS {
                 System.exit(0);
             }
             
-            f = new File("ODESolver/IWORK.DAT");
-            newFile = new File("ODESolver/IWORK_"+index+".DAT");
+            f = new File(solverDirectory + "/IWORK.DAT");
+            newFile = new File(solverDirectory + "/IWORK_"+index+".DAT");
             if(newFile.exists())
                 newFile.delete();
             renameSuccess = f.renameTo(newFile);
@@ -376,8 +360,8 @@ public class JDASPK extends JDAS {
                 System.exit(0);
             }
             
-            f = new File("ODESolver/variables.dat");
-            newFile = new File("ODESolver/variables_"+index+".dat");
+            f = new File(solverDirectory + "/variables.dat");
+            newFile = new File(solverDirectory + "/variables_"+index+".dat");
             if(newFile.exists())
                 newFile.delete();
             renameSuccess = f.renameTo(newFile);
@@ -397,7 +381,7 @@ public class JDASPK extends JDAS {
         	BufferedReader br = new BufferedReader(fr);
         	String line = br.readLine();
         	//StringTokenizer st = new StringTokenizer(line);
-        	Global.solverIterations = Integer.parseInt(line.trim());
+        	Global.getSolverTimings().solverIterations = Integer.parseInt(line.trim());
         	line = br.readLine();
         	if (Double.parseDouble(line.trim()) != neq) {
         		Logger.critical("ODESolver didnt generate all species result");
@@ -471,6 +455,7 @@ public class JDASPK extends JDAS {
 		return 1;
 	}
 	
+	
 	public LinkedList solveSEN(boolean p_initialization, ReactionModel p_reactionModel, boolean p_reactionChanged, SystemSnapshot p_beginStatus, ReactionTime p_beginTime, ReactionTime p_endTime, Temperature p_temperature, Pressure p_pressure, boolean p_conditionChanged,TerminationTester tt) {
                 setupInputFile();
 	//	outputString = new StringBuilder();
@@ -496,23 +481,23 @@ public class JDASPK extends JDAS {
         //if (p_initialization || p_reactionChanged || p_conditionChanged) {
 			
         	nState = p_reactionModel.getSpeciesNumber();
-//        	troeString is a combination of a integer and a real array
+//        	troeArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10, alpha, Tstar, T2star, T3star, lowRate  (21 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0), ncollider, c1, c2,..c10, troe(0=T or 1=F) (21 elements)
-        	troeString = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+        	troeArray = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
         	
 			
-//        	tbrString is a combination of a integer and a real array
+//        	tbrArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10  (16 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0), ncollider, c1, c2,..c10 (20 elements)
-			tbrString = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			tbrArray = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-			lindemannString = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			lindemannArray = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-			//rString is a combination of a integer and a real array
+			//rArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, HASrev(T=1 or F=0)
-			rString = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			rArray = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
 			nParameter = 0;
 			if (parameterInfor != 0) {
@@ -555,7 +540,8 @@ public class JDASPK extends JDAS {
                             bw.write(info[i]+" ");
                     bw.write("\n"+ rtol + " "+atol);
 
-                    bw.write("\n" + thermoString.toString() + "\n" + p_temperature.getK() + " " + p_pressure.getPa() + "\n" + rList.size() + "\n" + rString.toString() + "\n" + thirdBodyList.size() + "\n"+tbrString.toString() + "\n" + troeList.size() + "\n" + troeString.toString()+"\n" + lindemannList.size() + "\n" + lindemannString.toString() + "\n");
+                    bw.write("\n" + thermoArray.toString() + "\n");
+                    writeReactionArrays(p_temperature, p_pressure);
 
                     // Add list of flags for constantConcentration
                     // one for each species, and a final one for the volume
@@ -581,7 +567,7 @@ public class JDASPK extends JDAS {
         
         
 		int temp = 1;
-        Global.solverPrepossesor = Global.solverPrepossesor + (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().solverPrepossesor += (System.currentTimeMillis() - startTime)/1000/60;
 		
 
         LinkedList systemSnapshotList = callSolverSEN(iterNum, p_reactionModel,  p_beginStatus);
@@ -597,7 +583,7 @@ public class JDASPK extends JDAS {
 		ReactionTime beginT = new ReactionTime(0.0, "sec");
 		ReactionTime endT;
 		//write the input file
-	//	File SolverInput = new File("ODESolver/SolverInput.dat");
+	//	File SolverInput = new File(solverDirectory + "/SolverInput.dat");
 	//	try {
 	//		FileWriter fw = new FileWriter(SolverInput);
 	//		fw.write(outputString.toString());
@@ -606,18 +592,14 @@ public class JDASPK extends JDAS {
 	//		Logger.error("Problem writing Solver Input File!");
         //			Logger.logStackTrace(e);
 	//	}
-		Global.writeSolverFile +=(System.currentTimeMillis()-startTime)/1000/60;
+		Global.getSolverTimings().writeSolverFile +=(System.currentTimeMillis()-startTime)/1000/60;
 		//run the solver on the input file
 		boolean error = false;
         try {
-        	 // system call for therfit
+        	 // same executable as solveDAE; the sensitivity flag in the input selects SOLVESEN
         	String[] command = {workingDirectory +  "/bin/daspkAUTO.exe"};
-			File runningDir = new File("ODESolver");
-			
-			Process ODESolver = Runtime.getRuntime().exec(command, null, runningDir);
-			InputStream is = ODESolver.getInputStream();
-			InputStreamReader isr = new InputStreamReader(is);
-			BufferedReader br = new BufferedReader(isr);
+			NativeWorkerPool ODESolver = NativeWorkerPool.getPool(command, solverDirectory, null, 1);
+			BufferedReader br = new BufferedReader(new StringReader(ODESolver.call(null)));
 			String line=null;
 			while ( (line = br.readLine()) != null) {
 				//System.out.println(line);
@@ -627,12 +609,6 @@ public class JDASPK extends JDAS {
 					//error = true;
 				//}
 			}
-        	int exitValue = 4;
-        	exitValue = ODESolver.waitFor();
-        	//System.out.println(br.readLine() + exitValue);
-        	is.close();
-		ODESolver.getErrorStream().close();
-		ODESolver.getOutputStream().close();
         }
         catch (Exception e) {
         	String err = "Error in running ODESolver \n";
@@ -644,7 +620,7 @@ public class JDASPK extends JDAS {
         
         startTime = System.currentTimeMillis();
         //read the result
-        File SolverOutput = new File("ODESolver/SolverOutput.dat");
+        File SolverOutput = new File(solverDirectory + "/SolverOutput.dat");
         try {
         	FileReader fr = new FileReader(SolverOutput);
         	BufferedReader br = new BufferedReader(fr);
@@ -726,7 +702,7 @@ public class JDASPK extends JDAS {
         	Logger.logStackTrace(e);
         	System.exit(0);
         }
-        Global.readSolverFile += (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().readSolverFile += (System.currentTimeMillis() - startTime)/1000/60;
 		return systemSnapshotList;
 	}
 	
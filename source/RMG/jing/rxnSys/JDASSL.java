@@ -40,6 +40,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.util.*;
 
 import jing.chem.Species;
@@ -143,22 +144,22 @@ public class JDASSL extends JDAS {
 			}
 			neq = nState*(nParameter + 1);
 			
-//			tbrString is a combination of a integer and a real array
+//			tbrArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10  (16 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, rev(=1 or -1), ncollider, c1, c2,..c10 (20 elements)
-			tbrString = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			tbrArray = generateThirdBodyReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-			//troeString is a combination of a integer and a real array
+			//troeArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq, inertEfficiency, e1, e2, ..., e10, alpha, Tstar, T2star, T3star, lowRate  (21 elements)
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, rev(=1 or -1), ncollider, c1, c2,..c10, troe(0=T or 1=F) (21 elements)
-        	troeString = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+        	troeArray = generateTROEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
-        	lindemannString = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+        	lindemannArray = generateLindemannReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
         	
-			//rString is a combination of a integer and a real array
+			//rArray is a combination of a integer and a real array
 			//real array format:  rate, A, n, Ea, Keq
 			//int array format :  nReac, nProd, r1, r2, r3, p1, p2, p3, rev(=1 or -1)
-			rString = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
+			rArray = generatePDepODEReactionList(p_reactionModel, p_beginStatus, p_temperature, p_pressure);
 			
 			initializeWorkSpace();
 			initializeConcentrations(p_beginStatus, p_reactionModel, p_beginTime, p_endTime, initialSpecies);
@@ -170,16 +171,15 @@ public class JDASSL extends JDAS {
         //5/5/08 gmagoon: (next two lines) for autoflag, get binary 1 or 0 corresponding to boolean true/false
         int af = 0;
         if (autoflag) af = 1;
+        int impSpecies = -1;
+        double targetConc = 0;
+        if (tt instanceof ConversionTT){
+                SpeciesConversion sc = (SpeciesConversion)((ConversionTT)tt).speciesGoalConversionSet.get(0);
+                impSpecies = getRealID(sc.species);
+                targetConc = conversionSet[p_iterationNum];
+        }
         try{
-            if (tt instanceof ConversionTT){
-                    SpeciesConversion sc = (SpeciesConversion)((ConversionTT)tt).speciesGoalConversionSet.get(0);    
-                    bw.write(nState + "\t" + neq + "\t" +  getRealID(sc.species) + "\t" +conversionSet[p_iterationNum]+"\t"+ af+"\n");//5/5/08 gmagoon: added autoflag, needed when using dasslAUTO.exe
-
-            }
-            else{
-                    bw.write(nState + "\t" + neq + "\t" +  -1 + "\t" +0+ "\t"+ af+"\n");//5/5/08 gmagoon: added autoflag, needed when using dasslAUTO.exe
-
-            }
+            bw.write(nState + "\t" + neq + "\t" +  impSpecies + "\t" +targetConc+"\t"+ af+"\n");//5/5/08 gmagoon: added autoflag, needed when using dasslAUTO.exe
             for (int i=0; i<neq; i++)
                     bw.write(y[i]+" ");
             bw.write("\n");
@@ -188,8 +188,8 @@ public class JDASSL extends JDAS {
             bw.write("\n" + tBegin+" "+tEnd+"\n");
             for (int i=0; i<30; i++)
                     bw.write(info[i]+" ");
-            bw.write("\n"+ rtol + " "+atol);
-            bw.write("\n" + p_temperature.getK() + " " + p_pressure.getPa() + "\n" + rList.size() + "\n" + rString.toString() + "\n" + thirdBodyList.size() + "\n"+tbrString.toString() + "\n" + troeList.size() + "\n" + troeString.toString()+"\n" + lindemannList.size() + "\n" + lindemannString.toString() + "\n");
+            bw.write("\n"+ rtol + " "+atol + "\n");
+            writeReactionArrays(p_temperature, p_pressure);
         }
         catch (IOException e) {
         	Logger.error("Problem writing Solver Input File!");
@@ -201,22 +201,14 @@ public class JDASSL extends JDAS {
         
 		// Add flags that specify whether the concentrations are constant or not
 		getConcentrationFlags(p_reactionModel);
-                //this should be the end of the input file
-                try{
-                    bw.flush();
-                    bw.close();
-                    fw.close();
-                }
-                catch (IOException e) {
-                    Logger.error("Problem closing Solver Input File!");
-                    Logger.logStackTrace(e);
-		}
+        //this should be the end of the input file
+        closeInputFile();
         int idid=0;
         LinkedHashMap speStatus = new LinkedHashMap();
         LinkedList senStatus = new LinkedList();
         
 		int temp = 1;
-        Global.solverPrepossesor = Global.solverPrepossesor + (System.currentTimeMillis() - startTime)/1000/60;
+        Global.getSolverTimings().solverPrepossesor += (System.currentTimeMillis() - startTime)/1000/60;
 		if (nParameter==0) {
 			startTime = System.currentTimeMillis();
 			
@@ -231,10 +223,10 @@ public class JDASSL extends JDAS {
 				throw new DynamicSimulatorException("DASSL");
         	}
             Logger.info(String.format("After ODE: from %10.4e s to %10.4e s", tBegin, endTime));
-			Global.solvertime = Global.solvertime + (System.currentTimeMillis() - startTime)/1000/60;
+			Global.getSolverTimings().solvertime += (System.currentTimeMillis() - startTime)/1000/60;
 			startTime = System.currentTimeMillis();
         	speStatus = generateSpeciesStatus(p_reactionModel, y, yprime, 0);
-			Global.speciesStatusGenerator = Global.speciesStatusGenerator + (System.currentTimeMillis() - startTime)/1000/60;
+			Global.getSolverTimings().speciesStatusGenerator += (System.currentTimeMillis() - startTime)/1000/60;
         }
         
 
@@ -275,7 +267,7 @@ public class JDASSL extends JDAS {
             	String workingDirectory = System.getProperty("RMG.workingDirectory");
 		
 //		// write the input file
-//		File SolverInput = new File("ODESolver/SolverInput.dat");
+//		File SolverInput = new File(solverDirectory + "/SolverInput.dat");
 //		try {
 //			FileWriter fw = new FileWriter(SolverInput);
 //			fw.write(outputString.toString());
@@ -293,12 +285,9 @@ public class JDASSL extends JDAS {
                 try {
 
                         String[] command = {workingDirectory +  "/bin/dasslAUTO.exe"};//5/5/08 gmagoon: changed to call dasslAUTO.exe
-                                File runningDir = new File("ODESolver");
-
-                                Process solver = Runtime.getRuntime().exec(command, null, runningDir);
-                                InputStream is = solver.getInputStream();
-                                InputStreamReader isr = new InputStreamReader(is);
-                                BufferedReader br = new BufferedReader(isr);
+                                // dasslAUTO.exe reads the input files in the solver directory and exits, so each solve runs a new process
+                                NativeWorkerPool solver = NativeWorkerPool.getPool(command, solverDirectory, null, 1);
+                                BufferedReader br = new BufferedReader(new StringReader(solver.call(null)));
                                 String line=null;
                                 while ( (line = br.readLine()) != null) {
                                         line = line.trim();
@@ -307,10 +296,6 @@ public class JDASSL extends JDAS {
                                                 error = true;
                                         }          
                                 }
-                        int exitValue = solver.waitFor();
-			is.close();
-			solver.getErrorStream().close();
-			solver.getOutputStream().close();
                 }
                 catch (Exception e) {
                         String err = "Error in running ODESolver \n";
@@ -322,12 +307,12 @@ public class JDASSL extends JDAS {
 
                 //11/1/07 gmagoon: renaming RWORK and IWORK files
                 renameIntermediateFilesAfterRun();
-		return readOutputFile("ODESolver/SolverOutput.dat");
+		return readOutputFile(solverDirectory + "/SolverOutput.dat");
 	}
         
         private void renameIntermediateFilesBeforeRun(){
-                File f = new File("ODESolver/RWORK_"+index+".DAT");
-		File newFile = new File("ODESolver/RWORK.DAT");
+                File f = new File(solverDirectory + "/RWORK_"+index+".DAT");
+		File newFile = new File(solverDirectory + "/RWORK.DAT");
                 boolean renameSuccess = false;
                 if(f.exists()){
 			if(newFile.exists())
@@ -340,8 +325,8 @@ public class JDASSL extends JDAS {
                         }
                 }
                 
-                f = new File("ODESolver/IWORK_"+index+".DAT");
-                newFile = new File("ODESolver/IWORK.DAT");
+                f = new File(solverDirectory + "/IWORK_"+index+".DAT");
+                newFile = new File(solverDirectory + "/IWORK.DAT");
                 if(f.exists()){
                     if(newFile.exists())
                             newFile.delete();
@@ -356,8 +341,8 @@ public class JDASSL extends JDAS {
         }
         
 	private void renameIntermediateFilesAfterRun() {
-            File f = new File("ODESolver/RWORK.DAT");
-			File newFile = new File("ODESolver/RWORK_"+index+".DAT");
+            File f = new File(solverDirectory + "/RWORK.DAT");
+			File newFile = new File(solverDirectory + "/RWORK_"+index+".DAT");
             if(newFile.exists())
                 newFile.delete();
             boolean renameSuccess = f.renameTo(newFile);
@@ -367,8 +352,8 @@ public class JDASSL extends JDAS {
                 System.exit(0);
             }
             
-            f = new File("ODESolver/IWORK.DAT");
-            newFile = new File("ODESolver/IWORK_"+index+".DAT");
+            f = new File(solverDirectory + "/IWORK.DAT");
+            newFile = new File(solverDirectory + "/IWORK_"+index+".DAT");
             if(newFile.exists())
                 newFile.delete();
             renameSuccess = f.renameTo(newFile);
@@ -387,7 +372,7 @@ public class JDASSL extends JDAS {
         	FileReader fr = new FileReader(SolverOutput);
         	BufferedReader br = new BufferedReader(fr);
         	String line = br.readLine();
-        	Global.solverIterations = Integer.parseInt(line.trim());
+        	Global.getSolverTimings().solverIterations = Integer.parseInt(line.trim());
         	line = br.readLine();
         	
         	if (Double.parseDouble(line.trim()) != neq) {
@@ -453,6 +438,7 @@ public class JDASSL extends JDAS {
 		return 1;
 	}
 	
+	
 	@Override
 	protected void initializeWorkSpace() {
 		super.initializeWorkSpace();
@@ -462,7 +448,7 @@ public class JDASSL extends JDAS {
 	void createSpeciesProfilesOutputFile(CoreEdgeReactionModel cerm) {
 		// This creates the 'SpeciesProfiles.txt' and writes the header line
 		// ready for dasslAUTO.exe (see call_dasslAUTO.f90) to write to it
-		File SpeciesProfilesFile = new File("ODESolver/SpeciesProfiles.txt");
+		File SpeciesProfilesFile = new File(solverDirectory + "/SpeciesProfiles.txt");
 		try {
 			FileWriter fw = new FileWriter(SpeciesProfilesFile);
 			fw.write("Time(s)\t");
@@ -481,7 +467,7 @@ public class JDASSL extends JDAS {
 			fw.write("\n");
 			fw.close();
 		} catch (IOException e) {
-			Logger.error("Problem creating ODESolver/SpeciesProfiles.txt");
+			Logger.error("Problem creating " + solverDirectory + "/SpeciesProfiles.txt");
 			Logger.logStackTrace(e);
 		}
 	}
@@ -770,7 +756,7 @@ public class JDASSL extends JDAS {
 //                else if(m<1000) num = "00"+m;
 //                else if(m<10000) num = "0"+m;
 //                else if(m<100000) num = ""+m;
-//                File dotFile = new File("ODESolver/dot"+num+".dot");
+//                File dotFile = new File(solverDirectory + "/dot"+num+".dot");
 //                try {
 //                        FileWriter fw = new FileWriter(dotFile);
 //                        
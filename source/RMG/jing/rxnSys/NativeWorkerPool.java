@@ -0,0 +1,301 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+//## package jing::rxnSys
+
+//----------------------------------------------------------------------------
+// jing\rxnSys\NativeWorkerPool.java
+//----------------------------------------------------------------------------
+
+/**
+ * Runs the native executables RMG calls (FAME, the ODE solvers, GATPFit, therfit and
+ * fit3pbnd), one executable in one working directory per pool.
+ * <p>
+ * An executable that reads one request after another on its stdin and ends each answer
+ * with a terminator line (at present only GATPFit) is kept running: one process serves
+ * every call, so the process startup cost is paid once per run rather than once per
+ * call.  A worker that dies is discarded, and a fresh process is started in its place on
+ * the next call.
+ * <p>
+ * The others are given a null terminator; each call then starts a process, sends the
+ * request, closes stdin and collects the answer until the process exits.
+ */
+public class NativeWorkerPool {
+
+    // the number of workers kept per executable unless a pool asks for a specific size
+    protected static int defaultSize = 1;
+
+    // the pools, by working directory and command line
+    private static HashMap pools = new HashMap();
+
+    protected String[] command;
+
+    protected File directory;
+
+    // the line ending each answer, or null for one process per call
+    protected String terminator;
+
+    // true if the executable answers on stderr rather than stdout
+    protected boolean replyOnErrorStream;
+
+    protected int size;
+
+    // all live workers, and those of them waiting for a request
+    private LinkedList workers = new LinkedList();
+
+    private LinkedList idle = new LinkedList();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                shutdownAll();
+            }
+        });
+    }
+
+    // Constructors
+
+    protected NativeWorkerPool(String[] p_command, File p_directory, String p_terminator, boolean p_replyOnErrorStream, int p_size) {
+        command = p_command;
+        directory = p_directory;
+        terminator = p_terminator;
+        replyOnErrorStream = p_replyOnErrorStream;
+        size = Math.max(p_size, 1);
+    }
+
+    //## operation getPool(String[],String,String,int)
+    public static NativeWorkerPool getPool(String[] p_command, String p_directory, String p_terminator, int p_size) {
+        return getPool(p_command, p_directory, p_terminator, false, p_size);
+    }
+
+    //## operation getPool(String[],String,String,boolean,int)
+    /**
+     * Returns the pool running p_command in p_directory, creating it on first use.  Pools
+     * that share a working directory through files (the ODE solvers) must be of size 1.
+     */
+    public static synchronized NativeWorkerPool getPool(String[] p_command, String p_directory, String p_terminator, boolean p_replyOnErrorStream, int p_size) {
+        String key = p_directory;
+        for (int i = 0; i < p_command.length; i++) key += " " + p_command[i];
+        NativeWorkerPool pool = (NativeWorkerPool)pools.get(key);
+        if (pool == null) {
+            pool = new NativeWorkerPool(p_command, new File(p_directory), p_terminator, p_replyOnErrorStream, p_size);
+            pools.put(key, pool);
+        }
+        return pool;
+    }
+
+    public static int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public static void setDefaultSize(int p_size) {
+        defaultSize = Math.max(p_size, 1);
+    }
+
+    //## operation call(String)
+    /**
+     * Requires: p_request is the whole input of one job, or null if the job reads its input from files
+     * Effects: runs the job on a free worker, waiting for one if all are busy, and returns the lines
+     * it answered with (not including the terminator); throws IOException if the worker could not be
+     * started or died before finishing
+     * Modifies: this.workers
+     */
+    public String call(String p_request) throws IOException {
+        if (terminator == null) {
+            Worker worker = new Worker();
+            try {
+                return worker.exchange(p_request);
+            }
+            finally {
+                worker.destroy();
+            }
+        }
+        Worker worker = acquire();
+        try {
+            String reply = worker.exchange(p_request);
+            release(worker);
+            return reply;
+        }
+        catch (IOException e) {
+            discard(worker);
+            throw e;
+        }
+    }
+
+    private synchronized Worker acquire() throws IOException {
+        while (true) {
+            while (!idle.isEmpty()) {
+                Worker worker = (Worker)idle.removeFirst();
+                if (worker.isAlive()) return worker;
+                Logger.warning(getName() + " worker exited; starting a new one");
+                workers.remove(worker);
+            }
+            if (workers.size() < size) {
+                Worker worker = new Worker();
+                workers.add(worker);
+                return worker;
+            }
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while waiting for a " + getName() + " worker");
+            }
+        }
+    }
+
+    private synchronized void release(Worker p_worker) {
+        idle.addLast(p_worker);
+        notify();
+    }
+
+    private synchronized void discard(Worker p_worker) {
+        p_worker.destroy();
+        workers.remove(p_worker);
+        notify();
+    }
+
+    //## operation shutdown()
+    public synchronized void shutdown() {
+        for (Iterator iter = workers.iterator(); iter.hasNext(); ) {
+            ((Worker)iter.next()).destroy();
+        }
+        workers.clear();
+        idle.clear();
+    }
+
+    //## operation shutdownAll()
+    public static synchronized void shutdownAll() {
+        for (Iterator iter = pools.values().iterator(); iter.hasNext(); ) {
+            ((NativeWorkerPool)iter.next()).shutdown();
+        }
+    }
+
+    public String getName() {
+        return new File(command[0]).getName();
+    }
+
+    /**
+     * One running process.  Whichever of stdout/stderr does not carry the answer is read
+     * by a background thread into the log, so that the process never blocks on a full pipe.
+     */
+    private class Worker {
+
+        private Process process;
+
+        private PrintWriter input;
+
+        private BufferedReader output;
+
+        Worker() throws IOException {
+            process = Runtime.getRuntime().exec(command, null, directory);
+            input = new PrintWriter(new BufferedWriter(new OutputStreamWriter(process.getOutputStream())));
+            InputStream replyStream = replyOnErrorStream ? process.getErrorStream() : process.getInputStream();
+            final InputStream otherStream = replyOnErrorStream ? process.getInputStream() : process.getErrorStream();
+            output = new BufferedReader(new InputStreamReader(replyStream));
+
+            Thread drain = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(otherStream));
+                        String line = reader.readLine();
+                        while (line != null) {
+                            if (replyOnErrorStream) Logger.verbose(getName() + ": " + line);
+                            else Logger.error(getName() + " Error: " + line);
+                            line = reader.readLine();
+                        }
+                        reader.close();
+                    }
+                    catch (IOException e) {
+                        // the process was destroyed
+                    }
+                }
+            });
+            drain.setDaemon(true);
+            drain.start();
+        }
+
+        String exchange(String p_request) throws IOException {
+            if (p_request != null) input.println(p_request);
+            if (terminator == null) input.close();
+            else input.flush();
+            if (input.checkError()) throw new IOException("Error writing input to " + getName());
+
+            StringBuilder reply = new StringBuilder();
+            String line = output.readLine();
+            while (line != null) {
+                if (terminator != null && line.contains(terminator)) return reply.toString();
+                reply.append(line).append("\n");
+                line = output.readLine();
+            }
+            if (terminator == null) {
+                try {
+                    process.waitFor();
+                }
+                catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while waiting for " + getName());
+                }
+                return reply.toString();
+            }
+            throw new IOException(getName() + " exited before finishing its input:\n" + reply);
+        }
+
+        boolean isAlive() {
+            try {
+                process.exitValue();
+                return false;
+            }
+            catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        void destroy() {
+            process.destroy();
+        }
+    }
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\NativeWorkerPool.java
+*********************************************************************/
@@ -0,0 +1,504 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.util.*;
+
+//## package jing::rxnSys
+
+//----------------------------------------------------------------------------
+// jing\rxnSys\ODEKinetics.java
+//----------------------------------------------------------------------------
+
+/**
+ * The isothermal, isobaric batch reactor equations of the ODE solver (cf. getflux.f in the
+ * DASSL sources) for a fixed set of ODEReactions.  The state vector holds the moles of each
+ * core species (indexed by ID - 1) followed by the volume, both per mole of initial gas.
+ * Reaction rates, third-body, Lindemann and Troe fall-off terms are evaluated exactly as in the
+ * Fortran solver; the Jacobian is assembled into a sparse (row-compressed) pattern built from
+ * the species of each reaction, with the rate coefficients of the fall-off and third-body
+ * reactions held fixed, which is sufficient for the simplified Newton iteration of the BDF
+ * corrector.
+ */
+public class ODEKinetics implements BDFIntegrator.ODESystem {
+
+    protected static final int MASS_ACTION = 0;
+    protected static final int THIRD_BODY = 1;
+    protected static final int TROE = 2;
+    protected static final int LINDEMANN = 3;
+
+    protected int nSpecies;
+    protected int reactionNumber = 0;
+    protected double temperature;		// K
+    protected double pressure;		// Pa
+    protected double totalConcentration;		// mol/cm3
+    protected double molarVolume;		// cm3/mol
+    protected boolean[] constantConcentration;
+
+    protected int[] type;
+    protected int[][] rID;
+    protected int[][] pID;
+    protected double[] rate;
+    protected double[] lowRate;
+    protected double[] Keq;
+    protected boolean[] reversible;
+    protected int[][] colliders;
+    protected double[][] efficiency;
+    protected double[] logFcent;
+
+    protected int[] rowStart;
+    protected int[] columnIndex;
+    protected double[] jacobian;
+
+    private double[] concentration;
+    private double[] speciesRate;
+    private double[][] iterationMatrix;
+    private int[] pivot;
+    private int[] nonzeroColumn;
+
+    //## operation ODEKinetics(int,int,double,double)
+    public ODEKinetics(int p_nSpecies, int p_nReactions, double p_temperature, double p_pressure) {
+        nSpecies = p_nSpecies;
+        temperature = p_temperature;
+        pressure = p_pressure;
+        totalConcentration = pressure * 1e-6 / 8.314 / temperature;
+        molarVolume = 8.314 * temperature / pressure / 1e-6;
+        constantConcentration = new boolean[nSpecies + 1];
+
+        type = new int[p_nReactions];
+        rID = new int[p_nReactions][];
+        pID = new int[p_nReactions][];
+        rate = new double[p_nReactions];
+        lowRate = new double[p_nReactions];
+        Keq = new double[p_nReactions];
+        reversible = new boolean[p_nReactions];
+        colliders = new int[p_nReactions][];
+        efficiency = new double[p_nReactions][];
+        logFcent = new double[p_nReactions];
+
+        concentration = new double[nSpecies];
+        speciesRate = new double[nSpecies];
+    }
+
+    /**
+     * Requires: fewer reactions than the capacity given to the constructor have been added
+     * Effects: appends p_reaction, with species IDs counted from 1 as assigned by JDAS.getRealID;
+     * the reverse rate coefficient is the forward one divided by p_Keq when p_reversible
+     * Modifies: this
+     */
+    //## operation addReaction(ODEReaction,boolean,double)
+    public void addReaction(ODEReaction p_reaction, boolean p_reversible, double p_Keq) {
+        int i = reactionNumber;
+        rID[i] = new int[p_reaction.rNum];
+        for (int j = 0; j < p_reaction.rNum; j++) {
+            rID[i][j] = p_reaction.rID[j] - 1;
+        }
+        pID[i] = new int[p_reaction.pNum];
+        for (int j = 0; j < p_reaction.pNum; j++) {
+            pID[i][j] = p_reaction.pID[j] - 1;
+        }
+        reversible[i] = p_reversible;
+        Keq[i] = p_Keq;
+        if (p_reaction instanceof TROEODEReaction) {
+            TROEODEReaction or = (TROEODEReaction) p_reaction;
+            type[i] = TROE;
+            rate[i] = or.highRate;
+            lowRate[i] = or.lowRate;
+            setColliders(i, or.colliders, or.efficiency, or.numCollider);
+            double Fcent = (1 - or.a) * Math.exp(-temperature / or.T3star) + or.a * Math.exp(-temperature / or.Tstar);
+            if (or.troe7) Fcent += Math.exp(-or.T2star / temperature);
+            if (Fcent >= 1e-30) logFcent[i] = Math.log10(Fcent);
+            else logFcent[i] = -30;
+        }
+        else if (p_reaction instanceof LindemannODEReaction) {
+            LindemannODEReaction or = (LindemannODEReaction) p_reaction;
+            type[i] = LINDEMANN;
+            rate[i] = or.highRate;
+            lowRate[i] = or.lowRate;
+            setColliders(i, or.colliders, or.efficiency, or.numCollider);
+        }
+        else if (p_reaction instanceof ThirdBodyODEReaction) {
+            ThirdBodyODEReaction or = (ThirdBodyODEReaction) p_reaction;
+            type[i] = THIRD_BODY;
+            rate[i] = or.rate;
+            setColliders(i, or.colliders, or.efficiency, or.numCollider);
+        }
+        else {
+            type[i] = MASS_ACTION;
+            rate[i] = p_reaction.rate;
+        }
+        reactionNumber++;
+        rowStart = null;
+    }
+
+    private void setColliders(int p_index, int[] p_colliders, double[] p_efficiency, int p_numCollider) {
+        colliders[p_index] = new int[p_numCollider];
+        efficiency[p_index] = new double[p_numCollider];
+        for (int j = 0; j < p_numCollider; j++) {
+            colliders[p_index][j] = p_colliders[j] - 1;
+            efficiency[p_index][j] = p_efficiency[j];
+        }
+    }
+
+    /**
+     * Effects: fixes the moles of the species with ID p_id (or the volume, for p_id = nSpecies + 1)
+     * Modifies: this
+     */
+    public void setConstantConcentration(int p_id, boolean p_constant) {
+        constantConcentration[p_id - 1] = p_constant;
+    }
+
+    public int getDimension() {
+        return nSpecies + 1;
+    }
+
+    public int getReactionNumber() {
+        return reactionNumber;
+    }
+
+    public double getMolarVolume() {
+        return molarVolume;
+    }
+
+    /**
+     * Effects: returns the effective forward rate coefficient of reaction p_index at the concentrations p_C
+     */
+    protected double getForwardRateCoefficient(int p_index, double[] p_C) {
+        if (type[p_index] == MASS_ACTION) return rate[p_index];
+
+        double M = totalConcentration;
+        int[] c = colliders[p_index];
+        for (int j = 0; j < c.length; j++) {
+            M += p_C[c[j]] * (efficiency[p_index][j] - 1);
+        }
+        if (type[p_index] == THIRD_BODY) return rate[p_index] * M;
+
+        double Pr = lowRate[p_index] * M / rate[p_index];
+        double F = 1;
+        if (type[p_index] == TROE) {
+            double logPr = -30;
+            if (Pr >= 1e-30) logPr = Math.log10(Pr);
+            double N = 0.75 - 1.27 * logFcent[p_index];
+            double C = -0.4 - 0.67 * logFcent[p_index];
+            double inside = (logPr + C) / (N - 0.14 * (logPr + C));
+            F = Math.pow(10, logFcent[p_index] / (1 + inside * inside));
+        }
+        // chemically-activated bimolecular reactions use k0/(1+Pr), unimolecular/recombination reactions use kinf*Pr/(1+Pr)
+        if (rID[p_index].length > 1 && pID[p_index].length > 1) return lowRate[p_index] / (1 + Pr) * F;
+        else return rate[p_index] * Pr / (1 + Pr) * F;
+    }
+
+    /**
+     * Effects: fills p_C with the concentrations (mol/cm3) of the state p_y
+     */
+    public void getConcentrations(double[] p_y, double[] p_C) {
+        for (int i = 0; i < nSpecies; i++) {
+            p_C[i] = p_y[i] / p_y[nSpecies];
+        }
+    }
+
+    /**
+     * Effects: fills p_flux with the net rate (mol/cm3/s) of each reaction, in the order the reactions were added
+     */
+    //## operation getReactionFluxes(double [],double [])
+    public void getReactionFluxes(double[] p_y, double[] p_flux) {
+        getConcentrations(p_y, concentration);
+        for (int i = 0; i < reactionNumber; i++) {
+            p_flux[i] = getNetRate(i, concentration);
+        }
+    }
+
+    private double getNetRate(int p_index, double[] p_C) {
+        double kf = getForwardRateCoefficient(p_index, p_C);
+        double forward = kf;
+        int[] r = rID[p_index];
+        for (int j = 0; j < r.length; j++) {
+            forward *= p_C[r[j]];
+        }
+        double reverse = 0;
+        if (reversible[p_index]) {
+            reverse = kf / Keq[p_index];
+            int[] p = pID[p_index];
+            for (int j = 0; j < p.length; j++) {
+                reverse *= p_C[p[j]];
+            }
+        }
+        return forward - reverse;
+    }
+
+    //## operation getDerivatives(double [],double [])
+    public void getDerivatives(double[] p_y, double[] p_f) {
+        getConcentrations(p_y, concentration);
+        Arrays.fill(speciesRate, 0);
+        for (int i = 0; i < reactionNumber; i++) {
+            double net = getNetRate(i, concentration);
+            int[] r = rID[i];
+            for (int j = 0; j < r.length; j++) {
+                speciesRate[r[j]] -= net;
+            }
+            int[] p = pID[i];
+            for (int j = 0; j < p.length; j++) {
+                speciesRate[p[j]] += net;
+            }
+        }
+        double volume = p_y[nSpecies];
+        double sum = 0;
+        for (int i = 0; i < nSpecies; i++) {
+            p_f[i] = speciesRate[i] * volume;
+            sum += p_f[i];
+        }
+        p_f[nSpecies] = sum * molarVolume;
+        for (int i = 0; i <= nSpecies; i++) {
+            if (constantConcentration[i]) p_f[i] = 0;
+        }
+    }
+
+    /**
+     * Effects: builds the row-compressed sparsity pattern of the Jacobian: each species row couples to every
+     * species sharing a reaction with it and to the volume, and the volume row is dense
+     */
+    protected void initializePattern() {
+        int n = nSpecies + 1;
+        TreeSet[] rows = new TreeSet[nSpecies];
+        for (int i = 0; i < nSpecies; i++) {
+            rows[i] = new TreeSet();
+            rows[i].add(new Integer(i));
+            rows[i].add(new Integer(nSpecies));
+        }
+        for (int k = 0; k < reactionNumber; k++) {
+            int[] species = getParticipants(k);
+            for (int a = 0; a < species.length; a++) {
+                for (int b = 0; b < species.length; b++) {
+                    rows[species[a]].add(new Integer(species[b]));
+                }
+            }
+        }
+        rowStart = new int[n + 1];
+        int nonzeros = n;
+        for (int i = 0; i < nSpecies; i++) {
+            nonzeros += rows[i].size();
+        }
+        columnIndex = new int[nonzeros];
+        int position = 0;
+        for (int i = 0; i < nSpecies; i++) {
+            rowStart[i] = position;
+            for (Iterator iter = rows[i].iterator(); iter.hasNext();) {
+                columnIndex[position++] = ((Integer) iter.next()).intValue();
+            }
+        }
+        rowStart[nSpecies] = position;
+        for (int j = 0; j < n; j++) {
+            columnIndex[position++] = j;
+        }
+        rowStart[n] = position;
+        jacobian = new double[nonzeros];
+    }
+
+    private int[] getParticipants(int p_index) {
+        int[] r = rID[p_index];
+        int[] p = pID[p_index];
+        int[] species = new int[r.length + p.length];
+        System.arraycopy(r, 0, species, 0, r.length);
+        System.arraycopy(p, 0, species, r.length, p.length);
+        return species;
+    }
+
+    /**
+     * Effects: returns the position of element (p_row, p_column) in the sparse Jacobian
+     */
+    private int getSlot(int p_row, int p_column) {
+        int position = Arrays.binarySearch(columnIndex, rowStart[p_row], rowStart[p_row + 1], p_column);
+        if (position < 0) throw new DynamicSimulatorException("BDF: Jacobian element (" + p_row + "," + p_column + ") is outside the sparsity pattern");
+        return position;
+    }
+
+    //## operation updateJacobian(double [])
+    public void updateJacobian(double[] p_y) {
+        if (rowStart == null) initializePattern();
+        getConcentrations(p_y, concentration);
+        Arrays.fill(jacobian, 0);
+        Arrays.fill(speciesRate, 0);
+        for (int k = 0; k < reactionNumber; k++) {
+            int[] r = rID[k];
+            int[] p = pID[k];
+            double kf = getForwardRateCoefficient(k, concentration);
+            double kr = 0;
+            if (reversible[k]) kr = kf / Keq[k];
+            double net = getNetRate(k, concentration);
+            for (int j = 0; j < r.length; j++) {
+                speciesRate[r[j]] -= net;
+            }
+            for (int j = 0; j < p.length; j++) {
+                speciesRate[p[j]] += net;
+            }
+            // derivative of the net rate with respect to each reactant and product, with repeated species counted once per occurrence
+            for (int a = 0; a < r.length; a++) {
+                double derivative = kf;
+                for (int b = 0; b < r.length; b++) {
+                    if (b != a) derivative *= concentration[r[b]];
+                }
+                addNetRateDerivative(k, r[a], derivative);
+            }
+            if (kr != 0) {
+                for (int a = 0; a < p.length; a++) {
+                    double derivative = -kr;
+                    for (int b = 0; b < p.length; b++) {
+                        if (b != a) derivative *= concentration[p[b]];
+                    }
+                    addNetRateDerivative(k, p[a], derivative);
+                }
+            }
+        }
+
+        // so far the species rows hold d(rate_i)/dC_j, which equals d(f_i)/dN_j; add d(f_i)/dV and the volume row
+        double[] volumeRow = new double[nSpecies + 1];
+        for (int i = 0; i < nSpecies; i++) {
+            double dfdV = speciesRate[i];
+            int volumeSlot = -1;
+            for (int s = rowStart[i]; s < rowStart[i + 1]; s++) {
+                int j = columnIndex[s];
+                if (j == nSpecies) volumeSlot = s;
+                else dfdV -= jacobian[s] * concentration[j];
+            }
+            jacobian[volumeSlot] = dfdV;
+            for (int s = rowStart[i]; s < rowStart[i + 1]; s++) {
+                volumeRow[columnIndex[s]] += jacobian[s] * molarVolume;
+            }
+        }
+        System.arraycopy(volumeRow, 0, jacobian, rowStart[nSpecies], nSpecies + 1);
+        for (int i = 0; i <= nSpecies; i++) {
+            if (constantConcentration[i]) Arrays.fill(jacobian, rowStart[i], rowStart[i + 1], 0);
+        }
+    }
+
+    private void addNetRateDerivative(int p_index, int p_column, double p_derivative) {
+        int[] r = rID[p_index];
+        for (int j = 0; j < r.length; j++) {
+            jacobian[getSlot(r[j], p_column)] -= p_derivative;
+        }
+        int[] p = pID[p_index];
+        for (int j = 0; j < p.length; j++) {
+            jacobian[getSlot(p[j], p_column)] += p_derivative;
+        }
+    }
+
+    /**
+     * Effects: LU-factors I - p_c*J with threshold partial pivoting (the diagonal is kept unless it is
+     * ten times smaller than the largest candidate), skipping the zero entries of the pivot rows and
+     * columns so that the work follows the sparsity of the reaction network rather than its size
+     */
+    //## operation factorIterationMatrix(double)
+    public boolean factorIterationMatrix(double p_c) {
+        int n = nSpecies + 1;
+        if (iterationMatrix == null) {
+            iterationMatrix = new double[n][n];
+            pivot = new int[n];
+            nonzeroColumn = new int[n];
+        }
+        double[][] a = iterationMatrix;
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(a[i], 0);
+            for (int s = rowStart[i]; s < rowStart[i + 1]; s++) {
+                a[i][columnIndex[s]] = -p_c * jacobian[s];
+            }
+            a[i][i] += 1;
+        }
+
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double largest = 0;
+            for (int i = k; i < n; i++) {
+                double v = Math.abs(a[i][k]);
+                if (v > largest) {
+                    largest = v;
+                    p = i;
+                }
+            }
+            if (largest == 0) return false;
+            if (Math.abs(a[k][k]) >= 0.1 * largest) p = k;
+            pivot[k] = p;
+            if (p != k) {
+                double[] row = a[k];
+                a[k] = a[p];
+                a[p] = row;
+            }
+            double[] pivotRow = a[k];
+            int count = 0;
+            for (int j = k + 1; j < n; j++) {
+                if (pivotRow[j] != 0) nonzeroColumn[count++] = j;
+            }
+            for (int i = k + 1; i < n; i++) {
+                double[] row = a[i];
+                if (row[k] == 0) continue;
+                double multiplier = row[k] / pivotRow[k];
+                row[k] = multiplier;
+                for (int q = 0; q < count; q++) {
+                    int j = nonzeroColumn[q];
+                    row[j] -= multiplier * pivotRow[j];
+                }
+            }
+        }
+        return true;
+    }
+
+    //## operation solveIterationMatrix(double [])
+    public void solveIterationMatrix(double[] p_b) {
+        int n = nSpecies + 1;
+        double[][] a = iterationMatrix;
+        for (int k = 0; k < n; k++) {
+            int p = pivot[k];
+            if (p != k) {
+                double temp = p_b[k];
+                p_b[k] = p_b[p];
+                p_b[p] = temp;
+            }
+        }
+        for (int i = 1; i < n; i++) {
+            double[] row = a[i];
+            double sum = p_b[i];
+            for (int j = 0; j < i; j++) {
+                if (row[j] != 0) sum -= row[j] * p_b[j];
+            }
+            p_b[i] = sum;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double[] row = a[i];
+            double sum = p_b[i];
+            for (int j = i + 1; j < n; j++) {
+                if (row[j] != 0) sum -= row[j] * p_b[j];
+            }
+            p_b[i] = sum / row[i];
+        }
+    }
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\ODEKinetics.java
+*********************************************************************/
+
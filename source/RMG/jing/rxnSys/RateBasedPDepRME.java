@@ -34,6 +34,7 @@ import java.util.LinkedList;
 import java.util.StringTokenizer;
 
 import jing.chem.Species;
+import jing.chem.ThermoBatch;
 import jing.param.Temperature;
 import jing.rxn.FastMasterEqn;
 import jing.rxn.PDepException;
@@ -295,7 +296,9 @@ public class RateBasedPDepRME implements ReactionModelEnlarger {
             }
 
             // Generate new reaction set; partition into core and edge
+            // (the new edge species get their thermo data together once the reactions are generated)
             LinkedHashSet newReactionSet_nodup;
+            ThermoBatch.begin();
             if(rxnSystem.getLibraryReactionGenerator().getReactionLibrary() != null){
 
                 Logger.info("Checking Reaction Library "+rxnSystem.getLibraryReactionGenerator().getReactionLibrary().getName()+" for reactions of "+maxSpecies.getFullName()+" with the core.");
@@ -325,6 +328,7 @@ public class RateBasedPDepRME implements ReactionModelEnlarger {
                 Logger.info("Generating reactions using reaction family templates.");
                 newReactionSet_nodup = rxnSystem.getReactionGenerator().react(cerm.getReactedSpeciesSet(),maxSpecies,"All");
             }
+            ThermoBatch.end();
             // shamel 6/22/2010 Suppressed output , line is only for debugging
             // System.out.println("Reaction Set For Pdep PdepRME "+newReactionSet_nodup);
 
@@ -65,14 +65,14 @@ public class RateBasedPDepVT extends RateBasedVT {
 
 		// check if all the networks has their leak fluxes under the system min flux
         PresentStatus ps = p_reactionSystem.getPresentStatus();
-        calculateRmin(ps);
+        double systemRmin = calculateRmin(ps);
 
         CoreEdgeReactionModel cerm = (CoreEdgeReactionModel) p_reactionSystem.getReactionModel();
         double[] leakFlux = PDepNetwork.getSpeciesLeakFluxes(ps, cerm);
         for (Iterator iter = cerm.getUnreactedSpeciesSet().iterator(); iter.hasNext(); ) {
 	    Species us = (Species) iter.next();
-            if (leakFlux[us.getID()] > Rmin) {
-                Logger.info("Leak flux exceeded largest permitted flux for convergence (tolerance="+tolerance+"): " + Rmin);
+            if (leakFlux[us.getID()] > systemRmin) {
+                Logger.info("Leak flux exceeded largest permitted flux for convergence (tolerance="+tolerance+"): " + systemRmin);
                 return false;
             }
         }
@@ -38,6 +38,7 @@ import jing.rxn.Reaction;
 import jing.rxn.TemplateReaction;
 import jing.chem.ChemGraph;
 import jing.chem.Species;
+import jing.chem.ThermoBatch;
 //import RMG;
 //## package jing::rxnSys 
 
@@ -129,6 +130,8 @@ public class RateBasedRME implements ReactionModelEnlarger {
 					
 					LinkedHashSet newReactionSet_nodup;
 					ReactionSystem rxnSystem = (ReactionSystem) p_reactionSystemList.get(i);
+					// the new edge species get their thermo data together once the reactions are generated
+					ThermoBatch.begin();
 					// Check Reaction Library
 				if(rxnSystem.getLibraryReactionGenerator().getReactionLibrary() != null){
 					Logger.info("Checking Reaction Library "+rxnSystem.getLibraryReactionGenerator().getReactionLibrary().getName()+" for reactions of "+newCoreSpecies.getFullName()+" with the core.");
@@ -168,6 +171,7 @@ public class RateBasedRME implements ReactionModelEnlarger {
 					//System.out.println("Reaction Set Found after LRG + ReactionGenerator call and Removing Dups"+newReactionSet_nodup);
 					
 					
+					ThermoBatch.end();
 					double enlargeTime = (System.currentTimeMillis() - startTime) / 1000 / 60;
 					startTime = System.currentTimeMillis();
 					double restartTime = (System.currentTimeMillis() - startTime) / 1000 / 60;
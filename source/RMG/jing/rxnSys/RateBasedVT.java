@@ -98,13 +98,15 @@ public class RateBasedVT implements ValidityTester {
     public boolean isModelValid(ReactionSystem p_reactionSystem) {
         //#[ operation isModelValid(ReactionSystem) 
         // check if all the unreacted species has their fluxes under the system min flux
+        // one tester is shared by all reaction systems, which may be tested at the same time,
+        // so the minimum flux is kept in a local variable rather than read back from Rmin
         PresentStatus ps = p_reactionSystem.getPresentStatus();
-        calculateRmin(ps);
+        double systemRmin = calculateRmin(ps);
         for (Iterator iter =((CoreEdgeReactionModel) p_reactionSystem.getReactionModel()).getUnreactedSpeciesSet().iterator(); iter.hasNext(); ) {
         	Species s = (Species)iter.next();
-        	if (ps.unreactedSpeciesFlux[s.getID()] > Rmin) 
+        	if (ps.unreactedSpeciesFlux[s.getID()] > systemRmin) 
             {
-                Logger.info("Exceeded largest permitted flux for convergence (tolerance="+tolerance+"): " + Rmin);
+                Logger.info("Exceeded largest permitted flux for convergence (tolerance="+tolerance+"): " + systemRmin);
                 return false;
             }
         	
@@ -37,6 +37,7 @@ import jing.rxn.*;
 import jing.chem.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import jing.mathTool.UncertainDouble;
 import jing.param.*;
@@ -87,6 +88,10 @@ public class ReactionModelGenerator {
     //	This temperature is used to select the "best" kinetics from the rxn library
     protected static Temperature temp4BestKinetics;
 
+    protected static int reactionSystemThreads = 1;
+    
+    private static ForkJoinPool reactionSystemPool = null;
+
     protected static boolean useDiffusion;
     protected static boolean useSolvation;
 	
@@ -106,6 +111,9 @@ public class ReactionModelGenerator {
 	protected LinkedHashSet restartEdgeSpcs = new LinkedHashSet();
 	protected LinkedHashSet restartCoreRxns = new LinkedHashSet();
 	protected LinkedHashSet restartEdgeRxns = new LinkedHashSet();
+	protected RestartJournal restartJournal = new RestartJournal();
+	protected RestartSnapshot restartSnapshot = null;
+	protected boolean writeTextRestart = false;
     // Constructors
 	
 	private HashSet specs = new HashSet();
@@ -305,6 +313,9 @@ public class ReactionModelGenerator {
 				if (tempString.toLowerCase().equals("yes"))
 					writerestart = true;
 				else writerestart = false;
+				// "WriteRestart: yes text" also writes the snapshot as text files
+				if (writerestart && st.hasMoreTokens())
+					writeTextRestart = st.nextToken().toLowerCase().equals("text");
 				line = ChemParser.readMeaningfulLine(reader, true);
 			} else throw new InvalidSymbolException("Cannot locate WriteRestart field");
 			
@@ -1041,6 +1052,12 @@ public class ReactionModelGenerator {
 						dynamicSimulatorList.add(new JDASSL(rtol, atol, 0, (InitialStatus)initialStatusList.get(i), i, finishController.getValidityTester(), autoflag, termTol, tolerance));
 					}
         		}
+        		else if (simulator.equals("BDF")) {
+					//in-process BDF solver; takes the same input as DASSL but needs no solver executable or input/output files
+					for (int i = 0;i < initialStatusList.size();i++) {
+						dynamicSimulatorList.add(new JBDF(rtol, atol, 0, (InitialStatus)initialStatusList.get(i), i, finishController.getValidityTester(), autoflag, termTol, tolerance));
+					}
+        		}
         		else if (simulator.equals("Chemkin")) {
         			line = ChemParser.readMeaningfulLine(reader, true);
         			if (line.startsWith("ReactorType")) {
@@ -1206,6 +1223,9 @@ public class ReactionModelGenerator {
 			} else throw new InvalidSymbolException("Error reading condition.txt file: "
 													+ "Could not locate ChemkinUnits field.");
 			
+			line = ChemParser.readMeaningfulLine(reader, true);
+			line = readPerformanceOptions(line, reader);
+			
         	in.close();
 			
 			//11/6/07 gmagoon: initializing temperatureArray and pressureArray before libraryReactionGenerator is initialized (initialization calls PDepNetwork and performs initializekLeak); UPDATE: moved after initialStatusList initialization (in case primaryKineticLibrary calls the similar pdep functions
@@ -1300,6 +1320,133 @@ public class ReactionModelGenerator {
         reactionModel = p_ReactionModel;
     }
 	
+
+    /**
+     * One step of model generation applied to a single reaction system.
+     */
+    private interface ReactionSystemStep {
+        Object apply(int p_index, ReactionSystem p_reactionSystem);
+    }
+    
+    //## operation forEachReactionSystem(ReactionSystemStep)
+    /**
+    Requires: p_step only modifies its own reaction system
+    Effects: applies p_step to every reaction system in reactionSystemList, on up to reactionSystemThreads threads,
+    and returns the results in the order of reactionSystemList.  Every reaction system has its own ODESolver
+    directory and its own solver timings, so the steps are independent of one another.
+    */
+    private LinkedList forEachReactionSystem(final ReactionSystemStep p_step) {
+    	LinkedList results = new LinkedList();
+    	if (reactionSystemThreads <= 1 || reactionSystemList.size() <= 1) {
+    		for (int i = 0; i < reactionSystemList.size(); i++)
+    			results.add(p_step.apply(i, (ReactionSystem)reactionSystemList.get(i)));
+    		return results;
+    	}
+    	LinkedList tasks = new LinkedList();
+    	for (int i = 0; i < reactionSystemList.size(); i++) {
+    		final int index = i;
+    		final ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
+    		tasks.add(new Callable() {
+    			public Object call() {
+    				return p_step.apply(index, rs);
+    			}
+    		});
+    	}
+    	try {
+    		List futures = getReactionSystemPool().invokeAll(tasks);
+    		for (Iterator iter = futures.iterator(); iter.hasNext(); ) {
+    			results.add(((Future)iter.next()).get());
+    		}
+    	}
+    	catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new RuntimeException("Interrupted while working on the reaction systems", e);
+    	}
+    	catch (ExecutionException e) {
+    		Throwable cause = e.getCause();
+    		if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+    		if (cause instanceof Error) throw (Error)cause;
+    		throw new RuntimeException(cause);
+    	}
+    	return results;
+    }
+    
+    //## operation solveReactionSystems(boolean,boolean,int)
+    /**
+    Effects: solves every reaction system from its entry in beginList to its entry in endList, and stores the
+    time reached in endList.  During initialization the model and the conditions are treated as changed;
+    otherwise reactionChangedList is used, and conditionChangedList too if p_checkConditionChanged is set.
+    Modifies: endList, the reaction systems
+    */
+    private void solveReactionSystems(final boolean p_initialization, final boolean p_checkConditionChanged, final int p_iterationNum) {
+    	LinkedList ends = forEachReactionSystem(new ReactionSystemStep() {
+    		public Object apply(int p_index, ReactionSystem p_reactionSystem) {
+    			boolean reactionChanged = p_initialization || (Boolean)reactionChangedList.get(p_index);
+    			boolean conditionChanged = p_initialization || (p_checkConditionChanged && (Boolean)conditionChangedList.get(p_index));
+    			ReactionTime begin = (ReactionTime)beginList.get(p_index);
+    			ReactionTime end = (ReactionTime)endList.get(p_index);
+    			return p_reactionSystem.solveReactionSystem(begin, end, p_initialization, reactionChanged, conditionChanged, p_iterationNum);
+    		}
+    	});
+    	for (int i = 0; i < ends.size(); i++)
+    		endList.set(i, ends.get(i));
+    }
+    
+    //## operation testModelValidity()
+    /**
+    Effects: tests the model against every reaction system, stores the outcomes in validList and returns true
+    if the model is valid for all of them
+    Modifies: validList
+    */
+    private boolean testModelValidity() {
+    	LinkedList valid = forEachReactionSystem(new ReactionSystemStep() {
+    		public Object apply(int p_index, ReactionSystem p_reactionSystem) {
+    			return Boolean.valueOf(p_reactionSystem.isModelValid());
+    		}
+    	});
+    	boolean allValid = true;
+    	for (int i = 0; i < valid.size(); i++) {
+    		validList.set(i, valid.get(i));
+    		if (!((Boolean)valid.get(i)).booleanValue())
+    			allValid = false;
+    	}
+    	return allValid;
+    }
+    
+    //## operation appendUnreactedSpeciesStatuses(boolean)
+    /**
+    Effects: appends the species status of unreacted core species to every reaction system, first
+    initializing its pressure-dependent networks if p_initializePDepNetwork is set
+    Modifies: the reaction systems
+    */
+    private void appendUnreactedSpeciesStatuses(final boolean p_initializePDepNetwork) {
+    	forEachReactionSystem(new ReactionSystemStep() {
+    		public Object apply(int p_index, ReactionSystem p_reactionSystem) {
+    			if (p_initializePDepNetwork)
+    				p_reactionSystem.initializePDepNetwork();
+    			p_reactionSystem.appendUnreactedSpeciesStatus((InitialStatus)initialStatusList.get(p_index), p_reactionSystem.getPresentTemperature());
+    			return null;
+    		}
+    	});
+    }
+    
+    private static synchronized ForkJoinPool getReactionSystemPool() {
+    	if (reactionSystemPool == null) reactionSystemPool = new ForkJoinPool(reactionSystemThreads);
+    	return reactionSystemPool;
+    }
+    
+    public static int getReactionSystemThreads() {
+    	return reactionSystemThreads;
+    }
+    
+    public static synchronized void setReactionSystemThreads(int p_threads) {
+    	if (p_threads < 1) p_threads = 1;
+    	if (p_threads != reactionSystemThreads && reactionSystemPool != null) {
+    		reactionSystemPool.shutdown();
+    		reactionSystemPool = null;
+    	}
+    	reactionSystemThreads = p_threads;
+    }
 	
     public void modelGeneration() {
         //long begin_t = System.currentTimeMillis();
@@ -1403,8 +1550,8 @@ public class ReactionModelGenerator {
 	        	ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
 	        	InitialStatus is = rs.getInitialStatus();
 	        	putRestartSpeciesInInitialStatus(is,i);
-				rs.appendUnreactedSpeciesStatus((InitialStatus)initialStatusList.get(i), rs.getPresentTemperature());
 	        }
+	        appendUnreactedSpeciesStatuses(false);
         }
 
         printModelSize();
@@ -1417,20 +1564,15 @@ public class ReactionModelGenerator {
 		Logger.flush();
         
         //10/24/07 gmagoon: note: each element of for loop could be done in parallel if desired; some modifications would be needed
+        // The reaction systems are solved (and tested for validity) on reactionSystemThreads threads
+        solveReactionSystems(true, true, iterationNumber-1);
+        allValid = testModelValidity();//10/31/07 gmagoon: validList initialization moved before initializeCoreEdgeReactionModel
         for (Integer i = 0; i<reactionSystemList.size();i++) {
             ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
-            ReactionTime begin = (ReactionTime)beginList.get(i);
-            ReactionTime end = (ReactionTime)endList.get(i);
-            endList.set(i,rs.solveReactionSystem(begin, end, true, true, true, iterationNumber-1));
             boolean terminated = rs.isReactionTerminated();
             terminatedList.add(terminated);
             if(!terminated)
                 allTerminated = false;
-            boolean valid = rs.isModelValid();
-            //validList.add(valid);
-            validList.set(i, valid);//10/31/07 gmagoon: validList initialization moved before initializeCoreEdgeReactionModel
-            if(!valid)
-                allValid = false;
             reactionChangedList.set(i,false);
         }
         //9/1/09 gmagoon: if we are using QM, output a file with the CHEMKIN name, the RMG name, the (modified) InChI, and the (modified) InChIKey
@@ -1443,7 +1585,7 @@ public class ReactionModelGenerator {
 		StringBuilder print_info = Global.diagnosticInfo;
 		print_info.append("\nMolecule \t Flux\t\tTime\t \t\t \t Core \t \t Edge \t \t memory\n");
 		
-		print_info.append(" \t moleular \t characteristic \t findspecies \t moveUnreactedToReacted \t enlarger \t restart1 \t totalEnlarger \t resetSystem  \t readSolverFile\t writeSolverFile \t justSolver \t SolverIterations \t solverSpeciesStatus \t Totalsolver \t gc  \t restart+diagnosis \t chemkin thermo \t chemkin reactions \t validitytester \t Species \t Reactions\t Species\t Reactions \t memory used  \t allSpecies \t TotalTime \t findRateConstant\t identifyReactedSites \t reactChemGraph \t makespecies\t CheckReverseReaction \t makeTemplateReaction \t getReactionfromStruc \t genReverseFromReac");
+		print_info.append(" \t moleular \t characteristic \t findspecies \t moveUnreactedToReacted \t enlarger \t restart1 \t totalEnlarger \t resetSystem  \t readSolverFile\t writeSolverFile \t justSolver \t SolverIterations \t solverSpeciesStatus \t Totalsolver \t gc  \t restart+diagnosis \t chemkin thermo \t chemkin reactions \t validitytester \t Species \t Reactions\t Species\t Reactions \t memory used  \t allSpecies \t TotalTime \t findRateConstant\t identifyReactedSites \t reactChemGraph \t makespecies\t CheckReverseReaction \t makeTemplateReaction \t getReactionfromStruc \t genReverseFromReac \t thermoEstimation \t thermoEstimationSpecies");
 		print_info.append("\t\t\t\t\t\t\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedSpeciesSet().size()+ "\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedReactionSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedSpeciesSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedReactionSetIncludingReverseSize() + "\t"+Global.makeSpecies+"\n");
 		
 		
@@ -1550,15 +1692,7 @@ public class ReactionModelGenerator {
 				double startTime = System.currentTimeMillis();
 				
 				//10/24/07 gmagoon: changed to use reactionSystemList
-				for (Integer i = 0; i<reactionSystemList.size();i++) {
-					ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
-					boolean reactionChanged = (Boolean)reactionChangedList.get(i);
-					boolean conditionChanged = (Boolean)conditionChangedList.get(i);
-					ReactionTime begin = (ReactionTime)beginList.get(i);
-					ReactionTime end = (ReactionTime)endList.get(i);
-					endList.set(i,rs.solveReactionSystem(begin, end, false, reactionChanged, conditionChanged, iterationNumber-1));
-					//end = reactionSystem.solveReactionSystem(begin, end, false, reactionChanged, conditionChanged, iterationNumber-1);
-				}
+				solveReactionSystems(false, true, iterationNumber-1);
 				solverMin = solverMin + (System.currentTimeMillis()-startTime)/1000/60;
 				
 				startTime = System.currentTimeMillis();
@@ -1570,28 +1704,7 @@ public class ReactionModelGenerator {
 				writeDictionary(getReactionModel());
 				double chemkint = (System.currentTimeMillis()-startTime)/1000/60;
 				
-				if (writerestart) {
-					/*
-					 * Rename current restart files:
-					 * 	In the event RMG fails while writing the restart files,
-					 * 	user won't lose any information
-					 */
-					String[] restartFiles = {"Restart/coreReactions.txt", "Restart/coreSpecies.txt",
-							"Restart/edgeReactions.txt", "Restart/edgeSpecies.txt",
-							"Restart/pdepnetworks.txt", "Restart/pdepreactions.txt"};
-					writeBackupRestartFiles(restartFiles);
-					
-					writeCoreSpecies();
-					writeCoreReactions();
-					writeEdgeSpecies();
-					writeEdgeReactions();
-					if (PDepNetwork.generateNetworks == true)	writePDepNetworks();
-					
-					/*
-					 * Remove backup restart files from Restart folder
-					 */
-					removeBackupRestartFiles(restartFiles);
-				}
+				if (writerestart) updateRestartFiles();
 				
 				//10/24/07 gmagoon: changed to use reactionSystemList
                 Logger.info("");
@@ -1612,15 +1725,7 @@ public class ReactionModelGenerator {
 				
 				startTime = System.currentTimeMillis();
 				//10/24/07 gmagoon: updating to use reactionSystemList
-				allValid = true;
-				for (Integer i = 0; i<reactionSystemList.size();i++) {
-					ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
-					boolean valid = rs.isModelValid();
-					if(!valid)
-						allValid = false;
-					validList.set(i,valid);
-					//valid = reactionSystem.isModelValid();
-				}
+				allValid = testModelValidity();
 				vTester = vTester + (System.currentTimeMillis()-startTime)/1000/60;
 				
 				startTime = System.currentTimeMillis();
@@ -1631,7 +1736,7 @@ public class ReactionModelGenerator {
 				
 				int allSpecies, allReactions;
 				allSpecies = SpeciesDictionary.getInstance().size();
-				print_info.append(totalEnlarger + "\t" + resetSystem + "\t" + Global.readSolverFile + "\t" + Global.writeSolverFile + "\t" + Global.solvertime + "\t" + Global.solverIterations + "\t" + Global.speciesStatusGenerator +  "\t" + solverMin + "\t"  + gc + "\t"  + restart2 + "\t" + Global.chemkinThermo + '\t' + Global.chemkinReaction + "\t" + vTester + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedSpeciesSet().size()+ "\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedReactionSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedSpeciesSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedReactionSetIncludingReverseSize() + "\t" + mU + "\t" + allSpecies + "\t" + (System.currentTimeMillis()-Global.tAtInitialization)/1000/60 + "\t"+ String.valueOf(Global.RT_findRateConstant)+"\t"+Global.RT_identifyReactedSites+"\t"+Global.RT_reactChemGraph+"\t"+Global.makeSpecies+"\t"+Global.checkReactionReverse+"\t"+Global.makeTR+ "\t" + Global.getReacFromStruc + "\t" + Global.generateReverse+"\n");
+				print_info.append(totalEnlarger + "\t" + resetSystem + "\t" + Global.readSolverFile + "\t" + Global.writeSolverFile + "\t" + Global.solvertime + "\t" + Global.solverIterations + "\t" + Global.speciesStatusGenerator +  "\t" + solverMin + "\t"  + gc + "\t"  + restart2 + "\t" + Global.chemkinThermo + '\t' + Global.chemkinReaction + "\t" + vTester + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedSpeciesSet().size()+ "\t" + ((CoreEdgeReactionModel)getReactionModel()).getReactedReactionSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedSpeciesSet().size() + "\t" + ((CoreEdgeReactionModel)getReactionModel()).getUnreactedReactionSetIncludingReverseSize() + "\t" + mU + "\t" + allSpecies + "\t" + (System.currentTimeMillis()-Global.tAtInitialization)/1000/60 + "\t"+ String.valueOf(Global.RT_findRateConstant)+"\t"+Global.RT_identifyReactedSites+"\t"+Global.RT_reactChemGraph+"\t"+Global.makeSpecies+"\t"+Global.checkReactionReverse+"\t"+Global.makeTR+ "\t" + Global.getReacFromStruc + "\t" + Global.generateReverse + "\t" + Global.thermoEstimation + "\t" + Global.thermoEstimationSpecies+"\n");
 				
         	}
 			//5/6/08 gmagoon: in order to handle cases where no intermediate time/conversion steps are used, only evaluate the next block of code when there are intermediate time/conversion steps
@@ -1674,28 +1779,13 @@ public class ReactionModelGenerator {
 				startTime = System.currentTimeMillis();//5/6/08 gmagoon: moved declaration outside of if statement so it can be accessed in subsequent vTester line; previous steps are probably so fast that I could eliminate this line without much effect on normal operation with intermediate steps
 				//double startTime = System.currentTimeMillis();
 				//10/24/07 gmagoon: changed to use reactionSystemList
-				for (Integer i = 0; i<reactionSystemList.size();i++) {
-					ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
-					boolean reactionChanged = (Boolean)reactionChangedList.get(i);
-					boolean conditionChanged = (Boolean)conditionChangedList.get(i);
-					ReactionTime begin = (ReactionTime)beginList.get(i);
-					ReactionTime end = (ReactionTime)endList.get(i);
-					endList.set(i,rs.solveReactionSystem(begin, end, false, reactionChanged, false, iterationNumber-1));
-					// end = reactionSystem.solveReactionSystem(begin, end, false, reactionChanged, false, iterationNumber-1);
-				}
+				solveReactionSystems(false, false, iterationNumber-1);
 				solverMin = solverMin + (System.currentTimeMillis()-startTime)/1000/60;
 				
 				startTime = System.currentTimeMillis();
 				
 				//5/6/08 gmagoon: changed to separate validity and termination testing, and termination testing is done last...termination testing should be done even if there are no intermediate conversions; however, validity is guaranteed if there are no intermediate conversions based on previous conditional if statement
-				allValid = true;
-				for (Integer i = 0; i<reactionSystemList.size();i++) {
-					ReactionSystem rs = (ReactionSystem)reactionSystemList.get(i);
-					boolean valid = rs.isModelValid();     
-					validList.set(i,valid);
-					if(!valid)
-						allValid = false;
-				}
+				allValid = testModelValidity();
 			}//5/6/08 gmagoon: end of block for intermediateSteps
 
 			allTerminated = true;
@@ -1724,28 +1814,7 @@ public class ReactionModelGenerator {
         }
         
         //System.out.println("Performing model reduction");
-        if (writerestart) {
-			/*
-			 * Rename current restart files:
-			 * 	In the event RMG fails while writing the restart files,
-			 * 	user won't lose any information
-			 */
-			String[] restartFiles = {"Restart/coreReactions.txt", "Restart/coreSpecies.txt",
-					"Restart/edgeReactions.txt", "Restart/edgeSpecies.txt",
-					"Restart/pdepnetworks.txt", "Restart/pdepreactions.txt"};
-			writeBackupRestartFiles(restartFiles);
-			
-			writeCoreSpecies();
-			writeCoreReactions();
-			writeEdgeSpecies();
-			writeEdgeReactions();
-			if (PDepNetwork.generateNetworks == true)	writePDepNetworks();
-			
-			/*
-			 * Remove backup restart files from Restart folder
-			 */
-			removeBackupRestartFiles(restartFiles);
-		}
+        if (writerestart) updateRestartFiles();
 		
         if (paraInfor != 0){
 			Logger.info("Model Generation performed. Now generating sensitivity data.");
@@ -1801,19 +1870,15 @@ public class ReactionModelGenerator {
     //9/1/09 gmagoon: this function writes a "dictionary" with Chemkin name, RMG name, (modified) InChI, and InChIKey
     //this is based off of writeChemkinFile in ChemkinInputFile.java
     private void writeInChIs(ReactionModel p_reactionModel) {
-        StringBuilder result=new StringBuilder();
-        for (Iterator iter = ((CoreEdgeReactionModel)p_reactionModel).core.getSpecies(); iter.hasNext(); ) {
-            Species species = (Species) iter.next();
-            result.append(species.getChemkinName() + "\t"+species.getName() + "\t" + species.getChemGraph().getModifiedInChIAnew() + "\t" + species.getChemGraph().getModifiedInChIKeyAnew()+ "\n");
-        }
-		
-		
 		String file = "inchiDictionary.txt";
 		
 		try {
-			FileWriter fw = new FileWriter(file);
-			fw.write(result.toString());
-			fw.close();
+			BufferedWriter bw = new BufferedWriter(new FileWriter(file));
+			for (Iterator iter = ((CoreEdgeReactionModel)p_reactionModel).core.getSpecies(); iter.hasNext(); ) {
+				Species species = (Species) iter.next();
+				bw.write(species.getChemkinName() + "\t"+species.getName() + "\t" + species.getChemGraph().getModifiedInChIAnew() + "\t" + species.getChemGraph().getModifiedInChIKeyAnew()+ "\n");
+			}
+			bw.close();
 		}
 		catch (Exception e) {
 			Logger.logStackTrace(e);
@@ -1826,29 +1891,22 @@ public class ReactionModelGenerator {
     //9/14/09 gmagoon: function to write dictionary, based on code copied from RMG.java
     private void writeDictionary(ReactionModel rm){
         CoreEdgeReactionModel cerm = (CoreEdgeReactionModel)rm;
-        //Write core species to RMG_Dictionary.txt
-		String coreSpecies ="";
+        //Write core species to RMG_Dictionary.txt, one species at a time
 		Iterator iter = cerm.getSpecies();
 		
-		if (Species.useInChI) {
-			while (iter.hasNext()){
-				int i=1;
-				Species spe = (Species) iter.next();
-				coreSpecies = coreSpecies + spe.getChemkinName() + " " + spe.getInChI() + "\n"+spe.getChemGraph().toString(i)+"\n\n";
-			}
-		} else {
+		try{
+			File rmgDictionary = new File("RMG_Dictionary.txt");
+			BufferedWriter bw = new BufferedWriter(new FileWriter(rmgDictionary));
 			while (iter.hasNext()){
 				int i=1;
 				Species spe = (Species) iter.next();
-				coreSpecies = coreSpecies + spe.getChemkinName() + "\n"+spe.getChemGraph().toString(i)+"\n\n";
+				bw.write(spe.getChemkinName());
+				if (Species.useInChI) bw.write(" " + spe.getInChI());
+				bw.write("\n");
+				bw.write(spe.getChemGraph().toString(i));
+				bw.write("\n\n");
 			}
-		}
-		
-		try{
-			File rmgDictionary = new File("RMG_Dictionary.txt");
-			FileWriter fw = new FileWriter(rmgDictionary);
-			fw.write(coreSpecies);
-			fw.close();
+			bw.close();
 		}
 		catch (IOException e) {
 			Logger.critical("Could not write RMG_Dictionary.txt");
@@ -1864,24 +1922,22 @@ public class ReactionModelGenerator {
     private void writeSolvationProperties(ReactionModel rm){
         //Write core species to RMG_Solvation_Properties.txt
 		CoreEdgeReactionModel cerm = (CoreEdgeReactionModel)rm;
-		StringBuilder result = new StringBuilder();
-		result.append("ChemkinName\tChemicalFormula\tMolecularWeight\tRadius\tDiffusivity\tAbrahamS\tAbrahamB\tAbrahamE\tAbrahamL\tAbrahamA\tAbrahamV\tChemkinName\n\n");
-		Iterator iter = cerm.getSpecies();
-		while (iter.hasNext()){
-			Species spe = (Species)iter.next();
-			result.append(spe.getChemkinName() + "\t");
-			result.append(spe.getChemGraph().getChemicalFormula()+ "\t");
-			result.append(spe.getMolecularWeight() + "\t");
-			result.append(spe.getChemGraph().getRadius()+ "\t");
-			result.append(spe.getChemGraph().getDiffusivity()+ "\t");
-			result.append(spe.getChemGraph().getAbramData().toString()+ "\t");
-			result.append(spe.getChemkinName() + "\n");
-		}
 		try{
 			File rmgSolvationProperties = new File("RMG_Solvation_Properties.txt");
-			FileWriter fw = new FileWriter(rmgSolvationProperties);
-			fw.write(result.toString() );
-			fw.close();
+			BufferedWriter result = new BufferedWriter(new FileWriter(rmgSolvationProperties));
+			result.write("ChemkinName\tChemicalFormula\tMolecularWeight\tRadius\tDiffusivity\tAbrahamS\tAbrahamB\tAbrahamE\tAbrahamL\tAbrahamA\tAbrahamV\tChemkinName\n\n");
+			Iterator iter = cerm.getSpecies();
+			while (iter.hasNext()){
+				Species spe = (Species)iter.next();
+				result.write(spe.getChemkinName() + "\t");
+				result.write(spe.getChemGraph().getChemicalFormula()+ "\t");
+				result.write(spe.getMolecularWeight() + "\t");
+				result.write(spe.getChemGraph().getRadius()+ "\t");
+				result.write(spe.getChemGraph().getDiffusivity()+ "\t");
+				result.write(spe.getChemGraph().getAbramData().toString()+ "\t");
+				result.write(spe.getChemkinName() + "\n");
+			}
+			result.close();
 		}
 		catch (IOException e) {
 			Logger.critical("Could not write RMG_Solvation_Properties.txt");
@@ -2504,6 +2560,59 @@ public class ReactionModelGenerator {
 //		
 //	}
 	
+	/**
+	 * Brings the restart files up to date with the reaction model. The
+	 * species and reactions added to (or pruned from) the model since the
+	 * last call are appended to the restart journal; once the journal has
+	 * grown larger than the snapshot it applies to, a new snapshot is
+	 * written instead. The snapshot is the binary Restart/snapshot.bin, plus
+	 * the text files if asked for by "WriteRestart: yes text"; coreSpecies.txt
+	 * is always written since the seed mechanism in pdepreactions.txt needs
+	 * it. The third-body/Troe/Lindemann core reactions and the
+	 * pressure-dependent networks are always rewritten in full.
+	 */
+	private void updateRestartFiles() {
+		CoreEdgeReactionModel cerm = (CoreEdgeReactionModel)getReactionModel();
+		if (restartJournal.needsCompaction()) {
+			/*
+			 * Rename current restart files:
+			 * 	In the event RMG fails while writing the restart files,
+			 * 	user won't lose any information
+			 */
+			String[] restartFiles = {"Restart/coreReactions.txt", "Restart/coreSpecies.txt",
+					"Restart/edgeReactions.txt", "Restart/edgeSpecies.txt",
+					"Restart/pdepnetworks.txt", "Restart/pdepreactions.txt",
+					RestartSnapshot.SNAPSHOT_FILE, RestartJournal.JOURNAL_FILE};
+			writeBackupRestartFiles(restartFiles);
+			
+			RestartSnapshot.write(cerm);
+			writeCoreSpecies();
+			writeCorePDepReactions();
+			if (writeTextRestart) {
+				writeCoreReactions();
+				writeEdgeSpecies();
+				writeEdgeReactions();
+			}
+			if (PDepNetwork.generateNetworks == true)	writePDepNetworks();
+			restartJournal.compacted(cerm);
+			
+			/*
+			 * Remove backup restart files from Restart folder
+			 */
+			removeBackupRestartFiles(restartFiles);
+		}
+		else {
+			String[] restartFiles = {"Restart/pdepnetworks.txt", "Restart/pdepreactions.txt"};
+			writeBackupRestartFiles(restartFiles);
+			
+			restartJournal.append(cerm);
+			writeCorePDepReactions();
+			if (PDepNetwork.generateNetworks == true)	writePDepNetworks();
+			
+			removeBackupRestartFiles(restartFiles);
+		}
+	}
+	
 	private void writeEdgeSpecies() {
 		BufferedWriter bw = null;
 		Logger.info("Writing Restart Edge Species");
@@ -2621,16 +2730,52 @@ public class ReactionModelGenerator {
 	
 	private void writeCoreReactions() {
 		BufferedWriter bw_rxns = null;
-		BufferedWriter bw_pdeprxns = null;
 		Logger.info("Writing Restart Core Reactions");
         try {
             bw_rxns = new BufferedWriter(new FileWriter("Restart/coreReactions.txt"));
-            bw_pdeprxns = new BufferedWriter(new FileWriter("Restart/pdepreactions.txt"));
             
     		String EaUnits = ArrheniusKinetics.getEaUnits();
-    		String AUnits = ArrheniusKinetics.getAUnits();
     		bw_rxns.write("UnitsOfEa: " + EaUnits);
     		bw_rxns.newLine();
+            
+			CoreEdgeReactionModel cerm = (CoreEdgeReactionModel)getReactionModel();
+			LinkedHashSet allcoreRxns = cerm.core.reaction;
+			for(Iterator iter=allcoreRxns.iterator(); iter.hasNext();){
+				Reaction reaction = (Reaction) iter.next();
+				if (reaction.isForward() && !(reaction instanceof ThirdBodyReaction)
+						&& !(reaction instanceof TROEReaction) && !(reaction instanceof LindemannReaction)) {
+					//bw.write(reaction.toChemkinString(new Temperature(298,"K")));
+					bw_rxns.write(reaction.toRestartString(new Temperature(298,"K"),false));
+					bw_rxns.newLine();
+				}
+			}
+        } catch (FileNotFoundException ex) {
+            Logger.logStackTrace(ex);
+        } catch (IOException ex) {
+            Logger.logStackTrace(ex);
+        } finally {
+            try {
+                if (bw_rxns != null) {
+                    bw_rxns.flush();
+                    bw_rxns.close();
+                }
+            } catch (IOException ex) {
+                Logger.logStackTrace(ex);
+            }
+        }
+	}
+	
+	/**
+	 * Writes the third-body, Troe and Lindemann core reactions (which can only
+	 * come from a seed mechanism) to pdepreactions.txt, which is read back as
+	 * a seed mechanism on restart.
+	 */
+	private void writeCorePDepReactions() {
+		BufferedWriter bw_pdeprxns = null;
+        try {
+            bw_pdeprxns = new BufferedWriter(new FileWriter("Restart/pdepreactions.txt"));
+            
+    		String EaUnits = ArrheniusKinetics.getEaUnits();
     		bw_pdeprxns.write("Unit:\nA: mol/cm3/s\nE: " + EaUnits + "\n\nReactions:");
     		bw_pdeprxns.newLine();
             
@@ -2654,11 +2799,6 @@ public class ReactionModelGenerator {
 						bw_pdeprxns.write(tbRxn.toRestartString(new Temperature(298,"K")));
 						bw_pdeprxns.newLine();
 					}
-					else {
-						//bw.write(reaction.toChemkinString(new Temperature(298,"K")));
-						bw_rxns.write(reaction.toRestartString(new Temperature(298,"K"),false));
-						bw_rxns.newLine();
-					}
 				}
 			}
         } catch (FileNotFoundException ex) {
@@ -2667,10 +2807,6 @@ public class ReactionModelGenerator {
             Logger.logStackTrace(ex);
         } finally {
             try {
-                if (bw_rxns != null) {
-                    bw_rxns.flush();
-                    bw_rxns.close();
-                }
                 if (bw_pdeprxns != null) {
                 	bw_pdeprxns.flush();
                 	bw_pdeprxns.close();
@@ -2978,10 +3114,23 @@ public class ReactionModelGenerator {
     
     public void readRestartSpecies() {    	
 		Logger.info("Reading in species from Restart folder");
+		// Read the binary snapshot if there is one; its species carry their thermo data
+		if (RestartSnapshot.exists()) {
+			try {
+				restartSnapshot = RestartSnapshot.read();
+				restartCoreSpcs.addAll(restartSnapshot.getCoreSpecies());
+				restartEdgeSpcs.addAll(restartSnapshot.getEdgeSpecies());
+				return;
+			} catch (IOException e) {
+				Logger.logStackTrace(e);
+				Logger.warning("Could not read " + RestartSnapshot.SNAPSHOT_FILE + "; reading the text restart files instead.");
+				restartSnapshot = null;
+			}
+		}
 		// Read in core species -- NOTE code is almost duplicated in Read in edge species (second part of procedure)
 		try {
-			FileReader in = new FileReader("Restart/coreSpecies.txt");
-			BufferedReader reader = new BufferedReader(in);
+			// The snapshot in coreSpecies.txt, with the restart journal applied
+			BufferedReader reader = RestartJournal.openSpecies(true);
             String line = ChemParser.readMeaningfulLine(reader, true);
 			while (line != null) {
 				// The first line of a new species is the user-defined name
@@ -3018,8 +3167,7 @@ public class ReactionModelGenerator {
 		
 		// Read in edge species
 		try {
-			FileReader in = new FileReader("Restart/edgeSpecies.txt");
-			BufferedReader reader = new BufferedReader(in);
+			BufferedReader reader = RestartJournal.openSpecies(false);
             String line = ChemParser.readMeaningfulLine(reader, true);
 			while (line != null) {
 				// The first line of a new species is the user-defined name
@@ -3066,10 +3214,18 @@ public class ReactionModelGenerator {
     	}
     	
 		Logger.info("Reading reactions from Restart folder");
+		if (restartSnapshot != null) {
+			restartCoreRxns.addAll(restartSnapshot.getCoreReactions(coreSpcsIds));
+			readRestartSeedMechanism();
+			restartEdgeRxns.addAll(restartSnapshot.getEdgeReactions(coreSpcsIds));
+			restartSnapshot = null;
+			return;
+		}
+		
 		// Read in core reactions
 		try {
-			FileReader in = new FileReader("Restart/coreReactions.txt");
-			BufferedReader reader = new BufferedReader(in);
+			// The snapshot in coreReactions.txt, with the restart journal applied
+			BufferedReader reader = RestartJournal.openReactions(true);
             String line = ChemParser.readMeaningfulLine(reader, true);
             
             // Determine units of Ea
@@ -3116,19 +3272,11 @@ public class ReactionModelGenerator {
 		 *  	Place these reactions in a new Seed Mechanism, using the 
 		 *  		coreSpecies.txt file as the species.txt file.
 		 */
-		SeedMechanism restart_seed_mechanism = null;
-		try {
-			String path = System.getProperty("user.dir") +  "/Restart";								   
-			restart_seed_mechanism = new SeedMechanism("Restart", path, false, true);
-		} catch (IOException e1) {
-            Logger.logStackTrace(e1);
-		}
-		restartCoreRxns.addAll(restart_seed_mechanism.getReactionSet());
+		readRestartSeedMechanism();
 		
 		// Read in edge reactions
 		try {
-			FileReader in = new FileReader("Restart/edgeReactions.txt");
-			BufferedReader reader = new BufferedReader(in);
+			BufferedReader reader = RestartJournal.openReactions(false);
             String line = ChemParser.readMeaningfulLine(reader, true);
             
             // Determine units of Ea
@@ -3167,6 +3315,22 @@ public class ReactionModelGenerator {
 		}
     }
     
+    /**
+     * Reads the third-body, Lindemann and Troe core reactions in
+     * Restart/pdepreactions.txt, as a seed mechanism whose species are those
+     * in Restart/coreSpecies.txt.
+     */
+    private void readRestartSeedMechanism() {
+		SeedMechanism restart_seed_mechanism = null;
+		try {
+			String path = System.getProperty("user.dir") +  "/Restart";								   
+			restart_seed_mechanism = new SeedMechanism("Restart", path, false, true);
+		} catch (IOException e1) {
+            Logger.logStackTrace(e1);
+		}
+		restartCoreRxns.addAll(restart_seed_mechanism.getReactionSet());
+    }
+    
     public LinkedHashMap getRestartSpeciesStatus(int i) {
     	LinkedHashMap speciesStatus = new LinkedHashMap();
     	
@@ -3219,9 +3383,20 @@ public class ReactionModelGenerator {
     
     public void putRestartSpeciesInInitialStatus(InitialStatus is, int i) {
     	
+		// The core species were already made from the binary snapshot
+		if (RestartSnapshot.exists() && !restartCoreSpcs.isEmpty()) {
+			for (Iterator iter = restartCoreSpcs.iterator(); iter.hasNext(); ) {
+				Species species = (Species) iter.next();
+				if (is.getSpeciesStatus(species) == null) {
+	    			SpeciesStatus ss = new SpeciesStatus(species,1,0.0,0.0);
+	    			is.putSpeciesStatus(ss);
+				}
+			}
+			return;
+		}
+		
 		try {
-			FileReader in = new FileReader("Restart/coreSpecies.txt");
-			BufferedReader reader = new BufferedReader(in);
+			BufferedReader reader = RestartJournal.openSpecies(true);
             String line = ChemParser.readMeaningfulLine(reader, true);
 			while (line != null) {
 				// The first line of a new species is the user-defined name
@@ -3640,6 +3815,7 @@ public class ReactionModelGenerator {
 			LinkedHashSet reactionSet_withdup;
 			LinkedHashSet reactionSet;
 			
+			ThermoBatch.begin();
 			// If Seed Mechanism is present and Generate Reaction is set on  
 			if (hasSeedMechanisms() && getSeedMechanism().shouldGenerateReactions()) {
 				
@@ -3676,6 +3852,7 @@ public class ReactionModelGenerator {
 				}
 				reactionSet = getLibraryReactionGenerator().RemoveDuplicateReac(reactionSet_withdup);
 			}
+			ThermoBatch.end();
 			
 	    	// Set initial core-edge reaction model based on above results
 			if (reactionModelEnlarger instanceof RateBasedRME)	{
@@ -3746,6 +3923,7 @@ public class ReactionModelGenerator {
 			 * 		families
 			 */
 //			else {
+				ThermoBatch.begin();
 				reactionSet_withdup = new LinkedHashSet();	
 				LinkedHashSet tempnewReactionSet = getLibraryReactionGenerator().react(speciesSeed);
 				if (!tempnewReactionSet.isEmpty()) {
@@ -3761,6 +3939,7 @@ public class ReactionModelGenerator {
 					reactionSet_withdup.addAll(getReactionGenerator().react(allInitialCoreSpecies,spec,"All"));
 				}
 				reactionSet = getLibraryReactionGenerator().RemoveDuplicateReac(reactionSet_withdup);
+				ThermoBatch.end();
 //			}
 		
 	    	// Set initial core-edge reaction model based on above results
@@ -3794,12 +3973,7 @@ public class ReactionModelGenerator {
 		
 		// We cannot return a system with no core reactions, so if this is a case we must add to the core
         while (getReactionModel().isEmpty() && !PDepNetwork.hasCoreReactions((CoreEdgeReactionModel) getReactionModel())) {
-			for (Integer i = 0; i < reactionSystemList.size(); i++) {
-				ReactionSystem rs = (ReactionSystem) reactionSystemList.get(i);
-				if (reactionModelEnlarger instanceof RateBasedPDepRME) 
-					rs.initializePDepNetwork();
-				rs.appendUnreactedSpeciesStatus((InitialStatus)initialStatusList.get(i), rs.getPresentTemperature());
-			}
+			appendUnreactedSpeciesStatuses(reactionModelEnlarger instanceof RateBasedPDepRME);
 			enlargeReactionModel();
 		}
 		
@@ -3895,12 +4069,7 @@ public class ReactionModelGenerator {
 		
 		// We cannot return a system with no core reactions, so if this is a case we must add to the core
         while (getReactionModel().isEmpty()&&!PDepNetwork.hasCoreReactions((CoreEdgeReactionModel) getReactionModel())) {
-			for (Integer i = 0; i < reactionSystemList.size(); i++) {
-				ReactionSystem rs = (ReactionSystem) reactionSystemList.get(i);
-				if (reactionModelEnlarger instanceof RateBasedPDepRME) 
-					rs.initializePDepNetwork();
-				rs.appendUnreactedSpeciesStatus((InitialStatus)initialStatusList.get(i), rs.getPresentTemperature());
-			}
+			appendUnreactedSpeciesStatuses(reactionModelEnlarger instanceof RateBasedPDepRME);
 			enlargeReactionModel();
             
 		}
@@ -3942,6 +4111,10 @@ public class ReactionModelGenerator {
         Logger.info("Enlarging reaction model");
         reactionModelEnlarger.enlargeReactionModel(reactionSystemList, reactionModel, validList);
 
+        // The kinetics of existing edge reactions may have been updated
+        for (Iterator iter = reactionSystemList.iterator(); iter.hasNext(); )
+            ((ReactionSystem) iter.next()).invalidateEdgeFluxes();
+
         return;
         //#]
     }
@@ -3969,10 +4142,10 @@ public class ReactionModelGenerator {
 			//System.out.println("PDep Pruning DEBUG:\nThe number of species in the model's edge, before pruning: " + ((CoreEdgeReactionModel)reactionModel).getEdge().getSpeciesNumber());
 			//System.out.println("PDep Pruning DEBUG:\nRMG thinks the following number of species" +
 			//		" needs to be pruned: " + numberToBePruned);
-			Iterator iter = JDAS.edgeID.keySet().iterator();//determine the maximum edge flux ratio for each edge species
+			Iterator iter = ds0.edgeID.keySet().iterator();//determine the maximum edge flux ratio for each edge species
 			while(iter.hasNext()){
 				Species spe = (Species)iter.next();
-				Integer id = (Integer)JDAS.edgeID.get(spe);
+				Integer id = (Integer)ds0.edgeID.get(spe);
 				double maxmaxRatio = ds0.maxEdgeFluxRatio[id-1];
 				boolean prunable = ds0.prunableSpecies[id-1];
 				//go through the rest of the reaction systems to see if there are higher max flux ratios
@@ -3987,14 +4160,14 @@ public class ReactionModelGenerator {
 				}
 			}
 			//repeat with the edgeLeakID; if a species appears in both lists, it will be prunable only if it is prunable in both cases, and the sum of maximum edgeFlux + maximum edgeLeakFlux (for each reaction system) will be considered; this will be a conservative overestimate of maximum (edgeFlux+edgeLeakFlux)
-			iter = JDAS.edgeLeakID.keySet().iterator();
+			iter = ds0.edgeLeakID.keySet().iterator();
 			while(iter.hasNext()){
 				Species spe = (Species)iter.next();
-				Integer id = (Integer)JDAS.edgeLeakID.get(spe);
+				Integer id = (Integer)ds0.edgeLeakID.get(spe);
 				//check whether the same species is in edgeID
-				if(JDAS.edgeID.containsKey(spe)){//the species exists in edgeID
+				if(ds0.edgeID.containsKey(spe)){//the species exists in edgeID
 				    if(prunableSpeciesMap.containsKey(spe)){//the species was determined to be "prunable" based on edgeID
-					Integer idEdge=(Integer)JDAS.edgeID.get(spe);
+					Integer idEdge=(Integer)ds0.edgeID.get(spe);
 					double maxmaxRatio = ds0.maxEdgeFluxRatio[id-1]+ds0.maxEdgeFluxRatio[idEdge-1];
 					boolean prunable = ds0.prunableSpecies[id-1];
 					//go through the rest of the reaction systems to see if there are higher max flux ratios
@@ -4109,8 +4282,9 @@ public class ReactionModelGenerator {
 						"from the SpeciesDictionary\nas it is present in a Primary Kinetic / Reaction" +
 						" Library\nThe species will still be removed from the Edge of the " +
 						"Reaction Mechanism\n" + spe.toString());
-				JDAS.edgeID.remove(spe);
-				JDAS.edgeLeakID.remove(spe); // this would get cleaned up in another iteration when edgeLeakID is rebuilt, but debugging memory leaks is simpler if we explicitly clear it here.
+				StructureTemplate.removeFromReactedSiteCache(spe);
+				ds0.edgeID.remove(spe);
+				ds0.edgeLeakID.remove(spe); // this would get cleaned up in another iteration when edgeLeakID is rebuilt, but debugging memory leaks is simpler if we explicitly clear it here.
 			}
 			//remove reactions from the edge involving pruned species
 			
@@ -5055,6 +5229,45 @@ public class ReactionModelGenerator {
 		}
     }
     
+    /**
+     * Reads the optional performance settings that may follow the ChemkinUnits
+     * block at the end of the condition file, in any order, up to the end of
+     * the file.  Throws InvalidSymbolException on a line that is not one of
+     * them.  Returns null.
+     */
+    public String readPerformanceOptions(String line, BufferedReader reader) {
+        while (line != null) {
+        	StringTokenizer st = new StringTokenizer(line);
+        	String option = st.nextToken();
+        	if (!st.hasMoreTokens())
+        		throw new InvalidSymbolException("condition.txt: No value given for " + line);
+        	if (option.equals("ReactionGenerationThreads:")) {
+        		int threads = Integer.parseInt(st.nextToken());
+        		TemplateReactionGenerator.setReactionGenerationThreads(threads);
+        		Logger.info("Note: Identifying reactive sites of bimolecular templates on " + TemplateReactionGenerator.getReactionGenerationThreads() + " threads");
+        	}
+        	else if (option.equals("NativeWorkers:")) {
+        		NativeWorkerPool.setDefaultSize(Integer.parseInt(st.nextToken()));
+        		Logger.info("Note: Running up to " + NativeWorkerPool.getDefaultSize() + " FAME and GATPFit processes at the same time");
+        	}
+        	else if (option.equals("ReactionSystemThreads:")) {
+        		setReactionSystemThreads(Integer.parseInt(st.nextToken()));
+        		Logger.info("Note: Solving up to " + reactionSystemThreads + " reaction systems at the same time");
+        	}
+        	else if (option.equals("ThermoThreads:")) {
+        		ThermoBatch.setThreads(Integer.parseInt(st.nextToken()));
+        		Logger.info("Note: Estimating the thermo data of new species on " + ThermoBatch.getThreads() + " threads");
+        	}
+        	else if (option.equals("QMJobs:")) {
+        		QMJobScheduler.setMaxConcurrentJobs(Integer.parseInt(st.nextToken()));
+        		Logger.info("Note: Running up to " + QMJobScheduler.getMaxConcurrentJobs() + " QM thermo calculations at the same time");
+        	}
+        	else throw new InvalidSymbolException("condition.txt: Unknown option after ChemkinUnits: " + line);
+        	line = ChemParser.readMeaningfulLine(reader, true);
+        }
+        return line;
+    }
+    
     public String readMaxAtomTypes(String line, BufferedReader reader) {
         if (line.startsWith("MaxCarbonNumber")) {
         	StringTokenizer st = new StringTokenizer(line);
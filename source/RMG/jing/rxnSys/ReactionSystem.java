@@ -65,6 +65,7 @@ public class ReactionSystem {
     protected LinkedList systemSnapshot;
     protected TemperatureModel temperatureModel;
     protected double [] reactionFlux;
+    protected EdgeFluxTable edgeFluxTable = new EdgeFluxTable();	// compiled edge reactions for appendUnreactedSpeciesStatus
     protected LibraryReactionGenerator lrg;//9/24/07 gmagoon: moved to ReactionModelGenerator.java; 9/25/07 variable is passed from ReactionModelGenerator
     protected int ind;//10/30/07 gmagoon: added index variable to number different reaction systems; starts at zero; 1/5/09 changed name from index to ind to avoid confusion with local variables used below
     protected String equationOfState; // rwest: could be "Liquid"
@@ -257,46 +258,8 @@ public class ReactionSystem {
 //                    }
                 }
 		
-		LinkedHashSet ur = model.getUnreactedReactionSet();
-            
-		for (Iterator iur = ur.iterator(); iur.hasNext();) {
-			Reaction r = (Reaction)iur.next();
-			double flux = 0;
-			if (r instanceof TemplateReaction) {
-				flux = ((TemplateReaction)r).calculateTotalPDepRate(p_temperature, p_systemSnapshot.getPressure());
-			}
-			else {
-				flux = r.calculateTotalRate(p_temperature);
-			}
-			if (flux > 0) {
-				for (Iterator rIter=r.getReactants(); rIter.hasNext();) {
-					Species spe = (Species)rIter.next();
-					double conc = 0;
-					if (p_systemSnapshot.getSpeciesStatus(spe) != null)
-						conc = (p_systemSnapshot.getSpeciesStatus(spe)).getConcentration();
-					if (conc<0) {
-						double aTol = ReactionModelGenerator.getAtol();
-						//if (Math.abs(conc) < aTol) conc = 0;
-						//else throw new NegativeConcentrationException(spe.getFullName() + ": " + String.valueOf(conc));
-						if (conc < -100.0 * aTol)
-							throw new NegativeConcentrationException("Species " + spe.getFullName() + " has negative concentration: " + String.valueOf(conc));
-					}
-					flux *= conc;
-
-				}
-
-				for (Iterator rIter=r.getProducts(); rIter.hasNext();) {
-					Species spe = (Species)rIter.next();
-					if (model.containsAsUnreactedSpecies(spe)) {
-						unreactedFlux[spe.getID()] += flux;
-					}
-				}
-
-			}
-			else {
-				throw new NegativeRateException(r.toChemkinString(p_temperature) + ": " + String.valueOf(flux));
-			}
-		}
+		// Flux from the edge reactions, computed from the compiled table
+		edgeFluxTable.addUnreactedFlux(model, p_systemSnapshot, p_temperature, unreactedFlux);
 		p_systemSnapshot.unreactedSpeciesFlux = unreactedFlux;
 		
         //#]
@@ -533,24 +496,41 @@ public class ReactionSystem {
 		
 		Logger.info("");
 
-        LinkedList pdnList = new LinkedList(PDepNetwork.getNetworks());
-		for (Iterator iter = pdnList.iterator(); iter.hasNext(); ) {
-        	PDepNetwork pdn = (PDepNetwork)iter.next();
-        	if (pdn.getAltered()) {
+        // The networks are shared by all reaction systems, which may be solved at the same time;
+        // the first system to get here updates the altered networks, the others find them updated
+        synchronized (PDepNetwork.class) {
+            LinkedList pdnList = new LinkedList(PDepNetwork.getNetworks());
+            
+            // FAME solves the altered networks at the same time
+            if (pDepKineticsEstimator instanceof FastMasterEqn) {
+            	LinkedList<PDepNetwork> alteredList = new LinkedList<PDepNetwork>();
+            	for (Iterator iter = pdnList.iterator(); iter.hasNext(); ) {
+            		PDepNetwork pdn = (PDepNetwork)iter.next();
+            		if (pdn.getAltered())
+            			alteredList.add(pdn);
+            	}
+            	((FastMasterEqn) pDepKineticsEstimator).runPDepCalculations(alteredList, this, cerm);
+            	return;
+            }
+            
+			for (Iterator iter = pdnList.iterator(); iter.hasNext(); ) {
+            	PDepNetwork pdn = (PDepNetwork)iter.next();
+            	if (pdn.getAltered()) {
 				
-        		// Update the k(T, P) estimates for the network
-				pDepKineticsEstimator.runPDepCalculation(pdn, this, cerm);
+            		// Update the k(T, P) estimates for the network
+					pDepKineticsEstimator.runPDepCalculation(pdn, this, cerm);
 				
-				// Each net reaction with k(T, P) > 0 can be treated as a core or edge reaction (?)
-				/*for (ListIterator<PDepReaction> iter2 = pdn.getNetReactions().listIterator(); iter2.hasNext(); ) {
-					PDepReaction rxn = iter2.next();
-					if (rxn.isCoreReaction())
-						cerm.addReactedReaction(rxn);
-					else if (rxn.isEdgeReaction())
-						cerm.addUnreactedReaction(rxn);	
-				}*/
-			}
-		}	
+					// Each net reaction with k(T, P) > 0 can be treated as a core or edge reaction (?)
+					/*for (ListIterator<PDepReaction> iter2 = pdn.getNetReactions().listIterator(); iter2.hasNext(); ) {
+						PDepReaction rxn = iter2.next();
+						if (rxn.isCoreReaction())
+							cerm.addReactedReaction(rxn);
+						else if (rxn.isEdgeReaction())
+							cerm.addUnreactedReaction(rxn);	
+					}*/
+				}
+			}	
+        }
     }
 
     //## operation isFinished()
@@ -1391,6 +1371,14 @@ public String printLowerBoundConcentrations(LinkedList p_speciesList) {
 
 
 
+    /**
+     * Marks the rate constants of the compiled edge reactions as out of
+     * date; called whenever the reaction model has been enlarged.
+     */
+    public void invalidateEdgeFluxes() {
+        edgeFluxTable.invalidate();
+    }
+
     //## operation resetSystemSnapshot()
     public void resetSystemSnapshot() {
         //#[ operation resetSystemSnapshot()
@@ -1431,6 +1419,7 @@ public String printLowerBoundConcentrations(LinkedList p_speciesList) {
         SystemSnapshot present = getDynamicSimulator().solve(p_initialization, getReactionModel(), p_reactionChanged, beginStatus, p_beginTime, p_endTime,t,p, p_conditionChanged, finishController.terminationTester, iterationNum);
 		appendUnreactedSpeciesStatus(present, t);
         systemSnapshot.add(present);
+        Global.addSolverTimings();
         return present.time;
         //#]
     }
@@ -1458,6 +1447,7 @@ public String printLowerBoundConcentrations(LinkedList p_speciesList) {
         for (int i=0; i< sS.size(); i++){
         	systemSnapshot.add(sS.get(i));
         }
+        Global.addSolverTimings();
         return;
 		
 	}
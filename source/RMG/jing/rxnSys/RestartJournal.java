@@ -0,0 +1,646 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.zip.CRC32;
+
+import jing.chem.Species;
+import jing.chemParser.ChemParser;
+import jing.param.Temperature;
+import jing.rxn.ArrheniusKinetics;
+import jing.rxn.LindemannReaction;
+import jing.rxn.Reaction;
+import jing.rxn.TROEReaction;
+import jing.rxn.ThirdBodyReaction;
+
+/**
+ * An append-only journal of the changes made to the reaction model since the
+ * last snapshot of the restart files (coreSpecies.txt, edgeSpecies.txt,
+ * coreReactions.txt and edgeReactions.txt in the Restart folder).
+ * <p>
+ * Each call to append() writes the species and reactions that were added to
+ * the core or edge, or pruned from the edge, since the previous call. Every
+ * record carries its length and a CRC-32 checksum, and the records of one
+ * call end with a COMMIT record, so that a journal cut short by a crash is
+ * read up to its last complete call. Once the journal has grown larger than
+ * the snapshot, needsCompaction() returns true, and the caller should write
+ * a new snapshot, move the journal aside, and call compacted().
+ * <p>
+ * openSpecies() and openReactions() read a snapshot file with the journal
+ * applied, in the format of the snapshot file itself, streaming the snapshot
+ * rather than loading it.
+ */
+public class RestartJournal {
+
+	public static final String JOURNAL_FILE = "Restart/journal.txt";
+	public static final String CORE_SPECIES_FILE = "Restart/coreSpecies.txt";
+	public static final String EDGE_SPECIES_FILE = "Restart/edgeSpecies.txt";
+	public static final String CORE_REACTIONS_FILE = "Restart/coreReactions.txt";
+	public static final String EDGE_REACTIONS_FILE = "Restart/edgeReactions.txt";
+
+	private static final String CORE_SPECIES = "CORESPECIES";
+	private static final String EDGE_SPECIES = "EDGESPECIES";
+	private static final String PRUNE_SPECIES = "PRUNESPECIES";
+	private static final String CORE_REACTION = "COREREACTION";
+	private static final String EDGE_REACTION = "EDGEREACTION";
+	private static final String PRUNE_REACTION = "PRUNEREACTION";
+	private static final String COMMIT = "COMMIT";
+
+	/** What has been written of each species, by identity. */
+	private IdentityHashMap writtenSpecies = new IdentityHashMap();
+
+	/** What has been written of each (forward) reaction, by identity. */
+	private IdentityHashMap writtenReactions = new IdentityHashMap();
+
+	/** The number of scans of the reaction model so far. */
+	private int pass = 0;
+
+	/** Whether a snapshot has been written by this run. */
+	private boolean hasSnapshot = false;
+
+	/** The total size (bytes) of the snapshot files when last written. */
+	private long snapshotSize = 0;
+
+	/** What has been written of one species or reaction. */
+	private static class Entry {
+		boolean core;
+		int version;
+		int pass;
+	}
+
+	//==========================================================================
+
+	/**
+	 * Returns true if a new snapshot should be written instead of appending
+	 * to the journal: either none has been written by this run, or the
+	 * journal is now larger than the snapshot it applies to.
+	 */
+	public boolean needsCompaction() {
+		return !hasSnapshot || new File(JOURNAL_FILE).length() > snapshotSize;
+	}
+
+	/**
+	 * Records that a new snapshot of p_model has just been written and that
+	 * the journal has been moved aside, so that later calls to append() only
+	 * write what changes from now on.
+	 */
+	public void compacted(CoreEdgeReactionModel p_model) {
+		writtenSpecies.clear();
+		writtenReactions.clear();
+		try {
+			scan(p_model, null);
+		} catch (IOException e) {
+			// Not reached, since nothing is written
+			Logger.logStackTrace(e);
+		}
+		hasSnapshot = true;
+		snapshotSize = new File(CORE_SPECIES_FILE).length() + new File(EDGE_SPECIES_FILE).length()
+				+ new File(CORE_REACTIONS_FILE).length() + new File(EDGE_REACTIONS_FILE).length()
+				+ new File(RestartSnapshot.SNAPSHOT_FILE).length();
+	}
+
+	/**
+	 * Appends to the journal the changes made to p_model since the last
+	 * call to append() or compacted().
+	 */
+	public void append(CoreEdgeReactionModel p_model) {
+		Logger.info("Writing Restart Journal");
+		BufferedWriter bw = null;
+		try {
+			bw = new BufferedWriter(new FileWriter(JOURNAL_FILE, true));
+			scan(p_model, bw);
+			writeRecord(bw, COMMIT, "");
+		} catch (IOException ex) {
+			Logger.logStackTrace(ex);
+		} finally {
+			try {
+				if (bw != null) {
+					bw.flush();
+					bw.close();
+				}
+			} catch (IOException ex) {
+				Logger.logStackTrace(ex);
+			}
+		}
+	}
+
+	/**
+	 * Compares p_model with what has been written so far, updating the
+	 * latter and, if p_writer is not null, writing a journal record for
+	 * every difference.
+	 */
+	private void scan(CoreEdgeReactionModel p_model, BufferedWriter p_writer) throws IOException {
+		pass++;
+		Temperature T = new Temperature(298, "K");
+
+		// Core species never leave the core; edge species may move to the
+		// core or be pruned
+		for (Iterator iter = p_model.getReactedSpeciesSet().iterator(); iter.hasNext(); ) {
+			Species species = (Species) iter.next();
+			Entry entry = (Entry) writtenSpecies.get(species);
+			if (entry == null || !entry.core) {
+				if (p_writer != null) writeRecord(p_writer, CORE_SPECIES, speciesBlock(species));
+				entry = markWritten(writtenSpecies, species, true, 0);
+			}
+			entry.pass = pass;
+		}
+		for (Iterator iter = p_model.getUnreactedSpeciesSet().iterator(); iter.hasNext(); ) {
+			Species species = (Species) iter.next();
+			Entry entry = (Entry) writtenSpecies.get(species);
+			if (entry == null) {
+				if (p_writer != null) writeRecord(p_writer, EDGE_SPECIES, speciesBlock(species));
+				entry = markWritten(writtenSpecies, species, false, 0);
+			}
+			entry.pass = pass;
+		}
+
+		// Reactions are written in the forward direction, as in the snapshot;
+		// those whose kinetics have changed are written again
+		for (Iterator iter = p_model.getReactedReactionSet().iterator(); iter.hasNext(); ) {
+			Reaction reaction = (Reaction) iter.next();
+			if (!reaction.isForward() || reaction instanceof ThirdBodyReaction
+					|| reaction instanceof TROEReaction || reaction instanceof LindemannReaction)
+				continue;
+			Entry entry = (Entry) writtenReactions.get(reaction);
+			int version = reaction.getKineticsVersion();
+			if (entry == null || !entry.core || entry.version != version) {
+				if (p_writer != null) writeRecord(p_writer, CORE_REACTION, reaction.toRestartString(T, false));
+				entry = markWritten(writtenReactions, reaction, true, version);
+			}
+			entry.pass = pass;
+		}
+		for (Iterator iter = p_model.getUnreactedReactionSet().iterator(); iter.hasNext(); ) {
+			Reaction reaction = (Reaction) iter.next();
+			if (!reaction.isForward()) {
+				if (reaction.getReverseReaction() == null || !reaction.getReverseReaction().isForward()) {
+					if (p_writer != null) Logger.warning("Could not determine forward direction for following rxn: " + reaction.toString());
+					continue;
+				}
+				reaction = reaction.getReverseReaction();
+			}
+			Entry entry = (Entry) writtenReactions.get(reaction);
+			int version = reaction.getKineticsVersion();
+			if (entry == null || (!entry.core && entry.version != version)) {
+				if (p_writer != null) writeRecord(p_writer, EDGE_REACTION, reaction.toRestartString(T, false));
+				entry = markWritten(writtenReactions, reaction, false, version);
+			}
+			entry.pass = pass;
+		}
+
+		// Whatever was in the edge and was not seen has been pruned (or
+		// replaced by an equal reaction in the core, which is harmless)
+		for (Iterator iter = writtenReactions.entrySet().iterator(); iter.hasNext(); ) {
+			Map.Entry e = (Map.Entry) iter.next();
+			Entry entry = (Entry) e.getValue();
+			if (entry.pass != pass) {
+				Reaction reaction = (Reaction) e.getKey();
+				if (p_writer != null && !entry.core) writeRecord(p_writer, PRUNE_REACTION, reactionKey(reaction));
+				iter.remove();
+			}
+		}
+		for (Iterator iter = writtenSpecies.entrySet().iterator(); iter.hasNext(); ) {
+			Map.Entry e = (Map.Entry) iter.next();
+			Entry entry = (Entry) e.getValue();
+			if (entry.pass != pass) {
+				Species species = (Species) e.getKey();
+				if (p_writer != null && !entry.core) writeRecord(p_writer, PRUNE_SPECIES, species.getFullName());
+				iter.remove();
+			}
+		}
+	}
+
+	private static Entry markWritten(IdentityHashMap p_written, Object p_key, boolean p_core, int p_version) {
+		Entry entry = new Entry();
+		entry.core = p_core;
+		entry.version = p_version;
+		p_written.put(p_key, entry);
+		return entry;
+	}
+
+	/**
+	 * Returns the name and adjacency list of a species, as in the species
+	 * snapshot files.
+	 */
+	private static String speciesBlock(Species p_species) {
+		int dummyInt = 0;
+		return p_species.getFullName() + "\n" + p_species.getChemGraph().toString(dummyInt);
+	}
+
+	/**
+	 * Returns the reaction equation that begins each line of the restart
+	 * string of p_reaction, which identifies it in the reaction files.
+	 */
+	public static String reactionKey(Reaction p_reaction) {
+		return p_reaction.getStructure().toRestartString(p_reaction.hasReverseReaction()).toString().trim();
+	}
+
+	/**
+	 * Writes one record: a header line with the type of the record, the
+	 * number of lines of p_payload and their CRC-32, followed by those lines.
+	 */
+	private static void writeRecord(BufferedWriter p_writer, String p_type, String p_payload) throws IOException {
+		String[] lines = payloadLines(p_payload);
+		p_writer.write("#" + p_type + " " + lines.length + " " + Long.toHexString(checksum(lines)));
+		p_writer.newLine();
+		for (int i = 0; i < lines.length; i++) {
+			p_writer.write(lines[i]);
+			p_writer.newLine();
+		}
+	}
+
+	/**
+	 * Splits p_payload into lines, dropping blank lines and the DUP markers
+	 * between the kinetics of a duplicate reaction (which the readers of the
+	 * reaction files skip).
+	 */
+	private static String[] payloadLines(String p_payload) {
+		LinkedList lines = new LinkedList();
+		StringTokenizer st = new StringTokenizer(p_payload, "\r\n");
+		while (st.hasMoreTokens()) {
+			String line = st.nextToken();
+			if (line.trim().length() > 0 && !line.trim().equals("DUP"))
+				lines.add(line);
+		}
+		return (String[]) lines.toArray(new String[lines.size()]);
+	}
+
+	private static long checksum(String[] p_lines) {
+		CRC32 crc = new CRC32();
+		try {
+			for (int i = 0; i < p_lines.length; i++) {
+				crc.update(p_lines[i].getBytes("UTF-8"));
+				crc.update('\n');
+			}
+		} catch (UnsupportedEncodingException e) {
+			// UTF-8 is always supported
+			Logger.logStackTrace(e);
+		}
+		return crc.getValue();
+	}
+
+	//==========================================================================
+
+	/**
+	 * Returns the records of the journal, each as {type, payload}, up to the
+	 * last COMMIT record that is preceded only by intact records.
+	 */
+	private static LinkedList readJournal() {
+		LinkedList committed = new LinkedList();
+		if (!new File(JOURNAL_FILE).exists())
+			return committed;
+		LinkedList pending = new LinkedList();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(JOURNAL_FILE));
+			String header = reader.readLine();
+			while (header != null) {
+				StringTokenizer st = new StringTokenizer(header);
+				if (!header.startsWith("#") || st.countTokens() != 3) {
+					Logger.warning("Ignoring the rest of the restart journal: bad record header \"" + header + "\"");
+					break;
+				}
+				String type = st.nextToken().substring(1);
+				int count = Integer.parseInt(st.nextToken());
+				long crc = Long.parseLong(st.nextToken(), 16);
+				String[] lines = new String[count];
+				int n = 0;
+				while (n < count && (lines[n] = reader.readLine()) != null) n++;
+				if (n < count || checksum(lines) != crc) {
+					Logger.warning("Ignoring the rest of the restart journal: incomplete or corrupt " + type + " record");
+					break;
+				}
+				if (type.equals(COMMIT)) {
+					committed.addAll(pending);
+					pending.clear();
+				}
+				else {
+					StringBuilder payload = new StringBuilder();
+					for (int i = 0; i < count; i++) {
+						if (i > 0) payload.append("\n");
+						payload.append(lines[i]);
+					}
+					pending.add(new String[] {type, payload.toString()});
+				}
+				header = reader.readLine();
+			}
+		} catch (NumberFormatException e) {
+			Logger.warning("Ignoring the rest of the restart journal: bad record header");
+		} catch (IOException e) {
+			Logger.logStackTrace(e);
+		} finally {
+			try {
+				if (reader != null) reader.close();
+			} catch (IOException e) {
+				Logger.logStackTrace(e);
+			}
+		}
+		if (!pending.isEmpty())
+			Logger.warning("Ignoring " + pending.size() + " uncommitted records at the end of the restart journal");
+		return committed;
+	}
+
+	/**
+	 * Applies the journal to the species of a snapshot, given by full name
+	 * in p_core and p_edge. Species added by the journal are put in as their
+	 * name and adjacency list (one String); a species moved from the edge to
+	 * the core keeps its value.
+	 */
+	public static void replaySpecies(LinkedHashMap p_core, LinkedHashMap p_edge) {
+		for (Iterator iter = readJournal().iterator(); iter.hasNext(); ) {
+			String[] record = (String[]) iter.next();
+			String type = record[0];
+			String name = firstLine(record[1]);
+			if (type.equals(CORE_SPECIES)) {
+				Object value = p_edge.remove(name);
+				p_core.put(name, value != null ? value : record[1]);
+			}
+			else if (type.equals(EDGE_SPECIES)) {
+				if (!p_edge.containsKey(name)) p_edge.put(name, record[1]);
+			}
+			else if (type.equals(PRUNE_SPECIES)) {
+				p_edge.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Applies the journal to the reactions of a snapshot, given by reaction
+	 * equation (see reactionKey()) in p_core and p_edge. Reactions added by
+	 * the journal are put in as their restart string lines (one String),
+	 * in the units of Ea of the snapshot.
+	 */
+	public static void replayReactions(LinkedHashMap p_core, LinkedHashMap p_edge) {
+		for (Iterator iter = readJournal().iterator(); iter.hasNext(); ) {
+			String[] record = (String[]) iter.next();
+			String type = record[0];
+			String key = firstToken(record[1]);
+			if (type.equals(CORE_REACTION)) {
+				p_edge.remove(key);
+				p_core.put(key, record[1]);
+			}
+			else if (type.equals(EDGE_REACTION)) {
+				p_edge.put(key, record[1]);
+			}
+			else if (type.equals(PRUNE_REACTION)) {
+				p_edge.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Returns a reader of the core (p_core = true) or edge species snapshot
+	 * with the journal applied: the name of each species on one line,
+	 * followed by its adjacency list and a blank line. The snapshot is read
+	 * one species at a time as the returned reader is read, so only the
+	 * journal is held in memory.
+	 */
+	public static BufferedReader openSpecies(boolean p_core) throws IOException {
+		JournalChanges changes = new JournalChanges();
+		for (Iterator iter = readJournal().iterator(); iter.hasNext(); ) {
+			String[] record = (String[]) iter.next();
+			String type = record[0];
+			String name = firstLine(record[1]);
+			if (type.equals(CORE_SPECIES)) {
+				if (p_core) changes.put(name, record[1]);
+				else changes.remove(name);
+			}
+			else if (!p_core && type.equals(EDGE_SPECIES)) {
+				changes.put(name, record[1]);
+			}
+			else if (!p_core && type.equals(PRUNE_SPECIES)) {
+				changes.remove(name);
+			}
+		}
+
+		String file = p_core ? CORE_SPECIES_FILE : EDGE_SPECIES_FILE;
+		BufferedReader snapshot = new File(file).exists() ? new BufferedReader(new FileReader(file)) : null;
+		return new BufferedReader(new ReplayReader(snapshot, changes, "", "\n\n") {
+			protected String[] nextEntry(BufferedReader p_snapshot) throws IOException {
+				String name = ChemParser.readMeaningfulLine(p_snapshot, true);
+				if (name == null)
+					return null;
+				StringBuilder block = new StringBuilder(name);
+				String line = p_snapshot.readLine();
+				while (line != null && line.trim().length() > 0) {
+					block.append("\n").append(line);
+					line = p_snapshot.readLine();
+				}
+				return new String[] {name, block.toString()};
+			}
+		});
+	}
+
+	/**
+	 * Returns a reader of the core (p_core = true) or edge reactions
+	 * snapshot with the journal applied: a line with the units of Ea,
+	 * followed by the restart string of each reaction. As with
+	 * openSpecies(), the snapshot is read as the returned reader is read.
+	 */
+	public static BufferedReader openReactions(boolean p_core) throws IOException {
+		JournalChanges changes = new JournalChanges();
+		for (Iterator iter = readJournal().iterator(); iter.hasNext(); ) {
+			String[] record = (String[]) iter.next();
+			String type = record[0];
+			String key = firstToken(record[1]);
+			if (type.equals(CORE_REACTION)) {
+				if (p_core) changes.put(key, record[1]);
+				else changes.remove(key);
+			}
+			else if (!p_core && type.equals(EDGE_REACTION)) {
+				changes.put(key, record[1]);
+			}
+			else if (!p_core && type.equals(PRUNE_REACTION)) {
+				changes.remove(key);
+			}
+		}
+
+		String file = p_core ? CORE_REACTIONS_FILE : EDGE_REACTIONS_FILE;
+		BufferedReader snapshot = null;
+		String units = null;
+		if (new File(file).exists()) {
+			snapshot = new BufferedReader(new FileReader(file));
+			units = ChemParser.readMeaningfulLine(snapshot, true);
+		}
+		if (units == null)
+			units = "UnitsOfEa: " + ArrheniusKinetics.getEaUnits();
+		return new BufferedReader(new ReplayReader(snapshot, changes, units + "\n", "\n") {
+			/** The first line of the next reaction, already read. */
+			private String next = null;
+
+			protected String[] nextEntry(BufferedReader p_snapshot) throws IOException {
+				// The kinetics of a duplicate reaction are on consecutive
+				// lines with the same equation
+				if (next == null)
+					next = readReactionLine(p_snapshot);
+				if (next == null)
+					return null;
+				String key = firstToken(next);
+				StringBuilder lines = new StringBuilder(next);
+				next = readReactionLine(p_snapshot);
+				while (next != null && firstToken(next).equals(key)) {
+					lines.append("\n").append(next);
+					next = readReactionLine(p_snapshot);
+				}
+				return new String[] {key, lines.toString()};
+			}
+		});
+	}
+
+	private static String readReactionLine(BufferedReader p_reader) throws IOException {
+		String line = ChemParser.readMeaningfulLine(p_reader, true);
+		while (line != null && line.equals("DUP"))
+			line = ChemParser.readMeaningfulLine(p_reader, true);
+		return line;
+	}
+
+	/**
+	 * What the journal does to one snapshot file: the entries it removes
+	 * from the snapshot, and those it puts in, by key and in the order they
+	 * would be appended. An entry put in under a key of the snapshot that
+	 * was not removed first replaces it in place.
+	 */
+	private static class JournalChanges {
+		LinkedHashMap added = new LinkedHashMap();
+		HashSet removed = new HashSet();
+
+		void put(String p_key, String p_text) {
+			added.put(p_key, p_text);
+		}
+
+		void remove(String p_key) {
+			added.remove(p_key);
+			removed.add(p_key);
+		}
+	}
+
+	/**
+	 * Reads a snapshot file entry by entry with the changes of the journal
+	 * applied, followed by the entries the journal appends. Subclasses split
+	 * the snapshot into entries.
+	 */
+	private static abstract class ReplayReader extends Reader {
+		private BufferedReader snapshot;
+		private JournalChanges changes;
+		private String separator;
+		/** The keys of the snapshot already replaced by the journal. */
+		private HashSet replaced = new HashSet();
+		private Iterator appended = null;
+		private String text;
+		private int position = 0;
+
+		ReplayReader(BufferedReader p_snapshot, JournalChanges p_changes, String p_header, String p_separator) {
+			snapshot = p_snapshot;
+			changes = p_changes;
+			text = p_header;
+			separator = p_separator;
+		}
+
+		/**
+		 * Returns the next entry of the snapshot as {key, text}, or null at
+		 * the end of the snapshot.
+		 */
+		protected abstract String[] nextEntry(BufferedReader p_snapshot) throws IOException;
+
+		/** Moves text on to the next entry; returns false if there is none. */
+		private boolean advance() throws IOException {
+			while (snapshot != null) {
+				String[] entry = nextEntry(snapshot);
+				if (entry == null) {
+					snapshot.close();
+					snapshot = null;
+					break;
+				}
+				String key = entry[0];
+				if (changes.removed.contains(key) || replaced.contains(key))
+					continue;
+				if (changes.added.containsKey(key)) {
+					text = (String) changes.added.remove(key) + separator;
+					replaced.add(key);
+				}
+				else
+					text = entry[1] + separator;
+				position = 0;
+				return true;
+			}
+			if (appended == null)
+				appended = changes.added.values().iterator();
+			if (!appended.hasNext())
+				return false;
+			text = (String) appended.next() + separator;
+			position = 0;
+			return true;
+		}
+
+		public int read(char[] p_buffer, int p_offset, int p_length) throws IOException {
+			while (position >= text.length())
+				if (!advance())
+					return -1;
+			int n = Math.min(p_length, text.length() - position);
+			text.getChars(position, position + n, p_buffer, p_offset);
+			position += n;
+			return n;
+		}
+
+		public void close() throws IOException {
+			if (snapshot != null) {
+				snapshot.close();
+				snapshot = null;
+			}
+		}
+	}
+
+	private static String firstLine(String p_text) {
+		int end = p_text.indexOf('\n');
+		return (end < 0 ? p_text : p_text.substring(0, end)).trim();
+	}
+
+	private static String firstToken(String p_text) {
+		StringTokenizer st = new StringTokenizer(p_text);
+		return st.hasMoreTokens() ? st.nextToken() : "";
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\RestartJournal.java
+*********************************************************************/
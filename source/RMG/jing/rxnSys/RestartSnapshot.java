@@ -0,0 +1,434 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.StringTokenizer;
+
+import jing.chem.ChemGraph;
+import jing.chem.ForbiddenStructureException;
+import jing.chem.Species;
+import jing.chem.SpeciesDictionary;
+import jing.chemParser.ChemParser;
+import jing.chemUtil.Graph;
+import jing.mathTool.UncertainDouble;
+import jing.param.Temperature;
+import jing.rxn.ArrheniusEPKinetics;
+import jing.rxn.ArrheniusKinetics;
+import jing.rxn.Kinetics;
+import jing.rxn.LindemannReaction;
+import jing.rxn.Reaction;
+import jing.rxn.Structure;
+import jing.rxn.TROEReaction;
+import jing.rxn.ThirdBodyReaction;
+
+/**
+ * A binary snapshot of the core and edge of a reaction model
+ * (Restart/snapshot.bin), from which a restarted job can rebuild the model
+ * without estimating thermo data again or parsing text.
+ * <p>
+ * Each species is stored with its ID, name, canonical string, graph (as
+ * arrays of nodes and bonds), thermo data and NASA polynomials (see
+ * Species.writeRestartData()), and each reaction with its equation, the
+ * IDs of its reactants and products, whether it is reversible, and its
+ * Arrhenius kinetics (Ea in kcal/mol). The records follow each other with
+ * no index, so the file is read in one pass; the restart journal is then
+ * applied to it just as to the text snapshot. The third-body, Troe and
+ * Lindemann core reactions and the pressure-dependent networks are not part
+ * of the snapshot; they are still read from pdepreactions.txt (with
+ * coreSpecies.txt) and pdepnetworks.txt.
+ */
+public class RestartSnapshot {
+
+	public static final String SNAPSHOT_FILE = "Restart/snapshot.bin";
+
+	private static final int MAGIC = 0x524D4753;	// "RMGS"
+	private static final int VERSION = 1;
+
+	private static final byte END = 0;
+	private static final byte CORE = 1;
+	private static final byte EDGE = 2;
+
+	/** The species of the core and edge, by full name. */
+	private LinkedHashMap coreSpecies = new LinkedHashMap();
+	private LinkedHashMap edgeSpecies = new LinkedHashMap();
+
+	/**
+	 * The reactions of the core and edge, by equation: a ReactionRecord if
+	 * read from the snapshot, or the restart string lines if from the journal.
+	 */
+	private LinkedHashMap coreReactions = new LinkedHashMap();
+	private LinkedHashMap edgeReactions = new LinkedHashMap();
+
+	/** The units of Ea of the reactions in the journal. */
+	private String eaUnits;
+
+	/** A reaction as stored in the snapshot. */
+	private static class ReactionRecord {
+		int[] reactantIDs;
+		int[] productIDs;
+		boolean reversible;
+		double[] A;
+		double[] n;
+		double[] E;
+		String[] source;
+		String[] comment;
+	}
+
+	private RestartSnapshot() {
+	}
+
+	//==========================================================================
+
+	/**
+	 * Returns true if a binary snapshot is present in the Restart folder.
+	 */
+	public static boolean exists() {
+		return new File(SNAPSHOT_FILE).exists();
+	}
+
+	/**
+	 * Writes the core and edge species and reactions of p_model to the
+	 * binary snapshot, replacing it.
+	 */
+	public static void write(CoreEdgeReactionModel p_model) {
+		Logger.info("Writing Restart Snapshot");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(SNAPSHOT_FILE), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(ArrheniusKinetics.getEaUnits());
+
+			for (Iterator iter = p_model.getReactedSpeciesSet().iterator(); iter.hasNext(); ) {
+				out.writeByte(CORE);
+				((Species) iter.next()).writeRestartData(out);
+			}
+			for (Iterator iter = p_model.getUnreactedSpeciesSet().iterator(); iter.hasNext(); ) {
+				out.writeByte(EDGE);
+				((Species) iter.next()).writeRestartData(out);
+			}
+			out.writeByte(END);
+
+			for (Iterator iter = p_model.getReactedReactionSet().iterator(); iter.hasNext(); ) {
+				Reaction reaction = (Reaction) iter.next();
+				if (reaction.isForward() && !(reaction instanceof ThirdBodyReaction)
+						&& !(reaction instanceof TROEReaction) && !(reaction instanceof LindemannReaction)) {
+					out.writeByte(CORE);
+					writeReaction(out, reaction);
+				}
+			}
+			for (Iterator iter = p_model.getUnreactedReactionSet().iterator(); iter.hasNext(); ) {
+				Reaction reaction = (Reaction) iter.next();
+				if (!reaction.isForward()) {
+					if (reaction.getReverseReaction() == null || !reaction.getReverseReaction().isForward()) {
+						Logger.warning("Could not determine forward direction for following rxn: " + reaction.toString());
+						continue;
+					}
+					reaction = reaction.getReverseReaction();
+				}
+				out.writeByte(EDGE);
+				writeReaction(out, reaction);
+			}
+			out.writeByte(END);
+		} catch (IOException ex) {
+			Logger.logStackTrace(ex);
+		} finally {
+			try {
+				if (out != null) out.close();
+			} catch (IOException ex) {
+				Logger.logStackTrace(ex);
+			}
+		}
+	}
+
+	/**
+	 * Writes one reaction in its forward direction. As in the text restart
+	 * files, the kinetics are those at 298 K, and Evans-Polanyi kinetics are
+	 * written with the barrier for the enthalpy of reaction at 298 K.
+	 */
+	private static void writeReaction(DataOutputStream p_out, Reaction p_reaction) throws IOException {
+		p_out.writeUTF(RestartJournal.reactionKey(p_reaction));
+		p_out.writeBoolean(p_reaction.hasReverseReaction());
+		p_out.writeByte(p_reaction.getReactantNumber());
+		for (Iterator iter = p_reaction.getReactants(); iter.hasNext(); )
+			p_out.writeInt(((Species) iter.next()).getID());
+		p_out.writeByte(p_reaction.getProductNumber());
+		for (Iterator iter = p_reaction.getProducts(); iter.hasNext(); )
+			p_out.writeInt(((Species) iter.next()).getID());
+
+		Temperature T = new Temperature(298, "K");
+		Kinetics[] allKinetics = p_reaction.getKinetics();
+		p_out.writeShort(allKinetics.length);
+		for (int i = 0; i < allKinetics.length; i++) {
+			Kinetics k = allKinetics[i];
+			if (k instanceof ArrheniusEPKinetics)
+				k = ((ArrheniusEPKinetics) k).fixBarrier(p_reaction.calculateHrxn(T));
+			p_out.writeDouble(k.getAValue());
+			p_out.writeDouble(k.getNValue());
+			p_out.writeDouble(k.getEValue());
+			p_out.writeUTF(k.getSource() == null ? "" : k.getSource());
+			p_out.writeUTF(k.getComment() == null ? "" : k.getComment());
+		}
+	}
+
+	//==========================================================================
+
+	/**
+	 * Reads the binary snapshot and applies the restart journal to it. The
+	 * species are made (and added to the species dictionary) at once; the
+	 * reactions are made by getCoreReactions() and getEdgeReactions().
+	 * (The file is read into the heap rather than mapped, since a live
+	 * mapping keeps the file locked on Windows, and the snapshot is renamed
+	 * when it is next written.)
+	 */
+	public static RestartSnapshot read() throws IOException {
+		byte[] bytes;
+		FileInputStream fis = new FileInputStream(SNAPSHOT_FILE);
+		try {
+			FileChannel channel = fis.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) break;
+			}
+			bytes = buffer.array();
+		} finally {
+			fis.close();
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException(SNAPSHOT_FILE + " is not a restart snapshot of this version of RMG");
+
+		RestartSnapshot snapshot = new RestartSnapshot();
+		snapshot.eaUnits = in.readUTF();
+
+		LinkedList snapshotSpecies = new LinkedList();
+		for (byte type = in.readByte(); type != END; type = in.readByte()) {
+			Species species = Species.readRestartData(in);
+			snapshotSpecies.add(species);
+			(type == CORE ? snapshot.coreSpecies : snapshot.edgeSpecies).put(species.getFullName(), species);
+		}
+		for (byte type = in.readByte(); type != END; type = in.readByte()) {
+			String key = in.readUTF();
+			(type == CORE ? snapshot.coreReactions : snapshot.edgeReactions).put(key, readReaction(in));
+		}
+
+		RestartJournal.replaySpecies(snapshot.coreSpecies, snapshot.edgeSpecies);
+		RestartJournal.replayReactions(snapshot.coreReactions, snapshot.edgeReactions);
+
+		// Make the species added by the journal, and drop those it pruned
+		snapshot.makeSpecies(snapshot.coreSpecies);
+		snapshot.makeSpecies(snapshot.edgeSpecies);
+		HashSet kept = new HashSet(snapshot.coreSpecies.values());
+		kept.addAll(snapshot.edgeSpecies.values());
+		for (Iterator iter = snapshotSpecies.iterator(); iter.hasNext(); ) {
+			Species species = (Species) iter.next();
+			if (!kept.contains(species)) SpeciesDictionary.getInstance().remove(species);
+		}
+		return snapshot;
+	}
+
+	private static ReactionRecord readReaction(DataInputStream p_in) throws IOException {
+		ReactionRecord record = new ReactionRecord();
+		record.reversible = p_in.readBoolean();
+		record.reactantIDs = new int[p_in.readByte()];
+		for (int i = 0; i < record.reactantIDs.length; i++)
+			record.reactantIDs[i] = p_in.readInt();
+		record.productIDs = new int[p_in.readByte()];
+		for (int i = 0; i < record.productIDs.length; i++)
+			record.productIDs[i] = p_in.readInt();
+		int numKinetics = p_in.readShort();
+		record.A = new double[numKinetics];
+		record.n = new double[numKinetics];
+		record.E = new double[numKinetics];
+		record.source = new String[numKinetics];
+		record.comment = new String[numKinetics];
+		for (int i = 0; i < numKinetics; i++) {
+			record.A[i] = p_in.readDouble();
+			record.n[i] = p_in.readDouble();
+			record.E[i] = p_in.readDouble();
+			record.source[i] = p_in.readUTF();
+			record.comment[i] = p_in.readUTF();
+		}
+		return record;
+	}
+
+	/**
+	 * Replaces the name and adjacency list of each species added by the
+	 * journal with the species itself.
+	 */
+	private void makeSpecies(LinkedHashMap p_species) throws IOException {
+		for (Iterator iter = p_species.entrySet().iterator(); iter.hasNext(); ) {
+			java.util.Map.Entry entry = (java.util.Map.Entry) iter.next();
+			if (!(entry.getValue() instanceof String)) continue;
+			BufferedReader reader = new BufferedReader(new StringReader((String) entry.getValue()));
+			// The first line is the name, followed by the ID in parentheses
+			String totalSpeciesName = ChemParser.readMeaningfulLine(reader, true);
+			int idLocation = totalSpeciesName.lastIndexOf('(');
+			String name = totalSpeciesName.substring(0, idLocation);
+			int id = Integer.parseInt(totalSpeciesName.substring(idLocation + 1, totalSpeciesName.lastIndexOf(')')));
+			Graph g = ChemParser.readChemGraph(reader);
+			ChemGraph cg = null;
+			try {
+				cg = ChemGraph.make(g);
+			} catch (ForbiddenStructureException e) {
+				Logger.critical("Error reading graph: Graph contains a forbidden structure.\n" + g.toString());
+				System.exit(0);
+			}
+			entry.setValue(Species.make(name, cg, id));
+		}
+	}
+
+	/**
+	 * Returns the core species.
+	 */
+	public LinkedHashSet getCoreSpecies() {
+		return new LinkedHashSet(coreSpecies.values());
+	}
+
+	/**
+	 * Returns the edge species.
+	 */
+	public LinkedHashSet getEdgeSpecies() {
+		return new LinkedHashSet(edgeSpecies.values());
+	}
+
+	/**
+	 * Returns the core reactions, each with its reverse reaction if it is
+	 * reversible. p_coreSpeciesIDs are the IDs of the core species.
+	 */
+	public LinkedHashSet getCoreReactions(int[] p_coreSpeciesIDs) {
+		return makeReactions(coreReactions, p_coreSpeciesIDs, true);
+	}
+
+	/**
+	 * Returns the edge reactions, each in the direction whose reactants are
+	 * all core species, and with its reverse reaction. p_coreSpeciesIDs are
+	 * the IDs of the core species.
+	 */
+	public LinkedHashSet getEdgeReactions(int[] p_coreSpeciesIDs) {
+		return makeReactions(edgeReactions, p_coreSpeciesIDs, false);
+	}
+
+	/**
+	 * Makes the reactions in p_records the way readRestartReactions() makes
+	 * those of the text restart files: reactions that are equal are merged,
+	 * the later kinetics being added to the first reaction as duplicates.
+	 */
+	private LinkedHashSet makeReactions(LinkedHashMap p_records, int[] p_coreSpeciesIDs, boolean p_core) {
+		LinkedHashSet reactions = new LinkedHashSet();
+		HashMap made = new HashMap();
+		HashSet coreIDs = new HashSet();
+		for (int i = 0; i < p_coreSpeciesIDs.length; i++)
+			coreIDs.add(Integer.valueOf(p_coreSpeciesIDs[i]));
+
+		for (Iterator iter = p_records.values().iterator(); iter.hasNext(); ) {
+			Object value = iter.next();
+			if (value instanceof ReactionRecord) {
+				ReactionRecord record = (ReactionRecord) value;
+				Kinetics[] k = new Kinetics[record.A.length];
+				for (int i = 0; i < k.length; i++) {
+					k[i] = new ArrheniusKinetics(new UncertainDouble(record.A[i],0.0,"A"),
+							new UncertainDouble(record.n[i],0.0,"A"), new UncertainDouble(record.E[i],0.0,"A"),
+							"", 1, record.source[i], record.comment[i]);
+				}
+				LinkedList r = speciesList(record.reactantIDs);
+				LinkedList p = speciesList(record.productIDs);
+				Structure s = new Structure(r, p);
+				s.setDirection(1);
+				// As in ChemParser.parseRestartReaction: an edge reaction is stored
+				// in the reverse direction unless all of its reactants are core species
+				boolean storeAsForward = true;
+				if (!p_core) {
+					for (int i = 0; i < record.reactantIDs.length; i++) {
+						if (!coreIDs.contains(Integer.valueOf(record.reactantIDs[i]))) {
+							storeAsForward = false;
+							break;
+						}
+					}
+				}
+				for (int i = 0; i < k.length; i++) {
+					Kinetics[] ki = {k[i]};
+					Reaction rxn = storeAsForward ? Reaction.makeReaction(s, ki, record.reversible)
+							: Reaction.makeReaction(s.generateReverseStructure(), ki, record.reversible);
+					addReaction(reactions, made, rxn, p_core);
+				}
+			}
+			else {
+				StringTokenizer lines = new StringTokenizer((String) value, "\n");
+				while (lines.hasMoreTokens()) {
+					String line = lines.nextToken();
+					if (line.trim().equals("DUP")) continue;
+					Reaction rxn = ChemParser.parseRestartReaction(line, p_coreSpeciesIDs, p_core ? "core" : "edge", eaUnits);
+					addReaction(reactions, made, rxn, p_core);
+				}
+			}
+		}
+		return reactions;
+	}
+
+	private static void addReaction(LinkedHashSet p_reactions, HashMap p_made, Reaction p_reaction, boolean p_core) {
+		Reaction old = (Reaction) p_made.get(p_reaction);
+		if (old != null) {
+			old.addAdditionalKinetics(p_reaction.getKinetics()[0], 1, true);
+			return;
+		}
+		if (!p_core || p_reaction.hasReverseReaction()) p_reaction.generateReverseReaction();
+		p_reactions.add(p_reaction);
+		p_made.put(p_reaction, p_reaction);
+	}
+
+	private static LinkedList speciesList(int[] p_ids) {
+		LinkedList species = new LinkedList();
+		for (int i = 0; i < p_ids.length; i++)
+			species.add(SpeciesDictionary.getSpeciesFromID(p_ids[i]));
+		return species;
+	}
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\RestartSnapshot.java
+*********************************************************************/
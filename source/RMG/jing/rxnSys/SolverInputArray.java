@@ -0,0 +1,149 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//	RMG - Reaction Mechanism Generator
+//
+//	Copyright (c) 2002-2011 Prof. William H. Green (whgreen@mit.edu) and the
+//	RMG Team (rmg_dev@mit.edu)
+//
+//	Permission is hereby granted, free of charge, to any person obtaining a
+//	copy of this software and associated documentation files (the "Software"),
+//	to deal in the Software without restriction, including without limitation
+//	the rights to use, copy, modify, merge, publish, distribute, sublicense,
+//	and/or sell copies of the Software, and to permit persons to whom the
+//	Software is furnished to do so, subject to the following conditions:
+//
+//	The above copyright notice and this permission notice shall be included in
+//	all copies or substantial portions of the Software.
+//
+//	THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+//	IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+//	FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+//	AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+//	LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+//	FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+//	DEALINGS IN THE SOFTWARE.
+//
+////////////////////////////////////////////////////////////////////////////////
+
+
+package jing.rxnSys;
+
+import java.io.IOException;
+import java.io.Writer;
+
+//## package jing::rxnSys
+
+//----------------------------------------------------------------------------
+// jing\rxnSys\SolverInputArray.java
+//----------------------------------------------------------------------------
+
+/**
+ * One block of the ODE solver input file, i.e. the integer array followed by the real array
+ * that describe a list of reactions (or the real array alone, for the species thermo).
+ * The values are kept packed and only formatted when the block is written.
+ */
+public class SolverInputArray {
+
+    protected int[] intArray;
+    protected int intCount = 0;
+    protected double[] realArray;
+    protected int realCount = 0;
+
+    // Constructors
+
+    public SolverInputArray() {
+        intArray = new int[64];
+        realArray = new double[64];
+    }
+
+    public void addInt(int p_value) {
+        if (intCount == intArray.length) {
+            int[] temp = new int[2 * intArray.length];
+            System.arraycopy(intArray, 0, temp, 0, intCount);
+            intArray = temp;
+        }
+        intArray[intCount++] = p_value;
+    }
+
+    public void addReal(double p_value) {
+        if (realCount == realArray.length) {
+            double[] temp = new double[2 * realArray.length];
+            System.arraycopy(realArray, 0, temp, 0, realCount);
+            realArray = temp;
+        }
+        realArray[realCount++] = p_value;
+    }
+
+    /**
+     * Requires:
+     * Effects: append the integer array of p_or (nReac, nProd, r1, r2, r3, p1, p2, p3), padding
+     * the reactant and product IDs with zeroes
+     * Modifies: this
+     */
+    public void addReactionIDs(ODEReaction p_or) {
+        addInt(p_or.rNum);
+        addInt(p_or.pNum);
+        for (int i = 0; i < 3; i++) {
+            if (i < p_or.rNum) {
+                addInt(p_or.rID[i]);
+            } else {
+                addInt(0);
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (i < p_or.pNum) {
+                addInt(p_or.pID[i]);
+            } else {
+                addInt(0);
+            }
+        }
+    }
+
+    public void clear() {
+        intCount = 0;
+        realCount = 0;
+    }
+
+    public int getIntCount() {
+        return intCount;
+    }
+
+    public int getRealCount() {
+        return realCount;
+    }
+
+    /**
+     * The text form read by the Fortran solvers: the integer array on one line and the real
+     * array on the next (the integer line is omitted when there are no integers).
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < intCount; i++) {
+            s.append(intArray[i]).append(' ');
+        }
+        if (intCount > 0) s.append('\n');
+        for (int i = 0; i < realCount; i++) {
+            s.append(realArray[i]).append(' ');
+        }
+        return s.toString();
+    }
+
+    /**
+     * Writes the text form given by toString() straight to p_writer, one number at a time.
+     */
+    public void write(Writer p_writer) throws IOException {
+        for (int i = 0; i < intCount; i++) {
+            p_writer.write(Integer.toString(intArray[i]));
+            p_writer.write(' ');
+        }
+        if (intCount > 0) p_writer.write('\n');
+        for (int i = 0; i < realCount; i++) {
+            p_writer.write(Double.toString(realArray[i]));
+            p_writer.write(' ');
+        }
+    }
+
+}
+/*********************************************************************
+        File Path	: RMG\RMG\jing\rxnSys\SolverInputArray.java
+*********************************************************************/